@@ -15,14 +15,22 @@
  */
 package com.jkoolcloud.tnt4j;
 
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import com.jkoolcloud.tnt4j.sink.impl.PooledLoggerFactory;
+
 /**
  * <p>
  * This class implements a shutdown hook that automatically flushes and shuts down all registered trackers/sinks.
+ * Pooled loggers of factories registered using {@link #addPooledLoggerFactory(PooledLoggerFactory)} are drained
+ * before trackers are flushed, and shutdown waits for them to terminate.
  * </p>
  * 
  * @version $Revision: 2 $
  */
 public class FlushShutdown extends Thread {
+	private static final Set<PooledLoggerFactory> POOLED_FACTORIES = new CopyOnWriteArraySet<>();
 
 	private boolean flush = false;
 
@@ -43,11 +51,40 @@ public class FlushShutdown extends Thread {
 		this.flush = flush;
 	}
 
+	/**
+	 * Registers pooled logger factory, which loggers are drained on JVM shutdown.
+	 *
+	 * @param factory
+	 *            pooled logger factory
+	 * @see PooledLoggerFactory#drainLoggers()
+	 * @see PooledLoggerFactory#awaitLoggers()
+	 */
+	public static void addPooledLoggerFactory(PooledLoggerFactory factory) {
+		POOLED_FACTORIES.add(factory);
+	}
+
+	/**
+	 * Unregisters pooled logger factory.
+	 *
+	 * @param factory
+	 *            pooled logger factory
+	 */
+	public static void removePooledLoggerFactory(PooledLoggerFactory factory) {
+		POOLED_FACTORIES.remove(factory);
+	}
+
 	@Override
 	public void run() {
+		// process buffered events first, so flush and close requests do not wait behind them
+		for (PooledLoggerFactory factory : POOLED_FACTORIES) {
+			factory.drainLoggers();
+		}
 		if (flush) {
 			TrackingLogger.flushAll();
 		}
 		TrackingLogger.shutdownAll();
+		for (PooledLoggerFactory factory : POOLED_FACTORIES) {
+			factory.awaitLoggers();
+		}
 	}
 }
\ No newline at end of file
@@ -73,7 +73,7 @@ public class FileDumpSink extends FileSink implements DumpSink {
 	}
 
 	@Override
-	public synchronized void close() {
+	public synchronized void close() throws IOException {
 		if (isOpen()) {
 			printer.println(dumpFormatter.getCloseStanza(this));
 			printer.flush();
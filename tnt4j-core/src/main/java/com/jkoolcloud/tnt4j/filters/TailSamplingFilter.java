@@ -0,0 +1,477 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.filters;
+
+import java.io.Flushable;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.jkoolcloud.tnt4j.config.ConfigException;
+import com.jkoolcloud.tnt4j.config.Configurable;
+import com.jkoolcloud.tnt4j.core.*;
+import com.jkoolcloud.tnt4j.sink.EventSink;
+import com.jkoolcloud.tnt4j.sink.SinkEventFilter;
+import com.jkoolcloud.tnt4j.sink.impl.ShardingEventSink;
+import com.jkoolcloud.tnt4j.source.Source;
+import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
+import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+import com.jkoolcloud.tnt4j.utils.SharedScheduler;
+import com.jkoolcloud.tnt4j.utils.Utils;
+
+/**
+ * <p>
+ * This class implements tail based sampling of activities. Unlike head sampling, the decision is made when an activity
+ * is logged, so it is based on how the activity ended. Activities are always kept if they failed (have an exception,
+ * {@link ActivityStatus#EXCEPTION} status or completion code other than {@link OpCompCode#SUCCESS}) or if their
+ * elapsed time is at or above a configured percentile of recently logged activities. All other activities are sampled
+ * at a configured rate.
+ * </p>
+ *
+ * <p>
+ * Activities and events are grouped into traces by key: correlator, the smallest one if entry has several
+ * ({@link KeyBy#CORRELATOR}, same key as correlator ordered and sharding sinks use) or activity tracking id, matched by
+ * event parent id ({@link KeyBy#TRACKING_ID}). Events of a trace logged before the activity ends are buffered and
+ * replayed into the sink they were logged to once the activity is kept, or dropped once it is discarded. An event with
+ * an error keeps the whole trace. Buffered events of a trace not decided within {@code BufferWindow} ms are sampled at
+ * the configured rate, by a background thread if no further entries arrive. Pending traces are decided the same way on
+ * {@link #flush()}, which sinks call before closing. Sampling is consistent per key, so all sinks sharing this filter
+ * make the same decision for a trace. Buffer memory is bounded by {@code MaxBufferedEvents} and {@code MaxKeys}: oldest
+ * traces are decided early when limits are reached. Entries without a key, snapshots and messages are not sampled.
+ * </p>
+ *
+ * <p>
+ * Filter is configured using the following properties:
+ * <ul>
+ * <li>{@code KeyBy} - trace key: {@code CORRELATOR} (default), {@code TRACKING_ID}</li>
+ * <li>{@code SampleRate} - fraction of regular activities to keep, between 0 and 1 (default 0.1)</li>
+ * <li>{@code LatencyPercentile} - elapsed time percentile of slow activities kept, 0 disables (default 99)</li>
+ * <li>{@code LatencyWindow} - number of recent activities elapsed time percentile is computed on (default 1024)</li>
+ * <li>{@code BufferWindow} - max time in ms trace events are buffered waiting for a decision (default 30000)</li>
+ * <li>{@code MaxBufferedEvents} - max number of buffered events (default 10000)</li>
+ * <li>{@code MaxKeys} - max number of remembered trace decisions (default 10000)</li>
+ * </ul>
+ *
+ * @see SinkEventFilter
+ * @see Configurable
+ * @see KeyValueStats
+ *
+ * @version $Revision: 1 $
+ *
+ */
+public class TailSamplingFilter implements SinkEventFilter, Configurable, KeyValueStats, Flushable {
+	public static final String KEY_BY = "KeyBy";
+	public static final String SAMPLE_RATE = "SampleRate";
+	public static final String LATENCY_PERCENTILE = "LatencyPercentile";
+	public static final String LATENCY_WINDOW = "LatencyWindow";
+	public static final String BUFFER_WINDOW = "BufferWindow";
+	public static final String MAX_BUFFERED_EVENTS = "MaxBufferedEvents";
+	public static final String MAX_KEYS = "MaxKeys";
+
+	public static final String KEY_KEPT_ERROR = "sampling-kept-error";
+	public static final String KEY_KEPT_SLOW = "sampling-kept-slow";
+	public static final String KEY_KEPT_SAMPLED = "sampling-kept-sampled";
+	public static final String KEY_KEPT_TRACE = "sampling-kept-trace";
+	public static final String KEY_DISCARDED = "sampling-discarded";
+	public static final String KEY_EVENTS_BUFFERED = "sampling-events-buffered";
+	public static final String KEY_EVENTS_REPLAYED = "sampling-events-replayed";
+	public static final String KEY_EVENTS_DISCARDED = "sampling-events-discarded";
+	public static final String KEY_EVENTS_EXPIRED = "sampling-events-expired";
+	public static final String KEY_PENDING_EVENTS = "sampling-pending-events";
+	public static final String KEY_PENDING_KEYS = "sampling-pending-keys";
+	public static final String KEY_LATENCY_THRESHOLD = "sampling-latency-threshold-usec";
+
+	public static final double DEFAULT_SAMPLE_RATE = 0.1;
+	public static final double DEFAULT_LATENCY_PERCENTILE = 99;
+	public static final int DEFAULT_LATENCY_WINDOW = 1024;
+	public static final long DEFAULT_BUFFER_WINDOW = 30000;
+	public static final int DEFAULT_MAX_BUFFERED_EVENTS = 10000;
+	public static final int DEFAULT_MAX_KEYS = 10000;
+
+	// min number of elapsed time samples before latency percentile is applied
+	private static final int MIN_LATENCY_SAMPLES = 100;
+
+
+	/**
+	 * Key used to group activities and events into traces.
+	 */
+	public enum KeyBy {
+		/**
+		 * Correlator of an activity or event, the smallest one if it has several.
+		 */
+		CORRELATOR,
+		/**
+		 * Activity tracking id, matched by event parent id.
+		 */
+		TRACKING_ID
+	}
+
+	KeyBy keyBy = KeyBy.CORRELATOR;
+	double sampleRate = DEFAULT_SAMPLE_RATE;
+	double latencyPercentile = DEFAULT_LATENCY_PERCENTILE;
+	long bufferWindow = DEFAULT_BUFFER_WINDOW;
+	int maxBufferedEvents = DEFAULT_MAX_BUFFERED_EVENTS;
+	int maxKeys = DEFAULT_MAX_KEYS;
+	Map<String, ?> config;
+
+	private long[] latencies = new long[DEFAULT_LATENCY_WINDOW];
+	private int latencyCount = 0;
+	private int latencyPos = 0;
+	private long latencyThreshold = Long.MAX_VALUE;
+
+	private final LinkedHashMap<String, Trace> pending = new LinkedHashMap<>();
+	private final LinkedHashMap<String, Boolean> decisions = new LinkedHashMap<String, Boolean>(64, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			return size() > maxKeys;
+		}
+	};
+	private int pendingEvents = 0;
+	private ScheduledFuture<?> expiryTask;
+
+	private final AtomicLong keptError = new AtomicLong(0);
+	private final AtomicLong keptSlow = new AtomicLong(0);
+	private final AtomicLong keptSampled = new AtomicLong(0);
+	private final AtomicLong keptTrace = new AtomicLong(0);
+	private final AtomicLong discarded = new AtomicLong(0);
+	private final AtomicLong eventsBuffered = new AtomicLong(0);
+	private final AtomicLong eventsReplayed = new AtomicLong(0);
+	private final AtomicLong eventsDiscarded = new AtomicLong(0);
+	private final AtomicLong eventsExpired = new AtomicLong(0);
+
+	/**
+	 * Create a tail sampling filter with default settings.
+	 */
+	public TailSamplingFilter() {
+	}
+
+	/**
+	 * Create a tail sampling filter with given settings.
+	 *
+	 * @param keyBy
+	 *            trace key
+	 * @param sampleRate
+	 *            fraction of regular activities to keep, between 0 and 1
+	 * @param latencyPercentile
+	 *            elapsed time percentile of slow activities always kept, 0 disables
+	 */
+	public TailSamplingFilter(KeyBy keyBy, double sampleRate, double latencyPercentile) {
+		this.keyBy = keyBy;
+		this.sampleRate = sampleRate;
+		this.latencyPercentile = latencyPercentile;
+	}
+
+	@Override
+	public boolean filter(EventSink sink, TrackingEvent event) {
+		String key = keyBy == KeyBy.TRACKING_ID ? event.getParentId() : Utils.getCorrelatorKey(event);
+		if (key == null) {
+			return true;
+		}
+		List<Trace> replay = new ArrayList<>(2);
+		boolean pass;
+		synchronized (this) {
+			expire(System.currentTimeMillis(), replay);
+			Boolean decision = decisions.get(key);
+			if (isFailed(event.getOperation())) {
+				if (decision == null || !decision) {
+					decisions.put(key, Boolean.TRUE);
+					addReplay(pending.remove(key), Boolean.TRUE, replay);
+				}
+				pass = true;
+			} else if (decision != null) {
+				pass = decision;
+			} else {
+				buffer(sink, key, event, replay);
+				pass = false;
+			}
+		}
+		replay(replay);
+		return pass;
+	}
+
+	@Override
+	public boolean filter(EventSink sink, TrackingActivity activity) {
+		String key = keyBy == KeyBy.TRACKING_ID ? activity.getTrackingId() : Utils.getCorrelatorKey(activity);
+		long elapsed = activity.getElapsedTimeUsec();
+		List<Trace> replay = new ArrayList<>(2);
+		boolean keep;
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			expire(now, replay);
+			Boolean decision = key != null ? decisions.get(key) : null;
+			if (isFailed(activity) || activity.getStatus() == ActivityStatus.EXCEPTION) {
+				keep = true;
+				keptError.incrementAndGet();
+			} else if (elapsed >= latencyThreshold) {
+				keep = true;
+				keptSlow.incrementAndGet();
+			} else if (decision != null && decision) {
+				keep = true;
+				keptTrace.incrementAndGet();
+			} else if (isSampled(key)) {
+				keep = true;
+				keptSampled.incrementAndGet();
+			} else {
+				keep = false;
+				discarded.incrementAndGet();
+			}
+			addLatency(elapsed);
+			if (key != null) {
+				if (decision == null || (keep && !decision)) {
+					decisions.put(key, keep);
+				}
+				addReplay(pending.remove(key), keep, replay);
+			}
+		}
+		replay(replay);
+		return keep;
+	}
+
+	@Override
+	public boolean filter(EventSink sink, Snapshot snapshot) {
+		return true;
+	}
+
+	@Override
+	public boolean filter(EventSink sink, long ttl, Source source, OpLevel level, String msg, Object... args) {
+		return true;
+	}
+
+	private static boolean isFailed(Operation op) {
+		return op.getThrowable() != null || op.getCompCode() != OpCompCode.SUCCESS;
+	}
+
+	private boolean isSampled(String key) {
+		if (sampleRate >= 1.0) {
+			return true;
+		}
+		if (sampleRate <= 0.0) {
+			return false;
+		}
+		if (key == null) {
+			return ThreadLocalRandom.current().nextDouble() < sampleRate;
+		}
+		// consistent per key: same trace gets the same decision across sinks and restarts
+		return (ShardingEventSink.hash(key) >>> 11) * 0x1.0p-53 < sampleRate;
+	}
+
+	private void addLatency(long elapsed) {
+		if (latencyPercentile <= 0) {
+			return;
+		}
+		latencies[latencyPos] = elapsed;
+		latencyPos = (latencyPos + 1) % latencies.length;
+		if (latencyCount < latencies.length) {
+			latencyCount++;
+		}
+		// recompute threshold every 1/16 of the window, sorting a window copy is too costly per activity
+		if (latencyCount >= Math.min(MIN_LATENCY_SAMPLES, latencies.length)
+				&& latencyPos % Math.max(1, latencies.length / 16) == 0) {
+			long[] sorted = Arrays.copyOf(latencies, latencyCount);
+			Arrays.sort(sorted);
+			int idx = (int) Math.ceil(latencyPercentile / 100.0 * latencyCount) - 1;
+			latencyThreshold = sorted[Math.max(0, Math.min(latencyCount - 1, idx))];
+		}
+	}
+
+	private void buffer(EventSink sink, String key, TrackingEvent event, List<Trace> replay) {
+		Trace trace = pending.get(key);
+		if (trace == null) {
+			if (pending.size() >= maxKeys) {
+				expireEldest(replay);
+			}
+			trace = new Trace(System.currentTimeMillis());
+			pending.put(key, trace);
+			if (expiryTask == null) {
+				scheduleExpiry(bufferWindow);
+			}
+		}
+		trace.add(sink, event);
+		pendingEvents++;
+		eventsBuffered.incrementAndGet();
+		while (pendingEvents > maxBufferedEvents && !pending.isEmpty()) {
+			expireEldest(replay);
+		}
+	}
+
+	private void expire(long now, List<Trace> replay) {
+		while (!pending.isEmpty() && now - pending.values().iterator().next().created >= bufferWindow) {
+			expireEldest(replay);
+		}
+	}
+
+	private void scheduleExpiry(long delay) {
+		expiryTask = SharedScheduler.schedule(this::expireIdle, Math.max(0, delay), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Expire traces not decided within buffer window when no further entries arrive. Task is scheduled while there
+	 * are pending traces, and rescheduled for the eldest one.
+	 */
+	private void expireIdle() {
+		List<Trace> replay = new ArrayList<>(2);
+		synchronized (this) {
+			expiryTask = null;
+			long now = System.currentTimeMillis();
+			expire(now, replay);
+			if (!pending.isEmpty()) {
+				scheduleExpiry(pending.values().iterator().next().created + bufferWindow - now);
+			}
+		}
+		replay(replay);
+	}
+
+	/**
+	 * Decide all pending traces right away, as if their buffer window elapsed, replaying events of kept traces into
+	 * sinks they were logged to.
+	 */
+	@Override
+	public void flush() {
+		List<Trace> replay = new ArrayList<>();
+		synchronized (this) {
+			while (!pending.isEmpty()) {
+				expireEldest(replay);
+			}
+		}
+		replay(replay);
+	}
+
+	private void expireEldest(List<Trace> replay) {
+		Iterator<Map.Entry<String, Trace>> it = pending.entrySet().iterator();
+		Map.Entry<String, Trace> eldest = it.next();
+		it.remove();
+		boolean keep = isSampled(eldest.getKey());
+		decisions.put(eldest.getKey(), keep);
+		eventsExpired.addAndGet(eldest.getValue().events.size());
+		addReplay(eldest.getValue(), keep, replay);
+	}
+
+	private void addReplay(Trace trace, boolean keep, List<Trace> replay) {
+		if (trace == null) {
+			return;
+		}
+		pendingEvents -= trace.events.size();
+		if (keep) {
+			replay.add(trace);
+		} else {
+			eventsDiscarded.addAndGet(trace.events.size());
+		}
+	}
+
+	private void replay(List<Trace> replay) {
+		for (Trace trace : replay) {
+			for (int i = 0; i < trace.events.size(); i++) {
+				eventsReplayed.incrementAndGet();
+				trace.sinks.get(i).log(trace.events.get(i));
+			}
+		}
+	}
+
+	@Override
+	public Map<String, ?> getConfiguration() {
+		return config;
+	}
+
+	@Override
+	public void setConfiguration(Map<String, ?> settings) throws ConfigException {
+		config = settings;
+		try {
+			keyBy = KeyBy.valueOf(Utils.getString(KEY_BY, settings, keyBy.name()).toUpperCase());
+		} catch (IllegalArgumentException exc) {
+			throw new ConfigException(exc.getLocalizedMessage(), settings);
+		}
+		sampleRate = Utils.getDouble(SAMPLE_RATE, settings, sampleRate);
+		latencyPercentile = Utils.getDouble(LATENCY_PERCENTILE, settings, latencyPercentile);
+		bufferWindow = Utils.getLong(BUFFER_WINDOW, settings, bufferWindow);
+		maxBufferedEvents = Utils.getInt(MAX_BUFFERED_EVENTS, settings, maxBufferedEvents);
+		maxKeys = Math.max(1, Utils.getInt(MAX_KEYS, settings, maxKeys));
+		int window = Math.max(1, Utils.getInt(LATENCY_WINDOW, settings, latencies.length));
+		synchronized (this) {
+			latencies = new long[window];
+			latencyCount = 0;
+			latencyPos = 0;
+			latencyThreshold = Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Obtain elapsed time threshold of slow activities, computed as configured percentile of recent activities.
+	 *
+	 * @return elapsed time threshold in microseconds, {@link Long#MAX_VALUE} if not computed yet or disabled
+	 */
+	public synchronized long getLatencyThreshold() {
+		return latencyThreshold;
+	}
+
+	@Override
+	public Map<String, Object> getStats() {
+		LinkedHashMap<String, Object> stats = new LinkedHashMap<>(16);
+		getStats(stats);
+		return stats;
+	}
+
+	@Override
+	public KeyValueStats getStats(Map<String, Object> stats) {
+		stats.put(Utils.qualify(this, KEY_KEPT_ERROR), keptError.get());
+		stats.put(Utils.qualify(this, KEY_KEPT_SLOW), keptSlow.get());
+		stats.put(Utils.qualify(this, KEY_KEPT_SAMPLED), keptSampled.get());
+		stats.put(Utils.qualify(this, KEY_KEPT_TRACE), keptTrace.get());
+		stats.put(Utils.qualify(this, KEY_DISCARDED), discarded.get());
+		stats.put(Utils.qualify(this, KEY_EVENTS_BUFFERED), eventsBuffered.get());
+		stats.put(Utils.qualify(this, KEY_EVENTS_REPLAYED), eventsReplayed.get());
+		stats.put(Utils.qualify(this, KEY_EVENTS_DISCARDED), eventsDiscarded.get());
+		stats.put(Utils.qualify(this, KEY_EVENTS_EXPIRED), eventsExpired.get());
+		synchronized (this) {
+			stats.put(Utils.qualify(this, KEY_PENDING_EVENTS), pendingEvents);
+			stats.put(Utils.qualify(this, KEY_PENDING_KEYS), pending.size());
+			stats.put(Utils.qualify(this, KEY_LATENCY_THRESHOLD), latencyThreshold);
+		}
+		return this;
+	}
+
+	@Override
+	public void resetStats() {
+		keptError.set(0);
+		keptSlow.set(0);
+		keptSampled.set(0);
+		keptTrace.set(0);
+		discarded.set(0);
+		eventsBuffered.set(0);
+		eventsReplayed.set(0);
+		eventsDiscarded.set(0);
+		eventsExpired.set(0);
+	}
+
+	/**
+	 * Buffered events of a trace, along with sinks each event was logged to.
+	 */
+	private static class Trace {
+		final long created;
+		final ArrayList<TrackingEvent> events = new ArrayList<>(4);
+		final ArrayList<EventSink> sinks = new ArrayList<>(4);
+
+		Trace(long created) {
+			this.created = created;
+		}
+
+		void add(EventSink sink, TrackingEvent event) {
+			sinks.add(sink);
+			events.add(event);
+		}
+	}
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.format;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * This class implements a serialization cache attached to a single in-flight entry (tracking event, activity, snapshot
+ * or log message) while it is fanned out to multiple sinks. Formatted entry is computed once per formatter instance
+ * and reused by every sink formatting the same entry using the same formatter, along with its UTF-8 encoded bytes.
+ * </p>
+ *
+ * <p>
+ * Cache is made visible to sinks by binding it to the current thread, either using {@link #open(AtomicLong, AtomicLong)}
+ * and {@link #close()} by the fanning out sink, or using {@link #attach(FormatCache)} by worker threads logging the
+ * entry on its behalf. Entries are matched by identity of formatter, formatted object and its arguments. Cache hits
+ * and misses are counted using counters provided by the cache owner.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see com.jkoolcloud.tnt4j.sink.AbstractEventSink
+ */
+public class FormatCache {
+	private static final ThreadLocal<FormatCache> CURRENT = new ThreadLocal<>();
+	private static final int INITIAL_SIZE = 4;
+
+	private final AtomicLong hits;
+	private final AtomicLong misses;
+	private Entry[] entries = new Entry[INITIAL_SIZE];
+	private int count = 0;
+
+	/**
+	 * Create a serialization cache.
+	 *
+	 * @param hits
+	 *            counter of cache hits
+	 * @param misses
+	 *            counter of cache misses
+	 */
+	public FormatCache(AtomicLong hits, AtomicLong misses) {
+		this.hits = hits;
+		this.misses = misses;
+	}
+
+	/**
+	 * Create a serialization cache and bind it to the current thread, unless current thread already has a bound cache.
+	 *
+	 * @param hits
+	 *            counter of cache hits
+	 * @param misses
+	 *            counter of cache misses
+	 * @return bound cache instance, to be closed by the caller, or {@code null} if current thread already has a bound
+	 *         cache
+	 */
+	public static FormatCache open(AtomicLong hits, AtomicLong misses) {
+		if (CURRENT.get() != null) {
+			return null;
+		}
+		FormatCache cache = new FormatCache(hits, misses);
+		CURRENT.set(cache);
+		return cache;
+	}
+
+	/**
+	 * Unbind this cache from the current thread.
+	 */
+	public void close() {
+		if (CURRENT.get() == this) {
+			CURRENT.remove();
+		}
+	}
+
+	/**
+	 * Bind a given cache to the current thread, replacing currently bound cache.
+	 *
+	 * @param cache
+	 *            cache to bind, {@code null} to unbind current cache
+	 * @return previously bound cache, to be restored by the caller, or {@code null} if there was none
+	 */
+	public static FormatCache attach(FormatCache cache) {
+		FormatCache prev = CURRENT.get();
+		if (cache == null) {
+			CURRENT.remove();
+		} else {
+			CURRENT.set(cache);
+		}
+		return prev;
+	}
+
+	/**
+	 * Obtain cache bound to the current thread.
+	 *
+	 * @return bound cache instance, {@code null} if none
+	 */
+	public static FormatCache current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Obtain formatted entry from the cache bound to the current thread, formatting it if not yet cached. Entry is
+	 * formatted directly if current thread has no bound cache.
+	 *
+	 * @param fmt
+	 *            formatter instance
+	 * @param obj
+	 *            object to be formatted
+	 * @param ttl
+	 *            time to live used for formatting
+	 * @param args
+	 *            arguments associated with the object
+	 * @param formatter
+	 *            function formatting the object
+	 * @return formatted entry
+	 */
+	public static String format(Object fmt, Object obj, long ttl, Object[] args, Supplier<String> formatter) {
+		FormatCache cache = CURRENT.get();
+		return cache == null ? formatter.get() : cache.get(fmt, obj, ttl, args, formatter).text;
+	}
+
+	/**
+	 * Obtain UTF-8 encoded bytes of a formatted entry, reusing bytes cached by the cache bound to the current thread if
+	 * the entry was formatted using {@link #format(Object, Object, long, Object[], Supplier)}.
+	 *
+	 * @param text
+	 *            formatted entry
+	 * @return UTF-8 encoded bytes
+	 */
+	public static byte[] getBytes(String text) {
+		FormatCache cache = CURRENT.get();
+		return cache == null ? text.getBytes(StandardCharsets.UTF_8) : cache.bytes(text);
+	}
+
+	/**
+	 * Obtain number of entries in this cache.
+	 *
+	 * @return number of cached entries
+	 */
+	public synchronized int size() {
+		return count;
+	}
+
+	private synchronized Entry get(Object fmt, Object obj, long ttl, Object[] args, Supplier<String> formatter) {
+		for (int i = 0; i < count; i++) {
+			Entry entry = entries[i];
+			if (entry.fmt == fmt && entry.obj == obj && entry.ttl == ttl && entry.args == args) {
+				hits.incrementAndGet();
+				return entry;
+			}
+		}
+		misses.incrementAndGet();
+		Entry entry = new Entry(fmt, obj, ttl, args, formatter.get());
+		if (count == entries.length) {
+			entries = Arrays.copyOf(entries, count << 1);
+		}
+		entries[count++] = entry;
+		return entry;
+	}
+
+	private synchronized byte[] bytes(String text) {
+		for (int i = 0; i < count; i++) {
+			Entry entry = entries[i];
+			if (entry.text == text) {
+				if (entry.bytes == null) {
+					misses.incrementAndGet();
+					entry.bytes = text.getBytes(StandardCharsets.UTF_8);
+				} else {
+					hits.incrementAndGet();
+				}
+				return entry.bytes;
+			}
+		}
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() //
+				+ "{size: " + size() //
+				+ ", hits: " + hits.get() //
+				+ ", misses: " + misses.get() //
+				+ "}";
+	}
+
+	private static class Entry {
+		final Object fmt;
+		final Object obj;
+		final long ttl;
+		final Object[] args;
+		final String text;
+		byte[] bytes;
+
+		Entry(Object fmt, Object obj, long ttl, Object[] args, String text) {
+			this.fmt = fmt;
+			this.obj = obj;
+			this.ttl = ttl;
+			this.args = args;
+			this.text = text;
+		}
+	}
+}
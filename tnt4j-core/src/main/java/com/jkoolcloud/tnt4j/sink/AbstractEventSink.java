@@ -15,12 +15,16 @@
  */
 package com.jkoolcloud.tnt4j.sink;
 
+import java.io.Flushable;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import com.jkoolcloud.tnt4j.core.*;
 import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.format.FormatCache;
 import com.jkoolcloud.tnt4j.source.Source;
 import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
 import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
@@ -44,9 +48,50 @@ import com.jkoolcloud.tnt4j.utils.Utils;
  * @see SinkLogEventListener
  */
 public abstract class AbstractEventSink extends TagsSet implements EventSink, EventSinkStats {
-	protected final ArrayList<SinkErrorListener> errorListeners = new ArrayList<>(10);
-	protected final ArrayList<SinkLogEventListener> logListeners = new ArrayList<>(10);
-	protected final ArrayList<SinkEventFilter> filters = new ArrayList<>(10);
+	private static final SinkErrorListener[] NO_ERROR_LISTENERS = new SinkErrorListener[0];
+	private static final SinkLogEventListener[] NO_LOG_LISTENERS = new SinkLogEventListener[0];
+	private static final SinkEventFilter[] NO_FILTERS = new SinkEventFilter[0];
+	private static final ThreadLocal<CheckedOperation> CHECKED_OPERATION = new ThreadLocal<>();
+
+	// copy-on-write arrays: updates are rare, reads happen on every logged entry
+	private final Object updateLock = new Object();
+	private volatile SinkErrorListener[] errorListenerArray = NO_ERROR_LISTENERS;
+	private volatile SinkLogEventListener[] logListenerArray = NO_LOG_LISTENERS;
+	private volatile SinkEventFilter[] filterArray = NO_FILTERS;
+	private volatile SinkEventFilter filterChain;
+
+	/**
+	 * Registered sink error listeners, updated via {@link #addSinkErrorListener(SinkErrorListener)} and
+	 * {@link #removeSinkErrorListener(SinkErrorListener)}.
+	 *
+	 * @deprecated use {@link #addSinkErrorListener(SinkErrorListener)},
+	 *             {@link #removeSinkErrorListener(SinkErrorListener)} and {@link #hasErrorListeners()} instead. Will
+	 *             be removed in next release.
+	 */
+	@Deprecated
+	protected final List<SinkErrorListener> errorListeners = new ArrayView<>(() -> errorListenerArray,
+			this::addSinkErrorListener, this::removeSinkErrorListener);
+	/**
+	 * Registered sink log event listeners, updated via {@link #addSinkLogEventListener(SinkLogEventListener)} and
+	 * {@link #removeSinkLogEventListener(SinkLogEventListener)}.
+	 *
+	 * @deprecated use {@link #addSinkLogEventListener(SinkLogEventListener)},
+	 *             {@link #removeSinkLogEventListener(SinkLogEventListener)} and {@link #hasLogListeners()} instead.
+	 *             Will be removed in next release.
+	 */
+	@Deprecated
+	protected final List<SinkLogEventListener> logListeners = new ArrayView<>(() -> logListenerArray,
+			this::addSinkLogEventListener, this::removeSinkLogEventListener);
+	/**
+	 * Registered sink event filters, updated via {@link #addSinkEventFilter(SinkEventFilter)} and
+	 * {@link #removeSinkEventFilter(SinkEventFilter)}.
+	 *
+	 * @deprecated use {@link #addSinkEventFilter(SinkEventFilter)} and
+	 *             {@link #removeSinkEventFilter(SinkEventFilter)} instead. Will be removed in next release.
+	 */
+	@Deprecated
+	protected final List<SinkEventFilter> filters = new ArrayView<>(() -> filterArray, this::addSinkEventFilter,
+			this::removeSinkEventFilter);
 
 	private String name;
 	private Source source;
@@ -183,6 +228,81 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 		this.formatter = formatter;
 	}
 
+	/**
+	 * Format a given tracking event using sink event formatter. Formatted entry is shared using {@link FormatCache}
+	 * with other sinks using the same formatter while event is fanned out.
+	 *
+	 * @param event
+	 *            tracking event instance to be formatted
+	 * @return formatted tracking event
+	 */
+	protected String format(TrackingEvent event) {
+		EventFormatter fmt = getEventFormatter();
+		return FormatCache.format(fmt, event, 0, null, () -> fmt.format(event));
+	}
+
+	/**
+	 * Format a given tracking activity using sink event formatter. Formatted entry is shared using {@link FormatCache}
+	 * with other sinks using the same formatter while activity is fanned out.
+	 *
+	 * @param activity
+	 *            tracking activity instance to be formatted
+	 * @return formatted tracking activity
+	 */
+	protected String format(TrackingActivity activity) {
+		EventFormatter fmt = getEventFormatter();
+		return FormatCache.format(fmt, activity, 0, null, () -> fmt.format(activity));
+	}
+
+	/**
+	 * Format a given snapshot using sink event formatter. Formatted entry is shared using {@link FormatCache} with
+	 * other sinks using the same formatter while snapshot is fanned out.
+	 *
+	 * @param snapshot
+	 *            snapshot to be formatted
+	 * @return formatted snapshot
+	 */
+	protected String format(Snapshot snapshot) {
+		EventFormatter fmt = getEventFormatter();
+		return FormatCache.format(fmt, snapshot, 0, null, () -> fmt.format(snapshot));
+	}
+
+	/**
+	 * Format a given log message using sink event formatter. Formatted entry is shared using {@link FormatCache} with
+	 * other sinks using the same formatter while message is fanned out.
+	 *
+	 * @param ttl
+	 *            time to live in seconds
+	 * @param src
+	 *            event source
+	 * @param sev
+	 *            severity level
+	 * @param msg
+	 *            message to be formatted
+	 * @param args
+	 *            arguments associated with the message
+	 * @return formatted message
+	 */
+	protected String format(long ttl, Source src, OpLevel sev, String msg, Object... args) {
+		EventFormatter fmt = getEventFormatter();
+		return FormatCache.format(fmt, msg, ttl, args, () -> fmt.format(ttl, src, sev, msg, args));
+	}
+
+	/**
+	 * Format a given object using sink event formatter. Formatted entry is shared using {@link FormatCache} with other
+	 * sinks using the same formatter while object is fanned out.
+	 *
+	 * @param msg
+	 *            object to be formatted
+	 * @param args
+	 *            arguments associated with the object
+	 * @return formatted object
+	 */
+	protected String formatObject(Object msg, Object... args) {
+		EventFormatter fmt = getEventFormatter();
+		return FormatCache.format(fmt, msg, 0, args, () -> fmt.format(msg, args));
+	}
+
 	@Override
 	public Map<String, Object> getStats() {
 		LinkedHashMap<String, Object> stats = new LinkedHashMap<>(32);
@@ -222,6 +342,11 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 			stats.put(Utils.qualify(this, KEY_LIMITER_LAST_DELAY_TIME), limiter.getLimiter().getLastDelayTime());
 			stats.put(Utils.qualify(this, KEY_LIMITER_TOTAL_DELAY_TIME), limiter.getLimiter().getTotalDelayTime());
 		}
+		for (SinkEventFilter filter : filterArray) {
+			if (filter instanceof KeyValueStats) {
+				((KeyValueStats) filter).getStats(stats);
+			}
+		}
 		return this;
 	}
 
@@ -239,32 +364,112 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 
 	@Override
 	public void addSinkLogEventListener(SinkLogEventListener listener) {
-		synchronized (logListeners) {
-			logListeners.add(listener);
+		synchronized (updateLock) {
+			logListenerArray = append(logListenerArray, listener);
 		}
 	}
 
 	@Override
 	public void removeSinkLogEventListener(SinkLogEventListener listener) {
-		synchronized (logListeners) {
-			logListeners.remove(listener);
+		synchronized (updateLock) {
+			logListenerArray = remove(logListenerArray, listener);
 		}
 	}
 
 	@Override
 	public void addSinkErrorListener(SinkErrorListener listener) {
-		synchronized (errorListeners) {
-			errorListeners.add(listener);
+		synchronized (updateLock) {
+			errorListenerArray = append(errorListenerArray, listener);
 		}
 	}
 
 	@Override
 	public void removeSinkErrorListener(SinkErrorListener listener) {
-		synchronized (errorListeners) {
-			errorListeners.remove(listener);
+		synchronized (updateLock) {
+			errorListenerArray = remove(errorListenerArray, listener);
 		}
 	}
 
+	/**
+	 * Check if any sink log event listeners are registered.
+	 *
+	 * @return {@code true} if at least one log event listener is registered, {@code false} otherwise
+	 */
+	protected boolean hasLogListeners() {
+		return logListenerArray.length != 0;
+	}
+
+	/**
+	 * Check if any sink error listeners are registered.
+	 *
+	 * @return {@code true} if at least one error listener is registered, {@code false} otherwise
+	 */
+	protected boolean hasErrorListeners() {
+		return errorListenerArray.length != 0;
+	}
+
+	private static <T> T[] append(T[] array, T item) {
+		T[] copy = Arrays.copyOf(array, array.length + 1);
+		copy[array.length] = item;
+		return copy;
+	}
+
+	/**
+	 * Live list view of a copy-on-write array, delegating updates to sink add/remove methods. Kept for subclasses
+	 * accessing former list fields.
+	 */
+	private static class ArrayView<T> extends AbstractList<T> {
+		private final Supplier<T[]> array;
+		private final Consumer<T> adder;
+		private final Consumer<T> remover;
+
+		ArrayView(Supplier<T[]> array, Consumer<T> adder, Consumer<T> remover) {
+			this.array = array;
+			this.adder = adder;
+			this.remover = remover;
+		}
+
+		@Override
+		public T get(int index) {
+			return array.get()[index];
+		}
+
+		@Override
+		public int size() {
+			return array.get().length;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			return Arrays.asList(array.get()).iterator();
+		}
+
+		@Override
+		public boolean add(T item) {
+			adder.accept(item);
+			return true;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean remove(Object item) {
+			int size = size();
+			remover.accept((T) item);
+			return size() != size;
+		}
+	}
+
+	private static <T> T[] remove(T[] array, Object item) {
+		for (int i = 0; i < array.length; i++) {
+			if (Objects.equals(array[i], item)) {
+				T[] copy = Arrays.copyOf(array, array.length - 1);
+				System.arraycopy(array, i + 1, copy, i, array.length - i - 1);
+				return copy;
+			}
+		}
+		return array;
+	}
+
 	/**
 	 * Subclasses should use this helper class to trigger log event notifications during logging process.
 	 *
@@ -273,10 +478,8 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 	 * @see SinkLogEvent
 	 */
 	protected void notifyListeners(SinkLogEvent event) {
-		synchronized (logListeners) {
-			for (SinkLogEventListener listener : logListeners) {
-				listener.sinkLogEvent(event);
-			}
+		for (SinkLogEventListener listener : logListenerArray) {
+			listener.sinkLogEvent(event);
 		}
 	}
 
@@ -288,10 +491,8 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 	 * @see SinkError
 	 */
 	protected void notifyListeners(SinkError event) {
-		synchronized (errorListeners) {
-			for (SinkErrorListener listener : errorListeners) {
-				listener.sinkError(event);
-			}
+		for (SinkErrorListener listener : errorListenerArray) {
+			listener.sinkError(event);
 		}
 	}
 
@@ -305,7 +506,11 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 	 */
 	protected void notifyListeners(SinkLogEvent msg, Throwable ex) {
 		setErrorState(ex);
-		if (!errorListeners.isEmpty()) {
+		CheckedOperation op = CHECKED_OPERATION.get();
+		if (op != null && op.sink == this && op.error == null) {
+			op.error = ex;
+		}
+		if (hasErrorListeners()) {
 			SinkError event = new SinkError(this, msg, ex);
 			notifyListeners(event);
 		} else if (ex != null) {
@@ -337,78 +542,72 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 	@Override
 	public boolean isLoggable(long ttl, Source source, OpLevel level, String msg, Object... args) {
 		boolean pass = isSet(level);
-		if (filters.isEmpty()) {
+		SinkEventFilter chain = filterChain;
+		if (chain == null) {
 			return pass;
 		}
-		for (SinkEventFilter filter : filters) {
-			pass = (pass && filter.filter(this, ttl, source, level, msg, args));
-			if (!pass) {
-				skipCount.incrementAndGet();
-				break;
-			}
+		if (pass && chain.filter(this, ttl, source, level, msg, args)) {
+			return true;
 		}
-		return pass;
+		skipCount.incrementAndGet();
+		return false;
 	}
 
 	@Override
 	public boolean isLoggable(Snapshot snapshot) {
 		boolean pass = isSet(snapshot.getSeverity());
-		if (filters.isEmpty()) {
+		SinkEventFilter chain = filterChain;
+		if (chain == null) {
 			return pass;
 		}
-		for (SinkEventFilter filter : filters) {
-			pass = (pass && filter.filter(this, snapshot));
-			if (!pass) {
-				skipCount.incrementAndGet();
-				break;
-			}
+		if (pass && chain.filter(this, snapshot)) {
+			return true;
 		}
-		return pass;
+		skipCount.incrementAndGet();
+		return false;
 	}
 
 	@Override
 	public boolean isLoggable(TrackingActivity activity) {
 		boolean pass = isSet(activity.getSeverity());
-		if (filters.isEmpty()) {
+		SinkEventFilter chain = filterChain;
+		if (chain == null) {
 			return pass;
 		}
-		for (SinkEventFilter filter : filters) {
-			pass = (pass && filter.filter(this, activity));
-			if (!pass) {
-				skipCount.incrementAndGet();
-				break;
-			}
+		if (pass && chain.filter(this, activity)) {
+			return true;
 		}
-		return pass;
+		skipCount.incrementAndGet();
+		return false;
 	}
 
 	@Override
 	public boolean isLoggable(TrackingEvent event) {
 		boolean pass = isSet(event.getSeverity());
-		if (filters.isEmpty()) {
+		SinkEventFilter chain = filterChain;
+		if (chain == null) {
 			return pass;
 		}
-		for (SinkEventFilter filter : filters) {
-			pass = (pass && filter.filter(this, event));
-			if (!pass) {
-				skipCount.incrementAndGet();
-				break;
-			}
+		if (pass && chain.filter(this, event)) {
+			return true;
 		}
-		return pass;
+		skipCount.incrementAndGet();
+		return false;
 	}
 
 	@Override
 	public void addSinkEventFilter(SinkEventFilter filter) {
-		synchronized (filters) {
-			filters.add(filter);
+		synchronized (updateLock) {
+			filterArray = append(filterArray, filter);
+			filterChain = SinkFilterChain.compile(filterArray);
 		}
 	}
 
 	@Override
 	public void removeSinkEventFilter(SinkEventFilter filter) {
-		synchronized (filters) {
-			filters.remove(filter);
+		synchronized (updateLock) {
+			filterArray = remove(filterArray, filter);
+			filterChain = SinkFilterChain.compile(filterArray);
 		}
 	}
 
@@ -423,6 +622,7 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 
 	@Override
 	public void close() throws IOException {
+		flushFilters();
 		try {
 			_close();
 		} catch (Throwable ex) {
@@ -430,6 +630,25 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 		}
 	}
 
+	/**
+	 * Flush sink event filters implementing {@link Flushable}, so that entries held by such filters (e.g. buffered
+	 * until sampling decision is made) are logged before sink is closed. Does nothing if sink is not open.
+	 */
+	protected void flushFilters() {
+		if (!isOpen()) {
+			return;
+		}
+		for (SinkEventFilter filter : filterArray) {
+			if (filter instanceof Flushable) {
+				try {
+					((Flushable) filter).flush();
+				} catch (Throwable ex) {
+					notifyListeners(new SinkLogEvent(this, SinkLogEvent.SIGNAL_CLOSE), ex);
+				}
+			}
+		}
+	}
+
 	@Override
 	public void log(TrackingActivity activity) {
 		_checkState();
@@ -447,7 +666,7 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 				loggedSnaps.addAndGet(activity.getSnapshotCount());
 				lastTime.set(System.currentTimeMillis());
 				errorState = false;
-				if (!logListeners.isEmpty()) {
+				if (hasLogListeners()) {
 					notifyListeners(new SinkLogEvent(this, activity));
 				}
 			} catch (Throwable ex) {
@@ -473,7 +692,7 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 				loggedSnaps.addAndGet(event.getOperation().getSnapshotCount());
 				lastTime.set(System.currentTimeMillis());
 				errorState = false;
-				if (!logListeners.isEmpty()) {
+				if (hasLogListeners()) {
 					notifyListeners(new SinkLogEvent(this, event));
 				}
 			} catch (Throwable ex) {
@@ -498,7 +717,7 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 				loggedSnaps.incrementAndGet();
 				lastTime.set(System.currentTimeMillis());
 				errorState = false;
-				if (!logListeners.isEmpty()) {
+				if (hasLogListeners()) {
 					notifyListeners(new SinkLogEvent(this, snapshot));
 				}
 			} catch (Throwable ex) {
@@ -547,7 +766,7 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 				loggedMsgs.incrementAndGet();
 				lastTime.set(System.currentTimeMillis());
 				errorState = false;
-				if (!logListeners.isEmpty()) {
+				if (hasLogListeners()) {
 					notifyListeners(new SinkLogEvent(this, src, sev, nttl, key, args));
 				}
 			} catch (Throwable ex) {
@@ -556,6 +775,92 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 		}
 	}
 
+	@Override
+	public void log(Collection<?> batch) {
+		for (Object item : batch) {
+			logObject(this, item);
+		}
+	}
+
+	/**
+	 * Run a given operation on this sink, e.g. logging an entry, and throw the first failure this sink reported to its
+	 * error listeners on the calling thread while running it. Sink {@code log} methods report failures to error
+	 * listeners only, so callers routing entries between sinks use this method to tell whether a particular entry was
+	 * written, unaffected by errors reported concurrently by other threads.
+	 *
+	 * @param op
+	 *            operation to run on this sink
+	 * @throws IOException
+	 *             if operation failed or this sink reported a failure while running it
+	 * @see #isCheckedOperation()
+	 */
+	public void runChecked(SinkOperation op) throws IOException {
+		CheckedOperation prev = CHECKED_OPERATION.get();
+		CheckedOperation checked = new CheckedOperation(this);
+		CHECKED_OPERATION.set(checked);
+		try {
+			op.run(this);
+		} catch (IOException exc) {
+			throw exc;
+		} catch (Throwable exc) {
+			throw new IOException(exc.getMessage(), exc);
+		} finally {
+			CHECKED_OPERATION.set(prev);
+		}
+		if (checked.error != null) {
+			throw checked.error instanceof IOException ? (IOException) checked.error
+					: new IOException(checked.error.getMessage(), checked.error);
+		}
+	}
+
+	/**
+	 * Determine if this sink is running a checked operation on the calling thread, see
+	 * {@link #runChecked(SinkOperation)}. Sinks accepting entries for later delivery may use it to reject entries they
+	 * can't deliver right away, instead of queuing them.
+	 *
+	 * @return {@code true} if checked operation is running on this sink, {@code false} - otherwise
+	 */
+	protected boolean isCheckedOperation() {
+		CheckedOperation op = CHECKED_OPERATION.get();
+		return op != null && op.sink == this;
+	}
+
+	/**
+	 * Log a given batch item into a given event sink, dispatching by item type. {@link SinkLogEvent} items are
+	 * unwrapped and logged using their own source, severity, TTL and arguments. Signal events are ignored.
+	 *
+	 * @param sink
+	 *            event sink to log into
+	 * @param item
+	 *            tracking event, activity, snapshot, sink log event or message object to log
+	 * @see EventSink#log(Collection)
+	 */
+	public static void logObject(EventSink sink, Object item) {
+		if (item instanceof SinkLogEvent) {
+			SinkLogEvent event = (SinkLogEvent) item;
+			if (event.getSignal() != null) {
+				return;
+			}
+			Object sinkObject = event.getSinkObject();
+			if (sinkObject instanceof TrackingEvent || sinkObject instanceof TrackingActivity
+					|| sinkObject instanceof Snapshot) {
+				logObject(sink, sinkObject);
+			} else {
+				Source src = event.getEventSource() != null ? event.getEventSource() : sink.getSource();
+				sink.log(event.getTTL(), src, event.getSeverity(), event.getResourceBundle(), String.valueOf(sinkObject),
+						event.getArguments());
+			}
+		} else if (item instanceof TrackingEvent) {
+			sink.log((TrackingEvent) item);
+		} else if (item instanceof TrackingActivity) {
+			sink.log((TrackingActivity) item);
+		} else if (item instanceof Snapshot) {
+			sink.log((Snapshot) item);
+		} else {
+			sink.log(OpLevel.NONE, String.valueOf(item));
+		}
+	}
+
 	@Override
 	public void write(Object msg, Object... args) throws IOException, InterruptedException {
 		_checkState();
@@ -567,7 +872,7 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 			sinkWrites.incrementAndGet();
 			lastTime.set(System.currentTimeMillis());
 			errorState = false;
-			if (!logListeners.isEmpty()) {
+			if (hasLogListeners()) {
 				notifyListeners(new SinkLogEvent(this, getSource(), OpLevel.NONE, defaultTTL(), msg, args));
 			}
 		} catch (Throwable ex) {
@@ -575,6 +880,31 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 		}
 	}
 
+	/**
+	 * Write an already formatted entry directly to the underlying destination. Entry is not formatted, filtered or
+	 * rate limited, and errors are propagated to the caller instead of sink error listeners.
+	 *
+	 * @param msg
+	 *            formatted entry to write
+	 * @throws IOException
+	 *             if error writing to the underlying destination
+	 * @throws InterruptedException
+	 *             if interrupted while writing
+	 * @see #_writeFormatted(String)
+	 */
+	public void writeFormatted(String msg) throws IOException, InterruptedException {
+		_checkState();
+		try {
+			_writeFormatted(msg);
+		} catch (Throwable ex) {
+			setErrorState(ex);
+			throw ex;
+		}
+		sinkWrites.incrementAndGet();
+		lastTime.set(System.currentTimeMillis());
+		errorState = false;
+	}
+
 	@Override
 	public long getTTL() {
 		return ttl;
@@ -751,6 +1081,21 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 	 */
 	protected abstract void _write(Object msg, Object... args) throws IOException, InterruptedException;
 
+	/**
+	 * Override this method to write an already formatted entry to the underlying destination without formatting it
+	 * again. Default implementation delegates to {@link #_write(Object, Object...)}.
+	 *
+	 * @param msg
+	 *            formatted entry to write
+	 * @throws IOException
+	 *             if error writing to the underlying destination
+	 * @throws InterruptedException
+	 *             if interrupted while writing
+	 */
+	protected void _writeFormatted(String msg) throws IOException, InterruptedException {
+		_write(msg);
+	}
+
 	/**
 	 * Adds {@code bCount} defined bytes count to sink statistics.
 	 *
@@ -767,4 +1112,29 @@ public abstract class AbstractEventSink extends TagsSet implements EventSink, Ev
 				+ "{name: " + name //
 				+ "}";
 	}
+
+	/**
+	 * Sink operation run by {@link #runChecked(SinkOperation)}.
+	 */
+	@FunctionalInterface
+	public interface SinkOperation {
+		/**
+		 * Performs operation on a given sink.
+		 *
+		 * @param sink
+		 *            sink to run operation on
+		 * @throws Throwable
+		 *             if operation fails
+		 */
+		void run(EventSink sink) throws Throwable;
+	}
+
+	private static class CheckedOperation {
+		final AbstractEventSink sink;
+		Throwable error;
+
+		CheckedOperation(AbstractEventSink sink) {
+			this.sink = sink;
+		}
+	}
 }
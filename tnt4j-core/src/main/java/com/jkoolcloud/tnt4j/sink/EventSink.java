@@ -15,6 +15,7 @@
  */
 package com.jkoolcloud.tnt4j.sink;
 
+import java.util.Collection;
 import java.util.ResourceBundle;
 
 import com.jkoolcloud.tnt4j.core.*;
@@ -434,4 +435,21 @@ public interface EventSink extends Sink, TTL, KeyValueStats, Tagged {
 	 * @see OpLevel
 	 */
 	void log(long ttl, Source src, OpLevel sev, ResourceBundle bundle, String key, Object... args);
+
+	/**
+	 * Log a batch of objects in one go. Batch items can be {@link TrackingEvent}, {@link TrackingActivity},
+	 * {@link Snapshot} or {@link SinkLogEvent} instances, any other object is logged as a message with
+	 * {@link OpLevel#NONE} severity. Default implementation logs batch items one by one. Sinks may override this method
+	 * to write the whole batch with a single flush.
+	 *
+	 * @param batch
+	 *            collection of objects to log
+	 * @see SinkLogEvent
+	 * @see AbstractEventSink#logObject(EventSink, Object)
+	 */
+	default void log(Collection<?> batch) {
+		for (Object item : batch) {
+			AbstractEventSink.logObject(this, item);
+		}
+	}
 }
@@ -17,10 +17,14 @@
 package com.jkoolcloud.tnt4j.sink;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.jkoolcloud.tnt4j.core.KeyValueStats;
 import com.jkoolcloud.tnt4j.core.OpLevel;
 import com.jkoolcloud.tnt4j.core.Snapshot;
 import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.format.FormatCache;
 import com.jkoolcloud.tnt4j.source.Source;
 import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
 import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
@@ -28,14 +32,20 @@ import com.jkoolcloud.tnt4j.utils.Utils;
 
 /**
  * This class implements a default abstract class for {@link EventSink} having logger sink branch to write events into.
+ * Entries forwarded to logger sink share a {@link FormatCache}, so logger sink using the same event formatter reuses
+ * already formatted entry.
  *
  * @version $Revision: 1 $
  *
  * @see com.jkoolcloud.tnt4j.sink.impl.SocketEventSink
  */
 public abstract class LoggedEventSink extends AbstractEventSink {
+	public static final String KEY_FORMAT_CACHE_HITS = "format-cache-hits";
+	public static final String KEY_FORMAT_CACHE_MISSES = "format-cache-misses";
 
 	private EventSink logSink;
+	private final AtomicLong formatHits = new AtomicLong(0);
+	private final AtomicLong formatMisses = new AtomicLong(0);
 
 	/**
 	 * Create an event sink with a given name
@@ -95,45 +105,100 @@ public abstract class LoggedEventSink extends AbstractEventSink {
 	@Override
 	protected void _write(Object msg, Object... args) throws IOException, InterruptedException {
 		if (isOpen()) {
-			writeLine(getEventFormatter().format(msg, args));
-			if (logSink instanceof AbstractEventSink) {
-				((AbstractEventSink) logSink)._write(msg, args);
+			FormatCache cache = logSink instanceof AbstractEventSink ? FormatCache.open(formatHits, formatMisses) : null;
+			try {
+				writeLine(formatObject(msg, args));
+				if (logSink instanceof AbstractEventSink) {
+					((AbstractEventSink) logSink)._write(msg, args);
+				}
+			} finally {
+				closeCache(cache);
 			}
 		}
 	}
 
+	@Override
+	protected void _writeFormatted(String msg) throws IOException {
+		writeLine(msg);
+	}
+
 	@Override
 	protected void _log(TrackingEvent event) throws IOException {
-		writeLine(getEventFormatter().format(event));
-		if (canForward(event.getSeverity())) {
-			logSink.log(event);
+		boolean forward = canForward(event.getSeverity());
+		FormatCache cache = forward ? FormatCache.open(formatHits, formatMisses) : null;
+		try {
+			writeEntry(event, format(event));
+			if (forward) {
+				logSink.log(event);
+			}
+		} finally {
+			closeCache(cache);
 		}
 	}
 
 	@Override
 	protected void _log(TrackingActivity activity) throws IOException {
-		writeLine(getEventFormatter().format(activity));
-		if (canForward(activity.getSeverity())) {
-			logSink.log(activity);
+		boolean forward = canForward(activity.getSeverity());
+		FormatCache cache = forward ? FormatCache.open(formatHits, formatMisses) : null;
+		try {
+			writeEntry(activity, format(activity));
+			if (forward) {
+				logSink.log(activity);
+			}
+		} finally {
+			closeCache(cache);
 		}
 	}
 
 	@Override
 	protected void _log(long ttl, Source src, OpLevel sev, String msg, Object... args) throws IOException {
-		writeLine(getEventFormatter().format(ttl, src, sev, msg, args));
-		if (canForward(sev)) {
-			logSink.log(ttl, src, sev, msg, args);
+		boolean forward = canForward(sev);
+		FormatCache cache = forward ? FormatCache.open(formatHits, formatMisses) : null;
+		try {
+			writeEntry(src, format(ttl, src, sev, msg, args));
+			if (forward) {
+				logSink.log(ttl, src, sev, msg, args);
+			}
+		} finally {
+			closeCache(cache);
 		}
 	}
 
 	@Override
 	protected void _log(Snapshot snapshot) throws IOException {
-		writeLine(getEventFormatter().format(snapshot));
-		if (canForward(snapshot.getSeverity())) {
-			logSink.log(snapshot);
+		boolean forward = canForward(snapshot.getSeverity());
+		FormatCache cache = forward ? FormatCache.open(formatHits, formatMisses) : null;
+		try {
+			writeEntry(snapshot, format(snapshot));
+			if (forward) {
+				logSink.log(snapshot);
+			}
+		} finally {
+			closeCache(cache);
+		}
+	}
+
+	private static void closeCache(FormatCache cache) {
+		if (cache != null) {
+			cache.close();
 		}
 	}
 
+	@Override
+	public KeyValueStats getStats(Map<String, Object> stats) {
+		super.getStats(stats);
+		stats.put(Utils.qualify(this, KEY_FORMAT_CACHE_HITS), formatHits.get());
+		stats.put(Utils.qualify(this, KEY_FORMAT_CACHE_MISSES), formatMisses.get());
+		return this;
+	}
+
+	@Override
+	public void resetStats() {
+		super.resetStats();
+		formatHits.set(0);
+		formatMisses.set(0);
+	}
+
 	/**
 	 * Check if logging should be forwarded to logger sink.
 	 * 
@@ -162,6 +227,22 @@ public abstract class LoggedEventSink extends AbstractEventSink {
 	 */
 	protected abstract void writeLine(String msg) throws IOException;
 
+	/**
+	 * Writes formatted entry to sink. Default implementation calls {@link #writeLine(String)}, derived classes may
+	 * override to route entries based on entry attributes.
+	 *
+	 * @param entry
+	 *            entry being written: {@link com.jkoolcloud.tnt4j.core.Trackable} instance for tracking events,
+	 *            activities and snapshots, {@link Source} for log messages
+	 * @param msg
+	 *            formatted entry string to write
+	 * @throws IOException
+	 *             if error occurs while writing message to sink
+	 */
+	protected void writeEntry(Object entry, String msg) throws IOException {
+		writeLine(msg);
+	}
+
 	@Override
 	public String toString() {
 		return super.toString() //
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink;
+
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.core.Snapshot;
+import com.jkoolcloud.tnt4j.source.Source;
+import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
+import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+
+/**
+ * <p>
+ * A compiled chain of {@link SinkEventFilter} instances evaluated as a single filter. Entry passes the chain only if it
+ * passes every filter, evaluation stops at the first rejecting filter. Chain is immutable, so it can be published to
+ * logging threads without locking.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see SinkEventFilter
+ * @see AbstractEventSink
+ */
+final class SinkFilterChain implements SinkEventFilter {
+	private final SinkEventFilter[] filters;
+
+	private SinkFilterChain(SinkEventFilter[] filters) {
+		this.filters = filters;
+	}
+
+	/**
+	 * Compile a given set of filters into a single filter.
+	 *
+	 * @param filters
+	 *            filters to compile, array must not be modified afterwards
+	 * @return {@code null} if there are no filters, the filter itself if there is only one, filter chain otherwise
+	 */
+	static SinkEventFilter compile(SinkEventFilter[] filters) {
+		if (filters.length == 0) {
+			return null;
+		}
+		if (filters.length == 1) {
+			return filters[0];
+		}
+		return new SinkFilterChain(filters);
+	}
+
+	@Override
+	public boolean filter(EventSink sink, TrackingEvent event) {
+		for (SinkEventFilter filter : filters) {
+			if (!filter.filter(sink, event)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean filter(EventSink sink, TrackingActivity activity) {
+		for (SinkEventFilter filter : filters) {
+			if (!filter.filter(sink, activity)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean filter(EventSink sink, Snapshot snapshot) {
+		for (SinkEventFilter filter : filters) {
+			if (!filter.filter(sink, snapshot)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean filter(EventSink sink, long ttl, Source source, OpLevel level, String msg, Object... args) {
+		for (SinkEventFilter filter : filters) {
+			if (!filter.filter(sink, ttl, source, level, msg, args)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -15,6 +15,7 @@
  */
 package com.jkoolcloud.tnt4j.sink;
 
+import java.util.Arrays;
 import java.util.EventObject;
 import java.util.ResourceBundle;
 
@@ -57,8 +58,12 @@ public class SinkLogEvent extends EventObject implements TTL {
 	private Object[] argList = null;
 	private int signalType = SIGNAL_PROCESS;
 	private long ttl;
-	private final long startTimeNanos = System.nanoTime();
+	private long startTimeNanos = System.nanoTime();
 	private long stopTimeNanos = 0;
+	private int retryCount = 0;
+	private transient SinkLogEventPool pool;
+	private transient boolean free;
+	private transient Object[] argBuffer;
 
 	/**
 	 * Create a new log event instance designed as a signal
@@ -98,12 +103,7 @@ public class SinkLogEvent extends EventObject implements TTL {
 	 */
 	public SinkLogEvent(EventSink sink, TrackingEvent msg) {
 		super(sink);
-		logObj = msg;
-		error = msg.getOperation().getThrowable();
-		level = msg.getSeverity();
-		evSrc = msg.getSource();
-		argList = msg.getMessageArgs();
-		ttl = msg.getTTL();
+		init(sink, msg);
 	}
 
 	/**
@@ -116,10 +116,7 @@ public class SinkLogEvent extends EventObject implements TTL {
 	 */
 	public SinkLogEvent(EventSink sink, TrackingActivity msg) {
 		super(sink);
-		logObj = msg;
-		error = msg.getThrowable();
-		evSrc = msg.getSource();
-		ttl = msg.getTTL();
+		init(sink, msg);
 	}
 
 	/**
@@ -132,10 +129,7 @@ public class SinkLogEvent extends EventObject implements TTL {
 	 */
 	public SinkLogEvent(EventSink sink, Snapshot snap) {
 		super(sink);
-		logObj = snap;
-		level = snap.getSeverity();
-		evSrc = snap.getSource();
-		ttl = snap.getTTL();
+		init(sink, snap);
 	}
 
 	/**
@@ -179,6 +173,54 @@ public class SinkLogEvent extends EventObject implements TTL {
 	public SinkLogEvent(EventSink sink, Source evSource, OpLevel sev, long ttl, ResourceBundle bundle, Object key,
 			Object... args) {
 		super(sink);
+		init(sink, evSource, sev, ttl, bundle, key, args);
+	}
+
+	/**
+	 * Create a new recyclable log event instance owned by a given event pool.
+	 *
+	 * @param pool
+	 *            event pool owning this event
+	 */
+	SinkLogEvent(SinkLogEventPool pool) {
+		super(pool);
+		this.pool = pool;
+		this.free = true;
+	}
+
+	SinkLogEvent init(EventSink sink, TrackingEvent msg) {
+		source = sink;
+		logObj = msg;
+		error = msg.getOperation().getThrowable();
+		level = msg.getSeverity();
+		evSrc = msg.getSource();
+		argList = msg.getMessageArgs();
+		ttl = msg.getTTL();
+		return this;
+	}
+
+	SinkLogEvent init(EventSink sink, TrackingActivity msg) {
+		source = sink;
+		logObj = msg;
+		error = msg.getThrowable();
+		level = msg.getSeverity();
+		evSrc = msg.getSource();
+		ttl = msg.getTTL();
+		return this;
+	}
+
+	SinkLogEvent init(EventSink sink, Snapshot snap) {
+		source = sink;
+		logObj = snap;
+		level = snap.getSeverity();
+		evSrc = snap.getSource();
+		ttl = snap.getTTL();
+		return this;
+	}
+
+	SinkLogEvent init(EventSink sink, Source evSource, OpLevel sev, long ttl, ResourceBundle bundle, Object key,
+			Object... args) {
+		source = sink;
 		logObj = key;
 		if (args != null && args.length > 0) {
 			argList = args;
@@ -188,6 +230,76 @@ public class SinkLogEvent extends EventObject implements TTL {
 		this.evSrc = evSource;
 		this.bundle = bundle;
 		this.ttl = ttl;
+		return this;
+	}
+
+	/**
+	 * Copy log message arguments into argument array owned by this recyclable event, converting arguments other than
+	 * strings and exceptions to strings. Array is reused while later messages have the same number of arguments.
+	 *
+	 * @param args
+	 *            argument list associated with the message
+	 * @return event owned copy of arguments, {@code null} if there are no arguments
+	 */
+	Object[] copyArguments(Object... args) {
+		if (args == null || args.length == 0) {
+			return null;
+		}
+		Object[] copy = argBuffer;
+		if (copy == null || copy.length != args.length) {
+			copy = argBuffer = new Object[args.length];
+		}
+		for (int i = 0; i < args.length; i++) {
+			copy[i] = args[i] instanceof Throwable ? args[i] : String.valueOf(args[i]);
+		}
+		return copy;
+	}
+
+	/**
+	 * Mark recyclable event as taken from its pool and restart its timer.
+	 *
+	 * @return this event instance
+	 */
+	SinkLogEvent acquired() {
+		free = false;
+		startTimeNanos = System.nanoTime();
+		return this;
+	}
+
+	/**
+	 * Clear all event state, so that recyclable event can be returned to its pool.
+	 *
+	 * @return {@code true} if event was cleared, {@code false} if event is already free
+	 */
+	boolean clear() {
+		if (free) {
+			return false;
+		}
+		free = true;
+		source = pool;
+		logObj = null;
+		error = null;
+		bundle = null;
+		evSrc = null;
+		level = OpLevel.NONE;
+		argList = null;
+		if (argBuffer != null) {
+			Arrays.fill(argBuffer, null);
+		}
+		signalType = SIGNAL_PROCESS;
+		ttl = 0;
+		stopTimeNanos = 0;
+		retryCount = 0;
+		return true;
+	}
+
+	/**
+	 * Obtain event pool owning this event.
+	 *
+	 * @return event pool owning this event, {@code null} if event is not recyclable
+	 */
+	public SinkLogEventPool getPool() {
+		return pool;
 	}
 
 	/**
@@ -300,6 +412,33 @@ public class SinkLogEvent extends EventObject implements TTL {
 		return stopTimeNanos > 0 ? stopTimeNanos - startTimeNanos : System.nanoTime() - startTimeNanos;
 	}
 
+	/**
+	 * Obtain time elapsed since this event was created.
+	 *
+	 * @return event age in nanoseconds
+	 */
+	public long getAgeNanos() {
+		return System.nanoTime() - startTimeNanos;
+	}
+
+	/**
+	 * Record an attempt to retry processing of this event.
+	 *
+	 * @return number of retry attempts including this one
+	 */
+	public int retry() {
+		return ++retryCount;
+	}
+
+	/**
+	 * Obtain number of attempts to retry processing of this event.
+	 *
+	 * @return number of retry attempts
+	 */
+	public int getRetryCount() {
+		return retryCount;
+	}
+
 	@Override
 	public String toString() {
 		return super.toString() //
@@ -307,6 +446,7 @@ public class SinkLogEvent extends EventObject implements TTL {
 				+ ", signal.type: " + signalType //
 				+ ", sev: " + level //
 				+ ", ttl: " + ttl //
+				+ ", retry.count: " + retryCount //
 				+ ", log.obj: " + Utils.quote(logObj) //
 				+ ", ev.source: " + Utils.quote(evSrc) //
 				+ ", exception: " + Utils.quote(error) //
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink;
+
+import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.core.Snapshot;
+import com.jkoolcloud.tnt4j.source.Source;
+import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
+import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+
+/**
+ * <p>
+ * This class implements a pool of recyclable {@link SinkLogEvent} instances, used to avoid allocating a new event for
+ * every event logged asynchronously. Pool is pre-filled with free events kept in a lock-free bounded free-list, where
+ * each slot carries a sequence number and takers and releasers claim slots by a single CAS. Events are taken from the
+ * pool using {@code acquire()} methods, and must be returned using {@link #release(SinkLogEvent)} once event is fully
+ * processed and no longer referenced. A new event is allocated when the pool is exhausted, and released events not
+ * fitting into the pool are left for garbage collection.
+ * </p>
+ *
+ * <p>
+ * Log message arguments are copied into an argument array owned by the pooled event and reused by later messages with
+ * the same number of arguments, so caller varargs array is not retained and can be eliminated by the JIT compiler.
+ * Arguments other than strings and exceptions are converted to strings, which is the only allocation left on this path.
+ * </p>
+ *
+ * <p>
+ * Events created using {@link SinkLogEvent} constructors are not owned by any pool and are ignored by
+ * {@link #release(SinkLogEvent)}, so both kinds of events can be mixed freely.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see SinkLogEvent
+ * @see com.jkoolcloud.tnt4j.sink.impl.PooledLogger#setEventPool(SinkLogEventPool)
+ */
+public class SinkLogEventPool {
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	private final int capacity;
+	private final int mask;
+	private final AtomicReferenceArray<SinkLogEvent> slots;
+	private final AtomicLongArray sequences;
+	private final AtomicLong head = new AtomicLong(0);
+	private final AtomicLong tail = new AtomicLong(0);
+	private final AtomicLong reused = new AtomicLong(0);
+	private final AtomicLong allocated = new AtomicLong(0);
+
+	/**
+	 * Create an event pool pre-filled with a given number of free events.
+	 *
+	 * @param capacity
+	 *            maximum number of free events kept in the pool
+	 */
+	public SinkLogEventPool(int capacity) {
+		if (capacity <= 0 || capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("Pool capacity must be in range 1.." + MAX_CAPACITY + ": " + capacity);
+		}
+		this.capacity = capacity;
+		int ringSize = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+		this.mask = ringSize - 1;
+		this.slots = new AtomicReferenceArray<>(ringSize);
+		this.sequences = new AtomicLongArray(ringSize);
+		for (int i = 0; i < ringSize; i++) {
+			sequences.set(i, i);
+		}
+		for (int i = 0; i < capacity; i++) {
+			offer(new SinkLogEvent(this));
+		}
+	}
+
+	private boolean offer(SinkLogEvent event) {
+		long pos = tail.get();
+		for (;;) {
+			if (pos - head.get() >= capacity) {
+				return false;
+			}
+			int idx = (int) (pos & mask);
+			long dif = sequences.get(idx) - pos;
+			if (dif == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					slots.lazySet(idx, event);
+					sequences.set(idx, pos + 1);
+					return true;
+				}
+				pos = tail.get();
+			} else if (dif < 0) {
+				return false; // slot not yet taken: free-list is full
+			} else {
+				pos = tail.get();
+			}
+		}
+	}
+
+	private SinkLogEvent poll() {
+		long pos = head.get();
+		for (;;) {
+			int idx = (int) (pos & mask);
+			long dif = sequences.get(idx) - (pos + 1);
+			if (dif == 0) {
+				if (head.compareAndSet(pos, pos + 1)) {
+					SinkLogEvent event = slots.get(idx);
+					slots.lazySet(idx, null);
+					sequences.set(idx, pos + mask + 1);
+					return event;
+				}
+				pos = head.get();
+			} else if (dif < 0) {
+				return null; // slot not yet released: free-list is empty
+			} else {
+				pos = head.get();
+			}
+		}
+	}
+
+	private SinkLogEvent take() {
+		SinkLogEvent event = poll();
+		if (event == null) {
+			allocated.incrementAndGet();
+			event = new SinkLogEvent(this);
+		} else {
+			reused.incrementAndGet();
+		}
+		return event.acquired();
+	}
+
+	/**
+	 * Obtain a log event for a given tracking event.
+	 *
+	 * @param sink
+	 *            sink associated with the event
+	 * @param msg
+	 *            tracking event instance
+	 * @return log event instance
+	 */
+	public SinkLogEvent acquire(EventSink sink, TrackingEvent msg) {
+		return take().init(sink, msg);
+	}
+
+	/**
+	 * Obtain a log event for a given tracking activity.
+	 *
+	 * @param sink
+	 *            sink associated with the event
+	 * @param msg
+	 *            tracking activity instance
+	 * @return log event instance
+	 */
+	public SinkLogEvent acquire(EventSink sink, TrackingActivity msg) {
+		return take().init(sink, msg);
+	}
+
+	/**
+	 * Obtain a log event for a given snapshot.
+	 *
+	 * @param sink
+	 *            sink associated with the event
+	 * @param snap
+	 *            a set of properties
+	 * @return log event instance
+	 */
+	public SinkLogEvent acquire(EventSink sink, Snapshot snap) {
+		return take().init(sink, snap);
+	}
+
+	/**
+	 * Obtain a log event for a given log message.
+	 *
+	 * @param sink
+	 *            sink associated with the event
+	 * @param evSource
+	 *            source associated with the event
+	 * @param sev
+	 *            log severity
+	 * @param ttl
+	 *            time to live in seconds
+	 * @param bundle
+	 *            resource bundle
+	 * @param key
+	 *            log message object
+	 * @param args
+	 *            argument list associated with the message, copied into event owned array
+	 * @return log event instance
+	 */
+	public SinkLogEvent acquire(EventSink sink, Source evSource, OpLevel sev, long ttl, ResourceBundle bundle,
+			Object key, Object... args) {
+		SinkLogEvent event = take();
+		return event.init(sink, evSource, sev, ttl, bundle, key, event.copyArguments(args));
+	}
+
+	/**
+	 * Return event to this pool. Event state is cleared, so event must not be referenced after this call. Events not
+	 * owned by this pool, or already released, are ignored.
+	 *
+	 * @param event
+	 *            event to return to the pool
+	 * @return {@code true} if event was returned to the pool, {@code false} otherwise
+	 */
+	public boolean release(SinkLogEvent event) {
+		if (event.getPool() != this || !event.clear()) {
+			return false;
+		}
+		return offer(event);
+	}
+
+	/**
+	 * Obtain number of free events in the pool.
+	 *
+	 * @return number of free events
+	 */
+	public int size() {
+		long size = tail.get() - head.get();
+		return (int) Math.max(0, Math.min(size, capacity));
+	}
+
+	/**
+	 * Obtain maximum number of free events kept in the pool.
+	 *
+	 * @return pool capacity
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Obtain number of events reused from the pool.
+	 *
+	 * @return number of reused events
+	 */
+	public long getReusedCount() {
+		return reused.get();
+	}
+
+	/**
+	 * Obtain number of events allocated because pool was exhausted.
+	 *
+	 * @return number of allocated events
+	 */
+	public long getAllocatedCount() {
+		return allocated.get();
+	}
+
+	/**
+	 * Reset pool statistics.
+	 */
+	public void resetStats() {
+		reused.set(0);
+		allocated.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() //
+				+ "{size: " + size() //
+				+ ", capacity: " + capacity() //
+				+ ", reused: " + getReusedCount() //
+				+ ", allocated: " + getAllocatedCount() //
+				+ "}";
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.jkoolcloud.tnt4j.sink.SinkLogEvent;
+
+/**
+ * <p>
+ * This class implements {@link SinkEventQueue} backed by a single lock {@link ArrayBlockingQueue}.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see PooledLogger
+ * @see SinkEventQueue
+ */
+public class ArraySinkEventQueue implements SinkEventQueue {
+	private final BlockingQueue<SinkLogEvent> queue;
+	private final int capacity;
+
+	/**
+	 * Create an array blocking event queue with a given capacity.
+	 *
+	 * @param capacity
+	 *            maximum queue capacity
+	 */
+	public ArraySinkEventQueue(int capacity) {
+		this.capacity = capacity;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+	}
+
+	@Override
+	public boolean offer(SinkLogEvent event) {
+		return queue.offer(event);
+	}
+
+	@Override
+	public void put(SinkLogEvent event) throws InterruptedException {
+		queue.put(event);
+	}
+
+	@Override
+	public SinkLogEvent take() throws InterruptedException {
+		return queue.take();
+	}
+
+	@Override
+	public SinkLogEvent poll() {
+		return queue.poll();
+	}
+
+	@Override
+	public SinkLogEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+		return queue.poll(timeout, unit);
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	@Override
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return queue.isEmpty();
+	}
+
+	@Override
+	public void clear() {
+		queue.clear();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() //
+				+ "{size: " + size() //
+				+ ", capacity: " + capacity //
+				+ "}";
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import com.jkoolcloud.tnt4j.core.OpLevel;
+
+/**
+ * This class implements a task periodically adjusting the number of pooled logger logging tasks based on measured
+ * queue wait and service times.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see com.jkoolcloud.tnt4j.sink.impl.PooledLogger#autoScale()
+ */
+class AutoScaleTask extends AbstractPoolLoggingTask {
+	protected AutoScaleTask(PooledLogger logger) {
+		super(logger);
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (!isCanceled() && !pooledLogger.shutdown) {
+				Thread.sleep(pooledLogger.getScaleInterval());
+				pooledLogger.autoScale();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Throwable e) {
+			PooledLogger.logger.log(OpLevel.WARNING, "Interrupted during auto scaling: shutting down: error.count={}",
+					pooledLogger.exceptionCount.get(), e);
+		}
+	}
+}
@@ -18,12 +18,18 @@ package com.jkoolcloud.tnt4j.sink.impl;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.jkoolcloud.tnt4j.core.KeyValueStats;
 import com.jkoolcloud.tnt4j.core.OpLevel;
 import com.jkoolcloud.tnt4j.core.Snapshot;
 import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.format.FormatCache;
 import com.jkoolcloud.tnt4j.sink.AbstractEventSink;
 import com.jkoolcloud.tnt4j.sink.EventSink;
 import com.jkoolcloud.tnt4j.sink.EventSinkFactory;
@@ -34,6 +40,16 @@ import com.jkoolcloud.tnt4j.utils.Utils;
 
 /**
  * Broadcasting event sink that allows writes to multiple event sinks at once.
+ * <p>
+ * Every broadcast sink is served by its own long-lived worker thread reading entries from a bounded queue, so slow
+ * sinks do not delay each other. Fan-out policy defines whether logging caller waits for all sinks, for any one sink or
+ * does not wait at all (see {@link FanOutPolicy}). Entries not fitting into sink queue are dropped and counted in sink
+ * statistics, along with sink write latency.
+ * </p>
+ * <p>
+ * Every fanned out entry carries a {@link FormatCache}, so broadcast sinks sharing the same event formatter format the
+ * entry once.
+ * </p>
  * 
  * @author albert
  * @see AbstractEventSink
@@ -42,9 +58,31 @@ public class BroadcastingEventSink extends AbstractEventSink {
 
 	public static final String KEY_SINK_SIZE = "broadcast-sink-count";
 	public static final String KEY_OPEN_COUNT = "broadcast-open-sinks";
+	public static final String KEY_FAN_OUT_POLICY = "broadcast-fan-out-policy";
+	public static final String KEY_WAIT_TIMEOUTS = "broadcast-wait-timeouts";
+	public static final String KEY_FORMAT_CACHE_HITS = "broadcast-format-cache-hits";
+	public static final String KEY_FORMAT_CACHE_MISSES = "broadcast-format-cache-misses";
+	public static final String KEY_QUEUE_SIZE = "broadcast-queue-size";
+	public static final String KEY_LOGGED = "broadcast-logged";
+	public static final String KEY_DROPPED = "broadcast-dropped";
+	public static final String KEY_ERRORS = "broadcast-errors";
+	public static final String KEY_LATENCY_USEC = "broadcast-latency-usec";
+	public static final String KEY_LAST_LATENCY_USEC = "broadcast-last-latency-usec";
+	public static final String KEY_MAX_LATENCY_USEC = "broadcast-max-latency-usec";
+
+	public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+	static final long STOP_TIMEOUT_MS = 10000;
 
 	final Map<String, EventSink> eventSinks = Collections.synchronizedMap(new HashMap<>(3));
 	OpenSinksPolicy openSinksPolicy = OpenSinksPolicy.ANY;
+	FanOutPolicy fanOutPolicy = FanOutPolicy.WAIT_ALL;
+	int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	long waitTimeout = 0;
+
+	volatile SinkWorker[] workers;
+	final AtomicLong waitTimeouts = new AtomicLong(0);
+	final AtomicLong formatHits = new AtomicLong(0);
+	final AtomicLong formatMisses = new AtomicLong(0);
 
 	/**
 	 * Create broadcasting event sink factory
@@ -130,6 +168,73 @@ public class BroadcastingEventSink extends AbstractEventSink {
 		return this;
 	}
 
+	/**
+	 * Sets fan-out policy, defining how long logging caller waits for broadcast sinks to write an entry.
+	 *
+	 * @param fop
+	 *            fan-out policy
+	 * @return instance of this sink
+	 */
+	public BroadcastingEventSink setFanOutPolicy(FanOutPolicy fop) {
+		this.fanOutPolicy = fop == null ? FanOutPolicy.WAIT_ALL : fop;
+
+		return this;
+	}
+
+	/**
+	 * Obtain fan-out policy, defining how long logging caller waits for broadcast sinks to write an entry.
+	 *
+	 * @return fan-out policy
+	 */
+	public FanOutPolicy getFanOutPolicy() {
+		return fanOutPolicy;
+	}
+
+	/**
+	 * Sets capacity of every broadcast sink worker queue. Must be set before this sink starts logging.
+	 *
+	 * @param capacity
+	 *            maximum number of entries queued for a single broadcast sink
+	 * @return instance of this sink
+	 */
+	public BroadcastingEventSink setQueueCapacity(int capacity) {
+		this.queueCapacity = Math.max(1, capacity);
+
+		return this;
+	}
+
+	/**
+	 * Obtain capacity of every broadcast sink worker queue.
+	 *
+	 * @return maximum number of entries queued for a single broadcast sink
+	 */
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Sets maximum time logging caller waits for a full sink queue and for sinks to write an entry, when fan-out policy
+	 * is not {@link FanOutPolicy#FIRE_AND_FORGET}.
+	 *
+	 * @param timeout
+	 *            time interval in milliseconds, {@code 0} to wait without limit
+	 * @return instance of this sink
+	 */
+	public BroadcastingEventSink setWaitTimeout(long timeout) {
+		this.waitTimeout = Math.max(0, timeout);
+
+		return this;
+	}
+
+	/**
+	 * Obtain maximum time logging caller waits for a full sink queue and for sinks to write an entry.
+	 *
+	 * @return time interval in milliseconds, {@code 0} when waiting without limit
+	 */
+	public long getWaitTimeout() {
+		return waitTimeout;
+	}
+
 	@Override
 	public Map<String, Object> getStats() {
 		LinkedHashMap<String, Object> stats = new LinkedHashMap<>(32);
@@ -142,12 +247,47 @@ public class BroadcastingEventSink extends AbstractEventSink {
 		super.getStats(stats);
 		stats.put(Utils.qualify(this, KEY_SINK_SIZE), eventSinks.size());
 		stats.put(Utils.qualify(this, KEY_OPEN_COUNT), openCount());
+		stats.put(Utils.qualify(this, KEY_FAN_OUT_POLICY), fanOutPolicy.name());
+		stats.put(Utils.qualify(this, KEY_WAIT_TIMEOUTS), waitTimeouts.get());
+		stats.put(Utils.qualify(this, KEY_FORMAT_CACHE_HITS), formatHits.get());
+		stats.put(Utils.qualify(this, KEY_FORMAT_CACHE_MISSES), formatMisses.get());
+		SinkWorker[] sw = workers;
+		if (sw != null) {
+			for (SinkWorker worker : sw) {
+				stats.put(Utils.qualify(this, worker.sinkId + "/" + KEY_QUEUE_SIZE), worker.queue.size());
+				stats.put(Utils.qualify(this, worker.sinkId + "/" + KEY_LOGGED), worker.logged.get());
+				stats.put(Utils.qualify(this, worker.sinkId + "/" + KEY_DROPPED), worker.dropped.get());
+				stats.put(Utils.qualify(this, worker.sinkId + "/" + KEY_ERRORS), worker.errors.get());
+				stats.put(Utils.qualify(this, worker.sinkId + "/" + KEY_LATENCY_USEC), worker.latencyUsec.get());
+				stats.put(Utils.qualify(this, worker.sinkId + "/" + KEY_LAST_LATENCY_USEC),
+						worker.lastLatencyUsec.get());
+				stats.put(Utils.qualify(this, worker.sinkId + "/" + KEY_MAX_LATENCY_USEC),
+						worker.maxLatencyUsec.get());
+			}
+		}
 		for (EventSink sink : eventSinks.values()) {
 			sink.getStats(stats);
 		}
 		return this;
 	}
 
+	@Override
+	public void resetStats() {
+		super.resetStats();
+		waitTimeouts.set(0);
+		formatHits.set(0);
+		formatMisses.set(0);
+		SinkWorker[] sw = workers;
+		if (sw != null) {
+			for (SinkWorker worker : sw) {
+				worker.resetStats();
+			}
+		}
+		for (EventSink sink : eventSinks.values()) {
+			sink.resetStats();
+		}
+	}
+
 	@Override
 	public Object getSinkHandle() {
 		return this;
@@ -194,6 +334,13 @@ public class BroadcastingEventSink extends AbstractEventSink {
 
 	@Override
 	protected void _close() throws IOException {
+		// let workers write queued entries before closing sinks
+		SinkWorker[] sw = workers;
+		if (sw != null) {
+			for (SinkWorker worker : sw) {
+				worker.stop(STOP_TIMEOUT_MS);
+			}
+		}
 		IOException lastE = null;
 		for (EventSink sink : eventSinks.values()) {
 			try {
@@ -264,27 +411,51 @@ public class BroadcastingEventSink extends AbstractEventSink {
 	 *            sink entry to log
 	 */
 	protected void logSinkEntry(SinkEntry entry) {
-		CountDownLatch waitLatch = new CountDownLatch(eventSinks.size());
-		for (EventSink sink : eventSinks.values()) {
-			Thread lt = new Thread(new Runnable() {
-				@Override
-				public void run() {
-					try {
-						entry.logEntry(sink);
-					} catch (Throwable t) {
-						sink.setErrorState(t);
-					} finally {
-						waitLatch.countDown();
-					}
-				}
-			});
-			lt.start();
+		SinkWorker[] sw = getWorkers();
+		if (sw.length == 0) {
+			return;
+		}
+		FanOutPolicy fop = fanOutPolicy;
+		CountDownLatch waitLatch = fop == FanOutPolicy.FIRE_AND_FORGET ? null
+				: new CountDownLatch(fop == FanOutPolicy.WAIT_ANY ? 1 : sw.length);
+		FormatCache cache = sw.length > 1 ? new FormatCache(formatHits, formatMisses) : null;
+		for (SinkWorker worker : sw) {
+			worker.submit(new SinkTask(entry, cache, waitLatch));
+		}
+		if (waitLatch == null) {
+			return;
 		}
 		try {
-			waitLatch.await();
+			if (waitTimeout <= 0) {
+				waitLatch.await();
+			} else if (!waitLatch.await(waitTimeout, TimeUnit.MILLISECONDS)) {
+				waitTimeouts.incrementAndGet();
+			}
 		} catch (InterruptedException ie) {
-			// setErrorState (ie);
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Obtain broadcast sink workers, creating them on first use.
+	 *
+	 * @return array of broadcast sink workers
+	 */
+	private SinkWorker[] getWorkers() {
+		SinkWorker[] sw = workers;
+		if (sw == null) {
+			synchronized (eventSinks) {
+				sw = workers;
+				if (sw == null) {
+					List<SinkWorker> wList = new ArrayList<>(eventSinks.size());
+					for (Map.Entry<String, EventSink> sinkEntry : eventSinks.entrySet()) {
+						wList.add(new SinkWorker(sinkEntry.getKey(), sinkEntry.getValue()));
+					}
+					workers = sw = wList.toArray(new SinkWorker[0]);
+				}
+			}
 		}
+		return sw;
 	}
 
 	private int openCount() {
@@ -343,6 +514,198 @@ public class BroadcastingEventSink extends AbstractEventSink {
 		ANY
 	}
 
+	/**
+	 * Enumerates policies defining how long logging caller waits for broadcast sinks to write an entry.
+	 */
+	public enum FanOutPolicy {
+		/**
+		 * Wait for all broadcast sinks to write an entry.
+		 */
+		WAIT_ALL,
+		/**
+		 * Wait for any one broadcast sink to write an entry.
+		 */
+		WAIT_ANY,
+		/**
+		 * Queue entry to all broadcast sinks and return without waiting, entries not fitting into sink queue are
+		 * dropped.
+		 */
+		FIRE_AND_FORGET
+	}
+
+	/**
+	 * Sink entry queued for a single broadcast sink.
+	 */
+	private static class SinkTask {
+		final SinkEntry entry;
+		final FormatCache cache;
+		final CountDownLatch waitLatch;
+		long queuedNanos;
+
+		SinkTask(SinkEntry entry, FormatCache cache, CountDownLatch waitLatch) {
+			this.entry = entry;
+			this.cache = cache;
+			this.waitLatch = waitLatch;
+		}
+
+		void done() {
+			if (waitLatch != null) {
+				waitLatch.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Long-lived worker writing queued entries to a single broadcast sink.
+	 */
+	private class SinkWorker implements Runnable {
+		final SinkTask stopTask = new SinkTask(null, null, null);
+
+		final String sinkId;
+		final EventSink sink;
+		final BlockingQueue<SinkTask> queue;
+		// owned by the single thread consuming the queue, cleared by that thread only once it stops consuming
+		final AtomicReference<Thread> thread = new AtomicReference<>();
+		volatile boolean stopping;
+
+		final AtomicLong logged = new AtomicLong(0);
+		final AtomicLong dropped = new AtomicLong(0);
+		final AtomicLong errors = new AtomicLong(0);
+		final AtomicLong latencyUsec = new AtomicLong(0);
+		final AtomicLong lastLatencyUsec = new AtomicLong(0);
+		final AtomicLong maxLatencyUsec = new AtomicLong(0);
+
+		SinkWorker(String sinkId, EventSink sink) {
+			this.sinkId = sinkId;
+			this.sink = sink;
+			this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		}
+
+		/**
+		 * Queue task for this worker. When logging caller waits for sinks, waits for a full queue as well, otherwise
+		 * drops the task if queue is full.
+		 *
+		 * @param task
+		 *            task to queue
+		 */
+		void submit(SinkTask task) {
+			task.queuedNanos = System.nanoTime();
+			boolean queued;
+			try {
+				if (task.waitLatch == null) {
+					queued = queue.offer(task);
+				} else if (waitTimeout <= 0) {
+					queue.put(task);
+					queued = true;
+				} else {
+					queued = queue.offer(task, waitTimeout, TimeUnit.MILLISECONDS);
+				}
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				queued = false;
+			}
+			if (!queued) {
+				dropped.incrementAndGet();
+				task.done();
+			} else if (thread.get() == null) {
+				start();
+			}
+		}
+
+		/**
+		 * Start worker thread, unless one is already consuming the queue.
+		 */
+		void start() {
+			Thread wt = new Thread(this, BroadcastingEventSink.this.getName() + "/broadcast-" + sinkId);
+			wt.setDaemon(true);
+			if (thread.compareAndSet(null, wt)) {
+				wt.start();
+			}
+		}
+
+		/**
+		 * Stop worker thread, after it writes all queued entries. Entries not written within a given timeout are
+		 * dropped. If worker thread does not exit within the timeout (e.g. blocked writing to the sink), it is left to
+		 * finish on its own and keeps ownership of the queue: a new worker is started only once it has exited, so
+		 * entries of a sink are never written by two threads.
+		 *
+		 * @param timeoutMs
+		 *            maximum time in milliseconds to wait for queued entries to be written
+		 * @return {@code true} if worker thread exited, {@code false} if it is still running
+		 */
+		synchronized boolean stop(long timeoutMs) {
+			Thread wt = thread.get();
+			if (wt == null) {
+				return true;
+			}
+			stopping = true;
+			try {
+				if (!queue.offer(stopTask, timeoutMs, TimeUnit.MILLISECONDS)) {
+					wt.interrupt();
+				}
+				wt.join(timeoutMs);
+				if (wt.isAlive()) {
+					return false;
+				}
+				SinkTask task;
+				while ((task = queue.poll()) != null) {
+					if (task != stopTask) {
+						dropped.incrementAndGet();
+						task.done();
+					}
+				}
+				return true;
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				return !wt.isAlive();
+			} finally {
+				stopping = false;
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				SinkTask task;
+				while ((task = queue.take()) != stopTask) {
+					FormatCache prev = FormatCache.attach(task.cache);
+					try {
+						task.entry.logEntry(sink);
+						logged.incrementAndGet();
+					} catch (Throwable t) {
+						errors.incrementAndGet();
+						sink.setErrorState(t);
+					} finally {
+						FormatCache.attach(prev);
+						long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - task.queuedNanos);
+						latencyUsec.addAndGet(latency);
+						lastLatencyUsec.set(latency);
+						maxLatencyUsec.accumulateAndGet(latency, Math::max);
+						task.done();
+					}
+				}
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			} finally {
+				// release the queue only after the last take, so that it never has two consumers. Worker left running
+				// by a timed out stop() may find entries queued after the sink was reopened: hand them to a new worker
+				thread.compareAndSet(Thread.currentThread(), null);
+				if (!stopping && !queue.isEmpty() && BroadcastingEventSink.this.isOpen()) {
+					start();
+				}
+			}
+		}
+
+		void resetStats() {
+			logged.set(0);
+			dropped.set(0);
+			errors.set(0);
+			latencyUsec.set(0);
+			lastLatencyUsec.set(0);
+			maxLatencyUsec.set(0);
+		}
+	}
+
 	/**
 	 * Interface defining generic sink entry logging function.
 	 */
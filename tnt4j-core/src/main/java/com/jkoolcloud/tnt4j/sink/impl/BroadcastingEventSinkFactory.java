@@ -31,6 +31,12 @@ import com.jkoolcloud.tnt4j.utils.Utils;
 /**
  * Broadcasting event sink factory allows creation of event sinks that can write to multiple event sinks at once. The
  * factory wraps around multiple event sink factories.
+ * <p>
+ * Besides broadcast sequence, factory supports {@code OpenSinksPolicy} ({@code ANY}, {@code ALL}),
+ * {@code FanOutPolicy} ({@code WAIT_ALL}, {@code WAIT_ANY}, {@code FIRE_AND_FORGET}), {@code QueueCapacity} - number
+ * of entries queued per broadcast sink and {@code WaitTimeout} - maximum time in milliseconds logging caller waits for
+ * broadcast sinks ({@code 0} - no limit).
+ * </p>
  * 
  * @author albert
  *
@@ -39,6 +45,9 @@ public class BroadcastingEventSinkFactory extends AbstractEventSinkFactory {
 
 	String broadcastSeq;
 	BroadcastingEventSink.OpenSinksPolicy openSinksPolicy;
+	BroadcastingEventSink.FanOutPolicy fanOutPolicy = BroadcastingEventSink.FanOutPolicy.WAIT_ALL;
+	int queueCapacity = BroadcastingEventSink.DEFAULT_QUEUE_CAPACITY;
+	long waitTimeout = 0;
 	final Map<String, EventSinkFactory> sinkFactories = Collections.synchronizedMap(new HashMap<>(3));
 
 	/**
@@ -92,6 +101,9 @@ public class BroadcastingEventSinkFactory extends AbstractEventSinkFactory {
 	protected EventSink configureSink(EventSink sink) {
 		BroadcastingEventSink bsSink = (BroadcastingEventSink) super.configureSink(sink);
 		bsSink.setOpenSinksPolicy(openSinksPolicy);
+		bsSink.setFanOutPolicy(fanOutPolicy);
+		bsSink.setQueueCapacity(queueCapacity);
+		bsSink.setWaitTimeout(waitTimeout);
 
 		return bsSink;
 	}
@@ -107,8 +119,12 @@ public class BroadcastingEventSinkFactory extends AbstractEventSinkFactory {
 			initBroadcastSequence(broadcastSeq.split(","), props);
 		}
 		String ospName = Utils.getString("OpenSinksPolicy", props, "ANY");
+		String fopName = Utils.getString("FanOutPolicy", props, "WAIT_ALL");
+		queueCapacity = Utils.getInt("QueueCapacity", props, BroadcastingEventSink.DEFAULT_QUEUE_CAPACITY);
+		waitTimeout = Utils.getLong("WaitTimeout", props, 0);
 		try {
 			openSinksPolicy = BroadcastingEventSink.OpenSinksPolicy.valueOf(ospName.toUpperCase());
+			fanOutPolicy = BroadcastingEventSink.FanOutPolicy.valueOf(fopName.toUpperCase());
 		} catch (IllegalArgumentException exc) {
 			throw new ConfigException(exc.getLocalizedMessage(), props);
 		}
@@ -193,7 +193,9 @@ public class BufferedEventSink extends TagsSet implements EventSink, IOShutdown
 			if (ttl != TTL.TTL_CONTEXT) {
 				activity.setTTL(ttl);
 			}
-			SinkLogEvent sinkEvent = new SinkLogEvent(outSink, activity);
+			SinkLogEventPool pool = getEventPool();
+			SinkLogEvent sinkEvent = pool != null ? pool.acquire(outSink, activity)
+					: new SinkLogEvent(outSink, activity);
 			_writeEvent(sinkEvent, block);
 		} else {
 			skipCount.incrementAndGet();
@@ -207,7 +209,8 @@ public class BufferedEventSink extends TagsSet implements EventSink, IOShutdown
 			if (ttl != TTL.TTL_CONTEXT) {
 				event.setTTL(ttl);
 			}
-			SinkLogEvent sinkEvent = new SinkLogEvent(outSink, event);
+			SinkLogEventPool pool = getEventPool();
+			SinkLogEvent sinkEvent = pool != null ? pool.acquire(outSink, event) : new SinkLogEvent(outSink, event);
 			_writeEvent(sinkEvent, block);
 		} else {
 			skipCount.incrementAndGet();
@@ -221,7 +224,9 @@ public class BufferedEventSink extends TagsSet implements EventSink, IOShutdown
 			if (ttl != TTL.TTL_CONTEXT) {
 				snapshot.setTTL(ttl);
 			}
-			SinkLogEvent sinkEvent = new SinkLogEvent(outSink, snapshot);
+			SinkLogEventPool pool = getEventPool();
+			SinkLogEvent sinkEvent = pool != null ? pool.acquire(outSink, snapshot)
+					: new SinkLogEvent(outSink, snapshot);
 			_writeEvent(sinkEvent, block);
 		} else {
 			skipCount.incrementAndGet();
@@ -257,7 +262,9 @@ public class BufferedEventSink extends TagsSet implements EventSink, IOShutdown
 	public void log(long ttl_sec, Source src, OpLevel sev, ResourceBundle bundle, String key, Object... args) {
 		_checkState();
 		if (isLoggable(sev, key, args)) {
-			SinkLogEvent sinkEvent = new SinkLogEvent(outSink, src, sev, ttl_sec, bundle, key, resolveArguments(args));
+			SinkLogEventPool pool = getEventPool();
+			SinkLogEvent sinkEvent = pool != null ? pool.acquire(outSink, src, sev, ttl_sec, bundle, key, args)
+					: new SinkLogEvent(outSink, src, sev, ttl_sec, bundle, key, resolveArguments(args));
 			_writeEvent(sinkEvent, block);
 		} else {
 			skipCount.incrementAndGet();
@@ -269,8 +276,11 @@ public class BufferedEventSink extends TagsSet implements EventSink, IOShutdown
 		_checkState();
 		String txtMsg = String.valueOf(msg);
 		if (isLoggable(OpLevel.NONE, txtMsg, args)) {
-			SinkLogEvent sinkEvent = new SinkLogEvent(outSink, getSource(), OpLevel.NONE, defaultTTL(), txtMsg,
-					resolveArguments(args));
+			SinkLogEventPool pool = getEventPool();
+			SinkLogEvent sinkEvent = pool != null
+					? pool.acquire(outSink, getSource(), OpLevel.NONE, defaultTTL(), null, txtMsg, args)
+					: new SinkLogEvent(outSink, getSource(), OpLevel.NONE, defaultTTL(), txtMsg,
+							resolveArguments(args));
 			_writeEvent(sinkEvent, block);
 		} else {
 			skipCount.incrementAndGet();
@@ -279,20 +289,33 @@ public class BufferedEventSink extends TagsSet implements EventSink, IOShutdown
 
 	private void _writeEvent(SinkLogEvent sinkEvent, boolean sync) {
 		totalCount.incrementAndGet();
+		PooledLogger pooledLogger = factory.getPooledLogger();
 		if (sync) {
 			try {
-				factory.getPooledLogger().put(sinkEvent);
+				pooledLogger.put(sinkEvent);
 			} catch (Throwable ex) {
 				dropCount.incrementAndGet();
+				pooledLogger.recycle(sinkEvent);
 			}
 		} else {
-			boolean flag = factory.getPooledLogger().offer(sinkEvent);
+			boolean flag = pooledLogger.offer(sinkEvent);
 			if (!flag) {
 				dropCount.incrementAndGet();
+				pooledLogger.recycle(sinkEvent);
 			}
 		}
 	}
 
+	/**
+	 * Obtain recyclable event pool of the pooled logger used by this sink.
+	 *
+	 * @return recyclable event pool, {@code null} if event recycling is disabled
+	 */
+	private SinkLogEventPool getEventPool() {
+		PooledLogger pooledLogger = factory.getPooledLogger();
+		return pooledLogger != null ? pooledLogger.getEventPool() : null;
+	}
+
 	@Override
 	public void removeSinkErrorListener(SinkErrorListener listener) {
 		outSink.removeSinkErrorListener(listener);
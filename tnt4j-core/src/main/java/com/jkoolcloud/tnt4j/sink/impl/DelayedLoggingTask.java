@@ -15,6 +15,9 @@
  */
 package com.jkoolcloud.tnt4j.sink.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.jkoolcloud.tnt4j.core.OpLevel;
 import com.jkoolcloud.tnt4j.sink.SinkLogEvent;
 
@@ -24,8 +27,8 @@ import com.jkoolcloud.tnt4j.sink.SinkLogEvent;
  *
  * @version $Revision: 1 $
  *
- * @see com.jkoolcloud.tnt4j.sink.impl.PooledLogger#takeDelayedEvent()
- * @see com.jkoolcloud.tnt4j.sink.impl.PooledLogger#put(com.jkoolcloud.tnt4j.sink.SinkLogEvent)
+ * @see com.jkoolcloud.tnt4j.sink.impl.PooledLogger#takeDelayedEvents(java.util.Collection)
+ * @see com.jkoolcloud.tnt4j.sink.impl.PooledLogger#requeue(com.jkoolcloud.tnt4j.sink.SinkLogEvent)
  */
 class DelayedLoggingTask extends AbstractPoolLoggingTask {
 	protected DelayedLoggingTask(PooledLogger logger) {
@@ -35,12 +38,27 @@ class DelayedLoggingTask extends AbstractPoolLoggingTask {
 	@Override
 	public void run() {
 		try {
+			List<SinkLogEvent> events = new ArrayList<>();
 			while (!isCanceled()) {
-				SinkLogEvent event = pooledLogger.takeDelayedEvent();
-				if (event.getSignalType() == SinkLogEvent.SIGNAL_TERMINATE) {
-					cancel();
-				} else {
-					pooledLogger.put(event);
+				pooledLogger.takeDelayedEvents(events);
+				int requeued = 0;
+				try {
+					for (SinkLogEvent event : events) {
+						if (event.getSignalType() == SinkLogEvent.SIGNAL_TERMINATE) {
+							cancel();
+							break;
+						}
+						requeued++;
+						pooledLogger.requeue(event);
+					}
+				} catch (InterruptedException exc) {
+					// rest of the batch is never re-queued, account for it
+					for (SinkLogEvent event : events.subList(requeued, events.size())) {
+						pooledLogger.abandon(event);
+					}
+					throw exc;
+				} finally {
+					events.clear();
 				}
 			}
 		} catch (Throwable e) {
@@ -0,0 +1,523 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.jkoolcloud.tnt4j.core.KeyValueStats;
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.core.Snapshot;
+import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.sink.AbstractEventSink;
+import com.jkoolcloud.tnt4j.sink.EventSink;
+import com.jkoolcloud.tnt4j.sink.EventSinkFactory;
+import com.jkoolcloud.tnt4j.source.Source;
+import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
+import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+import com.jkoolcloud.tnt4j.utils.SharedScheduler;
+import com.jkoolcloud.tnt4j.utils.Utils;
+
+/**
+ * <p>
+ * This class implements {@link EventSink} routing every entry to the highest priority healthy child sink, e.g. primary
+ * socket collector backed by a local file. Child sink health is scored by exponentially weighted error rate and write
+ * latency: child is marked unhealthy once its error rate exceeds max error rate or its latency exceeds max latency.
+ * Entry failed by a child is retried on the next healthy child right away, so switching over takes no more than one
+ * entry. When no child is healthy, all children are tried in priority order and entry is lost only if all of them fail.
+ * Each write is judged on its own: it fails if child throws or reports an error on the logging thread while writing
+ * the entry (see {@link AbstractEventSink#runChecked}), errors reported by child background threads are not counted.
+ * </p>
+ *
+ * <p>
+ * Unhealthy children are probed in the background: closed child is reopened and, once open, re-admitted with its
+ * health score reset, so that entries fail forward to the recovered higher priority child. Optionally entries written
+ * while the primary (first) child is unhealthy are kept in a bounded in-memory queue and replayed to the primary once
+ * it recovers. Replayed entries are not removed from the fallback child and may interleave with new entries written
+ * to the primary child.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see FailoverEventSinkFactory
+ * @see BroadcastingEventSink
+ */
+public class FailoverEventSink extends AbstractEventSink {
+	public static final String KEY_FAILOVER_ACTIVE = "failover-active";
+	public static final String KEY_FAILOVER_SWITCHES = "failover-switches";
+	public static final String KEY_FAILOVER_FAIL_FORWARDS = "failover-fail-forwards";
+	public static final String KEY_FAILOVER_LOST = "failover-lost";
+	public static final String KEY_FAILOVER_REPLAY_SIZE = "failover-replay-size";
+	public static final String KEY_FAILOVER_REPLAYED = "failover-replayed";
+	public static final String KEY_FAILOVER_REPLAY_DROPPED = "failover-replay-dropped";
+	public static final String KEY_CHILD_PRIORITY = "priority";
+	public static final String KEY_CHILD_HEALTHY = "healthy";
+	public static final String KEY_CHILD_ERROR_RATE = "error-rate";
+	public static final String KEY_CHILD_LATENCY_USEC = "latency-usec";
+	public static final String KEY_CHILD_LOGGED = "logged";
+	public static final String KEY_CHILD_FAILED = "failed";
+
+	public static final double DEFAULT_MAX_ERROR_RATE = 0.2;
+	public static final long DEFAULT_MAX_LATENCY_MS = 0;
+	public static final long DEFAULT_PROBE_INTERVAL_MS = 5000;
+	public static final int DEFAULT_REPLAY_CAPACITY = 0;
+	static final double HEALTH_WEIGHT = 0.25;
+
+
+	private final Child[] children;
+	private double maxErrorRate = DEFAULT_MAX_ERROR_RATE;
+	private long maxLatencyUsec = 0;
+	private long probeInterval = DEFAULT_PROBE_INTERVAL_MS;
+	private int replayCapacity = DEFAULT_REPLAY_CAPACITY;
+
+	private volatile boolean open = false;
+	private volatile BlockingQueue<SinkEntry> replayQueue;
+	private ScheduledFuture<?> probeTask;
+
+	private final AtomicInteger active = new AtomicInteger(0);
+	private final AtomicLong switches = new AtomicLong(0);
+	private final AtomicLong failForwards = new AtomicLong(0);
+	private final AtomicLong lost = new AtomicLong(0);
+	private final AtomicLong replayed = new AtomicLong(0);
+	private final AtomicLong replayDropped = new AtomicLong(0);
+
+	/**
+	 * Create failover event sink
+	 *
+	 * @param foFactory
+	 *            failover event sink factory instance
+	 * @param name
+	 *            sink name
+	 * @param props
+	 *            event sink properties
+	 * @see FailoverEventSinkFactory
+	 */
+	public FailoverEventSink(FailoverEventSinkFactory foFactory, String name, Properties props) {
+		super(name);
+		children = createChildren(foFactory, name, props, null);
+	}
+
+	/**
+	 * Create failover event sink
+	 *
+	 * @param foFactory
+	 *            failover event sink factory instance
+	 * @param name
+	 *            sink name
+	 * @param props
+	 *            event sink properties
+	 * @param frmt
+	 *            event formatter instance
+	 * @see FailoverEventSinkFactory
+	 */
+	public FailoverEventSink(FailoverEventSinkFactory foFactory, String name, Properties props, EventFormatter frmt) {
+		super(name, frmt);
+		children = createChildren(foFactory, name, props, frmt);
+	}
+
+	private Child[] createChildren(FailoverEventSinkFactory foFactory, String name, Properties props,
+			EventFormatter frmt) {
+		List<Child> list = new ArrayList<>();
+		for (Map.Entry<String, EventSinkFactory> sfe : foFactory.getEventSinkFactories().entrySet()) {
+			EventSink sink = frmt == null ? sfe.getValue().getEventSink(name, props)
+					: sfe.getValue().getEventSink(name, props, frmt);
+			list.add(new Child(sfe.getKey(), list.size(), sink));
+		}
+		if (list.isEmpty()) {
+			throw new IllegalArgumentException("No failover sinks defined for sink=" + name);
+		}
+		return list.toArray(new Child[0]);
+	}
+
+	/**
+	 * Set child health thresholds.
+	 *
+	 * @param errorRate
+	 *            max exponentially weighted error rate (0-1) of a healthy child
+	 * @param latencyMs
+	 *            max exponentially weighted write latency in milliseconds of a healthy child, {@code 0} - unlimited
+	 * @return itself
+	 */
+	public FailoverEventSink setHealthThresholds(double errorRate, long latencyMs) {
+		maxErrorRate = errorRate;
+		maxLatencyUsec = TimeUnit.MILLISECONDS.toMicros(Math.max(0, latencyMs));
+		return this;
+	}
+
+	/**
+	 * Set interval of unhealthy children probing. Takes effect when sink is (re)opened.
+	 *
+	 * @param interval
+	 *            probe interval in milliseconds
+	 * @return itself
+	 */
+	public FailoverEventSink setProbeInterval(long interval) {
+		probeInterval = Math.max(1, interval);
+		return this;
+	}
+
+	/**
+	 * Set capacity of queue keeping entries to be replayed to the primary child once it recovers. Takes effect when
+	 * sink is (re)opened.
+	 *
+	 * @param capacity
+	 *            max number of entries to replay, {@code 0} - replay disabled
+	 * @return itself
+	 */
+	public FailoverEventSink setReplayCapacity(int capacity) {
+		replayCapacity = Math.max(0, capacity);
+		return this;
+	}
+
+	/**
+	 * Obtain child sinks in priority order.
+	 *
+	 * @return list of child sinks
+	 */
+	public List<EventSink> getSinks() {
+		List<EventSink> list = new ArrayList<>(children.length);
+		for (Child child : children) {
+			list.add(child.sink);
+		}
+		return list;
+	}
+
+	/**
+	 * Obtain child sink entries are currently written to.
+	 *
+	 * @return active child sink
+	 */
+	public EventSink getActiveSink() {
+		return children[active.get()].sink;
+	}
+
+	@Override
+	public Object getSinkHandle() {
+		return this;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	protected synchronized void _open() throws IOException {
+		if (open) {
+			return;
+		}
+		replayQueue = replayCapacity > 0 ? new ArrayBlockingQueue<>(replayCapacity) : null;
+		for (Child child : children) {
+			if (!child.sink.isOpen()) {
+				child.sink.open();
+			}
+			child.reset(child.sink.isOpen());
+		}
+		probeTask = SharedScheduler.scheduleWithFixedDelay(this::probe, probeInterval, probeInterval,
+				TimeUnit.MILLISECONDS);
+		open = true;
+	}
+
+	@Override
+	protected synchronized void _close() throws IOException {
+		open = false;
+		if (probeTask != null) {
+			probeTask.cancel(false);
+			probeTask = null;
+		}
+		IOException lastE = null;
+		for (Child child : children) {
+			try {
+				child.sink.close();
+			} catch (IOException e) {
+				lastE = e;
+			}
+		}
+		if (lastE != null) {
+			throw lastE;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		for (Child child : children) {
+			if (child.sink.isOpen()) {
+				child.sink.flush();
+			}
+		}
+	}
+
+	@Override
+	protected void _log(TrackingEvent event) throws IOException {
+		logSinkEntry(sink -> sink.log(event));
+	}
+
+	@Override
+	protected void _log(TrackingActivity activity) throws IOException {
+		logSinkEntry(sink -> sink.log(activity));
+	}
+
+	@Override
+	protected void _log(Snapshot snapshot) throws IOException {
+		logSinkEntry(sink -> sink.log(snapshot));
+	}
+
+	@Override
+	protected void _log(long ttl, Source src, OpLevel sev, String msg, Object... args) throws IOException {
+		logSinkEntry(sink -> sink.log(ttl, src, sev, msg, args));
+	}
+
+	@Override
+	protected void _write(Object msg, Object... args) throws IOException, InterruptedException {
+		logSinkEntry(sink -> sink.write(msg, args));
+	}
+
+	@Override
+	protected void _writeFormatted(String msg) throws IOException, InterruptedException {
+		logSinkEntry(sink -> {
+			if (sink instanceof AbstractEventSink) {
+				((AbstractEventSink) sink).writeFormatted(msg);
+			} else {
+				sink.write(msg);
+			}
+		});
+	}
+
+	/**
+	 * Write sink entry to the highest priority healthy child, retrying next children on failure.
+	 *
+	 * @param entry
+	 *            sink entry to log
+	 * @throws IOException
+	 *             if entry could not be written to any child
+	 */
+	protected void logSinkEntry(SinkEntry entry) throws IOException {
+		for (Child child : children) {
+			if (child.healthy && write(child, entry)) {
+				return;
+			}
+		}
+		// no healthy child took the entry: last resort, try unhealthy ones
+		for (Child child : children) {
+			if (!child.healthy && write(child, entry)) {
+				return;
+			}
+		}
+		lost.incrementAndGet();
+		throw new IOException("All failover sinks failed: sink=" + getName());
+	}
+
+	private boolean write(Child child, SinkEntry entry) {
+		EventSink sink = child.sink;
+		long start = System.nanoTime();
+		boolean ok;
+		try {
+			runChecked(sink, entry::logEntry);
+			ok = true;
+		} catch (Throwable t) {
+			sink.setErrorState(t);
+			ok = false;
+		}
+		child.update(ok, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+		if (ok) {
+			activate(child);
+			BlockingQueue<SinkEntry> rq = replayQueue;
+			if (rq != null && child.index > 0 && !children[0].healthy && !rq.offer(entry)) {
+				replayDropped.incrementAndGet();
+			}
+		}
+		return ok;
+	}
+
+	private void activate(Child child) {
+		int prev = active.getAndSet(child.index);
+		if (prev != child.index) {
+			switches.incrementAndGet();
+			if (child.index < prev) {
+				failForwards.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Probe unhealthy children, re-admitting recovered ones and replaying queued entries to recovered primary child.
+	 */
+	private void probe() {
+		try {
+			for (Child child : children) {
+				if (!child.healthy && open) {
+					EventSink sink = child.sink;
+					try {
+						runChecked(sink, s -> {
+							if (!s.isOpen()) {
+								s.open();
+							}
+						});
+					} catch (IOException exc) {
+						continue;
+					}
+					if (sink.isOpen()) {
+						child.reset(true);
+					}
+				}
+			}
+			if (children[0].healthy) {
+				replay(children[0]);
+			}
+		} catch (Throwable exc) {
+			setErrorState(exc);
+		}
+	}
+
+	/**
+	 * Run a given operation on a child sink, failing if the operation throws or the child reports a failure on the
+	 * calling thread while running it. Errors reported by child background threads meanwhile do not fail the operation.
+	 */
+	private static void runChecked(EventSink sink, AbstractEventSink.SinkOperation op) throws IOException {
+		if (sink instanceof AbstractEventSink) {
+			((AbstractEventSink) sink).runChecked(op);
+		} else {
+			try {
+				op.run(sink);
+			} catch (IOException exc) {
+				throw exc;
+			} catch (Throwable exc) {
+				throw new IOException(exc.getMessage(), exc);
+			}
+		}
+	}
+
+	private void replay(Child primary) {
+		BlockingQueue<SinkEntry> rq = replayQueue;
+		SinkEntry entry;
+		while (rq != null && open && (entry = rq.peek()) != null) {
+			if (!write(primary, entry)) {
+				return;
+			}
+			rq.poll();
+			replayed.incrementAndGet();
+		}
+	}
+
+	@Override
+	public KeyValueStats getStats(Map<String, Object> stats) {
+		super.getStats(stats);
+		for (Child child : children) {
+			String pfix = child.id + "/";
+			stats.put(Utils.qualify(this, pfix + KEY_CHILD_PRIORITY), child.index);
+			stats.put(Utils.qualify(this, pfix + KEY_CHILD_HEALTHY), child.healthy);
+			stats.put(Utils.qualify(this, pfix + KEY_CHILD_ERROR_RATE), child.errorRate);
+			stats.put(Utils.qualify(this, pfix + KEY_CHILD_LATENCY_USEC), (long) child.latencyUsec);
+			stats.put(Utils.qualify(this, pfix + KEY_CHILD_LOGGED), child.logged.get());
+			stats.put(Utils.qualify(this, pfix + KEY_CHILD_FAILED), child.failed.get());
+		}
+		BlockingQueue<SinkEntry> rq = replayQueue;
+		stats.put(Utils.qualify(this, KEY_FAILOVER_ACTIVE), children[active.get()].id);
+		stats.put(Utils.qualify(this, KEY_FAILOVER_SWITCHES), switches.get());
+		stats.put(Utils.qualify(this, KEY_FAILOVER_FAIL_FORWARDS), failForwards.get());
+		stats.put(Utils.qualify(this, KEY_FAILOVER_LOST), lost.get());
+		stats.put(Utils.qualify(this, KEY_FAILOVER_REPLAY_SIZE), rq == null ? 0 : rq.size());
+		stats.put(Utils.qualify(this, KEY_FAILOVER_REPLAYED), replayed.get());
+		stats.put(Utils.qualify(this, KEY_FAILOVER_REPLAY_DROPPED), replayDropped.get());
+		for (Child child : children) {
+			child.sink.getStats(stats);
+		}
+		return this;
+	}
+
+	@Override
+	public void resetStats() {
+		super.resetStats();
+		switches.set(0);
+		failForwards.set(0);
+		lost.set(0);
+		replayed.set(0);
+		replayDropped.set(0);
+		for (Child child : children) {
+			child.logged.set(0);
+			child.failed.set(0);
+			child.sink.resetStats();
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Child child : children) {
+			if (sb.length() > 0) {
+				sb.append("; ");
+			}
+			sb.append(child.id).append("=").append(child.sink);
+		}
+		return super.toString() //
+				+ "{eventSinks: " + sb //
+				+ ", active: " + children[active.get()].id //
+				+ "}";
+	}
+
+	/**
+	 * Child sink along with its health score.
+	 */
+	private class Child {
+		final String id;
+		final int index;
+		final EventSink sink;
+		volatile boolean healthy = true;
+		volatile double errorRate = 0;
+		volatile double latencyUsec = 0;
+
+		final AtomicLong logged = new AtomicLong(0);
+		final AtomicLong failed = new AtomicLong(0);
+
+		Child(String id, int index, EventSink sink) {
+			this.id = id;
+			this.index = index;
+			this.sink = sink;
+		}
+
+		synchronized void update(boolean ok, long latency) {
+			(ok ? logged : failed).incrementAndGet();
+			errorRate += HEALTH_WEIGHT * ((ok ? 0 : 1) - errorRate);
+			latencyUsec += HEALTH_WEIGHT * (latency - latencyUsec);
+			healthy = errorRate <= maxErrorRate && (maxLatencyUsec <= 0 || latencyUsec <= maxLatencyUsec);
+		}
+
+		synchronized void reset(boolean up) {
+			errorRate = up ? 0 : 1;
+			latencyUsec = 0;
+			healthy = up;
+		}
+	}
+
+	/**
+	 * Interface defining generic sink entry logging function.
+	 */
+	protected interface SinkEntry {
+		/**
+		 * Performs actual sink entry logging.
+		 *
+		 * @param sink
+		 *            sink to log entry
+		 *
+		 * @throws Throwable
+		 *             if entry logging fails, e.g. sink is closed or not writable
+		 */
+		void logEntry(EventSink sink) throws Throwable;
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import com.jkoolcloud.tnt4j.config.ConfigException;
+import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.sink.AbstractEventSinkFactory;
+import com.jkoolcloud.tnt4j.sink.EventSink;
+import com.jkoolcloud.tnt4j.sink.EventSinkFactory;
+import com.jkoolcloud.tnt4j.utils.Utils;
+
+/**
+ * <p>
+ * Failover event sink factory allows creation of event sinks writing to the highest priority healthy one of multiple
+ * event sinks. The factory wraps around multiple event sink factories, defined in priority order either by
+ * {@code FailoverSequence} (comma separated factory names) or by sequence numbers starting at {@code 0}.
+ * </p>
+ *
+ * <p>
+ * Besides failover sequence, factory supports {@code MaxErrorRate} (0-1) and {@code MaxLatency} (milliseconds,
+ * {@code 0} - unlimited) child health thresholds, {@code ProbeInterval} (milliseconds) - interval of unhealthy child
+ * probing and {@code ReplayCapacity} - number of entries replayed to the primary child once it recovers ({@code 0} -
+ * replay disabled).
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * event.sink.factory: com.jkoolcloud.tnt4j.sink.impl.FailoverEventSinkFactory
+ * event.sink.factory.FailoverSequence: socket,file
+ * event.sink.factory.EventSinkFactory.socket: com.jkoolcloud.tnt4j.sink.impl.SocketEventSinkFactory
+ * event.sink.factory.EventSinkFactory.socket.Host: localhost
+ * event.sink.factory.EventSinkFactory.socket.Port: 6400
+ * event.sink.factory.EventSinkFactory.file: com.jkoolcloud.tnt4j.sink.impl.FileEventSinkFactory
+ * event.sink.factory.ReplayCapacity: 10000
+ * }
+ * </pre>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see FailoverEventSink
+ */
+public class FailoverEventSinkFactory extends AbstractEventSinkFactory {
+
+	String failoverSeq;
+	double maxErrorRate = FailoverEventSink.DEFAULT_MAX_ERROR_RATE;
+	long maxLatency = FailoverEventSink.DEFAULT_MAX_LATENCY_MS;
+	long probeInterval = FailoverEventSink.DEFAULT_PROBE_INTERVAL_MS;
+	int replayCapacity = FailoverEventSink.DEFAULT_REPLAY_CAPACITY;
+	final Map<String, EventSinkFactory> sinkFactories = Collections.synchronizedMap(new LinkedHashMap<>(3));
+
+	/**
+	 * Create a default failover sink factory.
+	 */
+	public FailoverEventSinkFactory() {
+	}
+
+	/**
+	 * Create a failover sink factory.
+	 *
+	 * @param sf
+	 *            map of event sink factories, in priority order
+	 */
+	public FailoverEventSinkFactory(Map<String, EventSinkFactory> sf) {
+		sinkFactories.putAll(sf);
+	}
+
+	/**
+	 * Obtain current failover sequence string
+	 *
+	 * @return failover sequence string
+	 */
+	public String getFailoverSequence() {
+		return failoverSeq;
+	}
+
+	protected Map<String, EventSinkFactory> getEventSinkFactories() {
+		return sinkFactories;
+	}
+
+	@Override
+	public EventSink getEventSink(String name) {
+		return getEventSink(name, System.getProperties());
+	}
+
+	@Override
+	public EventSink getEventSink(String name, Properties props) {
+		return configureSink(new FailoverEventSink(this, name, props));
+	}
+
+	@Override
+	public EventSink getEventSink(String name, Properties props, EventFormatter frmt) {
+		return configureSink(new FailoverEventSink(this, name, props, frmt));
+	}
+
+	@Override
+	protected EventSink configureSink(EventSink sink) {
+		FailoverEventSink foSink = (FailoverEventSink) super.configureSink(sink);
+		foSink.setHealthThresholds(maxErrorRate, maxLatency);
+		foSink.setProbeInterval(probeInterval);
+		foSink.setReplayCapacity(replayCapacity);
+
+		return foSink;
+	}
+
+	@Override
+	public void setConfiguration(Map<String, ?> props) throws ConfigException {
+		super.setConfiguration(props);
+
+		failoverSeq = Utils.getString("FailoverSequence", props, null);
+		if (Utils.isEmpty(failoverSeq)) {
+			initFailoverSequence(props);
+		} else {
+			initFailoverSequence(failoverSeq.split(","), props);
+		}
+		maxErrorRate = Utils.getDouble("MaxErrorRate", props, maxErrorRate);
+		maxLatency = Utils.getLong("MaxLatency", props, maxLatency);
+		probeInterval = Utils.getLong("ProbeInterval", props, probeInterval);
+		replayCapacity = Utils.getInt("ReplayCapacity", props, replayCapacity);
+	}
+
+	private void initFailoverSequence(Map<String, ?> props) throws ConfigException {
+		for (int counter = 0; (loadEventSinkFactory(String.valueOf(counter), props) != null); counter++) {
+		}
+	}
+
+	private void initFailoverSequence(String[] seq, Map<String, ?> props) throws ConfigException {
+		for (String s : seq) {
+			String fcName = s.trim();
+			if (loadEventSinkFactory(fcName, props) == null) {
+				throw new ConfigException("Could not find failover factory sequence=" + fcName, props);
+			}
+		}
+	}
+
+	private EventSinkFactory loadEventSinkFactory(String fcName, Map<String, ?> props) throws ConfigException {
+		EventSinkFactory sinkFactory = (EventSinkFactory) Utils.createConfigurableObject("EventSinkFactory." + fcName,
+				"EventSinkFactory." + fcName + ".", props);
+		if (sinkFactory != null) {
+			sinkFactories.put(fcName, sinkFactory);
+		}
+		return sinkFactory;
+	}
+}
@@ -15,8 +15,15 @@
  */
 package com.jkoolcloud.tnt4j.sink.impl;
 
-import java.io.IOException;
+import java.io.*;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
+import com.jkoolcloud.tnt4j.core.KeyValueStats;
 import com.jkoolcloud.tnt4j.core.OpLevel;
 import com.jkoolcloud.tnt4j.core.Snapshot;
 import com.jkoolcloud.tnt4j.format.EventFormatter;
@@ -25,15 +32,23 @@ import com.jkoolcloud.tnt4j.sink.EventSink;
 import com.jkoolcloud.tnt4j.source.Source;
 import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
 import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+import com.jkoolcloud.tnt4j.utils.SharedScheduler;
 import com.jkoolcloud.tnt4j.utils.Utils;
 
 /**
  * <p>
  * This class implements {@link EventSink} with file {@link FileSink} as the underlying storage.
  * </p>
+ *
+ * <p>
+ * Sink can roll file over by size, by time or both (see {@link #setRolling(long, long, int, boolean)}). Rolled over
+ * file is renamed to a segment file {@code <file>.<yyyyMMdd-HHmmss-SSS>} and writing continues into a new file.
+ * Segments are gzip compressed on a background thread, so writing never waits for compression, and only configured
+ * number of most recent segments is retained.
+ * </p>
  * 
  * 
- * @version $Revision: 1 $
+ * @version $Revision: 2 $
  * 
  * @see OpLevel
  * @see FileSink
@@ -41,8 +56,29 @@ import com.jkoolcloud.tnt4j.utils.Utils;
  * @see AbstractEventSink
  */
 public class FileEventSink extends AbstractEventSink {
+	public static final String KEY_ROLL_COUNT = "file-roll-count";
+	public static final String KEY_ROLLED_BYTES = "file-rolled-bytes";
+	public static final String KEY_COMPRESSED_BYTES = "file-compressed-bytes";
+	public static final String KEY_COMPRESSION_RATIO = "file-compression-ratio";
+	public static final String KEY_COMPRESS_PENDING = "file-compress-pending";
+
+	private static final String SEGMENT_TIME_FORMAT = "yyyyMMdd-HHmmss-SSS";
+	private static final String GZIP_EXT = ".gz";
+	private static final String SEGMENT_SUFFIX_REGEX = "\\.\\d{8}-\\d{6}-\\d{3}(\\.\\d+)?(\\.gz)?";
 
 	FileSink fileSink;
+	private boolean batching = false;
+
+	private long maxFileSize = 0;
+	private long rollInterval = 0;
+	private int maxBackups = 0;
+	private boolean compress = true;
+
+	private final AtomicLong rollCount = new AtomicLong(0);
+	private final AtomicLong rolledBytes = new AtomicLong(0);
+	private final AtomicLong compressedSrcBytes = new AtomicLong(0);
+	private final AtomicLong compressedBytes = new AtomicLong(0);
+	private final AtomicLong compressPending = new AtomicLong(0);
 
 	/**
 	 * Create a file based event sink instance.
@@ -61,6 +97,64 @@ public class FileEventSink extends AbstractEventSink {
 		fileSink = new FileSink(fileName, append, frm);
 	}
 
+	/**
+	 * Set file rolling policy. File is rolled over once it reaches given size or given time elapses since it was
+	 * opened, whichever comes first.
+	 *
+	 * @param maxFileSize
+	 *            max file size in bytes, {@code 0} to not roll by size
+	 * @param rollInterval
+	 *            max time in milliseconds to write into the same file, {@code 0} to not roll by time
+	 * @param maxBackups
+	 *            number of rolled over segments to retain, {@code 0} to retain all
+	 * @param compress
+	 *            flag indicating whether to gzip rolled over segments
+	 * @return instance of this sink
+	 */
+	public FileEventSink setRolling(long maxFileSize, long rollInterval, int maxBackups, boolean compress) {
+		this.maxFileSize = Math.max(0, maxFileSize);
+		this.rollInterval = Math.max(0, rollInterval);
+		this.maxBackups = Math.max(0, maxBackups);
+		this.compress = compress;
+		return this;
+	}
+
+	/**
+	 * Check if this sink rolls file over by size or time.
+	 *
+	 * @return {@code true} if file rolling is enabled, {@code false} otherwise
+	 */
+	public boolean isRolling() {
+		return maxFileSize > 0 || rollInterval > 0;
+	}
+
+	@Override
+	public KeyValueStats getStats(Map<String, Object> stats) {
+		super.getStats(stats);
+		if (isRolling()) {
+			stats.put(Utils.qualify(this, KEY_ROLL_COUNT), rollCount.get());
+			stats.put(Utils.qualify(this, KEY_ROLLED_BYTES), rolledBytes.get());
+			stats.put(Utils.qualify(this, KEY_COMPRESSED_BYTES), compressedBytes.get());
+			stats.put(Utils.qualify(this, KEY_COMPRESSION_RATIO), compressionRatio());
+			stats.put(Utils.qualify(this, KEY_COMPRESS_PENDING), compressPending.get());
+		}
+		return this;
+	}
+
+	@Override
+	public void resetStats() {
+		super.resetStats();
+		rollCount.set(0);
+		rolledBytes.set(0);
+		compressedSrcBytes.set(0);
+		compressedBytes.set(0);
+	}
+
+	private double compressionRatio() {
+		long gzBytes = compressedBytes.get();
+		return gzBytes > 0 ? (double) compressedSrcBytes.get() / gzBytes : 0.0;
+	}
+
 	@Override
 	public Object getSinkHandle() {
 		return fileSink;
@@ -83,38 +177,138 @@ public class FileEventSink extends AbstractEventSink {
 
 	@Override
 	protected void _write(Object msg, Object... args) throws IOException, InterruptedException {
-		_writeLog(getEventFormatter().format(msg, args));
+		_writeLog(formatObject(msg, args));
+	}
+
+	@Override
+	protected void _writeFormatted(String msg) throws IOException {
+		_writeLog(msg);
 	}
 
 	@Override
 	protected void _log(TrackingEvent event) throws IOException {
-		_writeLog(getEventFormatter().format(event));
+		_writeLog(format(event));
 	}
 
 	@Override
 	protected void _log(TrackingActivity activity) throws IOException {
-		_writeLog(getEventFormatter().format(activity));
+		_writeLog(format(activity));
 	}
 
 	@Override
-	protected void _log(Snapshot snapshot) {
-		_writeLog(getEventFormatter().format(snapshot));
+	protected void _log(Snapshot snapshot) throws IOException {
+		_writeLog(format(snapshot));
 	}
 
 	@Override
-	protected void _log(long ttl, Source src, OpLevel sev, String msg, Object... args) {
-		_writeLog(getEventFormatter().format(ttl, src, sev, msg, args));
+	protected void _log(long ttl, Source src, OpLevel sev, String msg, Object... args) throws IOException {
+		_writeLog(format(ttl, src, sev, msg, args));
 	}
 
-	protected synchronized void _writeLog(String msg) {
+	protected synchronized void _writeLog(String msg) throws IOException {
 		_checkState();
 
 		incrementBytesSent(msg.length());
-		fileSink.print_(msg);
+		fileSink.print_(msg, !batching);
+		if (isRollDue()) {
+			roll();
+		}
+	}
+
+	private boolean isRollDue() {
+		return (maxFileSize > 0 && fileSink.getSize() >= maxFileSize)
+				|| (rollInterval > 0 && System.currentTimeMillis() - fileSink.getOpenTime() >= rollInterval);
+	}
+
+	/**
+	 * Roll current file over to a new segment file and schedule segment compression and removal of segments above
+	 * retention count.
+	 *
+	 * @throws IOException
+	 *             if error occurs while rolling file over
+	 */
+	protected synchronized void roll() throws IOException {
+		File segment = nextSegment();
+		long rolled = fileSink.roll(segment);
+		rollCount.incrementAndGet();
+		rolledBytes.addAndGet(rolled);
+		compressPending.incrementAndGet();
+		SharedScheduler.execute(() -> archive(segment));
+	}
+
+	private File nextSegment() {
+		String name = fileSink.file.getPath() + "." + new SimpleDateFormat(SEGMENT_TIME_FORMAT).format(new Date());
+		File segment = new File(name);
+		for (int i = 1; segment.exists() || new File(segment.getPath() + GZIP_EXT).exists(); i++) {
+			segment = new File(name + "." + i);
+		}
+		return segment;
+	}
+
+	/**
+	 * Compress rolled over segment if enabled and remove segments above retention count.
+	 *
+	 * @param segment
+	 *            rolled over segment file
+	 */
+	private void archive(File segment) {
+		try {
+			if (compress) {
+				File gzFile = new File(segment.getPath() + GZIP_EXT);
+				try (InputStream in = Files.newInputStream(segment.toPath());
+						OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzFile.toPath()), 64 * 1024)) {
+					in.transferTo(out);
+				}
+				compressedSrcBytes.addAndGet(segment.length());
+				compressedBytes.addAndGet(gzFile.length());
+				Files.delete(segment.toPath());
+			}
+			if (maxBackups > 0) {
+				removeOldSegments();
+			}
+		} catch (IOException exc) {
+			notifyListeners(null, exc);
+		} finally {
+			compressPending.decrementAndGet();
+		}
+	}
+
+	private void removeOldSegments() throws IOException {
+		File dir = fileSink.file.getAbsoluteFile().getParentFile();
+		Pattern segmentName = Pattern.compile(Pattern.quote(fileSink.file.getName()) + SEGMENT_SUFFIX_REGEX);
+		File[] segments = dir.listFiles((d, name) -> segmentName.matcher(name).matches());
+		if (segments == null || segments.length <= maxBackups) {
+			return;
+		}
+		// segment names start with roll time, so newest segments sort last
+		Arrays.sort(segments, Comparator.comparing(File::getName));
+		for (int i = 0; i < segments.length - maxBackups; i++) {
+			Files.deleteIfExists(segments[i].toPath());
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * All batch entries are buffered and written to the file once at the end of the batch.
+	 */
+	@Override
+	public synchronized void log(Collection<?> batch) {
+		batching = true;
+		try {
+			super.log(batch);
+		} finally {
+			batching = false;
+			try {
+				flush();
+			} catch (IOException exc) {
+				notifyListeners(null, exc);
+			}
+		}
 	}
 
 	@Override
-	public void flush() {
+	public void flush() throws IOException {
 		if (isOpen()) {
 			fileSink.flush();
 		}
@@ -124,6 +318,9 @@ public class FileEventSink extends AbstractEventSink {
 	public String toString() {
 		return super.toString()//
 				+ "{fileSink: " + fileSink //
+				+ ", max.file.size: " + maxFileSize //
+				+ ", roll.interval: " + rollInterval //
+				+ ", max.backups: " + maxBackups //
 				+ "}";
 	}
 }
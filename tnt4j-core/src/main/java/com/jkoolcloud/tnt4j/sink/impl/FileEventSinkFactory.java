@@ -39,6 +39,18 @@ import com.jkoolcloud.tnt4j.utils.Utils;
  * {@link SimpleFormatter} to format log messages.
  * </p>
  *
+ * <p>
+ * File writes are tuned using {@code BufferSize} (bytes), {@code FlushBatchSize} (number of entries written at once),
+ * {@code FlushInterval} (max time in milliseconds entries stay buffered) and {@code FsyncPolicy} ({@code NONE},
+ * {@code CLOSE}, {@code FLUSH}) properties.
+ * </p>
+ *
+ * <p>
+ * Files are rolled over when they reach {@code MaxFileSize} bytes or when {@code RollInterval} milliseconds elapse,
+ * keeping {@code MaxBackups} most recent segments ({@code 0} - all), gzip compressed unless {@code Compress} is set to
+ * {@code false}.
+ * </p>
+ *
  *
  * @see EventSink
  * @see SimpleFormatter
@@ -66,6 +78,14 @@ public class FileEventSinkFactory extends AbstractEventSinkFactory {
 	protected boolean append = true;
 	protected String fileName = FILE_SINK_FACTORY_DEF_FILE;
 	protected String logFolder = FILE_SINK_FACTORY_DEF_FOLDER;
+	protected int bufferSize = FileSink.DEFAULT_BUFFER_SIZE;
+	protected int flushBatchSize = FileSink.DEFAULT_FLUSH_BATCH_SIZE;
+	protected long flushInterval = FileSink.DEFAULT_FLUSH_INTERVAL_MS;
+	protected FileSink.FsyncPolicy fsyncPolicy = FileSink.DEFAULT_FSYNC_POLICY;
+	protected long maxFileSize = 0;
+	protected long rollInterval = 0;
+	protected int maxBackups = 0;
+	protected boolean compress = true;
 
 	/**
 	 * Create a default sink factory with default file name based on current timestamp: yyyy-MM-dd.log.
@@ -127,7 +147,11 @@ public class FileEventSinkFactory extends AbstractEventSinkFactory {
 
 		String fName = (fileName != null) ? fileName : (name + FILE_SINK_FACTORY_LOG_EXT);
 		fName = Paths.get(logFolder, fName).toString();
-		return configureSink(new FileEventSink(name, fName, append, frmt));
+		FileEventSink sink = new FileEventSink(name, fName, append, frmt);
+		sink.fileSink.setBufferSize(bufferSize).setFlushBatchSize(flushBatchSize).setFlushInterval(flushInterval)
+				.setFsyncPolicy(fsyncPolicy);
+		sink.setRolling(maxFileSize, rollInterval, maxBackups, compress);
+		return configureSink(sink);
 	}
 
 	@Override
@@ -142,6 +166,19 @@ public class FileEventSinkFactory extends AbstractEventSinkFactory {
 		setFileName(Utils.getString("FileName", props, fileName));
 		setFolder(Utils.getString("Folder", props, logFolder));
 		setAppend(Utils.getBoolean("Append", props, append));
+		bufferSize = Utils.getInt("BufferSize", props, bufferSize);
+		flushBatchSize = Utils.getInt("FlushBatchSize", props, flushBatchSize);
+		flushInterval = Utils.getLong("FlushInterval", props, flushInterval);
+		maxFileSize = Utils.getLong("MaxFileSize", props, maxFileSize);
+		rollInterval = Utils.getLong("RollInterval", props, rollInterval);
+		maxBackups = Utils.getInt("MaxBackups", props, maxBackups);
+		compress = Utils.getBoolean("Compress", props, compress);
+		String fsync = Utils.getString("FsyncPolicy", props, fsyncPolicy.name());
+		try {
+			fsyncPolicy = FileSink.FsyncPolicy.valueOf(fsync.toUpperCase());
+		} catch (IllegalArgumentException exc) {
+			throw new ConfigException(exc.getLocalizedMessage(), props);
+		}
 	}
 
 	/**
@@ -17,23 +17,38 @@ package com.jkoolcloud.tnt4j.sink.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
 import com.jkoolcloud.tnt4j.format.DefaultFormatter;
+import com.jkoolcloud.tnt4j.format.FormatCache;
 import com.jkoolcloud.tnt4j.format.Formatter;
 import com.jkoolcloud.tnt4j.sink.Sink;
+import com.jkoolcloud.tnt4j.utils.SharedScheduler;
 
 /**
  * <p>
  * This class implements {@link Sink} with file as the underlying storage
  * </p>
+ *
+ * <p>
+ * Entries are encoded as UTF-8 into a direct buffer and written to the file channel using group commit: buffered
+ * entries are written when number of pending entries reaches flush batch size, when flush interval elapses or when
+ * {@link #flush()} is called. Every sink instance uses its own lock, so independent file sinks do not block each other.
+ * Optional fsync policy defines when written data is forced to the storage device. Current file can be rolled over to
+ * a segment file using {@link #roll(File)}.
+ * </p>
  * 
  * 
- * @version $Revision: 4 $
+ * @version $Revision: 5 $
  * 
  * @see Sink
  * @see Formatter
@@ -41,12 +56,31 @@ import com.jkoolcloud.tnt4j.sink.Sink;
  */
 
 public class FileSink implements Sink {
+	public static final int DEFAULT_BUFFER_SIZE = Integer.getInteger("tnt4j.file.sink.buffer.size", 64 * 1024);
+	public static final int DEFAULT_FLUSH_BATCH_SIZE = Integer.getInteger("tnt4j.file.sink.flush.batch.size", 1);
+	public static final long DEFAULT_FLUSH_INTERVAL_MS = Long.getLong("tnt4j.file.sink.flush.interval.ms", 0);
+	public static final FsyncPolicy DEFAULT_FSYNC_POLICY = FsyncPolicy
+			.valueOf(System.getProperty("tnt4j.file.sink.fsync.policy", FsyncPolicy.NONE.name()).toUpperCase());
+
+	private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
 
 	protected File file = null;
 	protected PrintStream printer = null;
 	protected Formatter formatter = null;
 	protected boolean append = true;
 
+	private final ReentrantLock lock = new ReentrantLock();
+	private FileChannel channel;
+	private ByteBuffer buffer;
+	private ScheduledFuture<?> flushTask;
+	private int pendingEntries = 0;
+	private long size = 0;
+	private long openTime = 0;
+	private int bufferSize = DEFAULT_BUFFER_SIZE;
+	private int flushBatchSize = DEFAULT_FLUSH_BATCH_SIZE;
+	private long flushIntervalMs = DEFAULT_FLUSH_INTERVAL_MS;
+	private FsyncPolicy fsyncPolicy = DEFAULT_FSYNC_POLICY;
+
 	/**
 	 * Create a file based sink based on given filename.
 	 * 
@@ -87,7 +121,94 @@ public class FileSink implements Sink {
 	}
 
 	/**
-	 * Obtain underlying print stream handle
+	 * Set size of direct buffer used to collect entries before writing them to the file. Takes effect when sink is
+	 * opened.
+	 *
+	 * @param size
+	 *            buffer size in bytes
+	 * @return instance of this sink
+	 */
+	public FileSink setBufferSize(int size) {
+		this.bufferSize = Math.max(1024, size);
+		return this;
+	}
+
+	/**
+	 * Obtain size of direct buffer used to collect entries before writing them to the file.
+	 *
+	 * @return buffer size in bytes
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * Set number of buffered entries written to the file at once. Default is {@code 1}, writing every entry
+	 * immediately.
+	 *
+	 * @param batchSize
+	 *            number of entries
+	 * @return instance of this sink
+	 */
+	public FileSink setFlushBatchSize(int batchSize) {
+		this.flushBatchSize = Math.max(1, batchSize);
+		return this;
+	}
+
+	/**
+	 * Obtain number of buffered entries written to the file at once.
+	 *
+	 * @return number of entries
+	 */
+	public int getFlushBatchSize() {
+		return flushBatchSize;
+	}
+
+	/**
+	 * Set maximum time entries stay buffered before being written to the file. Takes effect when sink is opened.
+	 *
+	 * @param intervalMs
+	 *            time interval in milliseconds, {@code 0} to write only on flush batch size and explicit flush
+	 * @return instance of this sink
+	 */
+	public FileSink setFlushInterval(long intervalMs) {
+		this.flushIntervalMs = Math.max(0, intervalMs);
+		return this;
+	}
+
+	/**
+	 * Obtain maximum time entries stay buffered before being written to the file.
+	 *
+	 * @return time interval in milliseconds
+	 */
+	public long getFlushInterval() {
+		return flushIntervalMs;
+	}
+
+	/**
+	 * Set policy defining when written data is forced to the storage device.
+	 *
+	 * @param policy
+	 *            fsync policy
+	 * @return instance of this sink
+	 */
+	public FileSink setFsyncPolicy(FsyncPolicy policy) {
+		this.fsyncPolicy = policy == null ? FsyncPolicy.NONE : policy;
+		return this;
+	}
+
+	/**
+	 * Obtain policy defining when written data is forced to the storage device.
+	 *
+	 * @return fsync policy
+	 */
+	public FsyncPolicy getFsyncPolicy() {
+		return fsyncPolicy;
+	}
+
+	/**
+	 * Obtain underlying print stream handle. Print stream writes into the same buffer as this sink, so printed entries
+	 * are written to the file on print stream flush.
 	 * 
 	 * @return print stream
 	 */
@@ -110,16 +231,36 @@ public class FileSink implements Sink {
 	}
 
 	@Override
-	public synchronized void close() {
-		if (printer != null) {
-			printer.flush();
-			printer.close();
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			if (channel == null) {
+				return;
+			}
+			if (flushTask != null) {
+				flushTask.cancel(false);
+				flushTask = null;
+			}
+			try {
+				printer.flush();
+				writeBuffer();
+				if (fsyncPolicy != FsyncPolicy.NONE) {
+					channel.force(false);
+				}
+			} finally {
+				channel.close();
+				channel = null;
+				buffer = null;
+				printer = null;
+				pendingEntries = 0;
+			}
+		} finally {
+			lock.unlock();
 		}
-		printer = null;
 	}
 
 	@Override
-	public synchronized void open() throws IOException {
+	public void open() throws IOException {
 		if (file == null) {
 			throw new IllegalStateException("Sink file is not defined!");
 		}
@@ -133,12 +274,83 @@ public class FileSink implements Sink {
 			}
 		}
 
-		if (printer == null) {
-			printer = new PrintStream(Files.newOutputStream(file.toPath(), StandardOpenOption.CREATE,
-					append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING));
+		lock.lock();
+		try {
+			if (channel == null) {
+				openChannel(append);
+				buffer = ByteBuffer.allocateDirect(bufferSize);
+				printer = new PrintStream(new BufferOutputStream(), false, StandardCharsets.UTF_8);
+				if (flushIntervalMs > 0) {
+					flushTask = SharedScheduler.scheduleWithFixedDelay(this::intervalFlush, flushIntervalMs,
+							flushIntervalMs, TimeUnit.MILLISECONDS);
+				}
+			}
+		} finally {
+			lock.unlock();
 		}
 	}
 
+	private void openChannel(boolean append) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+		size = channel.size();
+		openTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Roll current file over: write buffered entries, move current file to a given segment file and continue writing
+	 * into a new empty file.
+	 *
+	 * @param segment
+	 *            file to move current file to
+	 * @return size of rolled over segment in bytes
+	 * @throws IOException
+	 *             if error occurs while writing buffered entries or moving the file
+	 */
+	public long roll(File segment) throws IOException {
+		lock.lock();
+		try {
+			if (channel == null) {
+				throw new IOException("Sink is closed, sink.file=" + file);
+			}
+			printer.flush();
+			writeBuffer();
+			if (fsyncPolicy != FsyncPolicy.NONE) {
+				channel.force(false);
+			}
+			long rolled = size;
+			channel.close();
+			channel = null;
+			try {
+				Files.move(file.toPath(), segment.toPath());
+			} finally {
+				// keep writing to the current file if it could not be moved
+				openChannel(true);
+			}
+			return rolled;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Obtain size of current file, including buffered entries.
+	 *
+	 * @return file size in bytes
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Obtain time when current file was opened or rolled over.
+	 *
+	 * @return time in milliseconds since epoch, {@code 0} if sink was never opened
+	 */
+	public long getOpenTime() {
+		return openTime;
+	}
+
 	@Override
 	public boolean isOpen() {
 		return printer != null;
@@ -159,21 +371,164 @@ public class FileSink implements Sink {
 	}
 
 	@Override
-	public void flush() {
-		if (isOpen()) {
-			printer.flush();
+	public void flush() throws IOException {
+		lock.lock();
+		try {
+			if (isOpen()) {
+				printer.flush();
+				commit();
+			}
+		} finally {
+			lock.unlock();
 		}
 	}
 
-	private static Lock lock = new ReentrantLock();
+	void print_(String msg) throws IOException {
+		print_(msg, true);
+	}
 
-	void print_(String msg) {
+	/**
+	 * Buffer an entry followed by line separator.
+	 *
+	 * @param msg
+	 *            entry to write
+	 * @param flush
+	 *            {@code true} to write buffered entries once flush batch size is reached, {@code false} to leave it up
+	 *            to explicit flush
+	 * @throws IOException
+	 *             if error occurs while writing to the file
+	 */
+	void print_(String msg, boolean flush) throws IOException {
+		byte[] bytes = FormatCache.getBytes(msg);
 		lock.lock();
 		try {
-			printer.println(msg);
+			if (channel == null) {
+				throw new IOException("Sink is closed, sink.file=" + file);
+			}
+			put(bytes, 0, bytes.length);
+			put(LINE_SEPARATOR, 0, LINE_SEPARATOR.length);
+			pendingEntries++;
+			if (flush && pendingEntries >= flushBatchSize) {
+				commit();
+			}
 		} finally {
-			printer.flush();
 			lock.unlock();
 		}
 	}
+
+	private void put(byte[] bytes, int offset, int length) throws IOException {
+		size += length;
+		if (length > buffer.remaining()) {
+			writeBuffer();
+			if (length > buffer.capacity()) {
+				writeFully(ByteBuffer.wrap(bytes, offset, length));
+				return;
+			}
+		}
+		buffer.put(bytes, offset, length);
+	}
+
+	private void commit() throws IOException {
+		writeBuffer();
+		if (fsyncPolicy == FsyncPolicy.FLUSH) {
+			channel.force(false);
+		}
+	}
+
+	private void writeBuffer() throws IOException {
+		pendingEntries = 0;
+		if (buffer.position() > 0) {
+			buffer.flip();
+			try {
+				writeFully(buffer);
+			} finally {
+				buffer.clear();
+			}
+		}
+	}
+
+	private void writeFully(ByteBuffer src) throws IOException {
+		while (src.hasRemaining()) {
+			channel.write(src);
+		}
+	}
+
+	private void intervalFlush() {
+		if (lock.tryLock()) {
+			try {
+				if (channel != null && buffer.position() > 0) {
+					commit();
+				}
+			} catch (IOException exc) {
+				// reported by next write or flush
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Output stream writing into sink buffer, used by print stream bound to this sink.
+	 */
+	private class BufferOutputStream extends OutputStream {
+		@Override
+		public void write(int b) throws IOException {
+			lock.lock();
+			try {
+				if (channel == null) {
+					throw new IOException("Sink is closed, sink.file=" + file);
+				}
+				if (!buffer.hasRemaining()) {
+					writeBuffer();
+				}
+				buffer.put((byte) b);
+				size++;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			lock.lock();
+			try {
+				if (channel == null) {
+					throw new IOException("Sink is closed, sink.file=" + file);
+				}
+				put(b, off, len);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			lock.lock();
+			try {
+				if (channel != null) {
+					commit();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Enumerates policies defining when data written to the file is forced to the storage device.
+	 */
+	public enum FsyncPolicy {
+		/**
+		 * Never force data, leave it up to operating system.
+		 */
+		NONE,
+		/**
+		 * Force data when sink is closed.
+		 */
+		CLOSE,
+		/**
+		 * Force data every time buffered entries are written to the file.
+		 */
+		FLUSH
+	}
 }
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * <p>
+ * This class implements decoding of length-prefixed frame streams written by socket sinks using
+ * {@link FrameEncoder.Framing#LENGTH} framing, to be used by collectors reading such streams. Compressed batches are
+ * decompressed transparently and their entries returned one by one.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * try (FrameDecoder decoder = new FrameDecoder(socket.getInputStream())) {
+ *     String entry;
+ *     while ((entry = decoder.next()) != null) {
+ *         process(entry);
+ *     }
+ * }
+ * }
+ * </pre>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see FrameEncoder
+ */
+public class FrameDecoder implements Closeable {
+	public static final int DEFAULT_MAX_FRAME_SIZE = 64 * 1024 * 1024;
+
+	private final DataInputStream in;
+	private final int maxFrameSize;
+	private final Inflater inflater = new Inflater();
+	private boolean headerRead = false;
+	private byte[] compressed = new byte[0];
+	private byte[] batch = new byte[0];
+	private ByteBuffer batchView;
+
+	private long entries = 0;
+	private long batches = 0;
+	private long wireBytes = 0;
+	private long payloadBytes = 0;
+
+	/**
+	 * Create a frame decoder reading a given stream, using default max frame size.
+	 *
+	 * @param in
+	 *            input stream to read frames from
+	 */
+	public FrameDecoder(InputStream in) {
+		this(in, DEFAULT_MAX_FRAME_SIZE);
+	}
+
+	/**
+	 * Create a frame decoder reading a given stream.
+	 *
+	 * @param in
+	 *            input stream to read frames from
+	 * @param maxFrameSize
+	 *            max accepted frame size (compressed and decompressed) in bytes
+	 */
+	public FrameDecoder(InputStream in, int maxFrameSize) {
+		this.in = new DataInputStream(in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 64 * 1024));
+		this.maxFrameSize = maxFrameSize;
+	}
+
+	/**
+	 * Read next entry payload.
+	 *
+	 * @return entry payload bytes, {@code null} if end of stream is reached
+	 * @throws IOException
+	 *             if stream is not a valid frame stream or error occurs while reading it
+	 */
+	public byte[] nextFrame() throws IOException {
+		if (!headerRead) {
+			if (!readHeader()) {
+				return null;
+			}
+		}
+		while (batchView == null || !batchView.hasRemaining()) {
+			int header;
+			try {
+				header = in.readInt();
+			} catch (EOFException exc) {
+				return null;
+			}
+			wireBytes += FrameEncoder.FRAME_HEADER_SIZE;
+			if (header >= 0) {
+				byte[] bytes = readFully(checkSize(header));
+				wireBytes += bytes.length;
+				return entry(bytes);
+			}
+			inflate(checkSize(-header));
+		}
+		int length = batchView.getInt();
+		if (length < 0 || length > batchView.remaining()) {
+			throw new IOException("Corrupted compressed batch: entry.length=" + length);
+		}
+		byte[] bytes = new byte[length];
+		batchView.get(bytes);
+		return entry(bytes);
+	}
+
+	/**
+	 * Read next entry as UTF-8 string.
+	 *
+	 * @return entry string, {@code null} if end of stream is reached
+	 * @throws IOException
+	 *             if stream is not a valid frame stream or error occurs while reading it
+	 */
+	public String next() throws IOException {
+		byte[] bytes = nextFrame();
+		return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private boolean readHeader() throws IOException {
+		int magic;
+		try {
+			magic = in.readInt();
+		} catch (EOFException exc) {
+			return false;
+		}
+		int version = in.readInt();
+		if (magic != FrameEncoder.MAGIC) {
+			throw new IOException("Not a frame stream: magic=0x" + Integer.toHexString(magic));
+		}
+		if (version != FrameEncoder.VERSION) {
+			throw new IOException("Unsupported frame stream version: version=" + version);
+		}
+		wireBytes += FrameEncoder.STREAM_HEADER_SIZE;
+		headerRead = true;
+		return true;
+	}
+
+	private void inflate(int length) throws IOException {
+		if (compressed.length < length) {
+			compressed = new byte[length];
+		}
+		in.readFully(compressed, 0, length);
+		wireBytes += length;
+		inflater.reset();
+		inflater.setInput(compressed, 0, length);
+		int size = 0;
+		try {
+			while (!inflater.finished()) {
+				if (size == batch.length) {
+					checkSize(size + 1);
+					int grown = (int) Math.min(maxFrameSize, Math.max(length * 4L, batch.length * 2L));
+					batch = Arrays.copyOf(batch, grown);
+				}
+				int n = inflater.inflate(batch, size, batch.length - size);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IOException("Truncated compressed batch: length=" + length);
+				}
+				size += n;
+			}
+		} catch (DataFormatException exc) {
+			throw new IOException("Corrupted compressed batch: " + exc.getLocalizedMessage(), exc);
+		}
+		batchView = ByteBuffer.wrap(batch, 0, size);
+		batches++;
+	}
+
+	private byte[] readFully(int length) throws IOException {
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	private int checkSize(int size) throws IOException {
+		if (size < 0) {
+			throw new IOException("Corrupted frame: frame.size=" + size);
+		}
+		if (size > maxFrameSize) {
+			throw new IOException("Frame too large: frame.size=" + size + ", max.size=" + maxFrameSize);
+		}
+		return size;
+	}
+
+	private byte[] entry(byte[] bytes) {
+		entries++;
+		payloadBytes += bytes.length;
+		return bytes;
+	}
+
+	/**
+	 * Obtain number of entries read so far.
+	 *
+	 * @return number of entries
+	 */
+	public long getEntryCount() {
+		return entries;
+	}
+
+	/**
+	 * Obtain number of compressed batches read so far.
+	 *
+	 * @return number of compressed batches
+	 */
+	public long getBatchCount() {
+		return batches;
+	}
+
+	/**
+	 * Obtain number of bytes read from the stream so far.
+	 *
+	 * @return number of stream bytes
+	 */
+	public long getWireBytes() {
+		return wireBytes;
+	}
+
+	/**
+	 * Obtain number of entry payload bytes read so far.
+	 *
+	 * @return number of payload bytes
+	 */
+	public long getPayloadBytes() {
+		return payloadBytes;
+	}
+
+	@Override
+	public void close() throws IOException {
+		inflater.end();
+		in.close();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() //
+				+ "{entries: " + entries //
+				+ ", batches: " + batches //
+				+ ", wire.bytes: " + wireBytes //
+				+ ", payload.bytes: " + payloadBytes //
+				+ "}";
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+/**
+ * <p>
+ * This class implements encoding of length-prefixed frames written by socket sinks, decoded by {@link FrameDecoder}.
+ * Stream starts with a header: {@code int} magic and {@code int} version. Each frame starts with an {@code int} header:
+ * non negative header is a length of a single entry payload following it, negative header is a negated length of a
+ * Deflate compressed batch following it. Decompressed batch is a sequence of entries, each prefixed by {@code int}
+ * payload length. All integers are big-endian.
+ * </p>
+ *
+ * <p>
+ * Encoder instances are not thread-safe, each writer thread should use its own instance.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see FrameDecoder
+ * @see SocketEventSink
+ * @see NioSocketEventSink
+ */
+public class FrameEncoder {
+	public static final int MAGIC = 0x544E5446; // TNTF
+	public static final int VERSION = 1;
+	public static final int STREAM_HEADER_SIZE = 8;
+	public static final int FRAME_HEADER_SIZE = 4;
+
+	public static final int DEFAULT_COMPRESS_LEVEL = Deflater.BEST_SPEED;
+	public static final int DEFAULT_COMPRESS_MIN_SIZE = 512;
+
+	/**
+	 * Socket stream framing mode.
+	 */
+	public enum Framing {
+		/**
+		 * Entries are terminated by a new line.
+		 */
+		LINE,
+		/**
+		 * Entries are sent as length-prefixed frames, optionally compressed in batches.
+		 */
+		LENGTH
+	}
+
+	private final Deflater deflater;
+	private final int minCompressSize;
+	private ByteBuffer out;
+
+	/**
+	 * Create a frame encoder.
+	 *
+	 * @param compress
+	 *            {@code true} to compress batches, {@code false} otherwise
+	 * @param level
+	 *            Deflate compression level (0-9)
+	 * @param minCompressSize
+	 *            min batch size in bytes to compress, smaller batches are sent uncompressed
+	 */
+	public FrameEncoder(boolean compress, int level, int minCompressSize) {
+		this.deflater = compress ? new Deflater(level) : null;
+		this.minCompressSize = minCompressSize;
+	}
+
+	/**
+	 * Obtain stream header bytes.
+	 *
+	 * @return stream header bytes
+	 */
+	public static byte[] streamHeader() {
+		return ByteBuffer.allocate(STREAM_HEADER_SIZE).putInt(MAGIC).putInt(VERSION).array();
+	}
+
+	/**
+	 * Obtain size of a frame holding a single entry.
+	 *
+	 * @param length
+	 *            entry payload length
+	 * @return frame size in bytes
+	 */
+	public static int frameSize(int length) {
+		return FRAME_HEADER_SIZE + length;
+	}
+
+	/**
+	 * Put a frame holding a single entry into a given buffer.
+	 *
+	 * @param buffer
+	 *            buffer to put frame into
+	 * @param bytes
+	 *            entry payload
+	 */
+	public static void frame(ByteBuffer buffer, byte[] bytes) {
+		buffer.putInt(bytes.length);
+		buffer.put(bytes);
+	}
+
+	/**
+	 * Check if batch of a given size should be compressed.
+	 *
+	 * @param size
+	 *            batch size in bytes
+	 * @return {@code true} if compression is enabled and batch is large enough, {@code false} otherwise
+	 */
+	public boolean isCompressed(int size) {
+		return deflater != null && size >= minCompressSize;
+	}
+
+	/**
+	 * Compress a batch of single entry frames into a compressed batch frame. Returned buffer is reused by subsequent
+	 * calls.
+	 *
+	 * @param batch
+	 *            buffer holding single entry frames between its position and limit, consumed by this call
+	 * @return buffer holding compressed batch frame between its position and limit
+	 */
+	public ByteBuffer deflate(ByteBuffer batch) {
+		int size = FRAME_HEADER_SIZE + batch.remaining() / 2 + 64;
+		if (out == null || out.capacity() < size) {
+			out = ByteBuffer.allocate(size);
+		}
+		deflater.reset();
+		deflater.setInput(batch);
+		deflater.finish();
+		out.clear();
+		out.position(FRAME_HEADER_SIZE);
+		while (!deflater.finished()) {
+			if (!out.hasRemaining()) {
+				ByteBuffer grown = ByteBuffer.allocate(out.capacity() << 1);
+				out.flip();
+				grown.put(out);
+				out = grown;
+			}
+			deflater.deflate(out);
+		}
+		out.putInt(0, -(out.position() - FRAME_HEADER_SIZE));
+		out.flip();
+		return out;
+	}
+
+	/**
+	 * Release compression resources.
+	 */
+	public void end() {
+		if (deflater != null) {
+			deflater.end();
+		}
+	}
+}
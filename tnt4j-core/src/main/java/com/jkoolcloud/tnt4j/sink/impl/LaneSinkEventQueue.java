@@ -0,0 +1,522 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.sink.SinkLogEvent;
+
+/**
+ * <p>
+ * This class implements a multi-lane {@link SinkEventQueue}, where events are queued into separate lanes by their
+ * severity band (see {@link Lane}). Each lane has its own capacity and {@link DropPolicy}, so a flood of low severity
+ * events can not take queue space reserved for high severity ones. Lanes are drained using smooth weighted round-robin:
+ * a lane with weight {@code w} is served {@code w} times per scheduling round out of total lane weights. Draining is
+ * work conserving: when scheduled lane is empty, lanes are tried in priority order.
+ * </p>
+ *
+ * <p>
+ * Signal events are queued in a dedicated lane and are never evicted. A signal acts as a barrier: it is delivered only
+ * after all events queued into any lane before the signal have been taken out, so flush/close signals still follow the
+ * events they apply to. Events in different lanes may be delivered out of their enqueue order.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see PooledLogger
+ * @see SinkEventQueue.QueueType#LANES
+ */
+public class LaneSinkEventQueue implements SinkEventQueue {
+	private final Queue<PendingSignal> signals = new ConcurrentLinkedQueue<>();
+	private final SinkEventQueue[] lanes;
+	private final DropPolicy[] policies;
+	private final int[] weights;
+	private final int[] schedule;
+	private final int capacity;
+	private final WaitStrategy waitStrategy;
+
+	private final AtomicLong ticket = new AtomicLong(0);
+	private final AtomicLongArray dropped = new AtomicLongArray(Lane.values().length);
+	private final AtomicLongArray evicted = new AtomicLongArray(Lane.values().length);
+	private final AtomicLongArray enqueued = new AtomicLongArray(Lane.values().length);
+	private final AtomicLongArray dequeued = new AtomicLongArray(Lane.values().length);
+
+	// used by WaitStrategy.BLOCKING only
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	private final AtomicInteger takersWaiting = new AtomicInteger(0);
+	private final AtomicInteger puttersWaiting = new AtomicInteger(0);
+
+	/**
+	 * Enumerates event severity bands, each queued into a separate lane.
+	 */
+	public enum Lane {
+		/**
+		 * {@link OpLevel#ERROR} and above.
+		 */
+		HIGH,
+		/**
+		 * {@link OpLevel#INFO}, {@link OpLevel#NOTICE} and {@link OpLevel#WARNING}.
+		 */
+		NORMAL,
+		/**
+		 * {@link OpLevel#DEBUG}, {@link OpLevel#TRACE} and {@link OpLevel#NONE}.
+		 */
+		LOW;
+
+		/**
+		 * Obtain lane for a given severity level.
+		 *
+		 * @param level
+		 *            severity level
+		 * @return lane for a given severity level
+		 */
+		public static Lane of(OpLevel level) {
+			if (level == null || level.ordinal() < OpLevel.INFO.ordinal()) {
+				return LOW;
+			}
+			return level.ordinal() < OpLevel.ERROR.ordinal() ? NORMAL : HIGH;
+		}
+	}
+
+	/**
+	 * Enumerates policies applied when event is queued into a full lane.
+	 */
+	public enum DropPolicy {
+		/**
+		 * Reject incoming event, {@link #put(SinkLogEvent)} waits for lane space.
+		 */
+		DROP_NEWEST,
+		/**
+		 * Evict oldest lane event to make room for incoming one.
+		 */
+		DROP_OLDEST
+	}
+
+	/**
+	 * Lane configuration: capacity, draining weight and drop policy.
+	 */
+	public static class LaneConfig {
+		final int capacity;
+		final int weight;
+		final DropPolicy dropPolicy;
+
+		/**
+		 * Create lane configuration.
+		 *
+		 * @param capacity
+		 *            lane capacity
+		 * @param weight
+		 *            lane draining weight, minimum {@code 1}
+		 * @param dropPolicy
+		 *            policy applied when lane is full
+		 */
+		public LaneConfig(int capacity, int weight, DropPolicy dropPolicy) {
+			this.capacity = Math.max(capacity, 1);
+			this.weight = Math.max(weight, 1);
+			this.dropPolicy = dropPolicy == null ? DropPolicy.DROP_NEWEST : dropPolicy;
+		}
+
+		@Override
+		public String toString() {
+			return "{capacity: " + capacity + ", weight: " + weight + ", drop.policy: " + dropPolicy + "}";
+		}
+	}
+
+	/**
+	 * Create default lanes configuration for a given total capacity: {@link Lane#HIGH} gets 20% of capacity and
+	 * weight 8, {@link Lane#NORMAL} gets 50% and weight 4, {@link Lane#LOW} gets 30%, weight 1 and evicts oldest
+	 * events when full.
+	 *
+	 * @param capacity
+	 *            total capacity of all lanes
+	 * @return default lanes configuration
+	 */
+	public static Map<Lane, LaneConfig> defaultLanes(int capacity) {
+		Map<Lane, LaneConfig> config = new EnumMap<>(Lane.class);
+		config.put(Lane.HIGH, new LaneConfig(capacity / 5, 8, DropPolicy.DROP_NEWEST));
+		config.put(Lane.NORMAL, new LaneConfig(capacity / 2, 4, DropPolicy.DROP_NEWEST));
+		config.put(Lane.LOW, new LaneConfig(capacity - capacity / 5 - capacity / 2, 1, DropPolicy.DROP_OLDEST));
+		return config;
+	}
+
+	/**
+	 * Create a lane queue with default lanes configuration.
+	 *
+	 * @param capacity
+	 *            total capacity of all lanes
+	 * @param strategy
+	 *            strategy used by producers and consumers to wait on full/empty queue
+	 * @see #defaultLanes(int)
+	 */
+	public LaneSinkEventQueue(int capacity, WaitStrategy strategy) {
+		this(defaultLanes(capacity), strategy);
+	}
+
+	/**
+	 * Create a lane queue with a given lanes configuration. Lanes missing in configuration get capacity and weight of
+	 * {@code 1}.
+	 *
+	 * @param config
+	 *            lanes configuration
+	 * @param strategy
+	 *            strategy used by producers and consumers to wait on full/empty queue
+	 */
+	public LaneSinkEventQueue(Map<Lane, LaneConfig> config, WaitStrategy strategy) {
+		Lane[] all = Lane.values();
+		waitStrategy = strategy == null ? WaitStrategy.BLOCKING : strategy;
+		lanes = new SinkEventQueue[all.length];
+		policies = new DropPolicy[all.length];
+		weights = new int[all.length];
+		int total = 0;
+		for (Lane lane : all) {
+			LaneConfig lc = config.get(lane);
+			if (lc == null) {
+				lc = new LaneConfig(1, 1, DropPolicy.DROP_NEWEST);
+			}
+			lanes[lane.ordinal()] = new RingBufferSinkEventQueue(lc.capacity, WaitStrategy.PARK);
+			policies[lane.ordinal()] = lc.dropPolicy;
+			weights[lane.ordinal()] = lc.weight;
+			total += lanes[lane.ordinal()].capacity();
+		}
+		capacity = total;
+		schedule = buildSchedule(weights);
+	}
+
+	/**
+	 * Build smooth weighted round-robin schedule, which interleaves lanes instead of serving them in bursts.
+	 */
+	private static int[] buildSchedule(int[] weights) {
+		int total = 0;
+		for (int w : weights) {
+			total += w;
+		}
+		int[] sched = new int[total];
+		int[] current = new int[weights.length];
+		for (int s = 0; s < total; s++) {
+			int best = 0;
+			for (int i = 0; i < weights.length; i++) {
+				current[i] += weights[i];
+				if (current[i] > current[best]) {
+					best = i;
+				}
+			}
+			current[best] -= total;
+			sched[s] = best;
+		}
+		return sched;
+	}
+
+	private static Lane laneOf(SinkLogEvent event) {
+		return Lane.of(event.getSeverity());
+	}
+
+	private boolean insert(SinkLogEvent event, boolean evict) {
+		if (event.getSignal() != null) {
+			long[] marks = new long[lanes.length];
+			for (int i = 0; i < marks.length; i++) {
+				marks[i] = enqueued.get(i);
+			}
+			return signals.offer(new PendingSignal(event, marks));
+		}
+		int idx = laneOf(event).ordinal();
+		SinkEventQueue lane = lanes[idx];
+		if (lane.offer(event)) {
+			enqueued.incrementAndGet(idx);
+			return true;
+		}
+		if (evict && policies[idx] == DropPolicy.DROP_OLDEST) {
+			do {
+				if (lane.poll() != null) {
+					dequeued.incrementAndGet(idx);
+					evicted.incrementAndGet(idx);
+				}
+			} while (!lane.offer(event));
+			enqueued.incrementAndGet(idx);
+			return true;
+		}
+		return false;
+	}
+
+	private SinkLogEvent pollSignal() {
+		PendingSignal head = signals.peek();
+		if (head == null) {
+			return null;
+		}
+		for (int i = 0; i < lanes.length; i++) {
+			if (dequeued.get(i) < head.marks[i]) {
+				return null; // events queued before the signal are still pending
+			}
+		}
+		return signals.remove(head) ? head.event : null;
+	}
+
+	private SinkLogEvent pollLane(int idx) {
+		SinkLogEvent event = lanes[idx].poll();
+		if (event != null) {
+			dequeued.incrementAndGet(idx);
+		}
+		return event;
+	}
+
+	@Override
+	public boolean offer(SinkLogEvent event) {
+		if (event == null) {
+			throw new NullPointerException("Event must not be null");
+		}
+		if (insert(event, true)) {
+			signal(takersWaiting, notEmpty);
+			return true;
+		}
+		if (event.getSignal() == null) {
+			dropped.incrementAndGet(laneOf(event).ordinal());
+		}
+		return false;
+	}
+
+	@Override
+	public void put(SinkLogEvent event) throws InterruptedException {
+		if (event == null) {
+			throw new NullPointerException("Event must not be null");
+		}
+		int counter = 0;
+		while (!insert(event, true)) {
+			if (waitStrategy == WaitStrategy.BLOCKING) {
+				await(puttersWaiting, notFull, true, Long.MAX_VALUE);
+			} else {
+				counter = waitStrategy.idle(counter);
+			}
+		}
+		signal(takersWaiting, notEmpty);
+	}
+
+	@Override
+	public SinkLogEvent poll() {
+		SinkLogEvent event = pollSignal();
+		if (event == null) {
+			int first = schedule[(int) ((ticket.getAndIncrement() & Long.MAX_VALUE) % schedule.length)];
+			event = pollLane(first);
+			for (int i = 0; event == null && i < lanes.length; i++) {
+				if (i != first) {
+					event = pollLane(i);
+				}
+			}
+		}
+		if (event != null) {
+			signal(puttersWaiting, notFull);
+		}
+		return event;
+	}
+
+	@Override
+	public SinkLogEvent take() throws InterruptedException {
+		int counter = 0;
+		SinkLogEvent event;
+		while ((event = poll()) == null) {
+			if (waitStrategy == WaitStrategy.BLOCKING) {
+				await(takersWaiting, notEmpty, false, Long.MAX_VALUE);
+			} else {
+				counter = waitStrategy.idle(counter);
+			}
+		}
+		return event;
+	}
+
+	@Override
+	public SinkLogEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		int counter = 0;
+		SinkLogEvent event;
+		while ((event = poll()) == null) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return null;
+			}
+			if (waitStrategy == WaitStrategy.BLOCKING) {
+				await(takersWaiting, notEmpty, false, remaining);
+			} else {
+				counter = waitStrategy.idle(counter);
+			}
+		}
+		return event;
+	}
+
+	/**
+	 * Wait on a given condition until woken up, queue state changes or wait time elapses. Space is lane specific and
+	 * can't be re-checked under lock, so waiting for space is capped to a short park interval.
+	 */
+	private void await(AtomicInteger waiters, Condition cond, boolean forSpace, long nanos)
+			throws InterruptedException {
+		waiters.incrementAndGet();
+		try {
+			lock.lockInterruptibly();
+			try {
+				if (forSpace) {
+					cond.awaitNanos(Math.min(nanos, WaitStrategy.MAX_PARK_NANOS));
+				} else if (isEmpty()) {
+					cond.awaitNanos(Math.min(nanos, WaitStrategy.MAX_PARK_NANOS * 100));
+				}
+			} finally {
+				lock.unlock();
+			}
+		} finally {
+			waiters.decrementAndGet();
+		}
+	}
+
+	private void signal(AtomicInteger waiters, Condition cond) {
+		if (waitStrategy == WaitStrategy.BLOCKING && waiters.get() > 0) {
+			lock.lock();
+			try {
+				cond.signal();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		int size = signals.size();
+		for (SinkEventQueue lane : lanes) {
+			size += lane.size();
+		}
+		return size;
+	}
+
+	@Override
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		if (!signals.isEmpty()) {
+			return false;
+		}
+		for (SinkEventQueue lane : lanes) {
+			if (!lane.isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < lanes.length; i++) {
+			while (pollLane(i) != null) {
+			}
+		}
+		signals.clear();
+	}
+
+	/**
+	 * Obtain number of events queued in a given lane.
+	 *
+	 * @param lane
+	 *            queue lane
+	 * @return number of events in a lane
+	 */
+	public int size(Lane lane) {
+		return lanes[lane.ordinal()].size();
+	}
+
+	/**
+	 * Obtain capacity of a given lane.
+	 *
+	 * @param lane
+	 *            queue lane
+	 * @return lane capacity
+	 */
+	public int capacity(Lane lane) {
+		return lanes[lane.ordinal()].capacity();
+	}
+
+	/**
+	 * Obtain draining weight of a given lane.
+	 *
+	 * @param lane
+	 *            queue lane
+	 * @return lane weight
+	 */
+	public int weight(Lane lane) {
+		return weights[lane.ordinal()];
+	}
+
+	/**
+	 * Obtain number of events rejected by a given lane because it was full.
+	 *
+	 * @param lane
+	 *            queue lane
+	 * @return number of rejected events
+	 */
+	public long getDropCount(Lane lane) {
+		return dropped.get(lane.ordinal());
+	}
+
+	/**
+	 * Obtain number of events evicted from a given lane to make room for newer events.
+	 *
+	 * @param lane
+	 *            queue lane
+	 * @return number of evicted events
+	 */
+	public long getEvictCount(Lane lane) {
+		return evicted.get(lane.ordinal());
+	}
+
+	/**
+	 * Reset lane drop and eviction counters.
+	 */
+	public void resetStats() {
+		for (int i = 0; i < lanes.length; i++) {
+			dropped.set(i, 0);
+			evicted.set(i, 0);
+		}
+	}
+
+	private static class PendingSignal {
+		final SinkLogEvent event;
+		final long[] marks;
+
+		PendingSignal(SinkLogEvent event, long[] marks) {
+			this.event = event;
+			this.marks = marks;
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(getClass().getSimpleName());
+		sb.append("{size: ").append(size()).append(", capacity: ").append(capacity);
+		for (Lane lane : Lane.values()) {
+			sb.append(", ").append(lane).append(": ").append(size(lane)).append("/").append(capacity(lane));
+		}
+		return sb.append(", wait.strategy: ").append(waitStrategy).append("}").toString();
+	}
+}
@@ -76,27 +76,32 @@ public abstract class LoggerEventSink extends AbstractEventSink {
 
 	@Override
 	protected void _log(TrackingEvent event) {
-		writeLine(event.getSeverity(), () -> getEventFormatter().format(event), event.getOperation().getThrowable());
+		writeLine(event.getSeverity(), () -> format(event), event.getOperation().getThrowable());
 	}
 
 	@Override
 	protected void _log(TrackingActivity activity) {
-		writeLine(activity.getSeverity(), () -> getEventFormatter().format(activity), activity.getThrowable());
+		writeLine(activity.getSeverity(), () -> format(activity), activity.getThrowable());
 	}
 
 	@Override
 	protected void _log(Snapshot snapshot) {
-		writeLine(snapshot.getSeverity(), () -> getEventFormatter().format(snapshot), null);
+		writeLine(snapshot.getSeverity(), () -> format(snapshot), null);
 	}
 
 	@Override
 	protected void _log(long ttl, Source src, OpLevel sev, String msg, Object... args) {
-		writeLine(sev, () -> getEventFormatter().format(ttl, src, sev, msg, args), Utils.getThrowable(args));
+		writeLine(sev, () -> format(ttl, src, sev, msg, args), Utils.getThrowable(args));
 	}
 
 	@Override
 	protected void _write(Object msg, Object... args) {
-		writeLine(OpLevel.INFO, () -> getEventFormatter().format(msg, args), Utils.getThrowable(args));
+		writeLine(OpLevel.INFO, () -> formatObject(msg, args), Utils.getThrowable(args));
+	}
+
+	@Override
+	protected void _writeFormatted(String msg) {
+		writeLine(OpLevel.INFO, () -> msg, null);
 	}
 
 	/**
@@ -0,0 +1,481 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.jkoolcloud.tnt4j.core.KeyValueStats;
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.core.Snapshot;
+import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.format.FormatCache;
+import com.jkoolcloud.tnt4j.sink.AbstractEventSink;
+import com.jkoolcloud.tnt4j.sink.EventSink;
+import com.jkoolcloud.tnt4j.source.Source;
+import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
+import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+import com.jkoolcloud.tnt4j.utils.Utils;
+
+/**
+ * <p>
+ * This class implements {@link EventSink} appending formatted entries into a memory-mapped, append-only journal file.
+ * Logging threads reserve space for their records by advancing an atomic write cursor, without taking any locks, and
+ * copy record bytes directly into mapped file regions. A background thread maps regions ahead of the write cursor and
+ * forces written regions to the storage device on a configured cadence, so logging threads neither map nor sync.
+ * </p>
+ *
+ * <p>
+ * Journal file starts with a header: {@code int} magic, {@code int} version and {@code int} region size, padded to
+ * {@value #HEADER_SIZE} bytes. Each record is an {@code int} header holding UTF-8 payload length plus one, followed by
+ * the payload, aligned to 4 bytes. Records never span regions: remainder of a region without room for a record is
+ * marked by a {@code -1} header. Zero header marks space not written yet, i.e. end of journal. Use
+ * {@link MappedJournalReader} to iterate journal records for replay.
+ * </p>
+ *
+ * <p>
+ * Closing the sink waits for logging threads to finish copying their reserved records before the file is truncated,
+ * so a cleanly closed journal has no unwritten gaps. A journal left by a crash may have a gap where a record was
+ * reserved but never written: readers stop there, and reopening the journal for append truncates it at that point, so
+ * new records are never mixed with stale ones behind the gap.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see MappedFileEventSinkFactory
+ * @see MappedJournalReader
+ */
+public class MappedFileEventSink extends AbstractEventSink {
+	public static final String KEY_JOURNAL_RECORDS = "journal-records";
+	public static final String KEY_JOURNAL_POSITION = "journal-position";
+	public static final String KEY_JOURNAL_REJECTED = "journal-rejected";
+	public static final String KEY_JOURNAL_REGIONS = "journal-mapped-regions";
+	public static final String KEY_JOURNAL_SYNC_MAPS = "journal-sync-maps";
+	public static final String KEY_JOURNAL_FORCE_COUNT = "journal-force-count";
+
+	public static final int DEFAULT_REGION_SIZE = 16 * 1024 * 1024;
+	public static final long DEFAULT_FORCE_INTERVAL_MS = 1000;
+
+	static final int MAGIC = 0x544E544A; // TNTJ
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+	static final int RECORD_HEADER_SIZE = 4;
+	static final int PADDING = -1;
+
+	private static final long MAPPER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+	private static final long CLOSE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final File file;
+	private final boolean append;
+	private final int regionSize;
+	private final long forceInterval;
+
+	private final AtomicLong cursor = new AtomicLong(0);
+	private final Map<Long, MappedByteBuffer> regions = new ConcurrentHashMap<>();
+	private volatile FileChannel channel;
+	private volatile Thread mapper;
+	private long lastForcedRegion = 0;
+
+	// logging threads between space reservation and record completion, close waits for them
+	private final AtomicInteger writers = new AtomicInteger(0);
+	private volatile boolean closing = false;
+
+	private final AtomicLong records = new AtomicLong(0);
+	private final AtomicLong rejected = new AtomicLong(0);
+	private final AtomicLong syncMaps = new AtomicLong(0);
+	private final AtomicLong forceCount = new AtomicLong(0);
+
+	/**
+	 * Create a memory-mapped journal event sink instance.
+	 *
+	 * @param nm
+	 *            logical event sink name
+	 * @param fileName
+	 *            journal file name
+	 * @param append
+	 *            {@code true} to append to existing journal, {@code false} to recreate it
+	 * @param regionSize
+	 *            size of a mapped file region in bytes, also limiting record size
+	 * @param forceInterval
+	 *            time interval in milliseconds between forcing written regions to storage device, {@code 0} to leave
+	 *            it up to operating system
+	 * @param frm
+	 *            event formatter to be used for formatting event entries
+	 */
+	public MappedFileEventSink(String nm, String fileName, boolean append, int regionSize, long forceInterval,
+			EventFormatter frm) {
+		super(nm, frm);
+		if (regionSize <= HEADER_SIZE + RECORD_HEADER_SIZE || regionSize % RECORD_HEADER_SIZE != 0) {
+			throw new IllegalArgumentException("Invalid region size: region.size=" + regionSize);
+		}
+		this.file = new File(fileName);
+		this.append = append;
+		this.regionSize = regionSize;
+		this.forceInterval = Math.max(0, forceInterval);
+	}
+
+	/**
+	 * Obtain journal file.
+	 *
+	 * @return journal file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Obtain size of a mapped file region.
+	 *
+	 * @return region size in bytes
+	 */
+	public int getRegionSize() {
+		return regionSize;
+	}
+
+	/**
+	 * Obtain current journal write position.
+	 *
+	 * @return offset in bytes of the next record
+	 */
+	public long getPosition() {
+		return cursor.get();
+	}
+
+	@Override
+	public Object getSinkHandle() {
+		return channel;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return channel != null;
+	}
+
+	@Override
+	protected synchronized void _open() throws IOException {
+		if (channel != null) {
+			return;
+		}
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+			throw new IOException("Could not create parent path for journal.file=" + file);
+		}
+		long position = HEADER_SIZE;
+		if (append && file.length() > 0) {
+			try (MappedJournalReader reader = new MappedJournalReader(file)) {
+				if (reader.getRegionSize() != regionSize) {
+					throw new IOException("Journal region size mismatch: journal.file=" + file + ", region.size="
+							+ reader.getRegionSize() + ", expected=" + regionSize);
+				}
+				while (reader.next() != null) {
+				}
+				position = reader.getPosition();
+			}
+		}
+		FileChannel fc = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		if (position == HEADER_SIZE) {
+			fc.truncate(0);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION).putInt(regionSize).flip();
+			fc.write(header, 0);
+		} else {
+			// drop anything behind the first unwritten record (left by a crash), so it is not mixed with new records
+			fc.truncate(position);
+		}
+		closing = false;
+		channel = fc;
+		cursor.set(position);
+		lastForcedRegion = position / regionSize;
+		mapRegion(position / regionSize);
+
+		Thread mt = new Thread(this::runMapper, "MappedFileEventSink/" + getName() + "-mapper");
+		mt.setDaemon(true);
+		mapper = mt;
+		mt.start();
+	}
+
+	@Override
+	protected synchronized void _close() throws IOException {
+		if (channel == null) {
+			return;
+		}
+		boolean quiesced = awaitWriters();
+		Thread mt = mapper;
+		mapper = null;
+		if (mt != null) {
+			LockSupport.unpark(mt);
+			try {
+				mt.join(TimeUnit.NANOSECONDS.toMillis(MAPPER_PARK_NANOS) * 10);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		synchronized (regions) {
+			try {
+				for (MappedByteBuffer region : regions.values()) {
+					region.force();
+				}
+				regions.clear();
+				if (quiesced) {
+					try {
+						// drop unused tail of the last region, mappings are released by garbage collector
+						channel.truncate(cursor.get());
+					} catch (IOException exc) {
+						// file still mapped on some platforms, zero tail is handled by readers
+					}
+				}
+			} finally {
+				channel.close();
+				channel = null;
+			}
+		}
+	}
+
+	/**
+	 * Stop accepting records and wait for logging threads to complete records they have reserved space for.
+	 *
+	 * @return {@code true} if all reserved records are complete, {@code false} if wait timed out
+	 */
+	private boolean awaitWriters() {
+		closing = true;
+		long deadline = System.nanoTime() + CLOSE_WAIT_NANOS;
+		while (writers.get() > 0) {
+			if (System.nanoTime() - deadline >= 0) {
+				// writers may still touch mapped regions, so file must not be truncated under them
+				return false;
+			}
+			Thread.yield();
+		}
+		return true;
+	}
+
+	@Override
+	protected void _write(Object msg, Object... args) throws IOException, InterruptedException {
+		append(formatObject(msg, args));
+	}
+
+	@Override
+	protected void _writeFormatted(String msg) throws IOException {
+		append(msg);
+	}
+
+	@Override
+	protected void _log(TrackingEvent event) throws IOException {
+		append(format(event));
+	}
+
+	@Override
+	protected void _log(TrackingActivity activity) throws IOException {
+		append(format(activity));
+	}
+
+	@Override
+	protected void _log(Snapshot snapshot) throws IOException {
+		append(format(snapshot));
+	}
+
+	@Override
+	protected void _log(long ttl, Source src, OpLevel sev, String msg, Object... args) throws IOException {
+		append(format(ttl, src, sev, msg, args));
+	}
+
+	/**
+	 * Append a formatted entry to the journal.
+	 *
+	 * @param msg
+	 *            formatted entry
+	 * @throws IOException
+	 *             if sink is closed, entry does not fit into a region or region can't be mapped
+	 */
+	protected void append(String msg) throws IOException {
+		_checkState();
+
+		byte[] bytes = FormatCache.getBytes(msg);
+		int recSize = align(RECORD_HEADER_SIZE + bytes.length);
+		if (recSize > regionSize - HEADER_SIZE) {
+			rejected.incrementAndGet();
+			throw new IOException("Record too large: record.size=" + recSize + ", region.size=" + regionSize);
+		}
+		writers.incrementAndGet();
+		try {
+			if (closing) {
+				throw new IOException("Journal is closed: journal.file=" + file);
+			}
+			long pos = reserve(recSize);
+			MappedByteBuffer region = region(pos / regionSize);
+			int offset = (int) (pos % regionSize);
+			ByteBuffer dst = region.duplicate();
+			dst.position(offset + RECORD_HEADER_SIZE);
+			dst.put(bytes);
+			// header goes last, so readers never see a partially written record
+			region.putInt(offset, bytes.length + 1);
+		} finally {
+			writers.decrementAndGet();
+		}
+		records.incrementAndGet();
+		incrementBytesSent(recSize);
+	}
+
+	/**
+	 * Reserve space for a record by advancing write cursor. Region remainder without room for the record is padded,
+	 * and reservation continues in the next region.
+	 *
+	 * @param recSize
+	 *            aligned record size in bytes
+	 * @return journal offset of reserved space
+	 * @throws IOException
+	 *             if next region can't be mapped
+	 */
+	private long reserve(int recSize) throws IOException {
+		while (true) {
+			long pos = cursor.get();
+			long regionEnd = (pos / regionSize + 1) * regionSize;
+			if (pos + recSize <= regionEnd) {
+				if (cursor.compareAndSet(pos, pos + recSize)) {
+					return pos;
+				}
+			} else if (cursor.compareAndSet(pos, regionEnd)) {
+				if (pos < regionEnd) {
+					region(pos / regionSize).putInt((int) (pos % regionSize), PADDING);
+				}
+				Thread mt = mapper;
+				if (mt != null) {
+					LockSupport.unpark(mt);
+				}
+			}
+		}
+	}
+
+	private MappedByteBuffer region(long index) throws IOException {
+		MappedByteBuffer region = regions.get(index);
+		if (region == null) {
+			syncMaps.incrementAndGet();
+			region = mapRegion(index);
+		}
+		return region;
+	}
+
+	private MappedByteBuffer mapRegion(long index) throws IOException {
+		synchronized (regions) {
+			MappedByteBuffer region = regions.get(index);
+			if (region == null) {
+				if (channel == null) {
+					throw new IOException("Journal is closed: journal.file=" + file);
+				}
+				region = channel.map(FileChannel.MapMode.READ_WRITE, index * regionSize, regionSize);
+				regions.put(index, region);
+			}
+			return region;
+		}
+	}
+
+	/**
+	 * Background task mapping next region ahead of write cursor, forcing written regions to storage device and
+	 * releasing regions behind write cursor.
+	 */
+	private void runMapper() {
+		long nextForce = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(forceInterval);
+		while (mapper == Thread.currentThread()) {
+			try {
+				long current = cursor.get() / regionSize;
+				if (!regions.containsKey(current + 1)) {
+					mapRegion(current + 1);
+				}
+				if (forceInterval > 0 && System.nanoTime() - nextForce >= 0) {
+					force(current);
+					nextForce = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(forceInterval);
+				} else if (forceInterval == 0) {
+					release(current);
+				}
+			} catch (IOException exc) {
+				if (mapper == Thread.currentThread()) {
+					notifyListeners(null, exc);
+				}
+			}
+			long parkNanos = forceInterval > 0
+					? Math.min(MAPPER_PARK_NANOS, TimeUnit.MILLISECONDS.toNanos(forceInterval)) : MAPPER_PARK_NANOS;
+			LockSupport.parkNanos(this, parkNanos);
+		}
+	}
+
+	private void force(long current) {
+		for (long index = lastForcedRegion; index <= current; index++) {
+			MappedByteBuffer region = regions.get(index);
+			if (region != null) {
+				region.force();
+			}
+		}
+		forceCount.incrementAndGet();
+		release(current);
+	}
+
+	/**
+	 * Drop references to regions preceding the previous one, so they are unmapped by garbage collector. Previous region
+	 * is kept, since logging threads may still be writing their reserved records into it.
+	 */
+	private void release(long current) {
+		for (long index = lastForcedRegion; index < current - 1; index++) {
+			regions.remove(index);
+		}
+		lastForcedRegion = Math.max(lastForcedRegion, current - 1);
+	}
+
+	private static int align(int size) {
+		return (size + RECORD_HEADER_SIZE - 1) & -RECORD_HEADER_SIZE;
+	}
+
+	@Override
+	public KeyValueStats getStats(Map<String, Object> stats) {
+		super.getStats(stats);
+		stats.put(Utils.qualify(this, KEY_JOURNAL_RECORDS), records.get());
+		stats.put(Utils.qualify(this, KEY_JOURNAL_POSITION), cursor.get());
+		stats.put(Utils.qualify(this, KEY_JOURNAL_REJECTED), rejected.get());
+		stats.put(Utils.qualify(this, KEY_JOURNAL_REGIONS), regions.size());
+		stats.put(Utils.qualify(this, KEY_JOURNAL_SYNC_MAPS), syncMaps.get());
+		stats.put(Utils.qualify(this, KEY_JOURNAL_FORCE_COUNT), forceCount.get());
+		return this;
+	}
+
+	@Override
+	public void resetStats() {
+		super.resetStats();
+		records.set(0);
+		rejected.set(0);
+		syncMaps.set(0);
+		forceCount.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() //
+				+ "{file: " + file //
+				+ ", region.size: " + regionSize //
+				+ ", force.interval: " + forceInterval //
+				+ ", position: " + cursor.get() //
+				+ "}";
+	}
+}
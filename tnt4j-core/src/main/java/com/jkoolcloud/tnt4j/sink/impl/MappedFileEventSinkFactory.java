@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+
+import com.jkoolcloud.tnt4j.config.ConfigException;
+import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.format.SimpleFormatter;
+import com.jkoolcloud.tnt4j.sink.AbstractEventSinkFactory;
+import com.jkoolcloud.tnt4j.sink.EventSink;
+import com.jkoolcloud.tnt4j.sink.EventSinkFactory;
+import com.jkoolcloud.tnt4j.utils.Utils;
+
+/**
+ * <p>
+ * Concrete implementation of {@link EventSinkFactory} interface, which creates instances of {@link EventSink}. This
+ * factory uses {@link MappedFileEventSink} as the underlying sink provider and by default uses {@link SimpleFormatter}
+ * to format log messages.
+ * </p>
+ *
+ * <p>
+ * Journal is configured using {@code FileName} (default {@code <sink name>.journal} in default file sink folder),
+ * {@code Append}, {@code RegionSize} (bytes) and {@code ForceInterval} (milliseconds, {@code 0} - left up to operating
+ * system) properties.
+ * </p>
+ *
+ * @see EventSink
+ * @see SimpleFormatter
+ * @see MappedFileEventSink
+ *
+ * @version $Revision: 1 $
+ *
+ */
+public class MappedFileEventSinkFactory extends AbstractEventSinkFactory {
+	private static final String FILE_FORMAT_PATTERN = "{0} | {1} | {2}";
+
+	public static final String JOURNAL_EXT = System.getProperty("tnt4j.mapped.file.event.sink.factory.ext", ".journal");
+
+	protected String fileName;
+	protected boolean append = true;
+	protected int regionSize = MappedFileEventSink.DEFAULT_REGION_SIZE;
+	protected long forceInterval = MappedFileEventSink.DEFAULT_FORCE_INTERVAL_MS;
+
+	/**
+	 * Create a default sink factory with default journal file name based on sink name.
+	 */
+	public MappedFileEventSinkFactory() {
+	}
+
+	/**
+	 * Create a sink factory with a given journal file name.
+	 *
+	 * @param fName
+	 *            journal file name
+	 */
+	public MappedFileEventSinkFactory(String fName) {
+		fileName = fName;
+	}
+
+	public MappedFileEventSinkFactory setFileName(String fn) {
+		fileName = fn;
+		return this;
+	}
+
+	public MappedFileEventSinkFactory setAppend(boolean flag) {
+		append = flag;
+		return this;
+	}
+
+	public MappedFileEventSinkFactory setRegionSize(int size) {
+		regionSize = size;
+		return this;
+	}
+
+	public MappedFileEventSinkFactory setForceInterval(long interval) {
+		forceInterval = interval;
+		return this;
+	}
+
+	@Override
+	public EventSink getEventSink(String name) {
+		return getEventSink(name, System.getProperties());
+	}
+
+	@Override
+	public EventSink getEventSink(String name, Properties props) {
+		return getEventSink(name, props, new SimpleFormatter(FILE_FORMAT_PATTERN));
+	}
+
+	@Override
+	public EventSink getEventSink(String name, Properties props, EventFormatter frmt) {
+		String fName = (fileName != null) ? fileName
+				: Paths.get(FileEventSinkFactory.FILE_SINK_FACTORY_DEF_FOLDER, name + JOURNAL_EXT).toString();
+		return configureSink(new MappedFileEventSink(name, fName, append, regionSize, forceInterval, frmt));
+	}
+
+	@Override
+	public void setConfiguration(Map<String, ?> props) throws ConfigException {
+		super.setConfiguration(props);
+
+		setFileName(Utils.getString("FileName", props, fileName));
+		setAppend(Utils.getBoolean("Append", props, append));
+		setRegionSize(Utils.getInt("RegionSize", props, regionSize));
+		setForceInterval(Utils.getLong("ForceInterval", props, forceInterval));
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * <p>
+ * This class implements a sequential reader of journal files written by {@link MappedFileEventSink}, used to replay
+ * journaled entries. Reader stops at the first unwritten or incomplete record, which marks the end of the journal.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * try (MappedJournalReader reader = new MappedJournalReader(new File("app.journal"))) {
+ *     String entry;
+ *     while ((entry = reader.next()) != null) {
+ *         replay(entry);
+ *     }
+ * }
+ * }
+ * </pre>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see MappedFileEventSink
+ */
+public class MappedJournalReader implements Closeable {
+	private final File file;
+	private final FileChannel channel;
+	private final int regionSize;
+	private final ByteBuffer header = ByteBuffer.allocate(MappedFileEventSink.RECORD_HEADER_SIZE);
+	private ByteBuffer payload = ByteBuffer.allocate(1024);
+	private long position = MappedFileEventSink.HEADER_SIZE;
+	private long count = 0;
+
+	/**
+	 * Open a journal file for reading.
+	 *
+	 * @param file
+	 *            journal file
+	 * @throws IOException
+	 *             if file can't be opened or is not a journal file
+	 */
+	public MappedJournalReader(File file) throws IOException {
+		this.file = file;
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			ByteBuffer fHeader = ByteBuffer.allocate(MappedFileEventSink.HEADER_SIZE);
+			while (fHeader.hasRemaining() && channel.read(fHeader, fHeader.position()) > 0) {
+			}
+			fHeader.flip();
+			if (fHeader.remaining() < MappedFileEventSink.HEADER_SIZE || fHeader.getInt() != MappedFileEventSink.MAGIC) {
+				throw new IOException("Not a journal file: journal.file=" + file);
+			}
+			int version = fHeader.getInt();
+			if (version != MappedFileEventSink.VERSION) {
+				throw new IOException("Unsupported journal version: journal.file=" + file + ", version=" + version);
+			}
+			regionSize = fHeader.getInt();
+		} catch (IOException exc) {
+			channel.close();
+			throw exc;
+		}
+	}
+
+	/**
+	 * Obtain size of journal file regions.
+	 *
+	 * @return region size in bytes
+	 */
+	public int getRegionSize() {
+		return regionSize;
+	}
+
+	/**
+	 * Obtain journal offset of the next record to read.
+	 *
+	 * @return offset in bytes
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Obtain number of records read so far.
+	 *
+	 * @return number of records
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Read next journal record.
+	 *
+	 * @return record payload, {@code null} if end of journal is reached
+	 * @throws IOException
+	 *             if error occurs while reading journal file
+	 */
+	public String next() throws IOException {
+		long size = channel.size();
+		while (position + MappedFileEventSink.RECORD_HEADER_SIZE <= size) {
+			long regionEnd = (position / regionSize + 1) * regionSize;
+			if (position + MappedFileEventSink.RECORD_HEADER_SIZE > regionEnd) {
+				position = regionEnd;
+				continue;
+			}
+			header.clear();
+			readFully(header, position);
+			int recHeader = header.getInt(0);
+			if (recHeader == MappedFileEventSink.PADDING) {
+				position = regionEnd;
+				continue;
+			}
+			int length = recHeader - 1;
+			long payloadPos = position + MappedFileEventSink.RECORD_HEADER_SIZE;
+			if (recHeader <= 0 || payloadPos + length > Math.min(regionEnd, size)) {
+				return null;
+			}
+			if (payload.capacity() < length) {
+				payload = ByteBuffer.allocate(Math.max(length, payload.capacity() << 1));
+			}
+			payload.clear().limit(length);
+			readFully(payload, payloadPos);
+			position = payloadPos + align(length);
+			count++;
+			return new String(payload.array(), 0, length, StandardCharsets.UTF_8);
+		}
+		return null;
+	}
+
+	private void readFully(ByteBuffer dst, long pos) throws IOException {
+		long offset = pos;
+		while (dst.hasRemaining()) {
+			int read = channel.read(dst, offset);
+			if (read < 0) {
+				throw new IOException("Unexpected end of journal: journal.file=" + file + ", offset=" + offset);
+			}
+			offset += read;
+		}
+	}
+
+	private static long align(int length) {
+		return (length + MappedFileEventSink.RECORD_HEADER_SIZE - 1) & -MappedFileEventSink.RECORD_HEADER_SIZE;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() //
+				+ "{file: " + file //
+				+ ", region.size: " + regionSize //
+				+ ", position: " + position //
+				+ ", count: " + count //
+				+ "}";
+	}
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.jkoolcloud.tnt4j.core.KeyValueStats;
+import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.sink.EventSink;
+import com.jkoolcloud.tnt4j.sink.LoggedEventSink;
+import com.jkoolcloud.tnt4j.utils.Utils;
+
+/**
+ * <p>
+ * This class implements {@link EventSink} spreading entries over a pool of {@link NioSocketEventSink} connections to
+ * one or more endpoints, so that no single connection (and collector thread serving it) limits throughput. Connections
+ * are distributed over endpoints evenly. Entries are written to a connection selected by {@link SelectionPolicy}:
+ * round-robin, or the one having least outstanding (queued, but not yet written) bytes.
+ * </p>
+ *
+ * <p>
+ * Connection is considered unhealthy and skipped by selection while it is disconnected. Disconnected connection keeps
+ * reconnecting in the background and is re-admitted once connection is reestablished. When all connections are
+ * unhealthy, entries are still queued using the selection policy, to be written once connections recover.
+ * </p>
+ *
+ * <p>
+ * When ordering by correlator is enabled, tracking events, activities and snapshots having correlators are always
+ * written to the same connection, selected by correlator hash, so that their order is preserved. Such entries are never
+ * failed over to other connections: while selected connection is unhealthy, they are queued on it and written in order
+ * once it reconnects.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see NioSocketEventSink
+ * @see SocketEventSinkFactory
+ */
+public class MultiSocketEventSink extends LoggedEventSink {
+	public static final String KEY_MULTI_SELECTION_POLICY = "multi-selection-policy";
+	public static final String KEY_MULTI_HEALTHY = "multi-healthy-connections";
+	public static final String KEY_MULTI_ALL_UNHEALTHY = "multi-all-unhealthy";
+	public static final String KEY_MULTI_ORDERED_UNHEALTHY = "multi-ordered-unhealthy";
+	public static final String KEY_CONN_ENDPOINT = "endpoint";
+	public static final String KEY_CONN_HEALTHY = "healthy";
+	public static final String KEY_CONN_SELECTED = "selected";
+	public static final String KEY_CONN_OUTSTANDING_BYTES = "outstanding-bytes";
+	public static final String KEY_CONN_DROPPED = "dropped";
+
+	/**
+	 * Connection selection policy.
+	 */
+	public enum SelectionPolicy {
+		/**
+		 * Connections are selected in turn.
+		 */
+		ROUND_ROBIN,
+		/**
+		 * Connection having least outstanding bytes is selected.
+		 */
+		LEAST_LOADED
+	}
+
+	private final List<InetSocketAddress> endpoints;
+	private final NioSocketEventSink[] connections;
+	private final AtomicLong[] selected;
+	private SelectionPolicy selectionPolicy = SelectionPolicy.ROUND_ROBIN;
+	private boolean orderByCorrelator = false;
+	private volatile boolean open = false;
+
+	private final AtomicInteger next = new AtomicInteger(0);
+	private final AtomicLong allUnhealthy = new AtomicLong(0);
+	private final AtomicLong orderedUnhealthy = new AtomicLong(0);
+
+	/**
+	 * Create a multi-connection socket event sink. Another sink can be associated with this sink where all events are
+	 * routed.
+	 *
+	 * @param name
+	 *            logical name assigned to this sink
+	 * @param endpoints
+	 *            list of endpoint addresses where all messages are sent
+	 * @param connectionCount
+	 *            total number of connections, at least one per endpoint
+	 * @param frm
+	 *            event formatter associated with this sink
+	 * @param sink
+	 *            piped sink where all events are piped
+	 */
+	public MultiSocketEventSink(String name, List<InetSocketAddress> endpoints, int connectionCount,
+			EventFormatter frm, EventSink sink) {
+		super(name, frm, sink);
+		if (endpoints == null || endpoints.isEmpty()) {
+			throw new IllegalArgumentException("No endpoints defined for sink=" + name);
+		}
+		this.endpoints = Collections.unmodifiableList(new ArrayList<>(endpoints));
+		int count = Math.max(connectionCount, endpoints.size());
+		connections = new NioSocketEventSink[count];
+		selected = new AtomicLong[count];
+		for (int i = 0; i < count; i++) {
+			InetSocketAddress endpoint = endpoints.get(i % endpoints.size());
+			connections[i] = new NioSocketEventSink(name + "#" + i, endpoint.getHostString(), endpoint.getPort(), frm,
+					null);
+			selected[i] = new AtomicLong(0);
+		}
+	}
+
+	/**
+	 * Parse endpoints definition string.
+	 *
+	 * @param endpoints
+	 *            comma separated list of {@code host:port} or {@code host} (using default port) entries
+	 * @param defPort
+	 *            default port number
+	 * @return list of endpoint addresses
+	 * @throws IllegalArgumentException
+	 *             if port number is invalid
+	 */
+	public static List<InetSocketAddress> parseEndpoints(String endpoints, int defPort) {
+		List<InetSocketAddress> list = new ArrayList<>();
+		for (String ep : endpoints.split(",")) {
+			ep = ep.trim();
+			if (ep.isEmpty()) {
+				continue;
+			}
+			int idx = ep.lastIndexOf(':');
+			String host = idx > 0 ? ep.substring(0, idx) : ep;
+			int port = idx > 0 ? Integer.parseInt(ep.substring(idx + 1).trim()) : defPort;
+			list.add(InetSocketAddress.createUnresolved(host.trim(), port));
+		}
+		return list;
+	}
+
+	/**
+	 * Set connection selection policy.
+	 *
+	 * @param policy
+	 *            connection selection policy
+	 * @return itself
+	 */
+	public MultiSocketEventSink setSelectionPolicy(SelectionPolicy policy) {
+		selectionPolicy = policy == null ? SelectionPolicy.ROUND_ROBIN : policy;
+		return this;
+	}
+
+	/**
+	 * Obtain connection selection policy.
+	 *
+	 * @return connection selection policy
+	 */
+	public SelectionPolicy getSelectionPolicy() {
+		return selectionPolicy;
+	}
+
+	/**
+	 * Set whether entries having same correlator are always written to the same connection to preserve their order.
+	 *
+	 * @param order
+	 *            {@code true} to preserve order per correlator, {@code false} otherwise
+	 * @return itself
+	 */
+	public MultiSocketEventSink setOrderByCorrelator(boolean order) {
+		orderByCorrelator = order;
+		return this;
+	}
+
+	/**
+	 * Check whether entries having same correlator are always written to the same connection.
+	 *
+	 * @return {@code true} if order per correlator is preserved, {@code false} otherwise
+	 */
+	public boolean isOrderByCorrelator() {
+		return orderByCorrelator;
+	}
+
+	/**
+	 * Obtain list of endpoints this sink connects to.
+	 *
+	 * @return list of endpoint addresses
+	 */
+	public List<InetSocketAddress> getEndpoints() {
+		return endpoints;
+	}
+
+	/**
+	 * Obtain pooled connections, e.g. to tune their settings before sink is opened.
+	 *
+	 * @return list of pooled connections
+	 */
+	public List<NioSocketEventSink> getConnections() {
+		return Collections.unmodifiableList(Arrays.asList(connections));
+	}
+
+	@Override
+	public Object getSinkHandle() {
+		return connections;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return open;
+	}
+
+	@Override
+	protected synchronized void _open() throws IOException {
+		if (open) {
+			return;
+		}
+		super._open();
+		for (NioSocketEventSink conn : connections) {
+			conn.open();
+		}
+		open = true;
+	}
+
+	@Override
+	protected synchronized void _close() throws IOException {
+		open = false;
+		for (NioSocketEventSink conn : connections) {
+			Utils.close(conn);
+		}
+		super._close();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		for (NioSocketEventSink conn : connections) {
+			conn.flush();
+		}
+	}
+
+	@Override
+	protected void writeLine(String msg) throws IOException {
+		write(select(), msg);
+	}
+
+	@Override
+	protected void writeEntry(Object entry, String msg) throws IOException {
+		String key = orderByCorrelator ? Utils.getCorrelatorKey(entry) : null;
+		write(key == null ? select() : select(key), msg);
+	}
+
+	private void write(int index, String msg) throws IOException {
+		selected[index].incrementAndGet();
+		connections[index].writeLine(msg);
+	}
+
+	private int select(String key) {
+		int index = Math.floorMod(key.hashCode(), connections.length);
+		if (!connections[index].isConnected()) {
+			orderedUnhealthy.incrementAndGet();
+		}
+		return index;
+	}
+
+	private int select() {
+		int index = selectionPolicy == SelectionPolicy.LEAST_LOADED ? selectLeastLoaded(true) : selectNext(true);
+		if (index < 0) {
+			allUnhealthy.incrementAndGet();
+			index = selectionPolicy == SelectionPolicy.LEAST_LOADED ? selectLeastLoaded(false) : selectNext(false);
+		}
+		return index;
+	}
+
+	private int selectNext(boolean healthyOnly) {
+		int start = Math.floorMod(next.getAndIncrement(), connections.length);
+		for (int i = 0; i < connections.length; i++) {
+			int index = (start + i) % connections.length;
+			if (!healthyOnly || connections[index].isConnected()) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	private int selectLeastLoaded(boolean healthyOnly) {
+		int start = Math.floorMod(next.getAndIncrement(), connections.length);
+		int best = -1;
+		long bestLoad = Long.MAX_VALUE;
+		for (int i = 0; i < connections.length; i++) {
+			int index = (start + i) % connections.length;
+			NioSocketEventSink conn = connections[index];
+			if (healthyOnly && !conn.isConnected()) {
+				continue;
+			}
+			long load = conn.getOutstandingBytes();
+			if (load < bestLoad) {
+				best = index;
+				bestLoad = load;
+			}
+		}
+		return best;
+	}
+
+	@Override
+	public KeyValueStats getStats(Map<String, Object> stats) {
+		super.getStats(stats);
+		int healthy = 0;
+		for (int i = 0; i < connections.length; i++) {
+			NioSocketEventSink conn = connections[i];
+			boolean connected = conn.isConnected();
+			healthy += connected ? 1 : 0;
+			String pfix = conn.getName() + "/";
+			stats.put(Utils.qualify(this, pfix + KEY_CONN_ENDPOINT), endpoints.get(i % endpoints.size()).toString());
+			stats.put(Utils.qualify(this, pfix + KEY_CONN_HEALTHY), connected);
+			stats.put(Utils.qualify(this, pfix + KEY_CONN_SELECTED), selected[i].get());
+			stats.put(Utils.qualify(this, pfix + KEY_CONN_OUTSTANDING_BYTES), conn.getOutstandingBytes());
+			stats.put(Utils.qualify(this, pfix + KEY_CONN_DROPPED), conn.getDroppedCount());
+		}
+		stats.put(Utils.qualify(this, KEY_MULTI_SELECTION_POLICY), selectionPolicy.name());
+		stats.put(Utils.qualify(this, KEY_MULTI_HEALTHY), healthy);
+		stats.put(Utils.qualify(this, KEY_MULTI_ALL_UNHEALTHY), allUnhealthy.get());
+		stats.put(Utils.qualify(this, KEY_MULTI_ORDERED_UNHEALTHY), orderedUnhealthy.get());
+		return this;
+	}
+
+	@Override
+	public void resetStats() {
+		super.resetStats();
+		for (int i = 0; i < connections.length; i++) {
+			connections[i].resetStats();
+			selected[i].set(0);
+		}
+		allUnhealthy.set(0);
+		orderedUnhealthy.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() //
+				+ "{endpoints: " + endpoints //
+				+ ", connections: " + connections.length //
+				+ ", selection.policy: " + selectionPolicy //
+				+ ", order.by.correlator: " + orderByCorrelator //
+				+ "}";
+	}
+}
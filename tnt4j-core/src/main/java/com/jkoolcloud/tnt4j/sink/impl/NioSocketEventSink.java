@@ -0,0 +1,618 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.jkoolcloud.tnt4j.core.KeyValueStats;
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.format.FormatCache;
+import com.jkoolcloud.tnt4j.sink.EventSink;
+import com.jkoolcloud.tnt4j.sink.LoggedEventSink;
+import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
+import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+import com.jkoolcloud.tnt4j.utils.Utils;
+
+/**
+ * <p>
+ * This class implements {@link EventSink} writing to a socket using NIO {@link SocketChannel}. Unlike
+ * {@link SocketEventSink}, logging threads never write to the socket: encoded entries are enqueued into a bounded
+ * outbound ring and a dedicated writer thread coalesces as many queued entries as fit into a direct buffer into a
+ * single channel write.
+ * </p>
+ *
+ * <p>
+ * Connection is (re)established by the writer thread in the background, with delay doubling from
+ * {@code reconnectDelay} up to {@code maxReconnectDelay} between failed attempts, while logging threads continue to
+ * enqueue entries. Entries not fitting into the outbound ring within {@code offerTimeout} are dropped and counted. A
+ * batch interrupted by a connection failure is resent as a whole once connection is reestablished, so entries may be
+ * duplicated, but are never split. Entries written by a checked operation (see
+ * {@link com.jkoolcloud.tnt4j.sink.AbstractEventSink#runChecked}), e.g. by {@link FailoverEventSink}, fail right away
+ * instead when not connected or not fitting into the outbound ring.
+ * </p>
+ *
+ * <p>
+ * Entries are terminated by a new line by default. With {@link FrameEncoder.Framing#LENGTH} framing, entries are sent
+ * as length-prefixed frames, each coalesced batch optionally Deflate compressed, see {@link FrameEncoder}.
+ * </p>
+ *
+ * <p>
+ * SOCKS proxies are not supported by socket channels, use {@link SocketEventSink} to connect via proxy.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see TrackingActivity
+ * @see TrackingEvent
+ * @see OpLevel
+ * @see EventSink
+ * @see EventFormatter
+ * @see SocketEventSinkFactory
+ */
+public class NioSocketEventSink extends LoggedEventSink {
+	public static final String KEY_NIO_QUEUE_SIZE = "nio-queue-size";
+	public static final String KEY_NIO_OUTSTANDING_BYTES = "nio-outstanding-bytes";
+	public static final String KEY_NIO_DROPPED = "nio-dropped";
+	public static final String KEY_NIO_WRITES = "nio-writes";
+	public static final String KEY_NIO_WRITTEN = "nio-written-entries";
+	public static final String KEY_NIO_AVG_COALESCED = "nio-avg-coalesced";
+	public static final String KEY_NIO_CONNECTED = "nio-connected";
+	public static final String KEY_NIO_RECONNECTS = "nio-reconnects";
+	public static final String KEY_NIO_CONNECT_ERRORS = "nio-connect-errors";
+	public static final String KEY_NIO_PAYLOAD_BYTES = "nio-payload-bytes";
+	public static final String KEY_NIO_COMPRESSED_BATCHES = "nio-compressed-batches";
+
+	public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	public static final long DEFAULT_OFFER_TIMEOUT_MS = 0;
+	public static final int DEFAULT_CONNECT_TIMEOUT_MS = 10000;
+	public static final long DEFAULT_RECONNECT_DELAY_MS = 100;
+	public static final long DEFAULT_MAX_RECONNECT_DELAY_MS = 30000;
+	public static final long DEFAULT_FLUSH_TIMEOUT_MS = 5000;
+
+	private static final long WRITER_POLL_MS = 100;
+	private static final byte LINE_END = '\n';
+
+	private final String hostName;
+	private final int portNo;
+
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	private int bufferSize = DEFAULT_BUFFER_SIZE;
+	private long offerTimeout = DEFAULT_OFFER_TIMEOUT_MS;
+	private int connectTimeout = DEFAULT_CONNECT_TIMEOUT_MS;
+	private long reconnectDelay = DEFAULT_RECONNECT_DELAY_MS;
+	private long maxReconnectDelay = DEFAULT_MAX_RECONNECT_DELAY_MS;
+	private long flushTimeout = DEFAULT_FLUSH_TIMEOUT_MS;
+	private FrameEncoder.Framing framing = FrameEncoder.Framing.LINE;
+	private boolean compress = false;
+	private int compressLevel = FrameEncoder.DEFAULT_COMPRESS_LEVEL;
+	private int compressMinSize = FrameEncoder.DEFAULT_COMPRESS_MIN_SIZE;
+
+	private FrameEncoder encoder;
+	private BlockingQueue<byte[]> queue;
+	private ByteBuffer outBuffer;
+	private ByteBuffer pending;
+	private int pendingCount;
+	private int pendingSize;
+	private byte[] carry;
+	private volatile SocketChannel channel;
+	private volatile Thread writer;
+	private final Object flushLock = new Object();
+
+	private final AtomicLong enqueued = new AtomicLong(0);
+	private final AtomicLong queuedBytes = new AtomicLong(0);
+	private final AtomicLong written = new AtomicLong(0);
+	private final AtomicLong dropped = new AtomicLong(0);
+	// entries enqueued, but discarded instead of written: count towards flush progress, unlike rejected entries
+	private final AtomicLong discarded = new AtomicLong(0);
+	private final AtomicLong writes = new AtomicLong(0);
+	private final AtomicLong coalesced = new AtomicLong(0);
+	private final AtomicLong reconnects = new AtomicLong(0);
+	private final AtomicLong connectErrors = new AtomicLong(0);
+	private final AtomicLong payloadBytes = new AtomicLong(0);
+	private final AtomicLong compressedBatches = new AtomicLong(0);
+
+	/**
+	 * Create a NIO socket event sink based on a given host, port and formatter. Another sink can be associated with
+	 * this sink where all events are routed.
+	 *
+	 * @param name
+	 *            logical name assigned to this sink
+	 * @param host
+	 *            name where all messages are sent
+	 * @param port
+	 *            number where all messages are sent
+	 * @param frm
+	 *            event formatter associated with this sink
+	 * @param sink
+	 *            piped sink where all events are piped
+	 */
+	public NioSocketEventSink(String name, String host, int port, EventFormatter frm, EventSink sink) {
+		super(name, frm, sink);
+		hostName = host;
+		portNo = port;
+	}
+
+	/**
+	 * Set max number of entries queued for writing. Takes effect when sink is (re)opened.
+	 *
+	 * @param capacity
+	 *            outbound queue capacity
+	 * @return itself
+	 */
+	public NioSocketEventSink setQueueCapacity(int capacity) {
+		queueCapacity = Math.max(1, capacity);
+		return this;
+	}
+
+	/**
+	 * Set size of the buffer entries are coalesced into before writing to the socket. Takes effect when sink is
+	 * (re)opened.
+	 *
+	 * @param size
+	 *            buffer size in bytes
+	 * @return itself
+	 */
+	public NioSocketEventSink setBufferSize(int size) {
+		bufferSize = Math.max(1024, size);
+		return this;
+	}
+
+	/**
+	 * Set max time logging thread waits for room in a full outbound queue before dropping an entry.
+	 *
+	 * @param timeout
+	 *            timeout in milliseconds, {@code 0} to drop immediately
+	 * @return itself
+	 */
+	public NioSocketEventSink setOfferTimeout(long timeout) {
+		offerTimeout = Math.max(0, timeout);
+		return this;
+	}
+
+	/**
+	 * Set socket connect timeout.
+	 *
+	 * @param timeout
+	 *            timeout in milliseconds, {@code 0} for no timeout
+	 * @return itself
+	 */
+	public NioSocketEventSink setConnectTimeout(int timeout) {
+		connectTimeout = Math.max(0, timeout);
+		return this;
+	}
+
+	/**
+	 * Set delay between reconnect attempts. Delay doubles after every failed attempt up to a given max delay.
+	 *
+	 * @param delay
+	 *            initial delay in milliseconds
+	 * @param maxDelay
+	 *            max delay in milliseconds
+	 * @return itself
+	 */
+	public NioSocketEventSink setReconnectDelay(long delay, long maxDelay) {
+		reconnectDelay = Math.max(1, delay);
+		maxReconnectDelay = Math.max(reconnectDelay, maxDelay);
+		return this;
+	}
+
+	/**
+	 * Set max time {@link #flush()} and {@link #close()} wait for queued entries to be written.
+	 *
+	 * @param timeout
+	 *            timeout in milliseconds
+	 * @return itself
+	 */
+	public NioSocketEventSink setFlushTimeout(long timeout) {
+		flushTimeout = Math.max(0, timeout);
+		return this;
+	}
+
+	/**
+	 * Set socket stream framing. Takes effect when sink is (re)opened.
+	 *
+	 * @param framing
+	 *            stream framing mode
+	 * @param compress
+	 *            {@code true} to compress batches, applies to {@link FrameEncoder.Framing#LENGTH} framing only
+	 * @param level
+	 *            Deflate compression level (0-9)
+	 * @param minSize
+	 *            min batch size in bytes to compress
+	 * @return itself
+	 */
+	public NioSocketEventSink setFraming(FrameEncoder.Framing framing, boolean compress, int level, int minSize) {
+		this.framing = framing == null ? FrameEncoder.Framing.LINE : framing;
+		this.compress = compress;
+		this.compressLevel = level;
+		this.compressMinSize = minSize;
+		return this;
+	}
+
+	/**
+	 * Obtain socket stream framing.
+	 *
+	 * @return stream framing mode
+	 */
+	public FrameEncoder.Framing getFraming() {
+		return framing;
+	}
+
+	/**
+	 * Check if sink is currently connected.
+	 *
+	 * @return {@code true} if connected, {@code false} otherwise
+	 */
+	public boolean isConnected() {
+		SocketChannel ch = channel;
+		return ch != null && ch.isConnected();
+	}
+
+	/**
+	 * Obtain number of entry bytes queued, but not yet written to the socket.
+	 *
+	 * @return number of outstanding bytes
+	 */
+	public long getOutstandingBytes() {
+		return queuedBytes.get();
+	}
+
+	/**
+	 * Obtain number of entries dropped due to full outbound queue or abandoned on close.
+	 *
+	 * @return number of dropped entries
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	@Override
+	public Object getSinkHandle() {
+		return channel;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return writer != null;
+	}
+
+	@Override
+	protected synchronized void _open() throws IOException {
+		if (writer != null) {
+			return;
+		}
+		queue = new ArrayBlockingQueue<>(queueCapacity);
+		outBuffer = ByteBuffer.allocateDirect(bufferSize);
+		pending = null;
+		carry = null;
+		encoder = new FrameEncoder(compress && framing == FrameEncoder.Framing.LENGTH, compressLevel, compressMinSize);
+		setErrorState(null);
+		super._open();
+		try {
+			connect();
+		} catch (IOException exc) {
+			// writer keeps reconnecting in the background
+			notifyListeners(null, exc);
+		}
+		Thread wt = new Thread(this::runWriter, "NioSocketEventSink/" + getName() + "-writer");
+		wt.setDaemon(true);
+		writer = wt;
+		wt.start();
+	}
+
+	@Override
+	protected synchronized void _close() throws IOException {
+		Thread wt = writer;
+		if (wt == null) {
+			return;
+		}
+		try {
+			if (isConnected()) {
+				awaitWritten(enqueued.get(), flushTimeout);
+			}
+			writer = null;
+			LockSupport.unpark(wt);
+			wt.join(WRITER_POLL_MS * 10);
+			if (!wt.isAlive()) {
+				encoder.end();
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		} finally {
+			writer = null;
+			disconnect();
+			int abandoned = queue.size() + (carry != null ? 1 : 0) + (pending != null ? pendingCount : 0);
+			queue.clear();
+			queuedBytes.set(0);
+			discarded.addAndGet(abandoned);
+			dropped.addAndGet(abandoned);
+			super._close();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Waits for entries queued so far to be written to the socket, up to configured flush timeout.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (isOpen() && isConnected()) {
+			try {
+				awaitWritten(enqueued.get(), flushTimeout);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void awaitWritten(long target, long timeout) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeout;
+		synchronized (flushLock) {
+			long wait;
+			while (written.get() + discarded.get() < target && (wait = deadline - System.currentTimeMillis()) > 0) {
+				flushLock.wait(wait);
+			}
+		}
+	}
+
+	@Override
+	protected void writeLine(String msg) throws IOException {
+		if (Utils.isEmpty(msg)) {
+			return;
+		}
+		_checkState();
+		boolean checked = isCheckedOperation();
+		if (checked && !isConnected()) {
+			throw new IOException("Not connected: sink=" + getName());
+		}
+
+		byte[] bytes = FormatCache.getBytes(msg);
+		boolean queued;
+		try {
+			queued = offerTimeout > 0 ? queue.offer(bytes, offerTimeout, TimeUnit.MILLISECONDS) : queue.offer(bytes);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			queued = false;
+		}
+		if (queued) {
+			queuedBytes.addAndGet(bytes.length);
+			enqueued.incrementAndGet();
+		} else {
+			dropped.incrementAndGet();
+			if (checked) {
+				throw new IOException("Outbound queue full: sink=" + getName());
+			}
+		}
+	}
+
+	/**
+	 * Obtain number of bytes a given entry takes when written to the socket.
+	 *
+	 * @param bytes
+	 *            entry bytes
+	 * @return number of bytes written to the socket
+	 */
+	protected int frameSize(byte[] bytes) {
+		if (framing == FrameEncoder.Framing.LENGTH) {
+			return FrameEncoder.frameSize(bytes.length);
+		}
+		return endsWithLine(bytes) ? bytes.length : bytes.length + 1;
+	}
+
+	/**
+	 * Put a given entry into a buffer written to the socket. Entries are terminated by a new line or prefixed by length,
+	 * depending on framing.
+	 *
+	 * @param buffer
+	 *            buffer to put entry into, having at least {@link #frameSize(byte[])} bytes remaining
+	 * @param bytes
+	 *            entry bytes
+	 */
+	protected void frame(ByteBuffer buffer, byte[] bytes) {
+		if (framing == FrameEncoder.Framing.LENGTH) {
+			FrameEncoder.frame(buffer, bytes);
+			return;
+		}
+		buffer.put(bytes);
+		if (!endsWithLine(bytes)) {
+			buffer.put(LINE_END);
+		}
+	}
+
+	private static boolean endsWithLine(byte[] bytes) {
+		return bytes.length > 0 && bytes[bytes.length - 1] == LINE_END;
+	}
+
+	private void runWriter() {
+		long delay = reconnectDelay;
+		while (writer == Thread.currentThread()) {
+			try {
+				if (!isConnected()) {
+					connect();
+					reconnects.incrementAndGet();
+					delay = reconnectDelay;
+				}
+				if (pending == null && !fill()) {
+					continue;
+				}
+				writePending();
+			} catch (IOException exc) {
+				disconnect();
+				if (pending != null) {
+					pending.rewind();
+				}
+				if (writer != Thread.currentThread()) {
+					break;
+				}
+				notifyListeners(null, exc);
+				LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(delay));
+				delay = Math.min(delay << 1, maxReconnectDelay);
+			} catch (InterruptedException ie) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Coalesce queued entries into outbound buffer and compress it if enabled. Entry larger than the buffer is written
+	 * from its own buffer.
+	 *
+	 * @return {@code true} if there are bytes to write, {@code false} if queue was empty
+	 */
+	private boolean fill() throws InterruptedException {
+		if (!collect()) {
+			return false;
+		}
+		if (encoder.isCompressed(pending.remaining())) {
+			pending = encoder.deflate(pending);
+			compressedBatches.incrementAndGet();
+		}
+		return true;
+	}
+
+	private boolean collect() throws InterruptedException {
+		byte[] bytes = carry != null ? carry : queue.poll(WRITER_POLL_MS, TimeUnit.MILLISECONDS);
+		carry = null;
+		if (bytes == null) {
+			return false;
+		}
+		if (frameSize(bytes) > outBuffer.capacity()) {
+			pending = ByteBuffer.allocate(frameSize(bytes));
+			frame(pending, bytes);
+			pending.flip();
+			pendingCount = 1;
+			pendingSize = bytes.length;
+			return true;
+		}
+		outBuffer.clear();
+		int count = 0;
+		int size = 0;
+		while (bytes != null) {
+			if (frameSize(bytes) > outBuffer.remaining()) {
+				carry = bytes;
+				break;
+			}
+			frame(outBuffer, bytes);
+			count++;
+			size += bytes.length;
+			bytes = queue.poll();
+		}
+		outBuffer.flip();
+		pending = outBuffer;
+		pendingCount = count;
+		pendingSize = size;
+		return true;
+	}
+
+	private void writePending() throws IOException {
+		SocketChannel ch = channel;
+		if (ch == null) {
+			throw new IOException("Socket is not connected: host=" + hostName + ", port=" + portNo);
+		}
+		while (pending.hasRemaining()) {
+			incrementBytesSent(ch.write(pending));
+		}
+		pending = null;
+		writes.incrementAndGet();
+		coalesced.addAndGet(pendingCount);
+		written.addAndGet(pendingCount);
+		payloadBytes.addAndGet(pendingSize);
+		queuedBytes.addAndGet(-pendingSize);
+		synchronized (flushLock) {
+			flushLock.notifyAll();
+		}
+	}
+
+	private void connect() throws IOException {
+		SocketChannel ch = SocketChannel.open();
+		try {
+			ch.socket().connect(new InetSocketAddress(hostName, portNo), connectTimeout);
+			if (framing == FrameEncoder.Framing.LENGTH) {
+				ByteBuffer header = ByteBuffer.wrap(FrameEncoder.streamHeader());
+				while (header.hasRemaining()) {
+					ch.write(header);
+				}
+			}
+		} catch (IOException exc) {
+			Utils.close(ch);
+			connectErrors.incrementAndGet();
+			throw exc;
+		}
+		channel = ch;
+		setErrorState(null);
+	}
+
+	private void disconnect() {
+		SocketChannel ch = channel;
+		channel = null;
+		Utils.close(ch);
+	}
+
+	@Override
+	public KeyValueStats getStats(Map<String, Object> stats) {
+		super.getStats(stats);
+		long writeCount = writes.get();
+		BlockingQueue<byte[]> q = queue;
+		stats.put(Utils.qualify(this, KEY_NIO_QUEUE_SIZE), q == null ? 0 : q.size());
+		stats.put(Utils.qualify(this, KEY_NIO_OUTSTANDING_BYTES), queuedBytes.get());
+		stats.put(Utils.qualify(this, KEY_NIO_DROPPED), dropped.get());
+		stats.put(Utils.qualify(this, KEY_NIO_WRITES), writeCount);
+		stats.put(Utils.qualify(this, KEY_NIO_WRITTEN), written.get());
+		stats.put(Utils.qualify(this, KEY_NIO_AVG_COALESCED), writeCount == 0 ? 0 : coalesced.get() / writeCount);
+		stats.put(Utils.qualify(this, KEY_NIO_CONNECTED), isConnected());
+		stats.put(Utils.qualify(this, KEY_NIO_RECONNECTS), reconnects.get());
+		stats.put(Utils.qualify(this, KEY_NIO_CONNECT_ERRORS), connectErrors.get());
+		stats.put(Utils.qualify(this, KEY_NIO_PAYLOAD_BYTES), payloadBytes.get());
+		stats.put(Utils.qualify(this, KEY_NIO_COMPRESSED_BATCHES), compressedBatches.get());
+		return this;
+	}
+
+	@Override
+	public void resetStats() {
+		super.resetStats();
+		writes.set(0);
+		coalesced.set(0);
+		reconnects.set(0);
+		connectErrors.set(0);
+		payloadBytes.set(0);
+		compressedBatches.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() //
+				+ "{host: " + hostName //
+				+ ", port: " + portNo //
+				+ ", channel: " + channel //
+				+ ", queue.capacity: " + queueCapacity //
+				+ ", buffer.size: " + bufferSize //
+				+ ", framing: " + framing //
+				+ ", compress: " + compress //
+				+ "}";
+	}
+}
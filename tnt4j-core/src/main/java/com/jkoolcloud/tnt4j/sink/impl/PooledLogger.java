@@ -15,19 +15,27 @@
  */
 package com.jkoolcloud.tnt4j.sink.impl;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.LockSupport;
 
 import com.jkoolcloud.tnt4j.core.KeyValueStats;
 import com.jkoolcloud.tnt4j.core.OpLevel;
 import com.jkoolcloud.tnt4j.core.Snapshot;
+import com.jkoolcloud.tnt4j.format.EventFormatter;
 import com.jkoolcloud.tnt4j.limiter.DefaultLimiterFactory;
 import com.jkoolcloud.tnt4j.limiter.Limiter;
 import com.jkoolcloud.tnt4j.sink.*;
+import com.jkoolcloud.tnt4j.source.Source;
 import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
 import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
 import com.jkoolcloud.tnt4j.utils.NamedThreadFactory;
@@ -41,6 +49,63 @@ import com.jkoolcloud.tnt4j.utils.Utils;
  * preserved and should be used to sequence events properly.
  * </p>
  *
+ * <p>
+ * Logging tasks drain events from the queue in batches of up to {@link #setBatchSize(int)} events, waiting at most
+ * {@link #setBatchTimeUsec(long)} microseconds for a batch to fill up. Events within a batch are grouped by event sink
+ * and each group is written using a single {@link EventSink#log(java.util.Collection)} call, so sinks can write the
+ * whole group with a single flush. Signals are processed in queue order relative to the events around them.
+ * </p>
+ *
+ * <p>
+ * In sharded mode (see {@link #PooledLogger(String, SinkEventQueue[])}) each logging task has its own queue shard and
+ * events are routed to shards by a hash of their event sink. All events of a sink are handled by the same task in
+ * order, and a slow sink only holds up sinks sharing its shard.
+ * </p>
+ *
+ * <p>
+ * When spilling is enabled using {@link #setSpill(File, int, long)}, events which do not fit into the event queue are
+ * formatted and appended to a disk based {@link SpillQueue} instead of being dropped. Spilled events are replayed in
+ * order directly to their sinks once the event queue drains and the sink is available. While spilled events are
+ * pending, new events are spilled as well to preserve their order. Spilled events of sinks closed by application are
+ * discarded rather than reopening the sink.
+ * </p>
+ *
+ * <p>
+ * Events which fail to be delivered are scheduled for retry on a {@link RetryWheel}. Retry delay is backed off
+ * exponentially per event sink, starting at {@link #setRetryInterval(long)} and doubling while the sink keeps failing up
+ * to {@link #setMaxRetryInterval(long)}, with a random jitter of {@link #setRetryJitter(int)} percent. Backoff is reset
+ * once the sink logs successfully. Events exceeding {@link #setMaxRetryAttempts(int)} retries are dropped.
+ * </p>
+ *
+ * <p>
+ * By default queued events are discarded on shutdown. When a drain timeout is set using
+ * {@link #setDrainTimeout(long)}, shutdown first drains all queued, retried and spilled events at full speed until the
+ * queues are empty or the timeout elapses, and only then discards remaining events, reporting them as abandoned. Use
+ * {@link #awaitTermination(long, TimeUnit)} to wait for shutdown to complete.
+ * </p>
+ *
+ * <p>
+ * When an event pool is set using {@link #setEventPool(SinkLogEventPool)}, pooled events are returned to the pool
+ * once they are logged, spilled or dropped, so that producers such as {@link BufferedEventSink} can reuse them instead
+ * of allocating a new event per log call. Events scheduled for retry are returned once their retries complete.
+ * </p>
+ *
+ * <p>
+ * Number of logging tasks is fixed unless auto scaling is enabled using {@link #setAutoScale(int, int)}. Auto scaling
+ * measures average event queue wait time and task utilization over each {@link #setScaleInterval(long)} period. A task
+ * is added when queue wait time exceeds {@link #setScaleUpWaitUsec(long)} (or queue is more than half full) for
+ * several consecutive periods, and a task is retired when there is no backlog and utilization stays low for a longer
+ * run of periods. Separate thresholds and run lengths provide hysteresis, so pool size does not flap. Auto scaling is
+ * not available in sharded mode, where tasks are bound to their shards.
+ * </p>
+ *
+ * <p>
+ * Logging tasks run on platform threads by default. When {@link #setVirtualThreads(boolean)} is enabled and the
+ * runtime supports virtual threads (Java 21 or later), tasks run on virtual threads instead, so sinks blocking on I/O
+ * do not hold a platform thread and pool size can be raised without the cost of platform threads. Use {@code BLOCKING}
+ * or {@code PARK} queue wait strategies with virtual threads, spinning strategies would occupy carrier threads.
+ * </p>
+ *
  *
  * @version $Revision: 1 $
  *
@@ -54,10 +119,35 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 			.parseDouble(System.getProperty("tnt4j.pooled.logger.error.rate", "0.1"));
 	protected static final long REOPEN_FREQ = Long.getLong("tnt4j.pooled.logger.reopen.freq.ms",
 			TimeUnit.SECONDS.toMillis(10));
+	protected static final int DEFAULT_BATCH_SIZE = Integer.getInteger("tnt4j.pooled.logger.batch.size", 64);
+	protected static final long DEFAULT_BATCH_TIME_USEC = Long.getLong("tnt4j.pooled.logger.batch.time.usec", 0);
+	protected static final long DEFAULT_MAX_RETRY_INTERVAL = Long.getLong("tnt4j.pooled.logger.retry.max.interval.ms",
+			TimeUnit.MINUTES.toMillis(1));
+	protected static final int DEFAULT_RETRY_JITTER = Integer.getInteger("tnt4j.pooled.logger.retry.jitter", 20);
+	protected static final int DEFAULT_MAX_RETRY_ATTEMPTS = Integer.getInteger("tnt4j.pooled.logger.retry.max.attempts",
+			0);
+	protected static final boolean DEFAULT_VIRTUAL_THREADS = Boolean.getBoolean("tnt4j.pooled.logger.virtual.threads");
+	protected static final long DEFAULT_SCALE_INTERVAL_MS = Long.getLong("tnt4j.pooled.logger.scale.interval.ms",
+			TimeUnit.SECONDS.toMillis(1));
+	protected static final long DEFAULT_SCALE_UP_WAIT_USEC = Long.getLong("tnt4j.pooled.logger.scale.up.wait.usec",
+			TimeUnit.MILLISECONDS.toMicros(10));
+	protected static final int SCALE_UP_INTERVALS = Integer.getInteger("tnt4j.pooled.logger.scale.up.intervals", 2);
+	protected static final int SCALE_DOWN_INTERVALS = Integer.getInteger("tnt4j.pooled.logger.scale.down.intervals",
+			10);
+	protected static final int SCALE_DOWN_UTILIZATION = Integer
+			.getInteger("tnt4j.pooled.logger.scale.down.utilization", 30);
+	protected static final long DEFAULT_DRAIN_TIMEOUT_MS = Long.getLong("tnt4j.pooled.logger.drain.timeout.ms", 0);
+	protected static final long DRAIN_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+	protected static final long RETRY_TICK_MS = Long.getLong("tnt4j.pooled.logger.retry.tick.ms", 100);
+	protected static final int RETRY_WHEEL_SIZE = Integer.getInteger("tnt4j.pooled.logger.retry.wheel.size", 512);
+	static final int MAX_CACHED_GROUPS = 64;
+	static final long[] RETRY_AGE_BOUNDS_MS = { TimeUnit.SECONDS.toMillis(1), TimeUnit.SECONDS.toMillis(10),
+			TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(10) };
 
 	static final String KEY_Q_SIZE = "pooled-queue-size";
 	static final String KEY_Q_TASKS = "pooled-queue-tasks";
 	static final String KEY_Q_CAPACITY = "pooled-queue-capacity";
+	static final String KEY_Q_TYPE = "pooled-queue-type";
 	static final String KEY_DQ_SIZE = "pooled-delay-size";
 	static final String KEY_OBJECTS_DROPPED = "pooled-objects-dropped";
 	static final String KEY_OBJECTS_SKIPPED = "pooled-objects-skipped";
@@ -66,34 +156,116 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 	static final String KEY_OBJECTS_COUNT = "pooled-objects-total";
 	static final String KEY_EXCEPTION_COUNT = "pooled-exceptions";
 	static final String KEY_SIGNAL_COUNT = "pooled-signals";
+	static final String KEY_BATCH_SIZE = "pooled-batch-size";
+	static final String KEY_BATCH_COUNT = "pooled-batch-count";
+	static final String KEY_BATCH_WRITES = "pooled-batch-writes";
+	static final String KEY_Q_SHARDS = "pooled-queue-shards";
+	static final String KEY_VIRTUAL_THREADS = "pooled-virtual-threads";
+	static final String KEY_DRAINED = "pooled-drained";
+	static final String KEY_ABANDONED = "pooled-abandoned";
+	static final String KEY_DRAIN_TIME_MS = "pooled-drain-time-ms";
+	static final String KEY_EVENT_POOL_SIZE = "pooled-event-pool-size";
+	static final String KEY_EVENT_POOL_REUSED = "pooled-event-pool-reused";
+	static final String KEY_EVENT_POOL_ALLOCATED = "pooled-event-pool-allocated";
+	static final String KEY_SCALE_MIN_TASKS = "pooled-scale-min-tasks";
+	static final String KEY_SCALE_MAX_TASKS = "pooled-scale-max-tasks";
+	static final String KEY_SCALE_UPS = "pooled-scale-ups";
+	static final String KEY_SCALE_DOWNS = "pooled-scale-downs";
+	static final String KEY_SCALE_LAST_DECISION = "pooled-scale-last-decision";
+	static final String KEY_SCALE_WAIT_USEC = "pooled-scale-queue-wait-usec";
+	static final String KEY_SCALE_SERVICE_USEC = "pooled-scale-service-usec";
+	static final String KEY_SCALE_UTILIZATION = "pooled-scale-utilization";
+	static final String KEY_SHARD_SIZE = "-size";
+	static final String KEY_SHARD_EVENTS = "-events";
+	static final String KEY_SHARD_LATENCY_USEC = "-latency-usec";
+	static final String KEY_SHARD_LAST_LATENCY_USEC = "-last-latency-usec";
+	static final String KEY_LANE_SIZE = "-lane-size";
+	static final String KEY_LANE_CAPACITY = "-lane-capacity";
+	static final String KEY_LANE_DROPPED = "-lane-dropped";
+	static final String KEY_LANE_EVICTED = "-lane-evicted";
+	static final String KEY_SPILL_PENDING = "pooled-spill-pending";
+	static final String KEY_SPILL_DISK_SIZE = "pooled-spill-disk-size";
+	static final String KEY_SPILL_RECORDS = "pooled-spill-records";
+	static final String KEY_SPILL_BYTES = "pooled-spill-bytes";
+	static final String KEY_REPLAY_RECORDS = "pooled-replay-records";
+	static final String KEY_REPLAY_BYTES = "pooled-replay-bytes";
+	static final String KEY_RETRY_EXHAUSTED = "pooled-retry-exhausted";
+	static final String KEY_RETRY_BACKOFF_SINKS = "pooled-retry-backoff-sinks";
+	static final String KEY_RETRY_MAX_AGE_MS = "pooled-retry-max-age-ms";
+	static final String[] KEY_RETRY_AGE = { "pooled-retry-age-lt-1s", "pooled-retry-age-lt-10s",
+			"pooled-retry-age-lt-1m", "pooled-retry-age-lt-10m", "pooled-retry-age-ge-10m" };
 	static final String KEY_RECOVERY_COUNT = "pooled-recovery-count";
 	static final String KEY_LAST_SERVICE_TIME_USEC = "pooled-last-service-time-usec";
 	static final String KEY_TOTAL_TIME_USEC = "pooled-total-time-usec";
 	static final String KEY_TOTAL_SERVICE_TIME_USEC = "pooled-total-service-time-usec";
 
 	String poolName;
-	int poolSize, capacity;
+	volatile int poolSize;
+	volatile int retiringTasks;
+	int capacity;
+	int minPoolSize, maxPoolSize;
+	long scaleInterval = DEFAULT_SCALE_INTERVAL_MS;
+	long scaleUpWaitUsec = DEFAULT_SCALE_UP_WAIT_USEC;
+	long drainTimeout = DEFAULT_DRAIN_TIMEOUT_MS;
 	long retryInterval = REOPEN_FREQ; // time in milliseconds
+	long maxRetryInterval = DEFAULT_MAX_RETRY_INTERVAL; // time in milliseconds
+	int retryJitter = DEFAULT_RETRY_JITTER; // percent of retry delay
+	int maxRetryAttempts = DEFAULT_MAX_RETRY_ATTEMPTS;
+	int batchSize = DEFAULT_BATCH_SIZE;
+	long batchTimeUsec = DEFAULT_BATCH_TIME_USEC;
+	File spillDir;
+	int spillSegmentSize;
+	long spillMaxSize;
+	SpillQueue spillQ;
+	SinkLogEventPool eventPool;
+	final ThreadLocal<Map<EventSink, List<SinkLogEvent>>> batchGroups = ThreadLocal.withInitial(LinkedHashMap::new);
 	boolean dropOnError = false;
+	boolean virtualThreads = DEFAULT_VIRTUAL_THREADS;
 	ExecutorService threadPool;
 	Limiter errorLimiter;
-	BlockingQueue<SinkLogEvent> eventQ;
-	DelayQueue<DelayedElement<SinkLogEvent>> delayQ;
+	SinkEventQueue eventQ;
+	SinkEventQueue[] shards;
+	AtomicLongArray shardEvents, shardLatencyUsec, shardLastLatencyUsec;
+	RetryWheel<SinkLogEvent> retryQ;
+	ConcurrentMap<Object, Backoff> sinkBackoff = new ConcurrentHashMap<>();
 
-	volatile boolean started = false, shutdown = false, terminated = false;
+	volatile boolean started = false, shutdown = false, terminated = false, draining = false;
+	final CountDownLatch terminatedLatch = new CountDownLatch(1);
+	final AtomicInteger busyTasks = new AtomicInteger(0);
 
 	AtomicLong dropCount = new AtomicLong(0);
 	AtomicLong skipCount = new AtomicLong(0);
 	AtomicLong reQCount = new AtomicLong(0);
 	AtomicLong signalCount = new AtomicLong(0);
+	AtomicLong batchCount = new AtomicLong(0);
+	AtomicLong batchWrites = new AtomicLong(0);
+	AtomicLong spillCount = new AtomicLong(0);
+	AtomicLong spillBytes = new AtomicLong(0);
+	AtomicLong replayCount = new AtomicLong(0);
+	AtomicLong replayBytes = new AtomicLong(0);
 	AtomicLong loggedCount = new AtomicLong(0);
 	AtomicLong totalCount = new AtomicLong(0);
 	AtomicLong exceptionCount = new AtomicLong(0);
 	AtomicLong recoveryCount = new AtomicLong(0);
+	AtomicLong retryExhausted = new AtomicLong(0);
+	AtomicLong drainedCount = new AtomicLong(0);
+	AtomicLong abandonedCount = new AtomicLong(0);
+	AtomicLong drainTimeMs = new AtomicLong(0);
+	AtomicLong scaleUps = new AtomicLong(0);
+	AtomicLong scaleDowns = new AtomicLong(0);
+	AtomicLong retryMaxAgeMs = new AtomicLong(0);
+	AtomicLongArray retryAges = new AtomicLongArray(RETRY_AGE_BOUNDS_MS.length + 1);
 	AtomicLong totalUsec = new AtomicLong(0);
 	AtomicLong lastServiceUsec = new AtomicLong(0);
 	AtomicLong totalServiceUsec = new AtomicLong(0);
 
+	// auto scaling controller state, only accessed by auto scale task
+	long scaleNanos, scaleEvents, scaleServiceUsec, scaleBusyUsec;
+	int scaleUpRun, scaleDownRun;
+	volatile String lastScaleDecision = "none";
+	volatile long lastQueueWaitUsec, lastEventServiceUsec;
+	volatile int lastUtilization;
+
 	/**
 	 * Create a pooled logger instance.
 	 *
@@ -105,14 +277,83 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 	 *            maximum queue capacity to hold incoming events, exceeding capacity will drop incoming events.
 	 */
 	public PooledLogger(String name, int threadPoolSize, int maxCapacity) {
+		this(name, threadPoolSize, SinkEventQueue.QueueType.RING.newQueue(maxCapacity, WaitStrategy.BLOCKING));
+	}
+
+	/**
+	 * Create a pooled logger instance using a given event queue.
+	 *
+	 * @param name
+	 *            pool name to set
+	 * @param threadPoolSize
+	 *            number of threads that will be used to log all enqueued events.
+	 * @param queue
+	 *            event queue to hold incoming events, exceeding queue capacity will drop incoming events.
+	 * @see SinkEventQueue.QueueType
+	 */
+	public PooledLogger(String name, int threadPoolSize, SinkEventQueue queue) {
+		this(name, threadPoolSize, new SinkEventQueue[] { queue });
+	}
+
+	/**
+	 * Create a sharded pooled logger instance, where each logging task has its own queue shard. Events are routed to
+	 * shards by a hash of their event sink, so all events of a sink are processed in order by a single task, and a slow
+	 * sink does not hold up sinks assigned to other shards.
+	 *
+	 * @param name
+	 *            pool name to set
+	 * @param shardQueues
+	 *            event queue shards, one logging task is started per shard
+	 */
+	public PooledLogger(String name, SinkEventQueue[] shardQueues) {
+		this(name, shardQueues.length, shardQueues);
+	}
+
+	private PooledLogger(String name, int threadPoolSize, SinkEventQueue[] shardQueues) {
 		poolName = name;
 		poolSize = threadPoolSize;
-		capacity = maxCapacity;
-		eventQ = new ArrayBlockingQueue<>(capacity);
-		delayQ = new DelayQueue<>();
+		minPoolSize = maxPoolSize = threadPoolSize;
+		shards = shardQueues;
+		eventQ = shards[0];
+		for (SinkEventQueue shard : shards) {
+			capacity += shard.capacity();
+		}
+		shardEvents = new AtomicLongArray(shards.length);
+		shardLatencyUsec = new AtomicLongArray(shards.length);
+		shardLastLatencyUsec = new AtomicLongArray(shards.length);
+		retryQ = new RetryWheel<>(RETRY_TICK_MS, RETRY_WHEEL_SIZE);
 		errorLimiter = DefaultLimiterFactory.getInstance().newLimiter(PooledLogger.ERROR_RATE, Limiter.MAX_RATE);
 	}
 
+	/**
+	 * Obtain queue shard index for a given event sink.
+	 *
+	 * @param sink
+	 *            event sink or event source object
+	 * @return shard index
+	 */
+	int shardOf(Object sink) {
+		if (shards.length == 1) {
+			return 0;
+		}
+		int h = System.identityHashCode(sink);
+		h ^= (h >>> 16);
+		return (h & Integer.MAX_VALUE) % shards.length;
+	}
+
+	private SinkEventQueue queueOf(SinkLogEvent event) {
+		return shards[shardOf(event.getSource())];
+	}
+
+	/**
+	 * Obtain number of event queue shards, {@code 1} when logger is not sharded.
+	 *
+	 * @return number of event queue shards
+	 */
+	public int getShardCount() {
+		return shards.length;
+	}
+
 	@Override
 	public void shutdown(Throwable ex) {
 		if (shutdown) {
@@ -121,21 +362,17 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 
 		shutdown = true;
 
-		// when ex is null it must be immediate shutdown request
-		if (ex == null) {
-			SinkLogEvent dieEvent = new SinkLogEvent(this, Thread.currentThread(), SinkLogEvent.SIGNAL_TERMINATE);
-			for (int i = 0; i < poolSize; i++) {
-				eventQ.offer(dieEvent);
+		Thread termThread = new Thread(() -> {
+			if (drainTimeout > 0) {
+				drain(drainTimeout, TimeUnit.MILLISECONDS);
 			}
-			delayQ.offer(new DelayedElement<>(dieEvent, 0));
-		}
-
-		Thread termThread = new Thread(this::terminate, "PooledLogger-termination-thread");
+			terminate();
+		}, "PooledLogger-termination-thread");
 		termThread.start();
 	}
 
 	/**
-	 * Terminates logger activities: stops thead pool and clears logger queues.
+	 * Terminates logger activities: clears logger queues, counting discarded events as abandoned, and stops thead pool.
 	 *
 	 * @see #stop()
 	 */
@@ -146,12 +383,118 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 
 		terminated = true;
 
-		eventQ.clear();
-		delayQ.clear();
+		List<SinkLogEvent> retries = new ArrayList<>(retryQ.size());
+		long abandoned = retryQ.drainTo(retries);
+		for (SinkLogEvent event : retries) {
+			recycle(event);
+		}
+		for (SinkEventQueue shard : shards) {
+			// count events actually removed, tasks may still be taking events
+			SinkLogEvent event;
+			while ((event = shard.poll()) != null) {
+				abandoned++;
+				recycle(event);
+			}
+		}
+		sinkBackoff.clear();
+		if (spillQ != null) {
+			abandoned += spillQ.size();
+			spillQ.close();
+		}
+		if (abandoned > 0) {
+			abandonedCount.addAndGet(abandoned);
+			dropCount.addAndGet(abandoned);
+			logger.log(OpLevel.WARNING, "Abandoned events on termination: pool.name={}, abandoned={}, drained={}",
+					poolName, abandoned, drainedCount.get());
+		}
+
+		// let all tasks complete
+		SinkLogEvent dieEvent = new SinkLogEvent(this, Thread.currentThread(), SinkLogEvent.SIGNAL_TERMINATE);
+		int tasks = poolSize;
+		for (int i = 0; i < tasks; i++) {
+			shards[i % shards.length].offer(dieEvent);
+		}
+		retryQ.schedule(dieEvent, 0, TimeUnit.MILLISECONDS);
+		terminatedLatch.countDown();
 
 		stop();
 	}
 
+	/**
+	 * Process all queued, retried and spilled events at full speed until there are no more pending events or timeout
+	 * elapses. Logger keeps accepting events while draining, unless it is shut down.
+	 *
+	 * @param timeout
+	 *            maximum time to wait for events to drain
+	 * @param unit
+	 *            time unit for timeout
+	 * @return {@code true} if all pending events were processed, {@code false} if timeout elapsed
+	 */
+	public boolean drain(long timeout, TimeUnit unit) {
+		long start = System.nanoTime();
+		long deadline = start + unit.toNanos(timeout);
+		long processed = totalCount.get();
+		draining = true;
+		try {
+			// pending events must be gone on two consecutive checks, to cover events being taken by tasks
+			int idleChecks = 0;
+			while (true) {
+				idleChecks = isDrained() ? idleChecks + 1 : 0;
+				if (idleChecks >= 2) {
+					return true;
+				}
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+					return false;
+				}
+				LockSupport.parkNanos(this, Math.min(remaining, DRAIN_CHECK_NANOS));
+			}
+		} finally {
+			draining = false;
+			drainedCount.addAndGet(totalCount.get() - processed);
+			drainTimeMs.addAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		}
+	}
+
+	private boolean isDrained() {
+		return isEmpty() && busyTasks.get() == 0 && retryQ.size() == 0 && (spillQ == null || spillQ.isEmpty());
+	}
+
+	/**
+	 * Wait for logger to terminate after shutdown, including draining of pending events.
+	 *
+	 * @param timeout
+	 *            maximum time to wait
+	 * @param unit
+	 *            time unit for timeout
+	 * @return {@code true} if logger terminated, {@code false} if timeout elapsed
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 * @see #setDrainTimeout(long)
+	 */
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return terminatedLatch.await(timeout, unit);
+	}
+
+	/**
+	 * Set maximum time to drain pending events on shutdown.
+	 *
+	 * @param drainTimeout
+	 *            time interval in milliseconds, {@code 0} to discard pending events on shutdown
+	 */
+	public void setDrainTimeout(long drainTimeout) {
+		this.drainTimeout = drainTimeout;
+	}
+
+	/**
+	 * Obtain maximum time to drain pending events on shutdown.
+	 *
+	 * @return time interval in milliseconds, {@code 0} if pending events are discarded on shutdown
+	 */
+	public long getDrainTimeout() {
+		return drainTimeout;
+	}
+
 	/**
 	 * Obtain pool name.
 	 *
@@ -170,10 +513,31 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 
 	@Override
 	public KeyValueStats getStats(Map<String, Object> stats) {
-		stats.put(Utils.qualify(this, poolName, KEY_Q_SIZE), eventQ.size());
-		stats.put(Utils.qualify(this, poolName, KEY_DQ_SIZE), delayQ.size());
+		stats.put(Utils.qualify(this, poolName, KEY_Q_SIZE), getQSize());
+		stats.put(Utils.qualify(this, poolName, KEY_DQ_SIZE), retryQ.size());
 		stats.put(Utils.qualify(this, poolName, KEY_Q_CAPACITY), capacity);
+		stats.put(Utils.qualify(this, poolName, KEY_Q_TYPE), eventQ.getClass().getSimpleName());
 		stats.put(Utils.qualify(this, poolName, KEY_Q_TASKS), poolSize);
+		stats.put(Utils.qualify(this, poolName, KEY_Q_SHARDS), shards.length);
+		stats.put(Utils.qualify(this, poolName, KEY_VIRTUAL_THREADS), virtualThreads);
+		stats.put(Utils.qualify(this, poolName, KEY_DRAINED), drainedCount.get());
+		stats.put(Utils.qualify(this, poolName, KEY_ABANDONED), abandonedCount.get());
+		stats.put(Utils.qualify(this, poolName, KEY_DRAIN_TIME_MS), drainTimeMs.get());
+		if (eventPool != null) {
+			stats.put(Utils.qualify(this, poolName, KEY_EVENT_POOL_SIZE), eventPool.size());
+			stats.put(Utils.qualify(this, poolName, KEY_EVENT_POOL_REUSED), eventPool.getReusedCount());
+			stats.put(Utils.qualify(this, poolName, KEY_EVENT_POOL_ALLOCATED), eventPool.getAllocatedCount());
+		}
+		if (isAutoScale()) {
+			stats.put(Utils.qualify(this, poolName, KEY_SCALE_MIN_TASKS), minPoolSize);
+			stats.put(Utils.qualify(this, poolName, KEY_SCALE_MAX_TASKS), maxPoolSize);
+			stats.put(Utils.qualify(this, poolName, KEY_SCALE_UPS), scaleUps.get());
+			stats.put(Utils.qualify(this, poolName, KEY_SCALE_DOWNS), scaleDowns.get());
+			stats.put(Utils.qualify(this, poolName, KEY_SCALE_LAST_DECISION), lastScaleDecision);
+			stats.put(Utils.qualify(this, poolName, KEY_SCALE_WAIT_USEC), lastQueueWaitUsec);
+			stats.put(Utils.qualify(this, poolName, KEY_SCALE_SERVICE_USEC), lastEventServiceUsec);
+			stats.put(Utils.qualify(this, poolName, KEY_SCALE_UTILIZATION), lastUtilization);
+		}
 		stats.put(Utils.qualify(this, poolName, KEY_OBJECTS_DROPPED), dropCount.get());
 		stats.put(Utils.qualify(this, poolName, KEY_OBJECTS_SKIPPED), skipCount.get());
 		stats.put(Utils.qualify(this, poolName, KEY_OBJECTS_REQUEUED), reQCount.get());
@@ -181,7 +545,51 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 		stats.put(Utils.qualify(this, poolName, KEY_OBJECTS_LOGGED), loggedCount.get());
 		stats.put(Utils.qualify(this, poolName, KEY_EXCEPTION_COUNT), exceptionCount.get());
 		stats.put(Utils.qualify(this, poolName, KEY_RECOVERY_COUNT), recoveryCount.get());
+		stats.put(Utils.qualify(this, poolName, KEY_RETRY_EXHAUSTED), retryExhausted.get());
+		stats.put(Utils.qualify(this, poolName, KEY_RETRY_BACKOFF_SINKS), sinkBackoff.size());
+		stats.put(Utils.qualify(this, poolName, KEY_RETRY_MAX_AGE_MS), retryMaxAgeMs.get());
+		for (int i = 0; i < KEY_RETRY_AGE.length; i++) {
+			stats.put(Utils.qualify(this, poolName, KEY_RETRY_AGE[i]), retryAges.get(i));
+		}
 		stats.put(Utils.qualify(this, poolName, KEY_SIGNAL_COUNT), signalCount.get());
+		stats.put(Utils.qualify(this, poolName, KEY_BATCH_SIZE), batchSize);
+		stats.put(Utils.qualify(this, poolName, KEY_BATCH_COUNT), batchCount.get());
+		stats.put(Utils.qualify(this, poolName, KEY_BATCH_WRITES), batchWrites.get());
+		if (shards.length > 1) {
+			for (int i = 0; i < shards.length; i++) {
+				String prefix = "pooled-shard-" + i;
+				stats.put(Utils.qualify(this, poolName, prefix + KEY_SHARD_SIZE), shards[i].size());
+				stats.put(Utils.qualify(this, poolName, prefix + KEY_SHARD_EVENTS), shardEvents.get(i));
+				stats.put(Utils.qualify(this, poolName, prefix + KEY_SHARD_LATENCY_USEC), shardLatencyUsec.get(i));
+				stats.put(Utils.qualify(this, poolName, prefix + KEY_SHARD_LAST_LATENCY_USEC),
+						shardLastLatencyUsec.get(i));
+			}
+		}
+		if (eventQ instanceof LaneSinkEventQueue) {
+			for (LaneSinkEventQueue.Lane lane : LaneSinkEventQueue.Lane.values()) {
+				long size = 0, laneCapacity = 0, dropped = 0, evicted = 0;
+				for (SinkEventQueue shard : shards) {
+					LaneSinkEventQueue laneQ = (LaneSinkEventQueue) shard;
+					size += laneQ.size(lane);
+					laneCapacity += laneQ.capacity(lane);
+					dropped += laneQ.getDropCount(lane);
+					evicted += laneQ.getEvictCount(lane);
+				}
+				String prefix = "pooled-" + lane.name().toLowerCase();
+				stats.put(Utils.qualify(this, poolName, prefix + KEY_LANE_SIZE), size);
+				stats.put(Utils.qualify(this, poolName, prefix + KEY_LANE_CAPACITY), laneCapacity);
+				stats.put(Utils.qualify(this, poolName, prefix + KEY_LANE_DROPPED), dropped);
+				stats.put(Utils.qualify(this, poolName, prefix + KEY_LANE_EVICTED), evicted);
+			}
+		}
+		if (spillQ != null) {
+			stats.put(Utils.qualify(this, poolName, KEY_SPILL_PENDING), spillQ.size());
+			stats.put(Utils.qualify(this, poolName, KEY_SPILL_DISK_SIZE), spillQ.getDiskSize());
+			stats.put(Utils.qualify(this, poolName, KEY_SPILL_RECORDS), spillCount.get());
+			stats.put(Utils.qualify(this, poolName, KEY_SPILL_BYTES), spillBytes.get());
+			stats.put(Utils.qualify(this, poolName, KEY_REPLAY_RECORDS), replayCount.get());
+			stats.put(Utils.qualify(this, poolName, KEY_REPLAY_BYTES), replayBytes.get());
+		}
 		stats.put(Utils.qualify(this, poolName, KEY_LAST_SERVICE_TIME_USEC), lastServiceUsec.get());
 		stats.put(Utils.qualify(this, poolName, KEY_TOTAL_TIME_USEC), totalUsec.get());
 		stats.put(Utils.qualify(this, poolName, KEY_TOTAL_SERVICE_TIME_USEC), totalServiceUsec.get());
@@ -194,6 +602,12 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 		skipCount.set(0);
 		reQCount.set(0);
 		signalCount.set(0);
+		batchCount.set(0);
+		batchWrites.set(0);
+		spillCount.set(0);
+		spillBytes.set(0);
+		replayCount.set(0);
+		replayBytes.set(0);
 		totalCount.set(0);
 		totalServiceUsec.set(0);
 		lastServiceUsec.set(0);
@@ -201,6 +615,27 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 		totalUsec.set(0);
 		recoveryCount.set(0);
 		exceptionCount.set(0);
+		retryExhausted.set(0);
+		retryMaxAgeMs.set(0);
+		scaleUps.set(0);
+		scaleDowns.set(0);
+		drainedCount.set(0);
+		abandonedCount.set(0);
+		drainTimeMs.set(0);
+		if (eventPool != null) {
+			eventPool.resetStats();
+		}
+		for (int i = 0; i < retryAges.length(); i++) {
+			retryAges.set(i, 0);
+		}
+		for (int i = 0; i < shards.length; i++) {
+			shardEvents.set(i, 0);
+			shardLatencyUsec.set(i, 0);
+			shardLastLatencyUsec.set(i, 0);
+			if (shards[i] instanceof LaneSinkEventQueue) {
+				((LaneSinkEventQueue) shards[i]).resetStats();
+			}
+		}
 	}
 
 	/**
@@ -283,7 +718,11 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 	 * @return total number of messages waiting to be flushed
 	 */
 	public int getQSize() {
-		return eventQ.size();
+		int size = 0;
+		for (SinkEventQueue shard : shards) {
+			size += shard.size();
+		}
+		return size;
 	}
 
 	/**
@@ -292,7 +731,7 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 	 * @return total number of messages waiting to be re-delivered
 	 */
 	public int getDQSize() {
-		return delayQ.size();
+		return retryQ.size();
 	}
 
 	/**
@@ -301,7 +740,7 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 	 * @return {@code true} if delay queue is full, {@code false} otherwise
 	 */
 	public boolean isDQfull() {
-		return delayQ.size() >= getCapacity();
+		return retryQ.size() >= getCapacity();
 	}
 
 	/**
@@ -310,7 +749,7 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 	 * @return {@code true} if event queue is full, {@code false} otherwise
 	 */
 	public boolean isQFull() {
-		return eventQ.size() >= capacity;
+		return getQSize() >= capacity;
 	}
 
 	/**
@@ -319,7 +758,12 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 	 * @return {@code true} if event queue is empty, {@code false} otherwise
 	 */
 	public boolean isEmpty() {
-		return eventQ.isEmpty();
+		for (SinkEventQueue shard : shards) {
+			if (!shard.isEmpty()) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -341,7 +785,16 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 	public boolean offer(SinkLogEvent event) {
 		boolean flag = false;
 		if (!shutdown || (event.getSignal() != null)) {
-			flag = eventQ.offer(event);
+			boolean spillable = spillQ != null && event.getSignal() == null;
+			if (!spillable || spillQ.isEmpty()) {
+				flag = queueOf(event).offer(event);
+			}
+			if (!flag && spillable) {
+				flag = spill(event);
+				if (flag) {
+					recycle(event);
+				}
+			}
 		}
 		if (!flag) {
 			dropCount.incrementAndGet();
@@ -359,13 +812,50 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 	 */
 	public void put(SinkLogEvent event) throws InterruptedException {
 		if (!shutdown || (event.getSignal() != null)) {
-			eventQ.put(event);
+			queueOf(event).put(event);
 		} else {
 			dropCount.incrementAndGet();
 			throw new InterruptedException("Unable to accept events: " + getName() + " is shutdown");
 		}
 	}
 
+	/**
+	 * Re-queue an event due for retry. Unlike {@link #put(SinkLogEvent)}, events are accepted after shutdown, so that
+	 * retries are still delivered while pending events are drained. Events are abandoned only once logger is
+	 * terminated.
+	 *
+	 * @param event
+	 *            logging event due for retry
+	 * @throws InterruptedException
+	 *             if interrupted waiting for space in logger
+	 */
+	void requeue(SinkLogEvent event) throws InterruptedException {
+		SinkEventQueue queue = queueOf(event);
+		while (!terminated) {
+			if (queue.offer(event)) {
+				return;
+			}
+			if (Thread.interrupted()) {
+				abandon(event);
+				throw new InterruptedException("Interrupted re-queuing event: " + getName());
+			}
+			LockSupport.parkNanos(this, DRAIN_CHECK_NANOS);
+		}
+		abandon(event);
+	}
+
+	/**
+	 * Abandon an event that will never be logged, counting it as abandoned and dropped.
+	 *
+	 * @param event
+	 *            abandoned logging event
+	 */
+	void abandon(SinkLogEvent event) {
+		abandonedCount.incrementAndGet();
+		dropCount.incrementAndGet();
+		recycle(event);
+	}
+
 	/**
 	 * Checks if logger is started.
 	 *
@@ -414,6 +904,220 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 		this.retryInterval = retryInterval;
 	}
 
+	/**
+	 * Set maximum interval wait time before retrying send of failed messages. Retry interval of a failing sink is
+	 * doubled up to this value.
+	 *
+	 * @param maxRetryInterval
+	 *            time interval in milliseconds
+	 * @see #setRetryInterval(long)
+	 */
+	public void setMaxRetryInterval(long maxRetryInterval) {
+		this.maxRetryInterval = maxRetryInterval;
+	}
+
+	/**
+	 * Set random jitter applied to retry interval, used to spread retries of many failed events over time.
+	 *
+	 * @param retryJitter
+	 *            jitter as a percentage of retry interval, {@code 0} to disable
+	 */
+	public void setRetryJitter(int retryJitter) {
+		this.retryJitter = Math.max(0, Math.min(100, retryJitter));
+	}
+
+	/**
+	 * Set maximum number of attempts to retry send of a failed message, before message is dropped.
+	 *
+	 * @param maxRetryAttempts
+	 *            maximum number of retry attempts, values less than 1 mean unlimited
+	 */
+	public void setMaxRetryAttempts(int maxRetryAttempts) {
+		this.maxRetryAttempts = maxRetryAttempts;
+	}
+
+	/**
+	 * Obtain maximum number of attempts to retry send of a failed message.
+	 *
+	 * @return maximum number of retry attempts, values less than 1 mean unlimited
+	 */
+	public int getMaxRetryAttempts() {
+		return maxRetryAttempts;
+	}
+
+	/**
+	 * Set pool of recyclable events, events owned by this pool are returned to it once processed. Producers should
+	 * obtain events using {@link #getEventPool()}.
+	 *
+	 * @param pool
+	 *            recyclable event pool, {@code null} to disable event recycling
+	 */
+	public void setEventPool(SinkLogEventPool pool) {
+		this.eventPool = pool;
+	}
+
+	/**
+	 * Obtain pool of recyclable events used by this logger.
+	 *
+	 * @return recyclable event pool, {@code null} if event recycling is disabled
+	 */
+	public SinkLogEventPool getEventPool() {
+		return eventPool;
+	}
+
+	/**
+	 * Return event to the recyclable event pool, if it is owned by the pool.
+	 *
+	 * @param event
+	 *            event instance no longer referenced
+	 */
+	public void recycle(SinkLogEvent event) {
+		SinkLogEventPool pool = eventPool;
+		if (pool != null) {
+			pool.release(event);
+		}
+	}
+
+	/**
+	 * Enable auto scaling of the number of logging tasks between given bounds. Auto scaling is enabled when maximum is
+	 * greater than minimum and logger is not sharded. Must be set before logger is started, initial number of tasks
+	 * is pool size clamped to the given bounds.
+	 *
+	 * @param minSize
+	 *            minimum number of logging tasks
+	 * @param maxSize
+	 *            maximum number of logging tasks
+	 */
+	public void setAutoScale(int minSize, int maxSize) {
+		minPoolSize = Math.max(1, minSize);
+		maxPoolSize = Math.max(minPoolSize, maxSize);
+		poolSize = Math.max(minPoolSize, Math.min(maxPoolSize, poolSize));
+	}
+
+	/**
+	 * Determine if auto scaling of the number of logging tasks is enabled.
+	 *
+	 * @return {@code true} if auto scaling is enabled, {@code false} otherwise
+	 */
+	public boolean isAutoScale() {
+		return shards.length == 1 && maxPoolSize > minPoolSize;
+	}
+
+	/**
+	 * Obtain current number of logging tasks.
+	 *
+	 * @return number of logging tasks
+	 */
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	/**
+	 * Set auto scaling measurement period.
+	 *
+	 * @param scaleInterval
+	 *            time interval in milliseconds
+	 */
+	public void setScaleInterval(long scaleInterval) {
+		this.scaleInterval = Math.max(1, scaleInterval);
+	}
+
+	/**
+	 * Obtain auto scaling measurement period.
+	 *
+	 * @return time interval in milliseconds
+	 */
+	public long getScaleInterval() {
+		return scaleInterval;
+	}
+
+	/**
+	 * Set average event queue wait time above which auto scaling adds logging tasks.
+	 *
+	 * @param scaleUpWaitUsec
+	 *            queue wait time in microseconds
+	 */
+	public void setScaleUpWaitUsec(long scaleUpWaitUsec) {
+		this.scaleUpWaitUsec = scaleUpWaitUsec;
+	}
+
+	/**
+	 * Set whether logging tasks should run on virtual threads. Takes effect when logger is started, and falls back to
+	 * platform threads when virtual threads are not supported by current runtime.
+	 *
+	 * @param virtualThreads
+	 *            {@code true} to run logging tasks on virtual threads, {@code false} to use platform threads
+	 */
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
+	/**
+	 * Determine if logging tasks run (or are set to run, if logger is not started yet) on virtual threads.
+	 *
+	 * @return {@code true} if logging tasks run on virtual threads, {@code false} otherwise
+	 */
+	public boolean isVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * Set maximum number of events drained from the queue and processed by a logging task in one batch.
+	 *
+	 * @param batchSize
+	 *            maximum batch size, values less than 1 disable batching
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = Math.max(batchSize, 1);
+	}
+
+	/**
+	 * Obtain maximum number of events drained from the queue and processed by a logging task in one batch.
+	 *
+	 * @return maximum batch size
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Set maximum time a logging task waits for a batch to fill up once the first batch event is taken. When
+	 * {@code 0}, only events immediately available in the queue are drained.
+	 *
+	 * @param batchTimeUsec
+	 *            maximum batch fill time in microseconds
+	 */
+	public void setBatchTimeUsec(long batchTimeUsec) {
+		this.batchTimeUsec = Math.max(batchTimeUsec, 0);
+	}
+
+	/**
+	 * Obtain maximum time a logging task waits for a batch to fill up.
+	 *
+	 * @return maximum batch fill time in microseconds
+	 */
+	public long getBatchTimeUsec() {
+		return batchTimeUsec;
+	}
+
+	/**
+	 * Enable spilling of events which do not fit into the event queue to disk. Must be called before logger is
+	 * started.
+	 *
+	 * @param dir
+	 *            directory where spill segment files are created, {@code null} disables spilling
+	 * @param segmentSize
+	 *            spill segment file size in bytes
+	 * @param maxSize
+	 *            maximum total size of spill segment files in bytes
+	 * @see SpillQueue
+	 */
+	public void setSpill(File dir, int segmentSize, long maxSize) {
+		this.spillDir = dir;
+		this.spillSegmentSize = segmentSize;
+		this.spillMaxSize = maxSize;
+	}
+
 	/**
 	 * Obtain event message from the queue
 	 *
@@ -426,29 +1130,79 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 	}
 
 	/**
-	 * Obtain a delayed event message from a delay queue
+	 * Drain a batch of event messages from the queue. Waits for the first event, then drains up to batch size events
+	 * or until batch time elapses. Draining stops after a {@link SinkLogEvent#SIGNAL_TERMINATE} event, so that each
+	 * logging task consumes a single termination signal.
 	 *
-	 * @return sink event instance
+	 * @param batch
+	 *            list to add drained events to
+	 * @return number of events added to the batch
 	 * @throws InterruptedException
 	 *             if interrupted while waiting
+	 * @see #setBatchSize(int)
+	 * @see #setBatchTimeUsec(long)
 	 */
-	protected SinkLogEvent takeDelayedEvent() throws InterruptedException {
-		DelayedElement<SinkLogEvent> elm = delayQ.take();
-		return elm.getElement();
+	protected int takeEvents(List<SinkLogEvent> batch) throws InterruptedException {
+		return takeEvents(0, batch);
 	}
 
 	/**
-	 * Inserts the specified log event at the tail of this pooled logger and block until insert is completed.
+	 * Drain a batch of event messages from a given queue shard.
+	 *
+	 * @param shard
+	 *            queue shard index
+	 * @param batch
+	 *            list to add drained events to
+	 * @return number of events added to the batch
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 * @see #takeEvents(List)
+	 */
+	protected int takeEvents(int shard, List<SinkLogEvent> batch) throws InterruptedException {
+		SinkEventQueue queue = shards[shard];
+		SinkLogEvent event = queue.take();
+		batch.add(event);
+		int count = 1;
+		// do not wait for batches to fill up while draining
+		long deadline = draining ? 0 : System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(batchTimeUsec);
+		while (count < batchSize && event.getSignalType() != SinkLogEvent.SIGNAL_TERMINATE) {
+			long remaining = deadline - System.nanoTime();
+			event = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+			if (event == null) {
+				break;
+			}
+			batch.add(event);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Obtain delayed event messages which are due for retry, waiting for the next retry wheel tick.
+	 *
+	 * @param events
+	 *            collection to add due events to
+	 * @return number of events added
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	protected int takeDelayedEvents(Collection<SinkLogEvent> events) throws InterruptedException {
+		return retryQ.expire(events);
+	}
+
+	/**
+	 * Schedule the specified log event for retry after its event sink backoff interval.
 	 *
 	 * @param event
 	 *            logging event
 	 */
 	public void putDelayed(SinkLogEvent event) {
-		putDelayed(event, retryInterval, TimeUnit.MILLISECONDS);
+		scheduleRetry(event, retryDelay(event.getSource()), TimeUnit.MILLISECONDS);
 	}
 
 	/**
-	 * Inserts the specified log event at the tail of this pooled logger and block until insert is completed.
+	 * Schedule the specified log event for retry after a given delay. Event is dropped if it exceeds maximum number
+	 * of retry attempts.
 	 *
 	 * @param event
 	 *            logging event
@@ -456,10 +1210,168 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 	 *            time duration
 	 * @param unit
 	 *            time unit for duration
+	 * @see #setMaxRetryAttempts(int)
 	 */
 	public void putDelayed(SinkLogEvent event, long delay, TimeUnit unit) {
+		scheduleRetry(event, delay, unit);
+	}
+
+	/**
+	 * Schedule event for retry, unless it exceeded maximum number of retry attempts.
+	 *
+	 * @param event
+	 *            logging event
+	 * @param delay
+	 *            time duration
+	 * @param unit
+	 *            time unit for duration
+	 * @return {@code true} if event was scheduled, {@code false} if event was dropped
+	 */
+	private boolean scheduleRetry(SinkLogEvent event, long delay, TimeUnit unit) {
+		int attempt = event.retry();
+		if (maxRetryAttempts > 0 && attempt > maxRetryAttempts) {
+			retryExhausted.incrementAndGet();
+			skipCount.incrementAndGet();
+			return false;
+		}
+		long ageMs = TimeUnit.NANOSECONDS.toMillis(event.getAgeNanos());
+		int bucket = 0;
+		while (bucket < RETRY_AGE_BOUNDS_MS.length && ageMs >= RETRY_AGE_BOUNDS_MS[bucket]) {
+			bucket++;
+		}
+		retryAges.incrementAndGet(bucket);
+		retryMaxAgeMs.accumulateAndGet(ageMs, Math::max);
 		reQCount.incrementAndGet();
-		delayQ.put(new DelayedElement<>(event, unit.toMillis(delay)));
+		retryQ.schedule(event, delay, unit);
+		return true;
+	}
+
+	/**
+	 * Obtain retry delay for a given event sink. Delay starts at retry interval and is doubled each time the sink fails
+	 * after the previous delay elapsed, up to maximum retry interval. Random jitter is applied to the delay.
+	 *
+	 * @param sink
+	 *            event sink
+	 * @return retry delay in milliseconds
+	 */
+	private long retryDelay(Object sink) {
+		Backoff backoff = sinkBackoff.get(sink);
+		if (backoff == null) {
+			backoff = sinkBackoff.computeIfAbsent(sink, s -> new Backoff(Math.min(retryInterval, maxRetryInterval)));
+		}
+		long delay = backoff.nextDelay(maxRetryInterval);
+		long jitter = delay * retryJitter / 100;
+		if (jitter > 0) {
+			delay += ThreadLocalRandom.current().nextLong(-jitter, jitter + 1);
+		}
+		return delay;
+	}
+
+	/**
+	 * Reset retry backoff of a given event sink after it logged successfully.
+	 *
+	 * @param sink
+	 *            event sink
+	 */
+	private void resetBackoff(Object sink) {
+		if (!sinkBackoff.isEmpty()) {
+			sinkBackoff.remove(sink);
+		}
+	}
+
+	/**
+	 * Format and append event to the spill queue.
+	 *
+	 * @param event
+	 *            event instance
+	 * @return {@code true} if event was spilled, {@code false} otherwise
+	 */
+	private boolean spill(SinkLogEvent event) {
+		try {
+			EventSink sink = event.getEventSink();
+			String payload = formatEvent(sink, event);
+			int bytes = payload == null ? 0 : spillQ.append(sink, payload);
+			if (bytes > 0) {
+				spillCount.incrementAndGet();
+				spillBytes.addAndGet(bytes);
+				return true;
+			}
+		} catch (Throwable err) {
+			exceptionCount.incrementAndGet();
+			if (errorLimiter.tryObtain(1, 0)) {
+				logger.log(OpLevel.ERROR, "Unable to spill event: spill.queue={}, event={}", spillQ, event, err);
+			}
+		}
+		return false;
+	}
+
+	private static String formatEvent(EventSink sink, SinkLogEvent event) {
+		EventFormatter formatter = sink.getEventFormatter();
+		if (formatter == null) {
+			return null;
+		}
+		Object sinkObject = event.getSinkObject();
+		if (sinkObject instanceof TrackingEvent) {
+			return formatter.format((TrackingEvent) sinkObject);
+		} else if (sinkObject instanceof TrackingActivity) {
+			return formatter.format((TrackingActivity) sinkObject);
+		} else if (sinkObject instanceof Snapshot) {
+			return formatter.format((Snapshot) sinkObject);
+		} else {
+			Source src = event.getEventSource() != null ? event.getEventSource() : sink.getSource();
+			String msg = Utils.getString(event.getResourceBundle(), String.valueOf(sinkObject));
+			return formatter.format(AbstractEventSink.defaultTTL(event.getTTL()), src, event.getSeverity(), msg,
+					event.getArguments());
+		}
+	}
+
+	/**
+	 * Replay the oldest spilled event directly to its sink. Events are replayed only when event queue is at most half
+	 * full and the sink is available. Events of sinks closed by application are dropped.
+	 *
+	 * @return {@code true} if an event was replayed or dropped, {@code false} if there was nothing to replay or
+	 *         replay has to be retried later
+	 */
+	protected boolean replaySpilled() {
+		if (spillQ == null || spillQ.isEmpty() || getQSize() > capacity / 2) {
+			return false;
+		}
+		SpillQueue.Record record = spillQ.peek();
+		if (record == null) {
+			return false;
+		}
+		EventSink sink = record.getSink();
+		if (record.isSinkClosed()) {
+			spillQ.remove();
+			skipCount.incrementAndGet();
+			return true;
+		}
+		try {
+			if (!isLoggable(sink)) {
+				return false;
+			}
+			if (sink instanceof AbstractEventSink) {
+				((AbstractEventSink) sink).writeFormatted(record.getPayload());
+			} else {
+				sink.write(record.getPayload());
+			}
+			spillQ.remove();
+			replayCount.incrementAndGet();
+			replayBytes.addAndGet(record.getSize());
+			return true;
+		} catch (Throwable err) {
+			exceptionCount.incrementAndGet();
+			if (errorLimiter.tryObtain(1, 0)) {
+				logger.log(OpLevel.ERROR, "Error replaying spilled event: spill.queue={}, event.sink={}", spillQ,
+						sink, err);
+			}
+			if (dropOnError) {
+				spillQ.remove();
+				skipCount.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
 	}
 
 	/**
@@ -469,14 +1381,16 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 	 *            skipped sink log event
 	 * @param ex
 	 *            skip reason
+	 * @return {@code true} if event was scheduled for retry, {@code false} if event was dropped
 	 */
-	private void skipEvent(SinkLogEvent event, Throwable ex) {
+	private boolean skipEvent(SinkLogEvent event, Throwable ex) {
 		// add logic to handle skipped event
 		event.setException(ex);
-		if (!dropOnError && (delayQ.size() < capacity)) {
-			putDelayed(event);
+		if (!dropOnError && (retryQ.size() < capacity)) {
+			return scheduleRetry(event, retryDelay(event.getSource()), TimeUnit.MILLISECONDS);
 		} else {
 			skipCount.incrementAndGet();
+			return false;
 		}
 	}
 
@@ -487,11 +1401,13 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 	 *            event instance
 	 * @param err
 	 *            exception
+	 * @return {@code true} if event was scheduled for retry, {@code false} if event was dropped
 	 */
-	private void eventError(SinkLogEvent event, Throwable err) {
+	private boolean eventError(SinkLogEvent event, Throwable err) {
+		boolean retrying = false;
 		try {
 			exceptionCount.incrementAndGet();
-			skipEvent(event, err);
+			retrying = skipEvent(event, err);
 			boolean errorPermit = errorLimiter.tryObtain(1, 0);
 			if (errorPermit) {
 				logger.log(OpLevel.ERROR,
@@ -505,6 +1421,7 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 					exceptionCount.get(), event.getEventSink().getErrorCount(), getQSize(), skipCount.get(),
 					reQCount.get(), event, ex);
 		}
+		return retrying;
 	}
 
 	/**
@@ -544,11 +1461,13 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 		try {
 			signalCount.incrementAndGet();
 			if (event.getSignalType() == SinkLogEvent.SIGNAL_CLOSE) {
+				closeSpilled(event.getEventSink());
 				close(event.getEventSink());
 			} else if (event.getSignalType() == SinkLogEvent.SIGNAL_FLUSH) {
 				event.getEventSink().flush();
 			} else if (event.getSignalType() == SinkLogEvent.SIGNAL_SHUTDOWN) {
 				shutdown(event.getException());
+				closeSpilled(event.getEventSink());
 				close(event.getEventSink());
 			}
 		} finally {
@@ -556,6 +1475,19 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 		}
 	}
 
+	/**
+	 * Mark spilled events of a sink closed by application, so they are discarded rather than reopening the sink.
+	 *
+	 * @param eSink
+	 *            event sink being closed
+	 */
+	private void closeSpilled(EventSink eSink) {
+		SpillQueue spill = spillQ;
+		if (spill != null) {
+			spill.closeSink(eSink);
+		}
+	}
+
 	private static void close(EventSink eSink) throws IOException {
 		try (eSink) {
 			eSink.flush();
@@ -567,17 +1499,19 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 	 *
 	 * @param event
 	 *            event instance
+	 * @return {@code true} if event was scheduled for retry, {@code false} otherwise
 	 * @throws IOException
 	 */
-	private void onEvent(SinkLogEvent event) throws IOException {
+	private boolean onEvent(SinkLogEvent event) throws IOException {
 		totalCount.incrementAndGet();
 		if (event.getSignal() != null) {
 			handleSignal(event);
 		} else if (isLoggable(event.getEventSink())) {
 			sendEvent(event);
 		} else {
-			skipEvent(event, null);
+			return skipEvent(event, null);
 		}
+		return false;
 	}
 
 	/**
@@ -587,23 +1521,9 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 	 *            event instance
 	 */
 	private void sendEvent(SinkLogEvent event) {
-		Object sinkObject = event.getSinkObject();
-		EventSink outSink = event.getEventSink();
-
-		if (sinkObject instanceof TrackingEvent) {
-			outSink.log((TrackingEvent) sinkObject);
-		} else if (sinkObject instanceof TrackingActivity) {
-			outSink.log((TrackingActivity) sinkObject);
-		} else if (sinkObject instanceof Snapshot) {
-			outSink.log((Snapshot) sinkObject);
-		} else if (event.getEventSource() != null) {
-			outSink.log(event.getTTL(), event.getEventSource(), event.getSeverity(), event.getResourceBundle(),
-					String.valueOf(sinkObject), event.getArguments());
-		} else {
-			outSink.log(event.getTTL(), outSink.getSource(), event.getSeverity(), event.getResourceBundle(),
-					String.valueOf(sinkObject), event.getArguments());
-		}
+		AbstractEventSink.logObject(event.getEventSink(), event);
 		loggedCount.incrementAndGet();
+		resetBackoff(event.getSource());
 	}
 
 	/**
@@ -640,12 +1560,109 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 	 */
 	private long eventComplete(long start, SinkLogEvent event) {
 		long elapsedUsec = (System.nanoTime() - start) / 1000;
-		totalServiceUsec.addAndGet(event.complete() / 1000);
+		serviceComplete(event);
 		lastServiceUsec.set(elapsedUsec);
 		totalUsec.addAndGet(elapsedUsec);
 		return elapsedUsec;
 	}
 
+	/**
+	 * Measure queue wait time and task utilization since last call and adjust number of logging tasks. Queue wait time
+	 * is estimated as average event service time (time since event creation until processed) less average processing
+	 * time. Utilization is time spent processing relative to the measurement period and number of tasks.
+	 */
+	protected void autoScale() {
+		long now = System.nanoTime();
+		long events = totalCount.get();
+		long serviceUsec = totalServiceUsec.get();
+		long busyUsec = totalUsec.get();
+		long periodUsec = (now - scaleNanos) / 1000;
+		long dEvents = events - scaleEvents;
+		long dService = serviceUsec - scaleServiceUsec;
+		long dBusy = busyUsec - scaleBusyUsec;
+		boolean first = scaleNanos == 0;
+		scaleNanos = now;
+		scaleEvents = events;
+		scaleServiceUsec = serviceUsec;
+		scaleBusyUsec = busyUsec;
+		if (first || dEvents < 0 || dService < 0 || dBusy < 0 || periodUsec <= 0) {
+			return; // no baseline yet or stats were reset
+		}
+
+		int tasks = poolSize;
+		lastEventServiceUsec = dEvents > 0 ? dBusy / dEvents : 0;
+		lastQueueWaitUsec = dEvents > 0 ? Math.max(0, dService - dBusy) / dEvents : 0;
+		lastUtilization = (int) Math.min(100, dBusy * 100 / (periodUsec * tasks));
+		boolean backlog = lastQueueWaitUsec > scaleUpWaitUsec || getQSize() > capacity / 2;
+		if (backlog) {
+			scaleDownRun = 0;
+			if (++scaleUpRun >= SCALE_UP_INTERVALS && tasks < maxPoolSize) {
+				scaleUpRun = 0;
+				addTask();
+			}
+		} else if (lastUtilization < SCALE_DOWN_UTILIZATION && lastQueueWaitUsec < scaleUpWaitUsec / 2) {
+			scaleUpRun = 0;
+			if (++scaleDownRun >= SCALE_DOWN_INTERVALS && tasks > minPoolSize && retiringTasks == 0) {
+				scaleDownRun = 0;
+				retireTask();
+			}
+		} else {
+			scaleUpRun = scaleDownRun = 0;
+		}
+	}
+
+	private synchronized void addTask() {
+		threadPool.execute(new PooledLoggingTask(this));
+		poolSize++;
+		scaleUps.incrementAndGet();
+		lastScaleDecision = "up";
+		logger.log(OpLevel.DEBUG,
+				"Scaled up: pool.name={}, tasks={}, queue.wait.usec={}, service.usec={}, utilization={}%, queue.size={}",
+				poolName, poolSize, lastQueueWaitUsec, lastEventServiceUsec, lastUtilization, getQSize());
+	}
+
+	private synchronized void retireTask() {
+		// terminate signal stops exactly one logging task, whichever takes it; signal events carry a thread, so that
+		// queues never evict them
+		if (eventQ.offer(new SinkLogEvent(this, Thread.currentThread(), SinkLogEvent.SIGNAL_TERMINATE))) {
+			retiringTasks++;
+			lastScaleDecision = "down";
+		}
+	}
+
+	/**
+	 * Called by logging task stopping after taking a {@link SinkLogEvent#SIGNAL_TERMINATE} event. Pool size is
+	 * decreased only for tasks retired by auto scaling, since tasks stopped by {@link #terminate()} are stopped all at
+	 * once.
+	 */
+	synchronized void taskStopped() {
+		if (retiringTasks > 0) {
+			retiringTasks--;
+			poolSize--;
+			scaleDowns.incrementAndGet();
+			logger.log(OpLevel.DEBUG,
+					"Scaled down: pool.name={}, tasks={}, queue.wait.usec={}, service.usec={}, utilization={}%",
+					poolName, poolSize, lastQueueWaitUsec, lastEventServiceUsec, lastUtilization);
+		}
+	}
+
+	/**
+	 * Record event service time: time since event creation until its processing completed
+	 *
+	 * @param event
+	 *            event instance
+	 */
+	private void serviceComplete(SinkLogEvent event) {
+		long serviceUsec = event.complete() / 1000;
+		totalServiceUsec.addAndGet(serviceUsec);
+		if (shards.length > 1) {
+			int shard = shardOf(event.getSource());
+			shardEvents.incrementAndGet(shard);
+			shardLatencyUsec.addAndGet(shard, serviceUsec);
+			shardLastLatencyUsec.set(shard, serviceUsec);
+		}
+	}
+
 	/**
 	 * Fully process a single event
 	 *
@@ -654,15 +1671,105 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 	 */
 	protected void processEvent(SinkLogEvent event) {
 		long start = System.nanoTime();
+		boolean retrying = false;
 		try {
-			onEvent(event);
+			retrying = onEvent(event);
 		} catch (Throwable err) {
-			eventError(event, err);
+			retrying = eventError(event, err);
 		} finally {
 			eventComplete(start, event);
+			if (!retrying) {
+				recycle(event);
+			}
 		}
 	}
 
+	/**
+	 * Fully process a batch of events. Events are grouped by event sink and each group is written to its sink using a
+	 * single {@link EventSink#log(java.util.Collection)} call. Signal events flush pending groups first and then are
+	 * processed individually, preserving signal order relative to other events.
+	 *
+	 * @param batch
+	 *            list of events to process
+	 */
+	protected void processEvents(List<SinkLogEvent> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		batchCount.incrementAndGet();
+		if (batch.size() == 1) {
+			processEvent(batch.get(0));
+			return;
+		}
+		Map<EventSink, List<SinkLogEvent>> groups = batchGroups.get();
+		for (SinkLogEvent event : batch) {
+			if (event.getSignal() != null) {
+				processGroups(groups);
+				processEvent(event);
+			} else {
+				groups.computeIfAbsent(event.getEventSink(), sink -> new ArrayList<>()).add(event);
+			}
+		}
+		processGroups(groups);
+	}
+
+	private void processGroups(Map<EventSink, List<SinkLogEvent>> groups) {
+		// group lists are reused across batches, unless there are too many sinks
+		for (Map.Entry<EventSink, List<SinkLogEvent>> group : groups.entrySet()) {
+			List<SinkLogEvent> events = group.getValue();
+			if (!events.isEmpty()) {
+				try {
+					processGroup(group.getKey(), events);
+				} finally {
+					events.clear();
+				}
+			}
+		}
+		if (groups.size() > MAX_CACHED_GROUPS) {
+			groups.clear();
+		}
+	}
+
+	/**
+	 * Fully process a group of events designated to the same event sink
+	 *
+	 * @param sink
+	 *            event sink
+	 * @param events
+	 *            list of events to write into the sink
+	 */
+	private void processGroup(EventSink sink, List<SinkLogEvent> events) {
+		if (events.size() == 1) {
+			processEvent(events.get(0));
+			return;
+		}
+		long start = System.nanoTime();
+		boolean logged = false;
+		Throwable error = null;
+		try {
+			totalCount.addAndGet(events.size());
+			if (isLoggable(sink)) {
+				sink.log(events);
+				loggedCount.addAndGet(events.size());
+				batchWrites.incrementAndGet();
+				resetBackoff(sink);
+				logged = true;
+			}
+		} catch (Throwable err) {
+			error = err;
+		}
+		long elapsedUsec = (System.nanoTime() - start) / 1000;
+		for (SinkLogEvent event : events) {
+			serviceComplete(event);
+			boolean retrying = !logged && (error == null ? skipEvent(event, null) : eventError(event, error));
+			if (!retrying) {
+				recycle(event);
+			}
+		}
+		lastServiceUsec.set(elapsedUsec);
+		totalUsec.addAndGet(elapsedUsec);
+	}
+
 	/**
 	 * Start the thread pool and all threads in this pooled logger.
 	 */
@@ -670,16 +1777,55 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 		if (started) {
 			return;
 		}
-		NamedThreadFactory tFactory = new NamedThreadFactory(
-				"PooledLoggingTask(" + poolName + "," + poolSize + "," + capacity + ")/task-");
-		threadPool = Executors.newFixedThreadPool((poolSize + 1), tFactory);
+		String tPrefix = "PooledLoggingTask(" + poolName + "," + poolSize + "," + capacity + ")/task-";
+		ThreadFactory tFactory = null;
+		if (virtualThreads) {
+			tFactory = NamedThreadFactory.newVirtualThreadFactory(tPrefix);
+			if (tFactory == null) {
+				logger.log(OpLevel.WARNING,
+						"Virtual threads are not supported, using platform threads: pool.name={}, java.version={}",
+						poolName, System.getProperty("java.version"));
+				virtualThreads = false;
+			}
+		}
+		if (tFactory == null) {
+			tFactory = new NamedThreadFactory(tPrefix);
+		}
+		openSpill();
+		if (isAutoScale()) {
+			int maxThreads = maxPoolSize + (spillQ != null ? 3 : 2);
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(), tFactory);
+			executor.allowCoreThreadTimeOut(true); // release threads of retired tasks
+			threadPool = executor;
+		} else {
+			threadPool = Executors.newFixedThreadPool((poolSize + (spillQ != null ? 2 : 1)), tFactory);
+		}
 		for (int i = 0; i < poolSize; i++) {
-			threadPool.execute(new PooledLoggingTask(this));
+			threadPool.execute(new PooledLoggingTask(this, i % shards.length));
 		}
 		threadPool.execute(new DelayedLoggingTask(this));
+		if (isAutoScale()) {
+			threadPool.execute(new AutoScaleTask(this));
+		}
+		if (spillQ != null) {
+			threadPool.execute(new SpillReplayTask(this));
+		}
 		started = true;
 	}
 
+	private void openSpill() {
+		if (spillDir == null) {
+			return;
+		}
+		try {
+			spillQ = new SpillQueue(spillDir, "pooled-" + poolName, spillSegmentSize, spillMaxSize);
+		} catch (Throwable exc) {
+			logger.log(OpLevel.ERROR, "Unable to enable event spilling, events will be dropped: spill.dir={}",
+					spillDir, exc);
+		}
+	}
+
 	/**
 	 * Stop the thread pool and all threads in this pooled logger.
 	 */
@@ -697,4 +1843,26 @@ public class PooledLogger implements KeyValueStats, IOShutdown {
 			started = false;
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Retry backoff state of an event sink.
+	 */
+	private static class Backoff {
+		long delay;
+		long nextStepNanos;
+
+		Backoff(long delay) {
+			this.delay = delay;
+			this.nextStepNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+		}
+
+		synchronized long nextDelay(long maxDelay) {
+			long now = System.nanoTime();
+			if (now - nextStepNanos >= 0 && delay < maxDelay) {
+				delay = Math.min(maxDelay, Math.max(1, delay << 1));
+				nextStepNanos = now + TimeUnit.MILLISECONDS.toNanos(delay);
+			}
+			return delay;
+		}
+	}
+}
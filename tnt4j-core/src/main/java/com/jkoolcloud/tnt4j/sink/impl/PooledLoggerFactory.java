@@ -40,4 +40,20 @@ public interface PooledLoggerFactory {
 	 * @see PooledLogger
 	 */
 	Map<String, PooledLogger> getPooledLoggers();
+
+	/**
+	 * Drains pending events of pooled loggers available from this factory, which have drain timeout set.
+	 *
+	 * @return {@code true} if all loggers were drained, {@code false} otherwise
+	 * @see PooledLogger#drain(long, java.util.concurrent.TimeUnit)
+	 */
+	boolean drainLoggers();
+
+	/**
+	 * Waits for shut down pooled loggers available from this factory, which have drain timeout set, to terminate.
+	 *
+	 * @return {@code true} if all loggers terminated, {@code false} otherwise
+	 * @see PooledLogger#awaitTermination(long, java.util.concurrent.TimeUnit)
+	 */
+	boolean awaitLoggers();
 }
@@ -15,14 +15,22 @@
  */
 package com.jkoolcloud.tnt4j.sink.impl;
 
+import java.io.File;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.jkoolcloud.tnt4j.FlushShutdown;
 import com.jkoolcloud.tnt4j.config.ConfigException;
 import com.jkoolcloud.tnt4j.config.Configurable;
+import com.jkoolcloud.tnt4j.sink.SinkLogEventPool;
+import com.jkoolcloud.tnt4j.sink.impl.LaneSinkEventQueue.DropPolicy;
+import com.jkoolcloud.tnt4j.sink.impl.LaneSinkEventQueue.Lane;
+import com.jkoolcloud.tnt4j.sink.impl.LaneSinkEventQueue.LaneConfig;
 import com.jkoolcloud.tnt4j.utils.Utils;
 
 /**
@@ -43,14 +51,49 @@ public class PooledLoggerFactoryImpl implements PooledLoggerFactory, Configurabl
 	private static final long RETRY_INTERVAL = Long.getLong("tnt4j.pooled.logger.retry.interval",
 			TimeUnit.SECONDS.toMillis(5));
 	private static final boolean DROP_ON_EXCEPTION = Boolean.getBoolean("tnt4j.pooled.logger.drop.on.error");
+	private static final String QUEUE_TYPE = System.getProperty("tnt4j.pooled.logger.queue.type",
+			SinkEventQueue.QueueType.RING.name());
+	private static final String WAIT_STRATEGY = System.getProperty("tnt4j.pooled.logger.wait.strategy",
+			WaitStrategy.BLOCKING.name());
+	private static final boolean VIRTUAL_THREADS = PooledLogger.DEFAULT_VIRTUAL_THREADS;
+	private static final boolean RECYCLE_EVENTS = Boolean.getBoolean("tnt4j.pooled.logger.recycle.events");
+	private static final boolean SHARDED = Boolean.getBoolean("tnt4j.pooled.logger.sharded");
+	private static final boolean SPILL = Boolean.getBoolean("tnt4j.pooled.logger.spill");
+	private static final String SPILL_DIR = System.getProperty("tnt4j.pooled.logger.spill.dir",
+			new File(System.getProperty("java.io.tmpdir"), "tnt4j-spill").getPath());
+	private static final int SPILL_SEGMENT_SIZE = Integer.getInteger("tnt4j.pooled.logger.spill.segment.size",
+			16 * 1024 * 1024);
+	private static final long SPILL_MAX_SIZE = Long.getLong("tnt4j.pooled.logger.spill.max.size",
+			256L * 1024 * 1024);
 
+	private static final long DRAIN_TIMEOUT = PooledLogger.DEFAULT_DRAIN_TIMEOUT_MS;
 	private static final ConcurrentMap<String, PooledLogger> POOLED_LOGGERS = new ConcurrentHashMap<>();
+	private static final AtomicBoolean SHUTDOWN_REGISTERED = new AtomicBoolean(false);
 
 	int poolSize = MAX_POOL_SIZE;
 	int capacity = MAX_CAPACITY;
+	int minPoolSize = MAX_POOL_SIZE;
+	int maxPoolSize = MAX_POOL_SIZE;
+	long scaleInterval = PooledLogger.DEFAULT_SCALE_INTERVAL_MS;
+	long scaleUpWaitUsec = PooledLogger.DEFAULT_SCALE_UP_WAIT_USEC;
 	long retryInterval = RETRY_INTERVAL;
+	long maxRetryInterval = PooledLogger.DEFAULT_MAX_RETRY_INTERVAL;
+	int retryJitter = PooledLogger.DEFAULT_RETRY_JITTER;
+	int maxRetryAttempts = PooledLogger.DEFAULT_MAX_RETRY_ATTEMPTS;
 	boolean dropOnError = DROP_ON_EXCEPTION;
+	int batchSize = PooledLogger.DEFAULT_BATCH_SIZE;
+	long batchTimeUsec = PooledLogger.DEFAULT_BATCH_TIME_USEC;
+	boolean sharded = SHARDED;
+	boolean recycleEvents = RECYCLE_EVENTS;
+	boolean virtualThreads = VIRTUAL_THREADS;
+	boolean spill = SPILL;
+	String spillDir = SPILL_DIR;
+	int spillSegmentSize = SPILL_SEGMENT_SIZE;
+	long spillMaxSize = SPILL_MAX_SIZE;
+	long drainTimeout = DRAIN_TIMEOUT;
 	String poolName = DEFAULT_POOL_NAME;
+	SinkEventQueue.QueueType queueType = SinkEventQueue.QueueType.valueOf(QUEUE_TYPE.toUpperCase());
+	WaitStrategy waitStrategy = WaitStrategy.valueOf(WAIT_STRATEGY.toUpperCase());
 	protected Map<String, ?> props;
 
 	/**
@@ -95,15 +138,115 @@ public class PooledLoggerFactoryImpl implements PooledLoggerFactory, Configurabl
 		poolName = Utils.getString("Name", settings, DEFAULT_POOL_NAME);
 		poolSize = Utils.getInt("Size", settings, MAX_POOL_SIZE);
 		capacity = Utils.getInt("Capacity", settings, MAX_CAPACITY);
+		minPoolSize = Utils.getInt("MinSize", settings, poolSize);
+		maxPoolSize = Utils.getInt("MaxSize", settings, poolSize);
+		scaleInterval = Utils.getLong("ScaleInterval", settings, PooledLogger.DEFAULT_SCALE_INTERVAL_MS);
+		scaleUpWaitUsec = Utils.getLong("ScaleUpWaitUsec", settings, PooledLogger.DEFAULT_SCALE_UP_WAIT_USEC);
 		retryInterval = Utils.getLong("RetryInterval", settings, RETRY_INTERVAL);
+		maxRetryInterval = Utils.getLong("MaxRetryInterval", settings, PooledLogger.DEFAULT_MAX_RETRY_INTERVAL);
+		retryJitter = Utils.getInt("RetryJitter", settings, PooledLogger.DEFAULT_RETRY_JITTER);
+		maxRetryAttempts = Utils.getInt("MaxRetryAttempts", settings, PooledLogger.DEFAULT_MAX_RETRY_ATTEMPTS);
 		dropOnError = Utils.getBoolean("DropOnError", settings, DROP_ON_EXCEPTION);
-		// create and register pooled logger instance if not yet available
-		PooledLogger pooledLogger = new PooledLogger(poolName, poolSize, capacity);
+		batchSize = Utils.getInt("BatchSize", settings, PooledLogger.DEFAULT_BATCH_SIZE);
+		batchTimeUsec = Utils.getLong("BatchTimeUsec", settings, PooledLogger.DEFAULT_BATCH_TIME_USEC);
+		sharded = Utils.getBoolean("Sharded", settings, SHARDED);
+		recycleEvents = Utils.getBoolean("RecycleEvents", settings, RECYCLE_EVENTS);
+		virtualThreads = Utils.getBoolean("VirtualThreads", settings, VIRTUAL_THREADS);
+		spill = Utils.getBoolean("Spill", settings, SPILL);
+		spillDir = Utils.getString("SpillDir", settings, SPILL_DIR);
+		spillSegmentSize = Utils.getInt("SpillSegmentSize", settings, SPILL_SEGMENT_SIZE);
+		spillMaxSize = Utils.getLong("SpillMaxSize", settings, SPILL_MAX_SIZE);
+		drainTimeout = Utils.getLong("DrainTimeout", settings, DRAIN_TIMEOUT);
+		String qType = Utils.getString("QueueType", settings, QUEUE_TYPE);
+		String wStrategy = Utils.getString("WaitStrategy", settings, WAIT_STRATEGY);
+		PooledLogger pooledLogger;
+		try {
+			queueType = SinkEventQueue.QueueType.valueOf(qType.toUpperCase());
+			waitStrategy = WaitStrategy.valueOf(wStrategy.toUpperCase());
+			// create and register pooled logger instance if not yet available
+			if (sharded && poolSize > 1) {
+				SinkEventQueue[] shards = new SinkEventQueue[poolSize];
+				for (int i = 0; i < shards.length; i++) {
+					shards[i] = newQueue(Math.max(1, capacity / poolSize), settings);
+				}
+				pooledLogger = new PooledLogger(poolName, shards);
+			} else {
+				pooledLogger = new PooledLogger(poolName, poolSize, newQueue(capacity, settings));
+			}
+		} catch (IllegalArgumentException exc) {
+			throw new ConfigException(exc.getLocalizedMessage(), settings);
+		}
 		pooledLogger.dropOnError(dropOnError);
+		pooledLogger.setVirtualThreads(virtualThreads);
+		if (recycleEvents) {
+			// queued events plus events held by logging tasks in their batches
+			int inFlight = Math.max(poolSize, maxPoolSize) * Math.max(1, batchSize);
+			pooledLogger.setEventPool(new SinkLogEventPool(capacity + inFlight));
+		}
+		if (!sharded) {
+			pooledLogger.setAutoScale(minPoolSize, maxPoolSize);
+			pooledLogger.setScaleInterval(scaleInterval);
+			pooledLogger.setScaleUpWaitUsec(scaleUpWaitUsec);
+		}
 		pooledLogger.setRetryInterval(retryInterval);
+		pooledLogger.setMaxRetryInterval(maxRetryInterval);
+		pooledLogger.setRetryJitter(retryJitter);
+		pooledLogger.setMaxRetryAttempts(maxRetryAttempts);
+		pooledLogger.setBatchSize(batchSize);
+		pooledLogger.setBatchTimeUsec(batchTimeUsec);
+		pooledLogger.setDrainTimeout(drainTimeout);
+		if (spill) {
+			pooledLogger.setSpill(new File(spillDir), spillSegmentSize, spillMaxSize);
+		}
 		if (POOLED_LOGGERS.putIfAbsent(poolName, pooledLogger) == null) {
 			pooledLogger.start();
 		}
+		// loggers are shared by all factory instances, so one instance drains all of them on shutdown
+		if (drainTimeout > 0 && SHUTDOWN_REGISTERED.compareAndSet(false, true)) {
+			FlushShutdown.addPooledLoggerFactory(this);
+		}
+	}
+
+	/**
+	 * Create event queue of configured type.
+	 *
+	 * @param qCapacity
+	 *            queue capacity
+	 * @param settings
+	 *            configuration settings
+	 * @return event queue instance
+	 */
+	private SinkEventQueue newQueue(int qCapacity, Map<String, ?> settings) {
+		if (queueType == SinkEventQueue.QueueType.LANES) {
+			return new LaneSinkEventQueue(getLanesConfig(qCapacity, settings), waitStrategy);
+		}
+		return queueType.newQueue(qCapacity, waitStrategy);
+	}
+
+	/**
+	 * Build severity lanes configuration. Each lane is configured using {@code <Lane>LaneCapacity},
+	 * {@code <Lane>LaneWeight} and {@code <Lane>LaneDropPolicy} properties, e.g. {@code HighLaneCapacity}, defaults
+	 * are taken from {@link LaneSinkEventQueue#defaultLanes(int)} for a given queue capacity. Configured lane
+	 * capacities apply to every queue shard when pooled logger is sharded.
+	 *
+	 * @param qCapacity
+	 *            queue capacity
+	 * @param settings
+	 *            configuration settings
+	 * @return severity lanes configuration
+	 */
+	private Map<Lane, LaneConfig> getLanesConfig(int qCapacity, Map<String, ?> settings) {
+		Map<Lane, LaneConfig> defaults = LaneSinkEventQueue.defaultLanes(qCapacity);
+		Map<Lane, LaneConfig> lanes = new EnumMap<>(Lane.class);
+		for (Lane lane : Lane.values()) {
+			LaneConfig def = defaults.get(lane);
+			String prefix = lane.name().charAt(0) + lane.name().substring(1).toLowerCase() + "Lane";
+			int laneCapacity = Utils.getInt(prefix + "Capacity", settings, def.capacity);
+			int laneWeight = Utils.getInt(prefix + "Weight", settings, def.weight);
+			String policy = Utils.getString(prefix + "DropPolicy", settings, def.dropPolicy.name());
+			lanes.put(lane, new LaneConfig(laneCapacity, laneWeight, DropPolicy.valueOf(policy.toUpperCase())));
+		}
+		return lanes;
 	}
 
 	/**
@@ -115,4 +258,64 @@ public class PooledLoggerFactoryImpl implements PooledLoggerFactory, Configurabl
 		}
 		POOLED_LOGGERS.clear();
 	}
+
+	@Override
+	public boolean drainLoggers() {
+		return drainAllLoggers();
+	}
+
+	@Override
+	public boolean awaitLoggers() {
+		return awaitAllLoggers();
+	}
+
+	/**
+	 * Drains pending events of all pooled loggers having drain timeout set. Loggers are drained one by one, sharing
+	 * a deadline of the largest drain timeout.
+	 *
+	 * @return {@code true} if all loggers were drained, {@code false} otherwise
+	 * @see PooledLogger#drain(long, TimeUnit)
+	 */
+	public static boolean drainAllLoggers() {
+		long deadline = System.currentTimeMillis() + getMaxDrainTimeout();
+		boolean drained = true;
+		for (PooledLogger pl : POOLED_LOGGERS.values()) {
+			if (pl.getDrainTimeout() > 0) {
+				drained &= pl.drain(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+			}
+		}
+		return drained;
+	}
+
+	/**
+	 * Waits for shut down pooled loggers having drain timeout set to terminate, waiting no longer than the largest
+	 * drain timeout.
+	 *
+	 * @return {@code true} if all loggers terminated, {@code false} otherwise
+	 * @see PooledLogger#awaitTermination(long, TimeUnit)
+	 */
+	public static boolean awaitAllLoggers() {
+		long deadline = System.currentTimeMillis() + getMaxDrainTimeout();
+		boolean terminated = true;
+		try {
+			for (PooledLogger pl : POOLED_LOGGERS.values()) {
+				if (pl.getDrainTimeout() > 0 && pl.isShut()) {
+					terminated &= pl.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()),
+							TimeUnit.MILLISECONDS);
+				}
+			}
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		return terminated;
+	}
+
+	private static long getMaxDrainTimeout() {
+		long maxTimeout = 0;
+		for (PooledLogger pl : POOLED_LOGGERS.values()) {
+			maxTimeout = Math.max(maxTimeout, pl.getDrainTimeout());
+		}
+		return maxTimeout;
+	}
 }
@@ -15,31 +15,50 @@
  */
 package com.jkoolcloud.tnt4j.sink.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.jkoolcloud.tnt4j.core.OpLevel;
 import com.jkoolcloud.tnt4j.sink.SinkLogEvent;
 
 /**
- * This class implements a task for asynchronous handling and delivery of logging events to various event sinks.
+ * This class implements a task for asynchronous handling and delivery of logging events to various event sinks. Events
+ * are drained from the pooled logger queue and delivered in batches.
  *
  * @version $Revision: 1 $
  * 
- * @see com.jkoolcloud.tnt4j.sink.impl.PooledLogger#takeEvent()
- * @see com.jkoolcloud.tnt4j.sink.impl.PooledLogger#processEvent(com.jkoolcloud.tnt4j.sink.SinkLogEvent)
+ * @see com.jkoolcloud.tnt4j.sink.impl.PooledLogger#takeEvents(int, java.util.List)
+ * @see com.jkoolcloud.tnt4j.sink.impl.PooledLogger#processEvents(java.util.List)
  */
 class PooledLoggingTask extends AbstractPoolLoggingTask {
+	private final int shard;
+
 	protected PooledLoggingTask(PooledLogger logger) {
+		this(logger, 0);
+	}
+
+	protected PooledLoggingTask(PooledLogger logger, int shard) {
 		super(logger);
+		this.shard = shard;
 	}
 
 	@Override
 	public void run() {
+		List<SinkLogEvent> batch = new ArrayList<>(pooledLogger.getBatchSize());
 		try {
 			while (!isCanceled()) {
-				SinkLogEvent event = pooledLogger.takeEvent();
-				if (event.getSignalType() == SinkLogEvent.SIGNAL_TERMINATE) {
+				int count = pooledLogger.takeEvents(shard, batch);
+				if (batch.get(count - 1).getSignalType() == SinkLogEvent.SIGNAL_TERMINATE) {
+					batch.remove(count - 1);
 					cancel();
-				} else {
-					pooledLogger.processEvent(event);
+					pooledLogger.taskStopped();
+				}
+				pooledLogger.busyTasks.incrementAndGet();
+				try {
+					pooledLogger.processEvents(batch);
+				} finally {
+					batch.clear();
+					pooledLogger.busyTasks.decrementAndGet();
 				}
 			}
 		} catch (Throwable e) {
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * This class implements a hashed timing wheel used by {@link PooledLogger} to schedule retries of failed events. Time
+ * is divided into ticks of a fixed duration and each element is stored in the wheel bucket of its expiration tick,
+ * modulo wheel size. Elements expiring more than one wheel revolution ahead stay in their bucket until their tick is
+ * reached. Scheduling an element is {@code O(1)}, and expiring a tick only touches a single bucket.
+ * </p>
+ *
+ * <p>
+ * Buckets keep elements and their expiration ticks in parallel arrays which grow on demand and are reused, so
+ * scheduling does not allocate a wrapper object per element. Expiration accuracy is bounded by the tick duration.
+ * </p>
+ *
+ * @param <T>
+ *            type of scheduled elements
+ *
+ * @version $Revision: 1 $
+ *
+ * @see PooledLogger#putDelayed(com.jkoolcloud.tnt4j.sink.SinkLogEvent, long, TimeUnit)
+ */
+public class RetryWheel<T> {
+	private static final int INITIAL_BUCKET_SIZE = 16;
+
+	private final long tickNanos;
+	private final long startNanos = System.nanoTime();
+	private final Bucket[] wheel;
+	private final int mask;
+	private long currentTick = 0;
+	private volatile int size = 0;
+
+	/**
+	 * Create a timing wheel with a given tick duration and number of buckets.
+	 *
+	 * @param tickMillis
+	 *            tick duration in milliseconds
+	 * @param wheelSize
+	 *            number of wheel buckets, rounded up to a power of two
+	 */
+	public RetryWheel(long tickMillis, int wheelSize) {
+		if (tickMillis <= 0) {
+			throw new IllegalArgumentException("Tick duration must be positive: tick.ms=" + tickMillis);
+		}
+		int buckets = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		this.wheel = new Bucket[buckets];
+		this.mask = buckets - 1;
+		for (int i = 0; i < wheel.length; i++) {
+			wheel[i] = new Bucket();
+		}
+	}
+
+	/**
+	 * Schedule an element to expire after a given delay.
+	 *
+	 * @param element
+	 *            element to schedule
+	 * @param delay
+	 *            delay before element expires
+	 * @param unit
+	 *            time unit for delay
+	 */
+	public synchronized void schedule(T element, long delay, TimeUnit unit) {
+		long deadline = System.nanoTime() - startNanos + unit.toNanos(Math.max(0, delay));
+		long tick = Math.max(currentTick + 1, (deadline + tickNanos - 1) / tickNanos);
+		wheel[(int) (tick & mask)].add(element, tick);
+		size++;
+	}
+
+	/**
+	 * Wait until next tick is due and move all elements expired by then into a given collection.
+	 *
+	 * @param expired
+	 *            collection to add expired elements to
+	 * @return number of expired elements
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public int expire(Collection<? super T> expired) throws InterruptedException {
+		long nextTick;
+		synchronized (this) {
+			nextTick = currentTick + 1;
+		}
+		long waitNanos = nextTick * tickNanos - (System.nanoTime() - startNanos);
+		if (waitNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+		synchronized (this) {
+			long nowTick = (System.nanoTime() - startNanos) / tickNanos;
+			long ticks = Math.min(nowTick - currentTick, wheel.length);
+			int count = 0;
+			for (long i = 1; i <= ticks; i++) {
+				count += wheel[(int) ((currentTick + i) & mask)].expire(nowTick, expired);
+			}
+			currentTick = Math.max(currentTick, nowTick);
+			size -= count;
+			return count;
+		}
+	}
+
+	/**
+	 * Obtain number of elements scheduled in this wheel.
+	 *
+	 * @return number of scheduled elements
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Obtain tick duration.
+	 *
+	 * @return tick duration in milliseconds
+	 */
+	public long getTickMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(tickNanos);
+	}
+
+	/**
+	 * Obtain number of wheel buckets.
+	 *
+	 * @return number of wheel buckets
+	 */
+	public int getWheelSize() {
+		return wheel.length;
+	}
+
+	/**
+	 * Remove all elements from this wheel, adding them to a given collection regardless of their expiration.
+	 *
+	 * @param elements
+	 *            collection to add removed elements to
+	 * @return number of removed elements
+	 */
+	public synchronized int drainTo(Collection<? super T> elements) {
+		int count = 0;
+		for (Bucket bucket : wheel) {
+			count += bucket.expire(Long.MAX_VALUE, elements);
+		}
+		size -= count;
+		return count;
+	}
+
+	/**
+	 * Remove all elements from this wheel.
+	 */
+	public synchronized void clear() {
+		for (Bucket bucket : wheel) {
+			bucket.clear();
+		}
+		size = 0;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() //
+				+ "{size: " + size() //
+				+ ", tick.ms: " + getTickMillis() //
+				+ ", wheel.size: " + getWheelSize() //
+				+ "}";
+	}
+
+	private static class Bucket {
+		Object[] elements = new Object[INITIAL_BUCKET_SIZE];
+		long[] ticks = new long[INITIAL_BUCKET_SIZE];
+		int count = 0;
+
+		void add(Object element, long tick) {
+			if (count == elements.length) {
+				elements = Arrays.copyOf(elements, count << 1);
+				ticks = Arrays.copyOf(ticks, count << 1);
+			}
+			elements[count] = element;
+			ticks[count] = tick;
+			count++;
+		}
+
+		@SuppressWarnings("unchecked")
+		<T> int expire(long nowTick, Collection<? super T> expired) {
+			int kept = 0;
+			for (int i = 0; i < count; i++) {
+				if (ticks[i] <= nowTick) {
+					expired.add((T) elements[i]);
+				} else {
+					elements[kept] = elements[i];
+					ticks[kept] = ticks[i];
+					kept++;
+				}
+			}
+			Arrays.fill(elements, kept, count, null);
+			int removed = count - kept;
+			count = kept;
+			return removed;
+		}
+
+		void clear() {
+			Arrays.fill(elements, 0, count, null);
+			count = 0;
+		}
+	}
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.jkoolcloud.tnt4j.sink.SinkLogEvent;
+
+/**
+ * <p>
+ * This class implements a pre-allocated, lock-free bounded ring buffer {@link SinkEventQueue}. Each slot carries a
+ * sequence number, producers claim slots by a single CAS on the tail sequence and publish events by advancing slot
+ * sequence. Consumers use the same protocol on the head sequence, so a ring can be shared by a pool of logging tasks,
+ * while with a single consumer it behaves as a multi-producer/single-consumer queue.
+ * </p>
+ *
+ * <p>
+ * Ring size is the configured capacity rounded up to the nearest power of two, so slots can be indexed by a mask, but
+ * the queue never holds more than the configured capacity: {@link #capacity()} and full queue checks use the configured
+ * value. Producers and consumers wait (when queue is full or empty
+ * accordingly) using configured {@link WaitStrategy}. Locks are only used by {@link WaitStrategy#BLOCKING} strategy
+ * and only while there are threads waiting.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see PooledLogger
+ * @see WaitStrategy
+ */
+public class RingBufferSinkEventQueue implements SinkEventQueue {
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	private final int capacity;
+	private final int ringSize;
+	private final int mask;
+	private final AtomicReferenceArray<SinkLogEvent> slots;
+	private final AtomicLongArray sequences;
+	private final AtomicLong head = new AtomicLong(0);
+	private final AtomicLong tail = new AtomicLong(0);
+	private final WaitStrategy waitStrategy;
+
+	// used by WaitStrategy.BLOCKING only
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	private final AtomicInteger takersWaiting = new AtomicInteger(0);
+	private final AtomicInteger puttersWaiting = new AtomicInteger(0);
+
+	/**
+	 * Create a ring buffer queue with a given capacity and {@link WaitStrategy#BLOCKING} wait strategy.
+	 *
+	 * @param capacity
+	 *            queue capacity
+	 */
+	public RingBufferSinkEventQueue(int capacity) {
+		this(capacity, WaitStrategy.BLOCKING);
+	}
+
+	/**
+	 * Create a ring buffer queue with a given capacity and wait strategy.
+	 *
+	 * @param capacity
+	 *            queue capacity
+	 * @param strategy
+	 *            strategy used by producers and consumers to wait on full/empty queue
+	 */
+	public RingBufferSinkEventQueue(int capacity, WaitStrategy strategy) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: capacity=" + capacity);
+		}
+		this.ringSize = ceilingPowerOfTwo(capacity);
+		this.capacity = Math.min(capacity, ringSize);
+		this.mask = ringSize - 1;
+		this.waitStrategy = strategy == null ? WaitStrategy.BLOCKING : strategy;
+		this.slots = new AtomicReferenceArray<>(ringSize);
+		this.sequences = new AtomicLongArray(ringSize);
+		for (int i = 0; i < ringSize; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	private static int ceilingPowerOfTwo(int value) {
+		if (value >= MAX_CAPACITY) {
+			return MAX_CAPACITY;
+		}
+		return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+	}
+
+	/**
+	 * Obtain wait strategy used by this queue.
+	 *
+	 * @return wait strategy
+	 */
+	public WaitStrategy getWaitStrategy() {
+		return waitStrategy;
+	}
+
+	@Override
+	public boolean offer(SinkLogEvent event) {
+		if (event == null) {
+			throw new NullPointerException("Event must not be null");
+		}
+		long pos = tail.get();
+		for (;;) {
+			// head only moves forward, so a stale head over-estimates size and never lets queue exceed capacity
+			if (pos - head.get() >= capacity) {
+				return false;
+			}
+			int idx = (int) (pos & mask);
+			long dif = sequences.get(idx) - pos;
+			if (dif == 0) {
+				if (tail.compareAndSet(pos, pos + 1)) {
+					slots.lazySet(idx, event);
+					sequences.set(idx, pos + 1);
+					signal(takersWaiting, notEmpty);
+					return true;
+				}
+				pos = tail.get();
+			} else if (dif < 0) {
+				return false; // slot not yet consumed: queue is full
+			} else {
+				pos = tail.get();
+			}
+		}
+	}
+
+	@Override
+	public SinkLogEvent poll() {
+		long pos = head.get();
+		for (;;) {
+			int idx = (int) (pos & mask);
+			long dif = sequences.get(idx) - (pos + 1);
+			if (dif == 0) {
+				if (head.compareAndSet(pos, pos + 1)) {
+					SinkLogEvent event = slots.get(idx);
+					slots.lazySet(idx, null);
+					sequences.set(idx, pos + ringSize);
+					signal(puttersWaiting, notFull);
+					return event;
+				}
+				pos = head.get();
+			} else if (dif < 0) {
+				return null; // slot not yet published: queue is empty
+			} else {
+				pos = head.get();
+			}
+		}
+	}
+
+	@Override
+	public void put(SinkLogEvent event) throws InterruptedException {
+		int counter = 0;
+		while (!offer(event)) {
+			if (waitStrategy == WaitStrategy.BLOCKING) {
+				await(puttersWaiting, notFull, true, Long.MAX_VALUE);
+			} else {
+				counter = waitStrategy.idle(counter);
+			}
+		}
+	}
+
+	@Override
+	public SinkLogEvent take() throws InterruptedException {
+		int counter = 0;
+		SinkLogEvent event;
+		while ((event = poll()) == null) {
+			if (waitStrategy == WaitStrategy.BLOCKING) {
+				await(takersWaiting, notEmpty, false, Long.MAX_VALUE);
+			} else {
+				counter = waitStrategy.idle(counter);
+			}
+		}
+		return event;
+	}
+
+	@Override
+	public SinkLogEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		int counter = 0;
+		SinkLogEvent event;
+		while ((event = poll()) == null) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return null;
+			}
+			if (waitStrategy == WaitStrategy.BLOCKING) {
+				await(takersWaiting, notEmpty, false, remaining);
+			} else {
+				counter = waitStrategy.idle(counter);
+			}
+		}
+		return event;
+	}
+
+	/**
+	 * Wait on a given condition until woken up, queue state changes or wait time elapses.
+	 */
+	private void await(AtomicInteger waiters, Condition cond, boolean forSpace, long nanos)
+			throws InterruptedException {
+		waiters.incrementAndGet();
+		try {
+			lock.lockInterruptibly();
+			try {
+				// re-check under lock: signaling side takes the same lock only after publishing its change
+				if (forSpace ? size() >= capacity : isEmpty()) {
+					cond.awaitNanos(Math.min(nanos, WaitStrategy.MAX_PARK_NANOS * 100));
+				}
+			} finally {
+				lock.unlock();
+			}
+		} finally {
+			waiters.decrementAndGet();
+		}
+	}
+
+	private void signal(AtomicInteger waiters, Condition cond) {
+		if (waitStrategy == WaitStrategy.BLOCKING && waiters.get() > 0) {
+			lock.lock();
+			try {
+				cond.signal();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		// read head first so that computed size is never negative
+		long h = head.get();
+		long t = tail.get();
+		long size = t - h;
+		return size < 0 ? 0 : size > capacity ? capacity : (int) size;
+	}
+
+	@Override
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	@Override
+	public void clear() {
+		while (poll() != null) {
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() //
+				+ "{size: " + size() //
+				+ ", capacity: " + capacity //
+				+ ", ring.size: " + ringSize //
+				+ ", wait.strategy: " + waitStrategy //
+				+ "}";
+	}
+}
@@ -0,0 +1,450 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.jkoolcloud.tnt4j.core.KeyValueStats;
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.core.Snapshot;
+import com.jkoolcloud.tnt4j.core.Trackable;
+import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.sink.AbstractEventSink;
+import com.jkoolcloud.tnt4j.sink.EventSink;
+import com.jkoolcloud.tnt4j.sink.EventSinkFactory;
+import com.jkoolcloud.tnt4j.source.Source;
+import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
+import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+import com.jkoolcloud.tnt4j.utils.Utils;
+
+/**
+ * <p>
+ * This class implements {@link EventSink} spreading entries over several child sinks (shards), writing every entry to
+ * exactly one shard selected by consistent hash of entry key defined by {@link ShardKey}: correlator, source FQ name
+ * or operation name. Entries having the same key are always written to the same shard. Entries having no key (e.g.
+ * correlator is not set) are written to shards in turn.
+ * </p>
+ *
+ * <p>
+ * Shards are placed on a hash ring by their identifiers, each at a number of virtual nodes, so that adding or removing
+ * a shard moves only about {@code 1/N} of keys to a different shard, while keys of the remaining shards stay in place.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see ShardingEventSinkFactory
+ * @see BroadcastingEventSink
+ */
+public class ShardingEventSink extends AbstractEventSink {
+	public static final String KEY_SHARD_KEY = "shard-key";
+	public static final String KEY_SHARD_COUNT = "shard-count";
+	public static final String KEY_SHARD_UNKEYED = "shard-unkeyed";
+	public static final String KEY_SHARD_ROUTED = "routed";
+	public static final String KEY_SHARD_FAILED = "failed";
+	public static final String KEY_SHARD_SHARE = "share-pct";
+	public static final String KEY_SHARD_RATE = "rate-per-sec";
+
+	public static final int DEFAULT_VIRTUAL_NODES = 160;
+
+	/**
+	 * Entry field used as sharding key.
+	 */
+	public enum ShardKey {
+		/**
+		 * Entry correlator (the smallest one if entry has several).
+		 */
+		CORRELATOR,
+		/**
+		 * Entry source FQ name.
+		 */
+		SOURCE,
+		/**
+		 * Operation name of tracking events, name of activities and snapshots.
+		 */
+		OPERATION
+	}
+
+	private final Shard[] shards;
+	private ShardKey shardKey = ShardKey.CORRELATOR;
+	private volatile long[] ringHashes;
+	private volatile Shard[] ringShards;
+
+	private final AtomicInteger next = new AtomicInteger(0);
+	private final AtomicLong unkeyed = new AtomicLong(0);
+	private volatile long statsStartNanos = System.nanoTime();
+
+	/**
+	 * Create sharding event sink
+	 *
+	 * @param shFactory
+	 *            sharding event sink factory instance
+	 * @param name
+	 *            sink name
+	 * @param props
+	 *            event sink properties
+	 * @see ShardingEventSinkFactory
+	 */
+	public ShardingEventSink(ShardingEventSinkFactory shFactory, String name, Properties props) {
+		super(name);
+		shards = createShards(shFactory, name, props, null);
+		setVirtualNodes(DEFAULT_VIRTUAL_NODES);
+	}
+
+	/**
+	 * Create sharding event sink
+	 *
+	 * @param shFactory
+	 *            sharding event sink factory instance
+	 * @param name
+	 *            sink name
+	 * @param props
+	 *            event sink properties
+	 * @param frmt
+	 *            event formatter instance
+	 * @see ShardingEventSinkFactory
+	 */
+	public ShardingEventSink(ShardingEventSinkFactory shFactory, String name, Properties props, EventFormatter frmt) {
+		super(name, frmt);
+		shards = createShards(shFactory, name, props, frmt);
+		setVirtualNodes(DEFAULT_VIRTUAL_NODES);
+	}
+
+	private Shard[] createShards(ShardingEventSinkFactory shFactory, String name, Properties props,
+			EventFormatter frmt) {
+		List<Shard> list = new ArrayList<>();
+		for (Map.Entry<String, EventSinkFactory> sfe : shFactory.getEventSinkFactories().entrySet()) {
+			EventSink sink = frmt == null ? sfe.getValue().getEventSink(name, props)
+					: sfe.getValue().getEventSink(name, props, frmt);
+			list.add(new Shard(sfe.getKey(), sink));
+		}
+		if (list.isEmpty()) {
+			throw new IllegalArgumentException("No shard sinks defined for sink=" + name);
+		}
+		return list.toArray(new Shard[0]);
+	}
+
+	/**
+	 * Set entry field used as sharding key.
+	 *
+	 * @param key
+	 *            sharding key field
+	 * @return itself
+	 */
+	public ShardingEventSink setShardKey(ShardKey key) {
+		shardKey = key == null ? ShardKey.CORRELATOR : key;
+		return this;
+	}
+
+	/**
+	 * Obtain entry field used as sharding key.
+	 *
+	 * @return sharding key field
+	 */
+	public ShardKey getShardKey() {
+		return shardKey;
+	}
+
+	/**
+	 * Set number of hash ring virtual nodes per shard. More nodes spread keys more evenly at the cost of ring size.
+	 *
+	 * @param nodes
+	 *            number of virtual nodes per shard
+	 * @return itself
+	 */
+	public ShardingEventSink setVirtualNodes(int nodes) {
+		int vnodes = Math.max(1, nodes);
+		TreeMap<Long, Shard> ring = new TreeMap<>();
+		for (Shard shard : shards) {
+			for (int i = 0; i < vnodes; i++) {
+				ring.putIfAbsent(hash(shard.id + "#" + i), shard);
+			}
+		}
+		long[] hashes = new long[ring.size()];
+		Shard[] owners = new Shard[ring.size()];
+		int i = 0;
+		for (Map.Entry<Long, Shard> node : ring.entrySet()) {
+			hashes[i] = node.getKey();
+			owners[i++] = node.getValue();
+		}
+		ringShards = owners;
+		ringHashes = hashes;
+		return this;
+	}
+
+	/**
+	 * Obtain identifier of shard a given key is written to.
+	 *
+	 * @param key
+	 *            sharding key
+	 * @return shard identifier
+	 */
+	public String getShardId(String key) {
+		return select(key).id;
+	}
+
+	/**
+	 * Obtain shard sinks.
+	 *
+	 * @return list of shard sinks
+	 */
+	public List<EventSink> getSinks() {
+		List<EventSink> list = new ArrayList<>(shards.length);
+		for (Shard shard : shards) {
+			list.add(shard.sink);
+		}
+		return list;
+	}
+
+	@Override
+	public Object getSinkHandle() {
+		return this;
+	}
+
+	@Override
+	public boolean isOpen() {
+		for (Shard shard : shards) {
+			if (!shard.sink.isOpen()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	protected void _open() throws IOException {
+		IOException lastE = null;
+		for (Shard shard : shards) {
+			try {
+				if (!shard.sink.isOpen()) {
+					shard.sink.open();
+				}
+			} catch (IOException e) {
+				lastE = e;
+			}
+		}
+		if (lastE != null) {
+			throw lastE;
+		}
+	}
+
+	@Override
+	protected void _close() throws IOException {
+		IOException lastE = null;
+		for (Shard shard : shards) {
+			try {
+				shard.sink.close();
+			} catch (IOException e) {
+				lastE = e;
+			}
+		}
+		if (lastE != null) {
+			throw lastE;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		for (Shard shard : shards) {
+			shard.sink.flush();
+		}
+	}
+
+	@Override
+	protected void _log(TrackingEvent event) throws IOException {
+		select(event).write(sink -> sink.log(event));
+	}
+
+	@Override
+	protected void _log(TrackingActivity activity) throws IOException {
+		select(activity).write(sink -> sink.log(activity));
+	}
+
+	@Override
+	protected void _log(Snapshot snapshot) throws IOException {
+		select(snapshot).write(sink -> sink.log(snapshot));
+	}
+
+	@Override
+	protected void _log(long ttl, Source src, OpLevel sev, String msg, Object... args) throws IOException {
+		select(src).write(sink -> sink.log(ttl, src, sev, msg, args));
+	}
+
+	@Override
+	protected void _write(Object msg, Object... args) throws IOException, InterruptedException {
+		select((Object) null).write(sink -> sink.write(msg, args));
+	}
+
+	private Shard select(Object entry) {
+		String key = shardKey(entry);
+		if (key == null) {
+			unkeyed.incrementAndGet();
+			return shards[Math.floorMod(next.getAndIncrement(), shards.length)];
+		}
+		return select(key);
+	}
+
+	private Shard select(String key) {
+		long[] hashes = ringHashes;
+		Shard[] owners = ringShards;
+		int idx = Arrays.binarySearch(hashes, hash(key));
+		if (idx < 0) {
+			idx = -idx - 1;
+		}
+		return owners[idx == hashes.length ? 0 : idx];
+	}
+
+	private String shardKey(Object entry) {
+		switch (shardKey) {
+		case SOURCE:
+			Source src = entry instanceof Trackable ? ((Trackable) entry).getSource()
+					: entry instanceof Source ? (Source) entry : null;
+			return src != null ? src.getFQName() : null;
+		case OPERATION:
+			return entry instanceof Trackable ? ((Trackable) entry).getName() : null;
+		default:
+			return Utils.getCorrelatorKey(entry);
+		}
+	}
+
+	/**
+	 * 64-bit FNV-1a hash of string characters, finished by MurmurHash3 mixer to spread nearby keys over the ring.
+	 * Hash is stable across JVM runs, so it can be used for any consistent per key decision.
+	 *
+	 * @param key
+	 *            key to hash
+	 * @return key hash
+	 */
+	public static long hash(String key) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0, n = key.length(); i < n; i++) {
+			h ^= key.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	@Override
+	public KeyValueStats getStats(Map<String, Object> stats) {
+		super.getStats(stats);
+		long total = 0;
+		for (Shard shard : shards) {
+			total += shard.routed.get();
+		}
+		double elapsedSec = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - statsStartNanos)) / 1000.0;
+		for (Shard shard : shards) {
+			String pfix = shard.id + "/";
+			long routed = shard.routed.get();
+			stats.put(Utils.qualify(this, pfix + KEY_SHARD_ROUTED), routed);
+			stats.put(Utils.qualify(this, pfix + KEY_SHARD_FAILED), shard.failed.get());
+			stats.put(Utils.qualify(this, pfix + KEY_SHARD_SHARE), total == 0 ? 0.0 : routed * 100.0 / total);
+			stats.put(Utils.qualify(this, pfix + KEY_SHARD_RATE), routed / elapsedSec);
+		}
+		stats.put(Utils.qualify(this, KEY_SHARD_KEY), shardKey.name());
+		stats.put(Utils.qualify(this, KEY_SHARD_COUNT), shards.length);
+		stats.put(Utils.qualify(this, KEY_SHARD_UNKEYED), unkeyed.get());
+		for (Shard shard : shards) {
+			shard.sink.getStats(stats);
+		}
+		return this;
+	}
+
+	@Override
+	public void resetStats() {
+		super.resetStats();
+		unkeyed.set(0);
+		for (Shard shard : shards) {
+			shard.routed.set(0);
+			shard.failed.set(0);
+			shard.sink.resetStats();
+		}
+		statsStartNanos = System.nanoTime();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Shard shard : shards) {
+			if (sb.length() > 0) {
+				sb.append("; ");
+			}
+			sb.append(shard.id).append("=").append(shard.sink);
+		}
+		return super.toString() //
+				+ "{eventSinks: " + sb //
+				+ ", shard.key: " + shardKey //
+				+ "}";
+	}
+
+	/**
+	 * Shard sink along with its routing statistics.
+	 */
+	private static class Shard {
+		final String id;
+		final EventSink sink;
+		final AtomicLong routed = new AtomicLong(0);
+		final AtomicLong failed = new AtomicLong(0);
+
+		Shard(String id, EventSink sink) {
+			this.id = id;
+			this.sink = sink;
+		}
+
+		void write(SinkEntry entry) throws IOException {
+			routed.incrementAndGet();
+			long errors = sink.getErrorCount();
+			try {
+				entry.logEntry(sink);
+				if (sink.getErrorCount() != errors) {
+					failed.incrementAndGet();
+				}
+			} catch (IOException | RuntimeException exc) {
+				failed.incrementAndGet();
+				throw exc;
+			} catch (InterruptedException exc) {
+				failed.incrementAndGet();
+				Thread.currentThread().interrupt();
+				throw new IOException(exc);
+			}
+		}
+	}
+
+	/**
+	 * Interface defining generic sink entry logging function.
+	 */
+	private interface SinkEntry {
+		/**
+		 * Performs actual sink entry logging.
+		 *
+		 * @param sink
+		 *            sink to log entry
+		 *
+		 * @throws IOException
+		 *             if entry logging fails
+		 * @throws InterruptedException
+		 *             if interrupted while logging entry
+		 */
+		void logEntry(EventSink sink) throws IOException, InterruptedException;
+	}
+}
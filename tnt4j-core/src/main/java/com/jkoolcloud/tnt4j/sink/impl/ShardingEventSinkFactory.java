@@ -0,0 +1,160 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import com.jkoolcloud.tnt4j.config.ConfigException;
+import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.sink.AbstractEventSinkFactory;
+import com.jkoolcloud.tnt4j.sink.EventSink;
+import com.jkoolcloud.tnt4j.sink.EventSinkFactory;
+import com.jkoolcloud.tnt4j.utils.Utils;
+
+/**
+ * <p>
+ * Sharding event sink factory allows creation of event sinks spreading entries over multiple event sinks, writing
+ * every entry to exactly one of them. The factory wraps around multiple event sink factories, defined either by
+ * {@code ShardSequence} (comma separated factory names) or by sequence numbers starting at {@code 0}. Factory names are
+ * used as shard identifiers placed on the hash ring, so they should stay the same when shards are added or removed.
+ * </p>
+ *
+ * <p>
+ * Besides shard sequence, factory supports {@code ShardKey} ({@code CORRELATOR}, {@code SOURCE}, {@code OPERATION})
+ * and {@code VirtualNodes} - number of hash ring nodes per shard.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * event.sink.factory: com.jkoolcloud.tnt4j.sink.impl.ShardingEventSinkFactory
+ * event.sink.factory.ShardSequence: c1,c2
+ * event.sink.factory.ShardKey: CORRELATOR
+ * event.sink.factory.EventSinkFactory.c1: com.jkoolcloud.tnt4j.sink.impl.SocketEventSinkFactory
+ * event.sink.factory.EventSinkFactory.c1.Host: collector1
+ * event.sink.factory.EventSinkFactory.c2: com.jkoolcloud.tnt4j.sink.impl.SocketEventSinkFactory
+ * event.sink.factory.EventSinkFactory.c2.Host: collector2
+ * }
+ * </pre>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see ShardingEventSink
+ */
+public class ShardingEventSinkFactory extends AbstractEventSinkFactory {
+
+	String shardSeq;
+	ShardingEventSink.ShardKey shardKey = ShardingEventSink.ShardKey.CORRELATOR;
+	int virtualNodes = ShardingEventSink.DEFAULT_VIRTUAL_NODES;
+	final Map<String, EventSinkFactory> sinkFactories = Collections.synchronizedMap(new LinkedHashMap<>(3));
+
+	/**
+	 * Create a default sharding sink factory.
+	 */
+	public ShardingEventSinkFactory() {
+	}
+
+	/**
+	 * Create a sharding sink factory.
+	 *
+	 * @param sf
+	 *            map of event sink factories keyed by shard identifier
+	 */
+	public ShardingEventSinkFactory(Map<String, EventSinkFactory> sf) {
+		sinkFactories.putAll(sf);
+	}
+
+	/**
+	 * Obtain current shard sequence string
+	 *
+	 * @return shard sequence string
+	 */
+	public String getShardSequence() {
+		return shardSeq;
+	}
+
+	protected Map<String, EventSinkFactory> getEventSinkFactories() {
+		return sinkFactories;
+	}
+
+	@Override
+	public EventSink getEventSink(String name) {
+		return getEventSink(name, System.getProperties());
+	}
+
+	@Override
+	public EventSink getEventSink(String name, Properties props) {
+		return configureSink(new ShardingEventSink(this, name, props));
+	}
+
+	@Override
+	public EventSink getEventSink(String name, Properties props, EventFormatter frmt) {
+		return configureSink(new ShardingEventSink(this, name, props, frmt));
+	}
+
+	@Override
+	protected EventSink configureSink(EventSink sink) {
+		ShardingEventSink shSink = (ShardingEventSink) super.configureSink(sink);
+		shSink.setShardKey(shardKey);
+		shSink.setVirtualNodes(virtualNodes);
+
+		return shSink;
+	}
+
+	@Override
+	public void setConfiguration(Map<String, ?> props) throws ConfigException {
+		super.setConfiguration(props);
+
+		shardSeq = Utils.getString("ShardSequence", props, null);
+		if (Utils.isEmpty(shardSeq)) {
+			initShardSequence(props);
+		} else {
+			initShardSequence(shardSeq.split(","), props);
+		}
+		virtualNodes = Utils.getInt("VirtualNodes", props, virtualNodes);
+		String keyName = Utils.getString("ShardKey", props, shardKey.name());
+		try {
+			shardKey = ShardingEventSink.ShardKey.valueOf(keyName.toUpperCase());
+		} catch (IllegalArgumentException exc) {
+			throw new ConfigException(exc.getLocalizedMessage(), props);
+		}
+	}
+
+	private void initShardSequence(Map<String, ?> props) throws ConfigException {
+		for (int counter = 0; (loadEventSinkFactory(String.valueOf(counter), props) != null); counter++) {
+		}
+	}
+
+	private void initShardSequence(String[] seq, Map<String, ?> props) throws ConfigException {
+		for (String s : seq) {
+			String fcName = s.trim();
+			if (loadEventSinkFactory(fcName, props) == null) {
+				throw new ConfigException("Could not find shard factory sequence=" + fcName, props);
+			}
+		}
+	}
+
+	private EventSinkFactory loadEventSinkFactory(String fcName, Map<String, ?> props) throws ConfigException {
+		EventSinkFactory sinkFactory = (EventSinkFactory) Utils.createConfigurableObject("EventSinkFactory." + fcName,
+				"EventSinkFactory." + fcName + ".", props);
+		if (sinkFactory != null) {
+			sinkFactories.put(fcName, sinkFactory);
+		}
+		return sinkFactory;
+	}
+}
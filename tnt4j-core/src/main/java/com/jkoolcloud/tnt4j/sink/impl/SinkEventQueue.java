@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import com.jkoolcloud.tnt4j.sink.SinkLogEvent;
+
+/**
+ * <p>
+ * Classes that implement this interface provide a bounded queue used by {@link PooledLogger} to hand over
+ * {@link SinkLogEvent} instances from producer threads to logging tasks.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see PooledLogger
+ * @see RingBufferSinkEventQueue
+ * @see ArraySinkEventQueue
+ * @see LaneSinkEventQueue
+ */
+public interface SinkEventQueue {
+	/**
+	 * Inserts the specified event at the tail of this queue if it is possible to do so immediately without exceeding
+	 * queue capacity.
+	 *
+	 * @param event
+	 *            sink log event
+	 * @return {@code true} if event was added to this queue, {@code false} if queue is full
+	 */
+	boolean offer(SinkLogEvent event);
+
+	/**
+	 * Inserts the specified event at the tail of this queue, waiting for space to become available if the queue is
+	 * full.
+	 *
+	 * @param event
+	 *            sink log event
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	void put(SinkLogEvent event) throws InterruptedException;
+
+	/**
+	 * Retrieves and removes the head of this queue, waiting if necessary until an event becomes available.
+	 *
+	 * @return head of this queue
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	SinkLogEvent take() throws InterruptedException;
+
+	/**
+	 * Retrieves and removes the head of this queue.
+	 *
+	 * @return head of this queue, or {@code null} if this queue is empty
+	 */
+	SinkLogEvent poll();
+
+	/**
+	 * Retrieves and removes the head of this queue, waiting up to the specified wait time if necessary for an event
+	 * to become available.
+	 *
+	 * @param timeout
+	 *            how long to wait before giving up
+	 * @param unit
+	 *            time unit of timeout
+	 * @return head of this queue, or {@code null} if the specified waiting time elapses before an event is available
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	SinkLogEvent poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+	/**
+	 * Obtain number of events currently in this queue.
+	 *
+	 * @return number of events in this queue
+	 */
+	int size();
+
+	/**
+	 * Obtain maximum number of events this queue can hold.
+	 *
+	 * @return queue capacity
+	 */
+	int capacity();
+
+	/**
+	 * Determine if this queue is empty.
+	 *
+	 * @return {@code true} if queue is empty, {@code false} otherwise
+	 */
+	boolean isEmpty();
+
+	/**
+	 * Removes all events from this queue.
+	 */
+	void clear();
+
+	/**
+	 * Enumerates supported event queue implementations.
+	 */
+	enum QueueType {
+		/**
+		 * Pre-allocated lock-free ring buffer, see {@link RingBufferSinkEventQueue}.
+		 */
+		RING,
+		/**
+		 * Lock based {@link java.util.concurrent.ArrayBlockingQueue}, see {@link ArraySinkEventQueue}.
+		 */
+		ARRAY,
+		/**
+		 * Severity lanes drained using weighted round-robin, see {@link LaneSinkEventQueue}.
+		 */
+		LANES;
+
+		/**
+		 * Create a new event queue instance of this type.
+		 *
+		 * @param capacity
+		 *            maximum queue capacity
+		 * @param waitStrategy
+		 *            strategy used by waiting producers/consumers, ignored by {@link #ARRAY} queues
+		 * @return new event queue instance
+		 */
+		public SinkEventQueue newQueue(int capacity, WaitStrategy waitStrategy) {
+			switch (this) {
+			case ARRAY:
+				return new ArraySinkEventQueue(capacity);
+			case LANES:
+				return new LaneSinkEventQueue(capacity, waitStrategy);
+			case RING:
+			default:
+				return new RingBufferSinkEventQueue(capacity, waitStrategy);
+			}
+		}
+	}
+}
@@ -15,16 +15,25 @@
  */
 package com.jkoolcloud.tnt4j.sink.impl;
 
+import java.io.BufferedOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.StringUtils;
 
+import com.jkoolcloud.tnt4j.core.KeyValueStats;
 import com.jkoolcloud.tnt4j.core.OpLevel;
 import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.format.FormatCache;
 import com.jkoolcloud.tnt4j.sink.EventSink;
 import com.jkoolcloud.tnt4j.sink.LoggedEventSink;
 import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
@@ -40,6 +49,15 @@ import com.jkoolcloud.tnt4j.utils.Utils;
  * <li>{@code java.net.socks.username} - proxy user name</li>
  * <li>{@code java.net.socks.password} - proxy user password</li>
  * </ul>
+ * <p>
+ * Entries are terminated by a new line by default. With {@link FrameEncoder.Framing#LENGTH} framing, entries are sent
+ * as length-prefixed frames, optionally Deflate compressed per batch written using {@link #log(Collection)} (or per
+ * entry otherwise), see {@link FrameEncoder}.
+ * <p>
+ * Entries written since last successful stream flush are kept until flushed. If a write or flush fails, sink reconnects
+ * and writes all of them again, so a batch written using {@link #log(Collection)} is not lost when connection breaks
+ * in the middle of it (entries already passed to the network before failure may be delivered twice). Entries which
+ * can't be written after reconnect are counted as dropped.
  *
  *
  * @version $Revision: 16 $
@@ -51,11 +69,20 @@ import com.jkoolcloud.tnt4j.utils.Utils;
  * @see EventFormatter
  */
 public class SocketEventSink extends LoggedEventSink {
+	public static final String KEY_SOCKET_DROPPED = "socket-dropped";
+
+	private static final int BATCH_BUFFER_SIZE = 64 * 1024;
 
 	private Socket socketSink = null;
 	private DataOutputStream outStream = null;
 	private String hostName = "localhost";
 	private int portNo = 6400;
+	private boolean batching = false;
+	private FrameEncoder.Framing framing = FrameEncoder.Framing.LINE;
+	private FrameEncoder encoder;
+	private ByteBuffer batch;
+	private final List<String> unflushed = new ArrayList<>();
+	private final AtomicLong dropped = new AtomicLong(0);
 
 	protected InetSocketAddress proxyAddr;
 	protected Proxy proxy = Proxy.NO_PROXY; // default to direct connection
@@ -110,6 +137,41 @@ public class SocketEventSink extends LoggedEventSink {
 		}
 	}
 
+	/**
+	 * Set socket stream framing. Takes effect when sink is (re)opened.
+	 *
+	 * @param framing
+	 *            stream framing mode
+	 * @param compress
+	 *            {@code true} to compress batches, applies to {@link FrameEncoder.Framing#LENGTH} framing only
+	 * @param level
+	 *            Deflate compression level (0-9)
+	 * @param minSize
+	 *            min batch size in bytes to compress
+	 * @return itself
+	 */
+	public synchronized SocketEventSink setFraming(FrameEncoder.Framing framing, boolean compress, int level,
+			int minSize) {
+		this.framing = framing == null ? FrameEncoder.Framing.LINE : framing;
+		if (compress && this.framing == FrameEncoder.Framing.LENGTH) {
+			encoder = new FrameEncoder(true, level, minSize);
+			batch = ByteBuffer.allocate(BATCH_BUFFER_SIZE);
+		} else {
+			encoder = null;
+			batch = null;
+		}
+		return this;
+	}
+
+	/**
+	 * Obtain socket stream framing.
+	 *
+	 * @return stream framing mode
+	 */
+	public FrameEncoder.Framing getFraming() {
+		return framing;
+	}
+
 	@Override
 	public Object getSinkHandle() {
 		return socketSink;
@@ -129,7 +191,13 @@ public class SocketEventSink extends LoggedEventSink {
 			setErrorState(null);
 			socketSink = new Socket(proxy);
 			socketSink.connect(new InetSocketAddress(hostName, portNo));
-			outStream = new DataOutputStream(socketSink.getOutputStream());
+			outStream = new DataOutputStream(new BufferedOutputStream(socketSink.getOutputStream()));
+			if (framing == FrameEncoder.Framing.LENGTH) {
+				outStream.write(FrameEncoder.streamHeader());
+			}
+			if (batch != null) {
+				batch.clear();
+			}
 
 			super._open();
 		} catch (Throwable e) {
@@ -149,6 +217,7 @@ public class SocketEventSink extends LoggedEventSink {
 		Utils.close(socketSink);
 		outStream = null;
 		socketSink = null;
+		unflushed.clear();
 
 		super._close();
 	}
@@ -156,7 +225,52 @@ public class SocketEventSink extends LoggedEventSink {
 	@Override
 	public synchronized void flush() throws IOException {
 		if (isOpen()) {
-			outStream.flush();
+			try {
+				flushUnflushed();
+			} catch (IOException e) {
+				rewrite(e);
+			}
+		}
+	}
+
+	private void flushUnflushed() throws IOException {
+		writeBatch();
+		outStream.flush();
+		unflushed.clear();
+	}
+
+	private void writeFrame(byte[] bytes) throws IOException {
+		if (batch == null) {
+			outStream.writeInt(bytes.length);
+			outStream.write(bytes, 0, bytes.length);
+			incrementBytesSent(FrameEncoder.frameSize(bytes.length));
+			return;
+		}
+		int size = FrameEncoder.frameSize(bytes.length);
+		if (batch.remaining() < size) {
+			writeBatch();
+			if (batch.capacity() < size) {
+				batch = ByteBuffer.allocate(size);
+			}
+		}
+		FrameEncoder.frame(batch, bytes);
+	}
+
+	private void writeBatch() throws IOException {
+		if (batch == null || batch.position() == 0) {
+			return;
+		}
+		try {
+			batch.flip();
+			ByteBuffer frame = encoder.isCompressed(batch.remaining()) ? encoder.deflate(batch) : batch;
+			incrementBytesSent(frame.remaining());
+			outStream.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+		} finally {
+			if (batch.capacity() > BATCH_BUFFER_SIZE) {
+				batch = ByteBuffer.allocate(BATCH_BUFFER_SIZE);
+			} else {
+				batch.clear();
+			}
 		}
 	}
 
@@ -167,47 +281,98 @@ public class SocketEventSink extends LoggedEventSink {
 				+ ", port: " + portNo //
 				+ ", socket: " + socketSink //
 				+ ", proxy: " + proxy //
+				+ ", framing: " + framing //
 				+ "}";
 	}
 
 	@Override
-	protected void writeLine(String msg) throws IOException {
-		writeLine(msg, false);
-	}
-
-	private synchronized void writeLine(String msg, boolean retrying) throws IOException {
+	protected synchronized void writeLine(String msg) throws IOException {
 		if (Utils.isEmpty(msg)) {
 			return;
 		}
 
 		_checkState();
 
+		unflushed.add(msg);
 		try {
+			writeEntry(msg);
+			if (!batching) {
+				flushUnflushed();
+			}
+		} catch (IOException e) {
+			rewrite(e);
+		}
+	}
+
+	private void writeEntry(String msg) throws IOException {
+		if (framing == FrameEncoder.Framing.LENGTH) {
+			writeFrame(FormatCache.getBytes(msg));
+		} else {
 			byte[] bytes = msg.getBytes();
 			incrementBytesSent(bytes.length);
 			outStream.write(bytes, 0, bytes.length);
 			if (!msg.endsWith("\n")) {
 				outStream.write('\n');
 			}
-			outStream.flush();
-		} catch (IOException e) {
-			if (retrying) {
-				throw e;
-			} else {
-				retryWrite(msg, e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * All batch entries are written into the socket stream buffer and flushed once at the end of the batch.
+	 */
+	@Override
+	public synchronized void log(Collection<?> batch) {
+		batching = true;
+		try {
+			super.log(batch);
+		} finally {
+			batching = false;
+			try {
+				flush();
+			} catch (IOException e) {
+				setErrorState(e);
 			}
 		}
 	}
 
-	private void retryWrite(String msg, Throwable e) throws IOException {
+	/**
+	 * Reconnect and write again all entries not flushed yet, including ones buffered by current batch. Entries are
+	 * counted as dropped if writing fails again.
+	 *
+	 * @param e
+	 *            write failure cause
+	 * @throws IOException
+	 *             if reconnecting or writing entries fails again
+	 */
+	private void rewrite(IOException e) throws IOException {
+		List<String> entries = new ArrayList<>(unflushed);
 		try {
-			reopen();
-			writeLine(msg, true);
-		} catch (IOException ioe) {
-			if (e != null) {
-				ioe.initCause(e);
+			_open();
+			for (String msg : entries) {
+				unflushed.add(msg);
+				writeEntry(msg);
 			}
+			flushUnflushed();
+		} catch (IOException ioe) {
+			dropped.addAndGet(entries.size());
+			unflushed.clear();
+			ioe.addSuppressed(e);
 			throw ioe;
 		}
 	}
+
+	@Override
+	public KeyValueStats getStats(Map<String, Object> stats) {
+		super.getStats(stats);
+		stats.put(Utils.qualify(this, KEY_SOCKET_DROPPED), dropped.get());
+		return this;
+	}
+
+	@Override
+	public void resetStats() {
+		super.resetStats();
+		dropped.set(0);
+	}
 }
@@ -15,6 +15,9 @@
  */
 package com.jkoolcloud.tnt4j.sink.impl;
 
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -35,6 +38,26 @@ import com.jkoolcloud.tnt4j.utils.Utils;
  * {@link JSONFormatter} to format log messages.
  * </p>
  *
+ * <p>
+ * Set {@code Nio} to {@code true} to use {@link NioSocketEventSink}, coalescing entries queued by logging threads into
+ * socket writes done by a background writer thread, tuned using {@code QueueCapacity} (entries), {@code BufferSize}
+ * (bytes), {@code OfferTimeout}, {@code ConnectTimeout}, {@code ReconnectDelay}, {@code MaxReconnectDelay} and
+ * {@code FlushTimeout} (milliseconds) properties. {@link SocketEventSink} is used when a proxy is configured.
+ * </p>
+ *
+ * <p>
+ * Set {@code Connections} greater than one and/or {@code Endpoints} (comma separated {@code host:port} list) to use
+ * {@link MultiSocketEventSink}, spreading entries over a pool of NIO connections selected using
+ * {@code SelectionPolicy} ({@code ROUND_ROBIN}, {@code LEAST_LOADED}). Set {@code OrderByCorrelator} to {@code true} to
+ * write entries having same correlator over the same connection.
+ * </p>
+ *
+ * <p>
+ * Set {@code Framing} to {@code LENGTH} to send entries as length-prefixed frames instead of new line terminated
+ * lines, and {@code Compress} to {@code true} to Deflate compress batches of at least {@code CompressMinSize} bytes
+ * using {@code CompressLevel}. Collectors read such streams using {@link FrameDecoder}.
+ * </p>
+ *
  *
  * @see EventSink
  * @see EventFormatter
@@ -50,6 +73,22 @@ public class SocketEventSinkFactory extends LoggedEventSinkFactory {
 	private int proxyPort = 0;
 	private String proxyUser;
 	private String proxyPass;
+	private boolean nio = false;
+	private int queueCapacity = NioSocketEventSink.DEFAULT_QUEUE_CAPACITY;
+	private int bufferSize = NioSocketEventSink.DEFAULT_BUFFER_SIZE;
+	private long offerTimeout = NioSocketEventSink.DEFAULT_OFFER_TIMEOUT_MS;
+	private int connectTimeout = NioSocketEventSink.DEFAULT_CONNECT_TIMEOUT_MS;
+	private long reconnectDelay = NioSocketEventSink.DEFAULT_RECONNECT_DELAY_MS;
+	private long maxReconnectDelay = NioSocketEventSink.DEFAULT_MAX_RECONNECT_DELAY_MS;
+	private long flushTimeout = NioSocketEventSink.DEFAULT_FLUSH_TIMEOUT_MS;
+	private String endpoints;
+	private int connections = 1;
+	private MultiSocketEventSink.SelectionPolicy selectionPolicy = MultiSocketEventSink.SelectionPolicy.ROUND_ROBIN;
+	private boolean orderByCorrelator = false;
+	private FrameEncoder.Framing framing = FrameEncoder.Framing.LINE;
+	private boolean compress = false;
+	private int compressLevel = FrameEncoder.DEFAULT_COMPRESS_LEVEL;
+	private int compressMinSize = FrameEncoder.DEFAULT_COMPRESS_MIN_SIZE;
 
 	/**
 	 * Create a socket event sink factory. Same as {@code SocketEventSinkFactory("localhost", 6400)}.
@@ -115,7 +154,31 @@ public class SocketEventSinkFactory extends LoggedEventSinkFactory {
 	 * @see EventFormatter
 	 */
 	public EventSink getEventSink(String name, Properties props, EventFormatter frmt, EventSink pipedSink) {
-		return configureSink(new SocketEventSink(name, hostName, port, proxyHost, proxyPort, frmt, pipedSink));
+		if (StringUtils.isEmpty(proxyHost)) {
+			if (connections > 1 || StringUtils.isNotEmpty(endpoints)) {
+				List<InetSocketAddress> addrs = StringUtils.isEmpty(endpoints)
+						? Collections.singletonList(InetSocketAddress.createUnresolved(hostName, port))
+						: MultiSocketEventSink.parseEndpoints(endpoints, port);
+				MultiSocketEventSink sink = new MultiSocketEventSink(name, addrs, connections, frmt, pipedSink);
+				sink.setSelectionPolicy(selectionPolicy).setOrderByCorrelator(orderByCorrelator);
+				for (NioSocketEventSink conn : sink.getConnections()) {
+					configureNio(conn);
+				}
+				return configureSink(sink);
+			}
+			if (nio) {
+				return configureSink(configureNio(new NioSocketEventSink(name, hostName, port, frmt, pipedSink)));
+			}
+		}
+		SocketEventSink sink = new SocketEventSink(name, hostName, port, proxyHost, proxyPort, frmt, pipedSink);
+		sink.setFraming(framing, compress, compressLevel, compressMinSize);
+		return configureSink(sink);
+	}
+
+	private NioSocketEventSink configureNio(NioSocketEventSink sink) {
+		return sink.setQueueCapacity(queueCapacity).setBufferSize(bufferSize).setOfferTimeout(offerTimeout)
+				.setConnectTimeout(connectTimeout).setReconnectDelay(reconnectDelay, maxReconnectDelay)
+				.setFlushTimeout(flushTimeout).setFraming(framing, compress, compressLevel, compressMinSize);
 	}
 
 	@Override
@@ -142,6 +205,31 @@ public class SocketEventSinkFactory extends LoggedEventSinkFactory {
 		proxyPort = Utils.getInt("ProxyPort", settings, proxyPort);
 		proxyUser = Utils.getString("ProxyUser", settings, proxyUser);
 		proxyPass = Utils.getString("ProxyPass", settings, proxyPass);
+		nio = Utils.getBoolean("Nio", settings, nio);
+		queueCapacity = Utils.getInt("QueueCapacity", settings, queueCapacity);
+		bufferSize = Utils.getInt("BufferSize", settings, bufferSize);
+		offerTimeout = Utils.getLong("OfferTimeout", settings, offerTimeout);
+		connectTimeout = Utils.getInt("ConnectTimeout", settings, connectTimeout);
+		reconnectDelay = Utils.getLong("ReconnectDelay", settings, reconnectDelay);
+		maxReconnectDelay = Utils.getLong("MaxReconnectDelay", settings, maxReconnectDelay);
+		flushTimeout = Utils.getLong("FlushTimeout", settings, flushTimeout);
+		endpoints = Utils.getString("Endpoints", settings, endpoints);
+		connections = Utils.getInt("Connections", settings, connections);
+		orderByCorrelator = Utils.getBoolean("OrderByCorrelator", settings, orderByCorrelator);
+		compress = Utils.getBoolean("Compress", settings, compress);
+		compressLevel = Utils.getInt("CompressLevel", settings, compressLevel);
+		compressMinSize = Utils.getInt("CompressMinSize", settings, compressMinSize);
+		String policy = Utils.getString("SelectionPolicy", settings, selectionPolicy.name());
+		String frm = Utils.getString("Framing", settings, framing.name());
+		try {
+			selectionPolicy = MultiSocketEventSink.SelectionPolicy.valueOf(policy.toUpperCase());
+			framing = FrameEncoder.Framing.valueOf(frm.toUpperCase());
+			if (StringUtils.isNotEmpty(endpoints)) {
+				MultiSocketEventSink.parseEndpoints(endpoints, port);
+			}
+		} catch (IllegalArgumentException exc) {
+			throw new ConfigException(exc.getLocalizedMessage(), settings);
+		}
 	}
 
 	@Override
@@ -0,0 +1,412 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import com.jkoolcloud.tnt4j.sink.EventSink;
+
+/**
+ * <p>
+ * This class implements an append-only, disk based FIFO queue used by {@link PooledLogger} to spill formatted events
+ * which do not fit into pooled logger event queue. Records are appended into memory-mapped segment files of a fixed
+ * size, a new segment is rolled over when current one has no room for a record. Segments are deleted once all their
+ * records are consumed. Total size of all segments is bounded by a configured maximum, records exceeding it are
+ * rejected.
+ * </p>
+ *
+ * <p>
+ * Each record is length-prefixed: {@code int} payload length, {@code int} sink id and UTF-8 encoded payload bytes.
+ * Sealed segments are terminated by a {@code -1} length marker. Sink ids are resolved using an in-memory sink registry,
+ * so spill files are an overflow area of a running pooled logger and are not replayed across restarts: leftover
+ * segments of the same queue name are deleted when queue is created.
+ * </p>
+ *
+ * <p>
+ * Sink registry only references sinks having pending records: sink entry is released once its last record is removed.
+ * Sinks closed by application are marked using {@link #closeSink(EventSink)}, their pending records are reported by
+ * {@link Record#isSinkClosed()} so they can be discarded instead of reopening the sink.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see PooledLogger
+ */
+public class SpillQueue implements Closeable {
+	public static final String FILE_EXT = ".spill";
+
+	private static final int HEADER_SIZE = 8; // payload length + sink id
+	private static final int END_OF_SEGMENT = -1;
+
+	private final File dir;
+	private final String name;
+	private final int segmentSize;
+	private final long maxSize;
+
+	private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+	private final Map<EventSink, SinkRef> sinkRefs = new IdentityHashMap<>();
+	private final Map<Integer, SinkRef> sinkIds = new HashMap<>();
+	private int nextSinkId = 0;
+	private long segmentSeq = 0;
+	private int peekedSize = 0;
+	private SinkRef peekedRef;
+	private volatile long pending = 0;
+	private boolean closed = false;
+
+	/**
+	 * Create a spill queue storing segment files in a given directory.
+	 *
+	 * @param dir
+	 *            directory where segment files are created
+	 * @param name
+	 *            queue name used as segment file name prefix
+	 * @param segmentSize
+	 *            segment file size in bytes
+	 * @param maxSize
+	 *            maximum total size of all segment files in bytes
+	 * @throws IOException
+	 *             if spill directory can't be created or cleaned up
+	 */
+	public SpillQueue(File dir, String name, int segmentSize, long maxSize) throws IOException {
+		if (segmentSize <= HEADER_SIZE) {
+			throw new IllegalArgumentException("Segment size too small: segment.size=" + segmentSize);
+		}
+		this.dir = dir;
+		this.name = name.replaceAll("[^A-Za-z0-9._-]", "_");
+		this.segmentSize = segmentSize;
+		this.maxSize = Math.max(maxSize, segmentSize);
+
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Unable to create spill directory: dir=" + dir);
+		}
+		deleteSegments();
+	}
+
+	private void deleteSegments() {
+		File[] leftovers = dir.listFiles((d, fName) -> fName.startsWith(name + "-") && fName.endsWith(FILE_EXT));
+		if (leftovers != null) {
+			for (File file : leftovers) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Append a formatted event payload to the tail of this queue.
+	 *
+	 * @param sink
+	 *            event sink payload is designated to
+	 * @param payload
+	 *            formatted event payload
+	 * @return number of bytes appended, {@code 0} if record was rejected due to queue size limits
+	 * @throws IOException
+	 *             if new segment file can't be created
+	 */
+	public synchronized int append(EventSink sink, String payload) throws IOException {
+		if (closed) {
+			return 0;
+		}
+		byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+		int recSize = HEADER_SIZE + bytes.length;
+		if (recSize > segmentSize) {
+			return 0;
+		}
+		Segment seg = segments.peekLast();
+		if (seg == null || seg.writePos + recSize > segmentSize) {
+			if ((long) (segments.size() + 1) * segmentSize > maxSize) {
+				return 0;
+			}
+			if (seg != null) {
+				seg.seal();
+			}
+			seg = newSegment();
+			segments.addLast(seg);
+		}
+		SinkRef ref = sinkRef(sink);
+		ByteBuffer buffer = seg.buffer.duplicate();
+		buffer.position(seg.writePos);
+		buffer.putInt(bytes.length).putInt(ref.id).put(bytes);
+		seg.writePos += recSize;
+		ref.records++;
+		pending++;
+		return recSize;
+	}
+
+	/**
+	 * Obtain, but do not remove the head of this queue.
+	 *
+	 * @return head record of this queue, {@code null} if queue is empty
+	 */
+	public synchronized Record peek() {
+		Segment seg = segments.peekFirst();
+		while (seg != null) {
+			if (seg.readPos < seg.writePos) {
+				int len = seg.buffer.getInt(seg.readPos);
+				if (len != END_OF_SEGMENT) {
+					ByteBuffer buffer = seg.buffer.duplicate();
+					buffer.position(seg.readPos + Integer.BYTES);
+					SinkRef ref = sinkIds.get(buffer.getInt());
+					byte[] bytes = new byte[len];
+					buffer.get(bytes);
+					peekedSize = HEADER_SIZE + len;
+					peekedRef = ref;
+					return new Record(ref, new String(bytes, StandardCharsets.UTF_8), peekedSize);
+				}
+			}
+			if (seg == segments.peekLast()) {
+				break; // writer is still on this segment
+			}
+			segments.pollFirst().delete();
+			seg = segments.peekFirst();
+		}
+		peekedSize = 0;
+		return null;
+	}
+
+	/**
+	 * Remove the head record of this queue previously obtained by {@link #peek()}.
+	 *
+	 * @return {@code true} if head record was removed, {@code false} if there was no record to remove
+	 */
+	public synchronized boolean remove() {
+		Segment seg = segments.peekFirst();
+		if (seg == null || peekedSize == 0) {
+			return false;
+		}
+		seg.readPos += peekedSize;
+		peekedSize = 0;
+		pending--;
+		release(peekedRef);
+		peekedRef = null;
+		return true;
+	}
+
+	/**
+	 * Mark a given sink as closed by application. Pending records of the sink are reported as designated to a closed
+	 * sink, and sink registry entry is released once they are removed. Records appended for the sink afterwards (e.g.
+	 * once sink is reopened) are not affected.
+	 *
+	 * @param sink
+	 *            closed event sink
+	 */
+	public synchronized void closeSink(EventSink sink) {
+		SinkRef ref = sinkRefs.remove(sink);
+		if (ref != null) {
+			ref.closed = true;
+		}
+	}
+
+	/**
+	 * Obtain number of sinks referenced by pending records of this queue.
+	 *
+	 * @return number of referenced sinks
+	 */
+	public synchronized int getSinkCount() {
+		return sinkIds.size();
+	}
+
+	/**
+	 * Determine if this queue has no records.
+	 *
+	 * @return {@code true} if queue is empty, {@code false} otherwise
+	 */
+	public boolean isEmpty() {
+		return pending == 0;
+	}
+
+	/**
+	 * Obtain number of records in this queue.
+	 *
+	 * @return number of records in this queue
+	 */
+	public long size() {
+		return pending;
+	}
+
+	/**
+	 * Obtain total size of segment files used by this queue.
+	 *
+	 * @return total size of segment files in bytes
+	 */
+	public synchronized long getDiskSize() {
+		return (long) segments.size() * segmentSize;
+	}
+
+	/**
+	 * Obtain number of segment files used by this queue.
+	 *
+	 * @return number of segment files
+	 */
+	public synchronized int getSegmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * Remove all records from this queue and delete all segment files.
+	 */
+	public synchronized void clear() {
+		while (!segments.isEmpty()) {
+			segments.pollFirst().delete();
+		}
+		peekedSize = 0;
+		peekedRef = null;
+		pending = 0;
+		sinkRefs.clear();
+		sinkIds.clear();
+	}
+
+	@Override
+	public synchronized void close() {
+		closed = true;
+		clear();
+	}
+
+	private SinkRef sinkRef(EventSink sink) {
+		SinkRef ref = sinkRefs.get(sink);
+		if (ref == null) {
+			while (sinkIds.containsKey(nextSinkId)) {
+				nextSinkId++;
+			}
+			ref = new SinkRef(nextSinkId++, sink);
+			sinkRefs.put(sink, ref);
+			sinkIds.put(ref.id, ref);
+		}
+		return ref;
+	}
+
+	private void release(SinkRef ref) {
+		if (--ref.records <= 0) {
+			sinkIds.remove(ref.id);
+			sinkRefs.remove(ref.sink, ref);
+		}
+	}
+
+	private Segment newSegment() throws IOException {
+		File file = new File(dir, name + "-" + (segmentSeq++) + FILE_EXT);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			return new Segment(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() //
+				+ "{dir: " + dir //
+				+ ", name: " + name //
+				+ ", size: " + size() //
+				+ ", segments: " + getSegmentCount() //
+				+ ", segment.size: " + segmentSize //
+				+ ", max.size: " + maxSize //
+				+ "}";
+	}
+
+	/**
+	 * Spilled record: event sink and formatted event payload.
+	 */
+	public static class Record {
+		private final SinkRef sinkRef;
+		private final String payload;
+		private final int size;
+
+		Record(SinkRef sinkRef, String payload, int size) {
+			this.sinkRef = sinkRef;
+			this.payload = payload;
+			this.size = size;
+		}
+
+		/**
+		 * Obtain event sink this record is designated to.
+		 *
+		 * @return event sink
+		 */
+		public EventSink getSink() {
+			return sinkRef.sink;
+		}
+
+		/**
+		 * Determine if event sink this record is designated to was closed by application after record was appended.
+		 *
+		 * @return {@code true} if sink was closed, {@code false} otherwise
+		 * @see SpillQueue#closeSink(EventSink)
+		 */
+		public boolean isSinkClosed() {
+			return sinkRef.closed;
+		}
+
+		/**
+		 * Obtain formatted event payload.
+		 *
+		 * @return formatted event payload
+		 */
+		public String getPayload() {
+			return payload;
+		}
+
+		/**
+		 * Obtain record size in bytes, including record header.
+		 *
+		 * @return record size in bytes
+		 */
+		public int getSize() {
+			return size;
+		}
+	}
+
+	private static class SinkRef {
+		final int id;
+		final EventSink sink;
+		long records = 0;
+		volatile boolean closed = false;
+
+		SinkRef(int id, EventSink sink) {
+			this.id = id;
+			this.sink = sink;
+		}
+	}
+
+	private static class Segment {
+		final File file;
+		final MappedByteBuffer buffer;
+		int writePos = 0;
+		int readPos = 0;
+
+		Segment(File file, MappedByteBuffer buffer) {
+			this.file = file;
+			this.buffer = buffer;
+		}
+
+		void seal() {
+			if (writePos + Integer.BYTES <= buffer.capacity()) {
+				buffer.putInt(writePos, END_OF_SEGMENT);
+			}
+		}
+
+		void delete() {
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import com.jkoolcloud.tnt4j.core.OpLevel;
+
+/**
+ * This class implements a task replaying events spilled to disk by a pooled logger, once pooled logger queue drains
+ * and event sinks become available.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see com.jkoolcloud.tnt4j.sink.impl.PooledLogger#replaySpilled()
+ * @see SpillQueue
+ */
+class SpillReplayTask extends AbstractPoolLoggingTask {
+	private static final long IDLE_WAIT_MS = Long.getLong("tnt4j.pooled.logger.spill.idle.ms", 50);
+
+	protected SpillReplayTask(PooledLogger logger) {
+		super(logger);
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (!isCanceled() && !pooledLogger.terminated) {
+				if (!pooledLogger.replaySpilled()) {
+					Thread.sleep(IDLE_WAIT_MS);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Throwable e) {
+			PooledLogger.logger.log(OpLevel.WARNING, "Interrupted during spill replay: shutting down: error.count={}",
+					pooledLogger.exceptionCount.get(), e);
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ * Enumerates strategies used by {@link RingBufferSinkEventQueue} producers and consumers while waiting for queue space
+ * or events to become available. Strategies trade CPU usage for hand-over latency: {@link #BUSY_SPIN} has the lowest
+ * latency and burns a core per waiting thread, {@link #BLOCKING} uses no CPU while idle.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see RingBufferSinkEventQueue
+ */
+public enum WaitStrategy {
+	/**
+	 * Spin in a tight loop using {@link Thread#onSpinWait()}.
+	 */
+	BUSY_SPIN,
+	/**
+	 * Spin for a while, then {@link Thread#yield()} to other threads.
+	 */
+	YIELD,
+	/**
+	 * Spin, yield and then park with progressively longer {@link LockSupport#parkNanos(long)} intervals.
+	 */
+	PARK,
+	/**
+	 * Block on a lock condition, signaled by the opposite side only when somebody is waiting.
+	 */
+	BLOCKING;
+
+	static final int SPIN_TRIES = 100;
+	static final int YIELD_TRIES = 100;
+	static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	/**
+	 * Wait once according to this strategy. {@link #BLOCKING} strategy is handled by the queue itself, here it behaves
+	 * same as {@link #PARK}.
+	 *
+	 * @param counter
+	 *            number of times waited so far for the current operation
+	 * @return counter value to pass on next invocation
+	 * @throws InterruptedException
+	 *             if current thread was interrupted while waiting
+	 */
+	int idle(int counter) throws InterruptedException {
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		switch (this) {
+		case BUSY_SPIN:
+			Thread.onSpinWait();
+			break;
+		case YIELD:
+			if (counter < SPIN_TRIES) {
+				Thread.onSpinWait();
+			} else {
+				Thread.yield();
+			}
+			break;
+		case PARK:
+		case BLOCKING:
+		default:
+			if (counter < SPIN_TRIES) {
+				Thread.onSpinWait();
+			} else if (counter < SPIN_TRIES + YIELD_TRIES) {
+				Thread.yield();
+			} else {
+				int shift = Math.min(counter - SPIN_TRIES - YIELD_TRIES, 20);
+				LockSupport.parkNanos(this, Math.min(1000L << shift, MAX_PARK_NANOS));
+			}
+			break;
+		}
+		return counter == Integer.MAX_VALUE ? counter : counter + 1;
+	}
+}
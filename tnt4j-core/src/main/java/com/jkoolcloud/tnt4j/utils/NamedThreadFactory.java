@@ -50,6 +50,26 @@ public class NamedThreadFactory implements ThreadFactory {
 		this.daemon = daemon;
 	}
 
+	/**
+	 * Create a thread factory producing virtual threads named using a given prefix followed by a thread sequence
+	 * number. Virtual threads are available on Java 21 or later runtimes, so this method uses reflection to remain
+	 * compatible with older runtimes.
+	 *
+	 * @param pfix
+	 *            thread name prefix
+	 * @return virtual thread factory, or {@code null} if virtual threads are not supported by current runtime
+	 */
+	public static ThreadFactory newVirtualThreadFactory(String pfix) {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, pfix, 0L);
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		} catch (Throwable exc) {
+			return null;
+		}
+	}
+
 	@Override
 	public Thread newThread(Runnable r) {
 		Thread task = new Thread(r, prefix + count++);
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.utils;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ * Scheduler shared by TNT4J components running background work, such as sink flushes, health probes and metadata
+ * refreshes. A single timer thread only dispatches due tasks, which run on a pool of daemon worker threads created on
+ * demand, so a task blocking on I/O (e.g. connecting to an unreachable endpoint) does not delay tasks of other
+ * components. A run of a periodic task is skipped if its previous run is still in progress.
+ * </p>
+ *
+ * <p>
+ * Threads are started on first use and stopped by a JVM shutdown hook, or by calling {@link #shutdown()}. Scheduler
+ * is started again if used after being shut down.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ */
+public final class SharedScheduler {
+	private static ScheduledThreadPoolExecutor timer;
+	private static ExecutorService workers;
+	private static Thread shutdownHook;
+
+	private SharedScheduler() {
+	}
+
+	/**
+	 * Run a given task periodically on a worker thread, with a given delay between the end of one run and the start of
+	 * the next one. Run is skipped if previous run has not completed yet.
+	 *
+	 * @param task
+	 *            task to run
+	 * @param initialDelay
+	 *            delay before first run
+	 * @param delay
+	 *            delay between runs
+	 * @param unit
+	 *            time unit of delays
+	 * @return future used to cancel the task
+	 */
+	public static ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelay, long delay,
+			TimeUnit unit) {
+		AtomicBoolean running = new AtomicBoolean(false);
+		return getTimer().scheduleWithFixedDelay(() -> {
+			if (running.compareAndSet(false, true)) {
+				try {
+					getWorkers().execute(() -> {
+						try {
+							task.run();
+						} finally {
+							running.set(false);
+						}
+					});
+				} catch (RejectedExecutionException exc) {
+					running.set(false);
+				}
+			}
+		}, initialDelay, delay, unit);
+	}
+
+	/**
+	 * Run a given task once on a worker thread after a given delay.
+	 *
+	 * @param task
+	 *            task to run
+	 * @param delay
+	 *            delay before run
+	 * @param unit
+	 *            time unit of delay
+	 * @return future used to cancel the task
+	 */
+	public static ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+		return getTimer().schedule(() -> execute(task), delay, unit);
+	}
+
+	/**
+	 * Run a given task on a worker thread right away.
+	 *
+	 * @param task
+	 *            task to run
+	 */
+	public static void execute(Runnable task) {
+		getWorkers().execute(task);
+	}
+
+	/**
+	 * Stop scheduler threads. Periodic and delayed tasks are canceled, running tasks are let to complete.
+	 */
+	public static synchronized void shutdown() {
+		if (timer != null) {
+			timer.shutdown();
+			timer = null;
+		}
+		if (workers != null) {
+			workers.shutdown();
+			workers = null;
+		}
+	}
+
+	private static synchronized ScheduledExecutorService getTimer() {
+		if (timer == null) {
+			timer = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("SharedScheduler/timer-"));
+			timer.setRemoveOnCancelPolicy(true);
+			timer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+			addShutdownHook();
+		}
+		return timer;
+	}
+
+	private static synchronized ExecutorService getWorkers() {
+		if (workers == null) {
+			workers = Executors.newCachedThreadPool(new NamedThreadFactory("SharedScheduler/worker-"));
+			addShutdownHook();
+		}
+		return workers;
+	}
+
+	private static void addShutdownHook() {
+		if (shutdownHook == null) {
+			shutdownHook = new Thread(SharedScheduler::shutdown, "SharedScheduler/shutdown");
+			try {
+				Runtime.getRuntime().addShutdownHook(shutdownHook);
+			} catch (IllegalStateException exc) {
+				// JVM is already shutting down
+			}
+		}
+	}
+}
@@ -49,6 +49,7 @@ import com.jkoolcloud.tnt4j.config.Configurable;
 import com.jkoolcloud.tnt4j.core.Handle;
 import com.jkoolcloud.tnt4j.core.Property;
 import com.jkoolcloud.tnt4j.core.Snapshot;
+import com.jkoolcloud.tnt4j.core.Trackable;
 
 /**
  * General utility methods.
@@ -485,6 +486,24 @@ public class Utils {
 		return null;
 	}
 
+	/**
+	 * Return correlation key of a given entry: its correlator, or the smallest one if entry has several, so that all
+	 * entries sharing a correlator set get the same key regardless of set iteration order.
+	 *
+	 * @param entry
+	 *            entry instance
+	 * @return entry correlation key, {@code null} if entry is not {@link Trackable} or has no correlators
+	 */
+	public static String getCorrelatorKey(Object entry) {
+		if (entry instanceof Trackable) {
+			Set<String> cid = ((Trackable) entry).getCorrelator();
+			if (cid != null && !cid.isEmpty()) {
+				return cid.size() == 1 ? cid.iterator().next() : Collections.min(cid);
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Return process ID associated with the current VM.
 	 *
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.filters;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.jkoolcloud.tnt4j.core.OpCompCode;
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.filters.TailSamplingFilter.KeyBy;
+import com.jkoolcloud.tnt4j.sink.impl.NullEventSink;
+import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
+import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+import com.jkoolcloud.tnt4j.utils.Utils;
+
+/**
+ * {@link TailSamplingFilter} tests.
+ *
+ * @version $Revision: 1 $
+ */
+public class TailSamplingFilterTest {
+	final RecordingSink sink = new RecordingSink();
+
+	private static TrackingActivity activity(long elapsedUsec, Throwable exc, String... correlators) {
+		// activity without a tracker, which is only needed when activity is stopped through a tracker
+		TrackingActivity activity = new TrackingActivity(OpLevel.INFO, "op") {
+			@Override
+			protected void onStop(long start) {
+			}
+		};
+		activity.setCorrelator(correlators);
+		activity.stop(exc, elapsedUsec);
+		return activity;
+	}
+
+	private static TrackingEvent event(String msg, String... correlators) {
+		TrackingEvent event = new TrackingEvent(null, null, OpLevel.INFO, "step", (String) null, msg) {
+		};
+		event.setCorrelator(correlators);
+		return event;
+	}
+
+	private static long stat(TailSamplingFilter filter, String key) {
+		return ((Number) filter.getStats().get(Utils.qualify(filter, key))).longValue();
+	}
+
+	@Test
+	public void failedActivitiesAreAlwaysKept() {
+		TailSamplingFilter filter = new TailSamplingFilter(KeyBy.CORRELATOR, 0, 0);
+		assertTrue(filter.filter(sink, activity(10, new IllegalStateException("failed"), "c1")));
+		assertFalse(filter.filter(sink, activity(10, null, "c2")));
+		assertEquals(1, stat(filter, TailSamplingFilter.KEY_KEPT_ERROR));
+		assertEquals(1, stat(filter, TailSamplingFilter.KEY_DISCARDED));
+	}
+
+	@Test
+	public void regularActivitiesAreSampled() {
+		TailSamplingFilter none = new TailSamplingFilter(KeyBy.CORRELATOR, 0, 0);
+		TailSamplingFilter all = new TailSamplingFilter(KeyBy.CORRELATOR, 1, 0);
+		TailSamplingFilter some = new TailSamplingFilter(KeyBy.CORRELATOR, 0.25, 0);
+		TailSamplingFilter same = new TailSamplingFilter(KeyBy.CORRELATOR, 0.25, 0);
+		int kept = 0;
+		for (int i = 0; i < 1000; i++) {
+			String key = "order-" + i;
+			assertFalse(none.filter(sink, activity(10, null, key)));
+			assertTrue(all.filter(sink, activity(10, null, key)));
+			boolean keep = some.filter(sink, activity(10, null, key));
+			// decision depends on trace key only
+			assertEquals(keep, same.filter(sink, activity(10, null, key)), key);
+			if (keep) {
+				kept++;
+			}
+		}
+		assertTrue(kept > 150 && kept < 350, "kept " + kept);
+		assertEquals(kept, stat(some, TailSamplingFilter.KEY_KEPT_SAMPLED));
+	}
+
+	@Test
+	public void slowActivitiesAreKept() {
+		TailSamplingFilter filter = new TailSamplingFilter(KeyBy.CORRELATOR, 0, 90);
+		assertEquals(Long.MAX_VALUE, filter.getLatencyThreshold());
+		// threshold is computed once enough samples are collected, at 1/16 of the latency window
+		for (int i = 1; i <= 128; i++) {
+			assertFalse(filter.filter(sink, activity(i, null, "warmup-" + i)));
+		}
+		assertEquals(116, filter.getLatencyThreshold());
+
+		assertTrue(filter.filter(sink, activity(1000, null, "slow")));
+		assertFalse(filter.filter(sink, activity(50, null, "fast")));
+		assertEquals(1, stat(filter, TailSamplingFilter.KEY_KEPT_SLOW));
+	}
+
+	@Test
+	public void bufferedEventsAreReplayedWhenTraceIsKept() {
+		TailSamplingFilter filter = new TailSamplingFilter(KeyBy.CORRELATOR, 0, 0);
+		TrackingEvent e1 = event("e1", "kept");
+		TrackingEvent e2 = event("e2", "kept");
+		assertFalse(filter.filter(sink, e1));
+		assertFalse(filter.filter(sink, e2));
+		assertFalse(filter.filter(sink, event("e3", "discarded")));
+		assertEquals(3, stat(filter, TailSamplingFilter.KEY_PENDING_EVENTS));
+		assertTrue(sink.events.isEmpty());
+
+		assertTrue(filter.filter(sink, activity(10, new IllegalStateException("failed"), "kept")));
+		assertEquals(2, sink.events.size());
+		assertSame(e1, sink.events.get(0));
+		assertSame(e2, sink.events.get(1));
+		// later events of a kept trace pass right away
+		assertTrue(filter.filter(sink, event("e4", "kept")));
+
+		assertFalse(filter.filter(sink, activity(10, null, "discarded")));
+		assertEquals(2, sink.events.size());
+		assertFalse(filter.filter(sink, event("e5", "discarded")));
+		assertEquals(2, stat(filter, TailSamplingFilter.KEY_EVENTS_REPLAYED));
+		assertEquals(1, stat(filter, TailSamplingFilter.KEY_EVENTS_DISCARDED));
+		assertEquals(0, stat(filter, TailSamplingFilter.KEY_PENDING_EVENTS));
+	}
+
+	@Test
+	public void failedEventKeepsTrace() {
+		TailSamplingFilter filter = new TailSamplingFilter(KeyBy.CORRELATOR, 0, 0);
+		TrackingEvent e1 = event("e1", "c1");
+		assertFalse(filter.filter(sink, e1));
+		TrackingEvent failed = event("e2", "c1");
+		failed.getOperation().setCompCode(OpCompCode.ERROR);
+		assertTrue(filter.filter(sink, failed));
+		assertEquals(1, sink.events.size());
+		assertSame(e1, sink.events.get(0));
+
+		assertTrue(filter.filter(sink, activity(10, null, "c1")));
+		assertEquals(1, stat(filter, TailSamplingFilter.KEY_KEPT_TRACE));
+	}
+
+	@Test
+	public void flushDecidesPendingTraces() {
+		TailSamplingFilter filter = new TailSamplingFilter(KeyBy.CORRELATOR, 1, 0);
+		assertFalse(filter.filter(sink, event("e1", "c1")));
+		filter.flush();
+		assertEquals(1, sink.events.size());
+		assertEquals(1, stat(filter, TailSamplingFilter.KEY_EVENTS_EXPIRED));
+		assertEquals(0, stat(filter, TailSamplingFilter.KEY_PENDING_KEYS));
+	}
+
+	@Test
+	public void multipleCorrelatorsAreKeyedBySmallest() {
+		TailSamplingFilter filter = new TailSamplingFilter(KeyBy.CORRELATOR, 0, 0);
+		TrackingEvent e1 = event("e1", "order-2", "order-1");
+		assertFalse(filter.filter(sink, e1));
+
+		assertTrue(filter.filter(sink, activity(10, new IllegalStateException("failed"), "order-1", "order-3")));
+		assertEquals(1, sink.events.size());
+		assertSame(e1, sink.events.get(0));
+		assertTrue(filter.filter(sink, event("e2", "order-1")));
+	}
+
+	/**
+	 * Sink recording replayed events.
+	 */
+	static class RecordingSink extends NullEventSink {
+		final List<TrackingEvent> events = new ArrayList<>();
+
+		RecordingSink() {
+			super("test");
+		}
+
+		@Override
+		protected void _log(TrackingEvent event) {
+			events.add(event);
+		}
+	}
+}
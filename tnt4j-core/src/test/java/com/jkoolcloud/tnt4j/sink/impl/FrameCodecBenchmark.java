@@ -0,0 +1,181 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Benchmark reporting throughput and bytes on wire of socket stream framing modes: new line terminated entries,
+ * length-prefixed frames and length-prefixed frames Deflate compressed per batch. JSON-like entries are encoded into a
+ * stream the same way socket sinks write them, for a number of batch sizes, and decoded back ({@link FrameDecoder} for
+ * framed streams, new line scan for line streams). Encode and decode rates in MB of entry payload per second and wire
+ * bytes per entry are reported.
+ * </p>
+ *
+ * <pre>
+ * java -cp ... com.jkoolcloud.tnt4j.sink.impl.FrameCodecBenchmark [entries] [batchSizes,...] [compressLevel] [runs]
+ * </pre>
+ *
+ * Defaults: 200000 entries, batches of 1, 10, 100 and 1000 entries, compression level 1, 3 runs.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see FrameEncoder
+ * @see FrameDecoder
+ */
+public class FrameCodecBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int entryCount = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		String[] batchSizes = (args.length > 1 ? args[1] : "1,10,100,1000").split(",");
+		int level = args.length > 2 ? Integer.parseInt(args[2]) : FrameEncoder.DEFAULT_COMPRESS_LEVEL;
+		int runs = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+		byte[][] entries = entries(entryCount);
+		long payload = 0;
+		for (byte[] entry : entries) {
+			payload += entry.length;
+		}
+		System.out.println("entries=" + entryCount + ", avg.entry.bytes=" + payload / entryCount + ", level=" + level);
+		for (int r = 0; r < runs; r++) {
+			for (String bs : batchSizes) {
+				int batchSize = Integer.parseInt(bs.trim());
+				run("line", entries, payload, batchSize, null);
+				run("length", entries, payload, batchSize, new FrameEncoder(false, level, 0));
+				run("deflate", entries, payload, batchSize,
+						new FrameEncoder(true, level, FrameEncoder.DEFAULT_COMPRESS_MIN_SIZE));
+			}
+		}
+	}
+
+	private static void run(String mode, byte[][] entries, long payload, int batchSize, FrameEncoder encoder)
+			throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE, payload * 2));
+		long start = System.nanoTime();
+		if (encoder == null) {
+			encodeLines(entries, out);
+		} else {
+			encodeFrames(entries, batchSize, encoder, out);
+			encoder.end();
+		}
+		long encodeNs = System.nanoTime() - start;
+		byte[] wire = out.toByteArray();
+
+		start = System.nanoTime();
+		long decoded = encoder == null ? decodeLines(wire) : decodeFrames(wire);
+		long decodeNs = System.nanoTime() - start;
+		if (decoded != entries.length) {
+			throw new IllegalStateException("Decoded " + decoded + " of " + entries.length + " entries");
+		}
+		System.out.printf("mode=%-8s batch=%-5d wire.bytes.per.entry=%-7.1f ratio=%.2f encode.mb.sec=%-7.0f "
+				+ "decode.mb.sec=%.0f%n", mode, batchSize, (double) wire.length / entries.length,
+				(double) wire.length / payload, mbPerSec(payload, encodeNs), mbPerSec(payload, decodeNs));
+	}
+
+	private static void encodeLines(byte[][] entries, ByteArrayOutputStream out) {
+		for (byte[] entry : entries) {
+			out.write(entry, 0, entry.length);
+			out.write('\n');
+		}
+	}
+
+	/**
+	 * Encode entries the way socket sinks do: single entry frames are collected into a batch buffer, which is written
+	 * as is or compressed once batch is complete.
+	 */
+	private static void encodeFrames(byte[][] entries, int batchSize, FrameEncoder encoder, ByteArrayOutputStream out)
+			throws IOException {
+		out.write(FrameEncoder.streamHeader());
+		ByteBuffer batch = ByteBuffer.allocate(64 * 1024);
+		int count = 0;
+		for (byte[] entry : entries) {
+			int size = FrameEncoder.frameSize(entry.length);
+			if (batch.remaining() < size) {
+				writeBatch(batch, encoder, out);
+				if (batch.capacity() < size) {
+					batch = ByteBuffer.allocate(size);
+				}
+			}
+			FrameEncoder.frame(batch, entry);
+			if (++count % batchSize == 0) {
+				writeBatch(batch, encoder, out);
+			}
+		}
+		writeBatch(batch, encoder, out);
+	}
+
+	private static void writeBatch(ByteBuffer batch, FrameEncoder encoder, ByteArrayOutputStream out) {
+		if (batch.position() == 0) {
+			return;
+		}
+		batch.flip();
+		ByteBuffer frame = encoder.isCompressed(batch.remaining()) ? encoder.deflate(batch) : batch;
+		out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+		batch.clear();
+	}
+
+	private static long decodeLines(byte[] wire) {
+		long count = 0;
+		for (byte b : wire) {
+			if (b == '\n') {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static long decodeFrames(byte[] wire) throws IOException {
+		try (FrameDecoder decoder = new FrameDecoder(new ByteArrayInputStream(wire))) {
+			while (decoder.nextFrame() != null) {
+				// count entries only
+			}
+			return decoder.getEntryCount();
+		}
+	}
+
+	private static byte[][] entries(int count) {
+		Random rnd = new Random(42);
+		String[] severities = { "DEBUG", "INFO", "INFO", "INFO", "WARNING", "ERROR" };
+		byte[][] entries = new byte[count][];
+		long time = 1697500000000000L;
+		for (int i = 0; i < count; i++) {
+			time += rnd.nextInt(1000);
+			String entry = "{\"tracking-id\":\"" + new UUID(rnd.nextLong(), rnd.nextLong()) //
+					+ "\",\"source\":\"APPL=order-service#SERVER=host-" + rnd.nextInt(8) //
+					+ "\",\"operation\":\"process-order-" + rnd.nextInt(20) //
+					+ "\",\"severity\":\"" + severities[rnd.nextInt(severities.length)] //
+					+ "\",\"time-usec\":" + time //
+					+ ",\"elapsed-usec\":" + rnd.nextInt(100000) //
+					+ ",\"correlator\":[\"order-" + rnd.nextInt(100000) //
+					+ "\"],\"msg-text\":\"order processed: items=" + rnd.nextInt(50) + ", amount="
+					+ rnd.nextInt(10000) + "\"}";
+			entries[i] = entry.getBytes(StandardCharsets.UTF_8);
+		}
+		return entries;
+	}
+
+	private static double mbPerSec(long bytes, long nanos) {
+		return bytes / (1024.0 * 1024.0) / (nanos / (double) TimeUnit.SECONDS.toNanos(1));
+	}
+}
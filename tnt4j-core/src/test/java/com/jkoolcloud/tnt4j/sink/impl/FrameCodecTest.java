@@ -0,0 +1,136 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link FrameEncoder} and {@link FrameDecoder} tests.
+ *
+ * @version $Revision: 1 $
+ */
+public class FrameCodecTest {
+
+	private static byte[][] entries(int count) {
+		byte[][] entries = new byte[count][];
+		for (int i = 0; i < count; i++) {
+			entries[i] = ("{\"seq\":" + i + ",\"msg-text\":\"entry " + "abc".repeat(i % 50) + "\"}")
+					.getBytes(StandardCharsets.UTF_8);
+		}
+		entries[count / 2] = new byte[0];
+		return entries;
+	}
+
+	/**
+	 * Encode entries the way socket sinks do: single entry frames are collected into a batch, which is written as is or
+	 * compressed once complete.
+	 */
+	private static byte[] encode(byte[][] entries, int batchSize, FrameEncoder encoder) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(FrameEncoder.streamHeader(), 0, FrameEncoder.STREAM_HEADER_SIZE);
+		ByteBuffer batch = ByteBuffer.allocate(64 * 1024);
+		for (int i = 0; i < entries.length; i++) {
+			FrameEncoder.frame(batch, entries[i]);
+			if ((i + 1) % batchSize == 0 || i == entries.length - 1) {
+				batch.flip();
+				ByteBuffer frame = encoder.isCompressed(batch.remaining()) ? encoder.deflate(batch) : batch;
+				out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+				batch.clear();
+			}
+		}
+		encoder.end();
+		return out.toByteArray();
+	}
+
+	private static void assertDecoded(byte[][] entries, byte[] wire, long batches) throws IOException {
+		try (FrameDecoder decoder = new FrameDecoder(new ByteArrayInputStream(wire))) {
+			for (int i = 0; i < entries.length; i++) {
+				byte[] entry = decoder.nextFrame();
+				assertNotNull(entry, "entry " + i);
+				assertArrayEquals(entries[i], entry);
+			}
+			assertNull(decoder.nextFrame());
+			assertEquals(entries.length, decoder.getEntryCount());
+			assertEquals(batches, decoder.getBatchCount());
+			assertEquals(wire.length, decoder.getWireBytes());
+		}
+	}
+
+	@Test
+	public void uncompressedRoundTrip() throws Exception {
+		byte[][] entries = entries(1000);
+		byte[] wire = encode(entries, 100, new FrameEncoder(false, FrameEncoder.DEFAULT_COMPRESS_LEVEL, 0));
+		long payload = 0;
+		for (byte[] entry : entries) {
+			payload += entry.length;
+		}
+		assertEquals(FrameEncoder.STREAM_HEADER_SIZE + entries.length * FrameEncoder.FRAME_HEADER_SIZE + payload,
+				wire.length);
+		assertDecoded(entries, wire, 0);
+	}
+
+	@Test
+	public void compressedRoundTrip() throws Exception {
+		// last single entry batch stays below min size and is sent uncompressed
+		byte[][] entries = entries(1001);
+		byte[] wire = encode(entries, 100, new FrameEncoder(true, FrameEncoder.DEFAULT_COMPRESS_LEVEL,
+				FrameEncoder.DEFAULT_COMPRESS_MIN_SIZE));
+		assertDecoded(entries, wire, 10);
+	}
+
+	@Test
+	public void batchesBelowMinSizeAreNotCompressed() throws Exception {
+		byte[][] entries = entries(10);
+		FrameEncoder encoder = new FrameEncoder(true, FrameEncoder.DEFAULT_COMPRESS_LEVEL, 64 * 1024);
+		assertFalse(encoder.isCompressed(FrameEncoder.DEFAULT_COMPRESS_MIN_SIZE));
+		assertDecoded(entries, encode(entries, 5, encoder), 0);
+	}
+
+	@Test
+	public void corruptedFrameIsRejected() throws Exception {
+		ByteBuffer wire = ByteBuffer.allocate(FrameEncoder.STREAM_HEADER_SIZE + FrameEncoder.FRAME_HEADER_SIZE);
+		wire.put(FrameEncoder.streamHeader()).putInt(Integer.MIN_VALUE);
+		try (FrameDecoder decoder = new FrameDecoder(new ByteArrayInputStream(wire.array()))) {
+			IOException exc = assertThrows(IOException.class, decoder::nextFrame);
+			assertTrue(exc.getMessage().startsWith("Corrupted frame"), exc.getMessage());
+		}
+	}
+
+	@Test
+	public void oversizedFrameIsRejected() throws Exception {
+		byte[] wire = encode(new byte[][] { new byte[2048] }, 1, new FrameEncoder(false, 0, 0));
+		try (FrameDecoder decoder = new FrameDecoder(new ByteArrayInputStream(wire), 1024)) {
+			IOException exc = assertThrows(IOException.class, decoder::nextFrame);
+			assertTrue(exc.getMessage().startsWith("Frame too large"), exc.getMessage());
+		}
+	}
+
+	@Test
+	public void invalidStreamHeaderIsRejected() throws Exception {
+		byte[] wire = "{\"not\":\"framed\"}\n".getBytes(StandardCharsets.UTF_8);
+		try (FrameDecoder decoder = new FrameDecoder(new ByteArrayInputStream(wire))) {
+			assertThrows(IOException.class, decoder::nextFrame);
+		}
+	}
+}
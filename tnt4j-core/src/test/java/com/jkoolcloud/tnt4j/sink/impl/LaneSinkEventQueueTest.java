@@ -0,0 +1,134 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.sink.EventSink;
+import com.jkoolcloud.tnt4j.sink.SinkLogEvent;
+import com.jkoolcloud.tnt4j.sink.impl.LaneSinkEventQueue.DropPolicy;
+import com.jkoolcloud.tnt4j.sink.impl.LaneSinkEventQueue.Lane;
+import com.jkoolcloud.tnt4j.sink.impl.LaneSinkEventQueue.LaneConfig;
+
+/**
+ * {@link LaneSinkEventQueue} tests.
+ *
+ * @version $Revision: 1 $
+ */
+public class LaneSinkEventQueueTest {
+	final EventSink sink = new NullEventSink("test");
+
+	private static LaneSinkEventQueue newQueue(int laneCapacity) {
+		Map<Lane, LaneConfig> lanes = new EnumMap<>(Lane.class);
+		lanes.put(Lane.HIGH, new LaneConfig(laneCapacity, 8, DropPolicy.DROP_NEWEST));
+		lanes.put(Lane.NORMAL, new LaneConfig(laneCapacity, 4, DropPolicy.DROP_NEWEST));
+		lanes.put(Lane.LOW, new LaneConfig(laneCapacity, 1, DropPolicy.DROP_OLDEST));
+		return new LaneSinkEventQueue(lanes, WaitStrategy.PARK);
+	}
+
+	private SinkLogEvent event(OpLevel level, String msg) {
+		return new SinkLogEvent(sink, null, level, 0, msg);
+	}
+
+	private SinkLogEvent signal() {
+		return new SinkLogEvent(sink, Thread.currentThread(), SinkLogEvent.SIGNAL_FLUSH);
+	}
+
+	private static List<SinkLogEvent> drain(LaneSinkEventQueue queue) {
+		List<SinkLogEvent> events = new ArrayList<>();
+		SinkLogEvent event;
+		while ((event = queue.poll()) != null) {
+			events.add(event);
+		}
+		return events;
+	}
+
+	@Test
+	public void fullLaneDropsNewest() {
+		LaneSinkEventQueue queue = newQueue(2);
+		assertTrue(queue.offer(event(OpLevel.ERROR, "e1")));
+		assertTrue(queue.offer(event(OpLevel.ERROR, "e2")));
+		assertFalse(queue.offer(event(OpLevel.ERROR, "e3")));
+		// other lanes keep their own space
+		assertTrue(queue.offer(event(OpLevel.INFO, "i1")));
+
+		assertEquals(1, queue.getDropCount(Lane.HIGH));
+		assertEquals(0, queue.getDropCount(Lane.NORMAL));
+		assertEquals(2, queue.size(Lane.HIGH));
+	}
+
+	@Test
+	public void fullLaneEvictsOldest() {
+		LaneSinkEventQueue queue = newQueue(2);
+		assertTrue(queue.offer(event(OpLevel.DEBUG, "d1")));
+		assertTrue(queue.offer(event(OpLevel.DEBUG, "d2")));
+		assertTrue(queue.offer(event(OpLevel.DEBUG, "d3")));
+
+		assertEquals(1, queue.getEvictCount(Lane.LOW));
+		assertEquals(0, queue.getDropCount(Lane.LOW));
+		List<SinkLogEvent> events = drain(queue);
+		assertEquals(2, events.size());
+		assertEquals("d2", events.get(0).getSinkObject());
+		assertEquals("d3", events.get(1).getSinkObject());
+	}
+
+	@Test
+	public void signalWaitsForEarlierEventsOfAllLanes() {
+		LaneSinkEventQueue queue = newQueue(8);
+		SinkLogEvent flush = signal();
+		assertTrue(queue.offer(event(OpLevel.DEBUG, "d1")));
+		assertTrue(queue.offer(event(OpLevel.INFO, "i1")));
+		assertTrue(queue.offer(event(OpLevel.ERROR, "e1")));
+		assertTrue(queue.offer(flush));
+		assertTrue(queue.offer(event(OpLevel.ERROR, "e2")));
+
+		List<SinkLogEvent> events = drain(queue);
+		assertEquals(5, events.size());
+		int signalAt = events.indexOf(flush);
+		for (int i = 0; i < events.size(); i++) {
+			Object msg = events.get(i).getSinkObject();
+			if ("d1".equals(msg) || "i1".equals(msg) || "e1".equals(msg)) {
+				assertTrue(i < signalAt, msg + " delivered after signal");
+			}
+		}
+	}
+
+	@Test
+	public void signalsAreNeverEvicted() {
+		LaneSinkEventQueue queue = newQueue(2);
+		assertTrue(queue.offer(event(OpLevel.DEBUG, "d1")));
+		SinkLogEvent flush = signal();
+		assertTrue(queue.offer(flush));
+		// flood low lane past its capacity, evicting events queued before the signal
+		for (int i = 2; i <= 10; i++) {
+			assertTrue(queue.offer(event(OpLevel.DEBUG, "d" + i)));
+		}
+		assertEquals(8, queue.getEvictCount(Lane.LOW));
+
+		List<SinkLogEvent> events = drain(queue);
+		assertTrue(events.contains(flush), "signal evicted");
+		assertEquals(3, events.size());
+		assertTrue(queue.isEmpty());
+	}
+}
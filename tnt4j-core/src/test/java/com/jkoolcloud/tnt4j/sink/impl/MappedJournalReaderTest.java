@@ -0,0 +1,150 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.jkoolcloud.tnt4j.format.DefaultFormatter;
+
+/**
+ * {@link MappedJournalReader} tests, reading back journals written by {@link MappedFileEventSink}.
+ *
+ * @version $Revision: 1 $
+ */
+public class MappedJournalReaderTest {
+	// small regions, so records roll over a number of regions and leave region padding behind
+	static final int REGION_SIZE = 4096;
+
+	File file;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		file = Files.createTempFile("tnt4j-journal-test", ".journal").toFile();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		file.delete();
+	}
+
+	private MappedFileEventSink newSink(boolean append) throws IOException {
+		MappedFileEventSink sink = new MappedFileEventSink("test", file.getPath(), append, REGION_SIZE, 0,
+				new DefaultFormatter("{2}"));
+		sink.open();
+		return sink;
+	}
+
+	private List<String> readAll() throws IOException {
+		List<String> records = new ArrayList<>();
+		try (MappedJournalReader reader = new MappedJournalReader(file)) {
+			assertEquals(REGION_SIZE, reader.getRegionSize());
+			String record;
+			while ((record = reader.next()) != null) {
+				records.add(record);
+			}
+			assertEquals(records.size(), reader.getCount());
+		}
+		return records;
+	}
+
+	@Test
+	public void readsBackConcurrentAppends() throws Exception {
+		int writers = 4;
+		int records = 2000;
+		MappedFileEventSink sink = newSink(false);
+		Thread[] threads = new Thread[writers];
+		List<Throwable> errors = new ArrayList<>();
+		for (int t = 0; t < writers; t++) {
+			int writer = t;
+			threads[t] = new Thread(() -> {
+				try {
+					for (int i = 0; i < records; i++) {
+						// varying record lengths exercise record alignment
+						sink.writeFormatted(writer + ":" + i + ":" + "x".repeat(i % 7));
+					}
+				} catch (Exception exc) {
+					synchronized (errors) {
+						errors.add(exc);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		sink.close();
+		assertTrue(errors.isEmpty(), "write errors: " + errors);
+		assertTrue(file.length() > 4 * REGION_SIZE, "records not rolled over regions");
+
+		int[] expected = new int[writers];
+		for (String record : readAll()) {
+			String[] fields = record.split(":");
+			int writer = Integer.parseInt(fields[0]);
+			int i = Integer.parseInt(fields[1]);
+			assertEquals(expected[writer]++, i, "writer " + writer + " order");
+			assertEquals(i % 7, fields.length > 2 ? fields[2].length() : 0);
+		}
+		for (int count : expected) {
+			assertEquals(records, count);
+		}
+	}
+
+	@Test
+	public void reopenTruncatesAtFirstUnwrittenRecord() throws Exception {
+		MappedFileEventSink sink = newSink(false);
+		for (int i = 0; i < 3; i++) {
+			sink.writeFormatted("record-" + i);
+		}
+		sink.close();
+
+		// simulate a crash: record space reserved but never written, followed by a completed record
+		byte[] stale = "stale".getBytes(StandardCharsets.UTF_8);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(raf.length());
+			raf.writeInt(0);
+			raf.writeInt(0);
+			raf.writeInt(stale.length + 1);
+			raf.write(stale);
+			raf.write(new byte[3]);
+		}
+		List<String> records = readAll();
+		assertEquals(3, records.size());
+		assertEquals("record-2", records.get(2));
+
+		sink = newSink(true);
+		sink.writeFormatted("fresh");
+		sink.close();
+
+		records = readAll();
+		assertEquals(4, records.size());
+		assertEquals("record-0", records.get(0));
+		assertEquals("fresh", records.get(3));
+		assertFalse(records.contains("stale"));
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.format.DefaultFormatter;
+import com.jkoolcloud.tnt4j.sink.EventSink;
+import com.jkoolcloud.tnt4j.source.DefaultSource;
+import com.jkoolcloud.tnt4j.source.SourceType;
+import com.jkoolcloud.tnt4j.utils.Utils;
+
+/**
+ * <p>
+ * Benchmark comparing {@link SocketEventSink} and {@link NioSocketEventSink} throughput against a local loopback
+ * collector. A number of threads log entries of a given size into one sink, and time until the collector received all
+ * of them is reported, along with number of socket writes and average entries coalesced per write for NIO sink.
+ * </p>
+ *
+ * <pre>
+ * java -cp ... com.jkoolcloud.tnt4j.sink.impl.NioSocketEventSinkBenchmark [threads] [entriesPerThread] [entrySize] [runs]
+ * </pre>
+ *
+ * Defaults: 4 threads, 100000 entries per thread, 200 byte entries, 3 runs.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see NioSocketEventSink
+ */
+public class NioSocketEventSinkBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int entries = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+		int entrySize = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+		int runs = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+		System.out.println("threads=" + threads + ", entries.per.thread=" + entries + ", entry.size=" + entrySize);
+		StringBuilder sb = new StringBuilder(entrySize);
+		while (sb.length() < entrySize) {
+			sb.append((char) ('a' + sb.length() % 26));
+		}
+		String entry = sb.toString();
+		try (Collector collector = new Collector()) {
+			for (int r = 0; r < runs; r++) {
+				SocketEventSink blocking = new SocketEventSink("benchmark", "localhost", collector.getPort(),
+						new DefaultFormatter("{2}"), null);
+				run("blocking", blocking, collector, threads, entries, entry);
+
+				NioSocketEventSink nio = new NioSocketEventSink("benchmark", "localhost", collector.getPort(),
+						new DefaultFormatter("{2}"), null);
+				nio.setOfferTimeout(TimeUnit.MINUTES.toMillis(1));
+				run("nio", nio, collector, threads, entries, entry);
+			}
+		}
+	}
+
+	private static void run(String mode, EventSink sink, Collector collector, int threads, int entries, String entry)
+			throws Exception {
+		long total = (long) threads * entries;
+		sink.setSource(new DefaultSource(null, "benchmark", SourceType.APPL, null, null));
+		collector.reset();
+		sink.open();
+		Thread[] loggers = new Thread[threads];
+		long start = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			loggers[t] = new Thread(() -> {
+				for (int i = 0; i < entries; i++) {
+					sink.log(OpLevel.INFO, entry);
+				}
+			});
+			loggers[t].start();
+		}
+		for (Thread logger : loggers) {
+			logger.join();
+		}
+		long loggedNs = System.nanoTime() - start;
+		boolean received = collector.await(total, TimeUnit.MINUTES.toMillis(1));
+		long elapsedNs = System.nanoTime() - start;
+		String writes = "";
+		if (sink instanceof NioSocketEventSink) {
+			NioSocketEventSink nio = (NioSocketEventSink) sink;
+			Map<String, Object> stats = nio.getStats();
+			writes = " writes=" + stats.get(Utils.qualify(nio, NioSocketEventSink.KEY_NIO_WRITES)) + " avg.coalesced="
+					+ stats.get(Utils.qualify(nio, NioSocketEventSink.KEY_NIO_AVG_COALESCED));
+		}
+		sink.close();
+		System.out.printf("mode=%-8s entries=%d received=%b log.ms=%d time.ms=%d entries.per.sec=%.0f%s%n", mode,
+				total, received, TimeUnit.NANOSECONDS.toMillis(loggedNs), TimeUnit.NANOSECONDS.toMillis(elapsedNs),
+				total * 1e9 / elapsedNs, writes);
+	}
+
+	/**
+	 * Loopback collector counting received new line terminated entries.
+	 */
+	static class Collector implements AutoCloseable {
+		private final ServerSocket server;
+		private final AtomicLong lines = new AtomicLong(0);
+		private final Object lock = new Object();
+
+		Collector() throws IOException {
+			server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+			Thread acceptor = new Thread(this::accept, "benchmark-collector");
+			acceptor.setDaemon(true);
+			acceptor.start();
+		}
+
+		int getPort() {
+			return server.getLocalPort();
+		}
+
+		void reset() {
+			lines.set(0);
+		}
+
+		boolean await(long count, long timeout) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + timeout;
+			synchronized (lock) {
+				long wait;
+				while (lines.get() < count && (wait = deadline - System.currentTimeMillis()) > 0) {
+					lock.wait(wait);
+				}
+			}
+			return lines.get() >= count;
+		}
+
+		private void accept() {
+			while (!server.isClosed()) {
+				try {
+					Socket socket = server.accept();
+					Thread reader = new Thread(() -> read(socket), "benchmark-collector-reader");
+					reader.setDaemon(true);
+					reader.start();
+				} catch (IOException exc) {
+					return;
+				}
+			}
+		}
+
+		private void read(Socket socket) {
+			byte[] buffer = new byte[64 * 1024];
+			try (InputStream in = socket.getInputStream()) {
+				int n;
+				while ((n = in.read(buffer)) > 0) {
+					int count = 0;
+					for (int i = 0; i < n; i++) {
+						if (buffer[i] == '\n') {
+							count++;
+						}
+					}
+					if (count > 0) {
+						lines.addAndGet(count);
+						synchronized (lock) {
+							lock.notifyAll();
+						}
+					}
+				}
+			} catch (IOException exc) {
+				// connection closed by sink
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			server.close();
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.core.TTL;
+import com.jkoolcloud.tnt4j.sink.SinkLogEvent;
+import com.jkoolcloud.tnt4j.source.Source;
+
+/**
+ * <p>
+ * Benchmark comparing {@link PooledLogger} throughput with logging tasks running on platform and virtual threads. A
+ * number of sinks, each blocking for a given time per write (like a sink waiting on a network round trip), are fed
+ * through a pooled logger with a given number of tasks, and events per second are reported for each mode and task
+ * count. On runtimes without virtual threads the virtual mode falls back to platform threads, which is reported as
+ * {@code fallback}.
+ * </p>
+ *
+ * <pre>
+ * java -cp ... com.jkoolcloud.tnt4j.sink.impl.PooledLoggerThreadsBenchmark [sinks] [eventsPerSink] [writeMs] [tasks,...]
+ * </pre>
+ *
+ * Defaults: 64 sinks, 200 events per sink, 1ms per write, 64 and 512 tasks.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see PooledLogger#setVirtualThreads(boolean)
+ */
+public class PooledLoggerThreadsBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int sinks = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+		int eventsPerSink = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		long writeMs = args.length > 2 ? Long.parseLong(args[2]) : 1;
+		String[] taskCounts = (args.length > 3 ? args[3] : "64,512").split(",");
+
+		System.out.println("java.version=" + System.getProperty("java.version") + ", sinks=" + sinks
+				+ ", events.per.sink=" + eventsPerSink + ", write.ms=" + writeMs);
+		for (String tasks : taskCounts) {
+			for (boolean virtual : new boolean[] { false, true }) {
+				run(Integer.parseInt(tasks.trim()), virtual, sinks, eventsPerSink, writeMs);
+			}
+		}
+	}
+
+	private static void run(int tasks, boolean virtual, int sinkCount, int eventsPerSink, long writeMs)
+			throws InterruptedException {
+		int total = sinkCount * eventsPerSink;
+		PooledLogger logger = new PooledLogger("benchmark", tasks, total);
+		logger.setVirtualThreads(virtual);
+		logger.start();
+
+		SlowSink[] sinks = new SlowSink[sinkCount];
+		for (int i = 0; i < sinkCount; i++) {
+			sinks[i] = new SlowSink("benchmark-sink-" + i, writeMs);
+		}
+		long start = System.nanoTime();
+		for (int e = 0; e < eventsPerSink; e++) {
+			for (SlowSink sink : sinks) {
+				logger.put(new SinkLogEvent(sink, sink.getSource(), OpLevel.INFO, TTL.TTL_CONTEXT, "benchmark event"));
+			}
+		}
+		boolean drained = logger.drain(10, TimeUnit.MINUTES);
+		long elapsedNs = System.nanoTime() - start;
+		logger.shutdown(null);
+		logger.awaitTermination(10, TimeUnit.SECONDS);
+
+		String mode = !virtual ? "platform" : logger.isVirtualThreads() ? "virtual" : "fallback";
+		System.out.printf("tasks=%-5d mode=%-9s events=%d drained=%b time.ms=%d events.per.sec=%.0f%n", tasks, mode,
+				total, drained, TimeUnit.NANOSECONDS.toMillis(elapsedNs), total * 1e9 / elapsedNs);
+	}
+
+	private static class SlowSink extends NullEventSink {
+		private final long writeMs;
+
+		SlowSink(String name, long writeMs) {
+			super(name);
+			this.writeMs = writeMs;
+		}
+
+		@Override
+		protected void _log(long ttl, Source src, OpLevel sev, String msg, Object... args) {
+			try {
+				Thread.sleep(writeMs);
+			} catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link RetryWheel} tests.
+ *
+ * @version $Revision: 1 $
+ */
+public class RetryWheelTest {
+	static final long TICK_MS = 10;
+
+	@Test
+	public void elementsExpireNotBeforeDelay() throws Exception {
+		RetryWheel<String> wheel = new RetryWheel<>(TICK_MS, 64);
+		long start = System.nanoTime();
+		wheel.schedule("late", 200, TimeUnit.MILLISECONDS);
+		wheel.schedule("early", 50, TimeUnit.MILLISECONDS);
+		assertEquals(2, wheel.size());
+
+		List<String> expired = new ArrayList<>();
+		long earlyMs = -1;
+		while (expired.size() < 2) {
+			wheel.expire(expired);
+			if (earlyMs < 0 && !expired.isEmpty()) {
+				earlyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			}
+			assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5, "elements never expired");
+		}
+		long lateMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertEquals("early", expired.get(0));
+		assertEquals("late", expired.get(1));
+		assertTrue(earlyMs >= 50, "expired early after " + earlyMs + "ms");
+		assertTrue(lateMs >= 200, "expired early after " + lateMs + "ms");
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void delaysBeyondWheelRotationWaitForTheirRound() throws Exception {
+		// 4 buckets of 10ms: a 100ms delay shares its bucket with elements expiring in earlier rounds
+		RetryWheel<Integer> wheel = new RetryWheel<>(TICK_MS, 4);
+		assertEquals(4, wheel.getWheelSize());
+		long start = System.nanoTime();
+		wheel.schedule(1, 100, TimeUnit.MILLISECONDS);
+
+		List<Integer> expired = new ArrayList<>();
+		while (expired.isEmpty()) {
+			wheel.expire(expired);
+		}
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue(elapsedMs >= 100, "expired early after " + elapsedMs + "ms");
+	}
+
+	@Test
+	public void drainToRemovesAllElements() throws Exception {
+		RetryWheel<Integer> wheel = new RetryWheel<>(TICK_MS, 16);
+		for (int i = 0; i < 100; i++) {
+			wheel.schedule(i, 1 + i, TimeUnit.SECONDS);
+		}
+		List<Integer> expired = new ArrayList<>();
+		assertEquals(0, wheel.expire(expired));
+		assertEquals(100, wheel.size());
+
+		List<Integer> drained = new ArrayList<>();
+		assertEquals(100, wheel.drainTo(drained));
+		assertEquals(100, drained.size());
+		assertEquals(0, wheel.size());
+		assertEquals(0, wheel.drainTo(drained));
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.sink.EventSink;
+import com.jkoolcloud.tnt4j.sink.SinkLogEvent;
+
+/**
+ * {@link RingBufferSinkEventQueue} tests.
+ *
+ * @version $Revision: 1 $
+ */
+public class RingBufferSinkEventQueueTest {
+	final EventSink sink = new NullEventSink("test");
+
+	private SinkLogEvent event(Object msg) {
+		return new SinkLogEvent(sink, null, OpLevel.INFO, 0, msg);
+	}
+
+	@Test
+	public void offerRejectsBeyondCapacity() {
+		RingBufferSinkEventQueue queue = new RingBufferSinkEventQueue(5, WaitStrategy.PARK);
+		assertEquals(5, queue.capacity());
+		for (int i = 0; i < 5; i++) {
+			assertTrue(queue.offer(event(i)), "offer " + i);
+		}
+		assertFalse(queue.offer(event(5)), "offer beyond capacity");
+		assertEquals(5, queue.size());
+
+		assertEquals(0, queue.poll().getSinkObject());
+		assertTrue(queue.offer(event(5)), "offer after poll");
+		assertFalse(queue.offer(event(6)), "offer beyond capacity");
+	}
+
+	@Test
+	public void pollKeepsOrderAcrossWrapAround() {
+		RingBufferSinkEventQueue queue = new RingBufferSinkEventQueue(4, WaitStrategy.PARK);
+		int next = 0;
+		for (int round = 0; round < 100; round++) {
+			// partial fills move the ring position so that slots wrap at different offsets
+			int count = round % 4 + 1;
+			for (int i = 0; i < count; i++) {
+				assertTrue(queue.offer(event(next + i)));
+			}
+			for (int i = 0; i < count; i++) {
+				assertEquals(next + i, queue.poll().getSinkObject());
+			}
+			next += count;
+		}
+		assertNull(queue.poll());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void multipleProducersKeepPerProducerOrder() throws Exception {
+		int producers = 4;
+		int events = 20000;
+		RingBufferSinkEventQueue queue = new RingBufferSinkEventQueue(64, WaitStrategy.PARK);
+		Thread[] threads = new Thread[producers];
+		for (int p = 0; p < producers; p++) {
+			int producer = p;
+			threads[p] = new Thread(() -> {
+				try {
+					for (int i = 0; i < events; i++) {
+						queue.put(event(new int[] { producer, i }));
+					}
+				} catch (InterruptedException exc) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			threads[p].start();
+		}
+		int[] expected = new int[producers];
+		for (int n = 0; n < producers * events; n++) {
+			SinkLogEvent event = queue.poll(10, TimeUnit.SECONDS);
+			assertNotNull(event, "event " + n + " not delivered");
+			int[] msg = (int[]) event.getSinkObject();
+			assertEquals(expected[msg[0]]++, msg[1], "producer " + msg[0] + " order");
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNull(queue.poll());
+		for (int count : expected) {
+			assertEquals(events, count);
+		}
+	}
+}
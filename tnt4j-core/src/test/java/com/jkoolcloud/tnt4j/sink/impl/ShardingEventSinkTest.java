@@ -0,0 +1,85 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.jkoolcloud.tnt4j.sink.EventSinkFactory;
+
+/**
+ * {@link ShardingEventSink} tests.
+ *
+ * @version $Revision: 1 $
+ */
+public class ShardingEventSinkTest {
+	static final int KEYS = 10000;
+
+	private static ShardingEventSink newSink(String... shardIds) {
+		Map<String, EventSinkFactory> factories = new LinkedHashMap<>();
+		for (String id : shardIds) {
+			factories.put(id, new NullEventSinkFactory());
+		}
+		return (ShardingEventSink) new ShardingEventSinkFactory(factories).getEventSink("test");
+	}
+
+	@Test
+	public void keysAreSpreadAcrossShards() {
+		ShardingEventSink sink = newSink("s1", "s2", "s3", "s4");
+		Map<String, Integer> counts = new LinkedHashMap<>();
+		for (int i = 0; i < KEYS; i++) {
+			counts.merge(sink.getShardId("order-" + i), 1, Integer::sum);
+		}
+		assertEquals(4, counts.size());
+		for (Map.Entry<String, Integer> count : counts.entrySet()) {
+			double share = count.getValue() / (double) KEYS;
+			assertTrue(share > 0.15 && share < 0.35, count.getKey() + " share " + share);
+		}
+	}
+
+	@Test
+	public void addingShardMovesKeysOnlyToNewShard() {
+		ShardingEventSink sink3 = newSink("s1", "s2", "s3");
+		ShardingEventSink sink4 = newSink("s1", "s2", "s3", "s4");
+		int moved = 0;
+		for (int i = 0; i < KEYS; i++) {
+			String key = "order-" + i;
+			String before = sink3.getShardId(key);
+			String after = sink4.getShardId(key);
+			if (!before.equals(after)) {
+				assertEquals("s4", after, key + " moved between existing shards");
+				moved++;
+			}
+		}
+		double share = moved / (double) KEYS;
+		assertTrue(share > 0.15 && share < 0.35, "moved share " + share);
+	}
+
+	@Test
+	public void shardSelectionIsStable() {
+		ShardingEventSink sink1 = newSink("s1", "s2", "s3");
+		ShardingEventSink sink2 = newSink("s1", "s2", "s3");
+		for (int i = 0; i < KEYS; i++) {
+			String key = "order-" + i;
+			assertEquals(sink1.getShardId(key), sink2.getShardId(key));
+		}
+		assertEquals(ShardingEventSink.hash("order-1"), ShardingEventSink.hash("order-1"));
+	}
+}
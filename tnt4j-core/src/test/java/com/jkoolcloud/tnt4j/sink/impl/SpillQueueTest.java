@@ -0,0 +1,155 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.jkoolcloud.tnt4j.sink.EventSink;
+
+/**
+ * {@link SpillQueue} tests.
+ *
+ * @version $Revision: 1 $
+ */
+public class SpillQueueTest {
+	// 8 byte record header + 8 byte payload: 4 records per segment
+	static final int SEGMENT_SIZE = 64;
+
+	final EventSink sink1 = new NullEventSink("sink1");
+	final EventSink sink2 = new NullEventSink("sink2");
+	File dir;
+	SpillQueue queue;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		dir = Files.createTempDirectory("tnt4j-spill-test").toFile();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		if (queue != null) {
+			queue.close();
+		}
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	private static String entry(int i) {
+		return String.format("entry-%02d", i);
+	}
+
+	private static int segmentFiles(File dir) {
+		File[] files = dir.listFiles((d, name) -> name.endsWith(SpillQueue.FILE_EXT));
+		return files == null ? 0 : files.length;
+	}
+
+	@Test
+	public void recordsRoundTripInOrderAcrossSegments() throws Exception {
+		queue = new SpillQueue(dir, "test", SEGMENT_SIZE, 1024);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(16, queue.append(i % 2 == 0 ? sink1 : sink2, entry(i)));
+		}
+		assertEquals(10, queue.size());
+		assertEquals(3, queue.getSegmentCount());
+		assertEquals(3, segmentFiles(dir));
+
+		for (int i = 0; i < 10; i++) {
+			SpillQueue.Record record = queue.peek();
+			assertNotNull(record, "record " + i);
+			assertEquals(entry(i), record.getPayload());
+			assertSame(i % 2 == 0 ? sink1 : sink2, record.getSink());
+			// peek without remove returns the same record
+			assertEquals(entry(i), queue.peek().getPayload());
+			assertTrue(queue.remove());
+		}
+		assertNull(queue.peek());
+		assertTrue(queue.isEmpty());
+		// consumed segments are deleted, segment still written to is kept
+		assertEquals(1, queue.getSegmentCount());
+		assertEquals(1, segmentFiles(dir));
+		assertEquals(0, queue.getSinkCount());
+	}
+
+	@Test
+	public void appendRejectsBeyondMaxSize() throws Exception {
+		queue = new SpillQueue(dir, "test", SEGMENT_SIZE, 2 * SEGMENT_SIZE);
+		for (int i = 0; i < 8; i++) {
+			assertEquals(16, queue.append(sink1, entry(i)));
+		}
+		assertEquals(0, queue.append(sink1, entry(8)));
+		assertEquals(8, queue.size());
+
+		// space is reclaimed once a consumed segment is passed by the reader
+		for (int i = 0; i < 4; i++) {
+			assertEquals(entry(i), queue.peek().getPayload());
+			assertTrue(queue.remove());
+		}
+		assertEquals(entry(4), queue.peek().getPayload());
+		assertEquals(1, queue.getSegmentCount());
+		assertEquals(16, queue.append(sink1, entry(8)));
+		assertEquals(2 * SEGMENT_SIZE, queue.getDiskSize());
+	}
+
+	@Test
+	public void leftoverSegmentsAreDeleted() throws Exception {
+		queue = new SpillQueue(dir, "test", SEGMENT_SIZE, 1024);
+		for (int i = 0; i < 6; i++) {
+			queue.append(sink1, entry(i));
+		}
+		assertEquals(2, segmentFiles(dir));
+
+		SpillQueue reopened = new SpillQueue(dir, "test", SEGMENT_SIZE, 1024);
+		assertEquals(0, segmentFiles(dir));
+		assertTrue(reopened.isEmpty());
+		reopened.close();
+	}
+
+	@Test
+	public void closedSinkRecordsAreFlaggedAndReleased() throws Exception {
+		queue = new SpillQueue(dir, "test", SEGMENT_SIZE, 1024);
+		queue.append(sink1, entry(0));
+		queue.append(sink2, entry(1));
+		queue.closeSink(sink1);
+		queue.append(sink1, entry(2));
+		assertEquals(3, queue.getSinkCount());
+
+		SpillQueue.Record record = queue.peek();
+		assertTrue(record.isSinkClosed());
+		assertTrue(queue.remove());
+		assertEquals(2, queue.getSinkCount());
+
+		assertFalse(queue.peek().isSinkClosed());
+		assertTrue(queue.remove());
+		record = queue.peek();
+		// record appended after sink was closed is not affected
+		assertSame(sink1, record.getSink());
+		assertFalse(record.isSinkClosed());
+		assertTrue(queue.remove());
+		assertEquals(0, queue.getSinkCount());
+	}
+}
@@ -16,30 +16,66 @@
 package com.jkoolcloud.tnt4j.sink.impl.kafka;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.Metric;
 import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 
 import com.jkoolcloud.tnt4j.core.KeyValueStats;
 import com.jkoolcloud.tnt4j.core.OpLevel;
 import com.jkoolcloud.tnt4j.core.Snapshot;
 import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.format.FormatCache;
 import com.jkoolcloud.tnt4j.sink.AbstractEventSink;
 import com.jkoolcloud.tnt4j.sink.EventSink;
 import com.jkoolcloud.tnt4j.source.Source;
 import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
 import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+import com.jkoolcloud.tnt4j.utils.SharedScheduler;
 import com.jkoolcloud.tnt4j.utils.Utils;
 
 /**
  * <p>
  * This class implements {@link EventSink} with Kafka as the underlying sink implementation.
  * </p>
+ *
+ * <p>
+ * By default formatted entries are sent as UTF-8 encoded {@code byte[]} record values, replacing configured
+ * {@link StringSerializer} value serializer by {@link ByteArraySerializer}. Custom value serializers are used with
+ * {@code String} record values as is.
+ * </p>
+ *
+ * <p>
+ * Every send is completed by a callback updating sink error and acknowledgement latency statistics, so asynchronous
+ * send failures are reported to sink error listeners. Number of bytes sent, but not yet acknowledged, is bounded by an
+ * in-flight window (defaults to producer {@code buffer.memory}). When window is exhausted, logging thread either waits
+ * up to block timeout for room ({@link BackpressurePolicy#BLOCK}) or entry is dropped right away
+ * ({@link BackpressurePolicy#DROP}). Dropped entries are counted.
+ * </p>
+ *
+ * <p>
+ * Record keys (and thus partitions) are selected by {@link KafkaKeyStrategy}, by default operation name, activity
+ * name, snapshot category or source FQ name. Topic partition count, used by strategies choosing partitions, is
+ * obtained from producer metadata by a background thread, so logging threads never block on metadata fetch, and is
+ * refreshed periodically to pick up added partitions. Until partition count is known, it is reported to strategies
+ * as {@code 0}, letting producer partitioner choose partitions.
+ * </p>
  * 
  * 
  * @version $Revision: 1 $
@@ -48,11 +84,64 @@ import com.jkoolcloud.tnt4j.utils.Utils;
  * @see EventFormatter
  * @see AbstractEventSink
  * @see KafkaEventSinkFactory
+ * @see KafkaKeyStrategy
  */
 public class KafkaEventSink extends AbstractEventSink {
+	public static final String KEY_KAFKA_ACKED = "kafka-acked";
+	public static final String KEY_KAFKA_FAILED = "kafka-failed";
+	public static final String KEY_KAFKA_DROPPED = "kafka-dropped";
+	public static final String KEY_KAFKA_BLOCKED = "kafka-blocked";
+	public static final String KEY_KAFKA_IN_FLIGHT = "kafka-in-flight";
+	public static final String KEY_KAFKA_IN_FLIGHT_BYTES = "kafka-in-flight-bytes";
+	public static final String KEY_KAFKA_ACK_LATENCY = "kafka-ack-latency-usec";
+	public static final String KEY_KAFKA_LAST_ACK_LATENCY = "kafka-last-ack-latency-usec";
+	public static final String KEY_KAFKA_MAX_ACK_LATENCY = "kafka-max-ack-latency-usec";
+	public static final String KEY_KAFKA_KEY_STRATEGY = "kafka-key-strategy";
+	public static final String KEY_KAFKA_PARTITIONS = "kafka-partitions";
+
+	public static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 32 * 1024 * 1024;
+	public static final long DEFAULT_BLOCK_TIMEOUT_MS = 60000;
+	public static final long DEFAULT_PARTITION_REFRESH_MS = 60000;
+
+
+	/**
+	 * Policy applied when in-flight window is exhausted.
+	 */
+	public enum BackpressurePolicy {
+		/**
+		 * Logging thread waits for room in the window up to block timeout, entry is dropped if timeout elapses.
+		 */
+		BLOCK,
+		/**
+		 * Entry is dropped right away.
+		 */
+		DROP
+	}
 
 	Properties kprops;
-	Producer<String, String> producer;
+	Producer<String, Object> producer;
+
+	private boolean bytesValue = true;
+	private volatile boolean sendBytes;
+	private BackpressurePolicy backpressurePolicy = BackpressurePolicy.BLOCK;
+	private long blockTimeout = DEFAULT_BLOCK_TIMEOUT_MS;
+	private long maxInFlightBytes = -1;
+	private int windowSize;
+	private volatile Semaphore window;
+	private KafkaKeyStrategy keyStrategy = KafkaKeyStrategy.Builtin.DEFAULT;
+	private boolean partitioned = false;
+	private long partitionRefresh = DEFAULT_PARTITION_REFRESH_MS;
+	private volatile int partitionCount = -1;
+	private ScheduledFuture<?> refreshTask;
+
+	private final AtomicLong acked = new AtomicLong(0);
+	private final AtomicLong failed = new AtomicLong(0);
+	private final AtomicLong dropped = new AtomicLong(0);
+	private final AtomicLong blocked = new AtomicLong(0);
+	private final AtomicLong inFlight = new AtomicLong(0);
+	private final AtomicLong ackLatency = new AtomicLong(0);
+	private final AtomicLong lastAckLatency = new AtomicLong(0);
+	private final AtomicLong maxAckLatency = new AtomicLong(0);
 
 	/**
 	 * Create a Kafka event sink
@@ -69,6 +158,74 @@ public class KafkaEventSink extends AbstractEventSink {
 		this.kprops = props;
 	}
 
+	/**
+	 * Set whether entries are sent as UTF-8 encoded {@code byte[]} record values. Applies only when configured value
+	 * serializer is {@link StringSerializer} or undefined. Takes effect when sink is (re)opened.
+	 *
+	 * @param flag
+	 *            {@code true} to send {@code byte[]} values, {@code false} to send {@code String} values
+	 * @return itself
+	 */
+	public KafkaEventSink setBytesValue(boolean flag) {
+		bytesValue = flag;
+		return this;
+	}
+
+	/**
+	 * Set in-flight window settings. Takes effect when sink is (re)opened.
+	 *
+	 * @param policy
+	 *            policy applied when in-flight window is exhausted
+	 * @param maxBytes
+	 *            max number of bytes sent, but not yet acknowledged, negative to use producer {@code buffer.memory}
+	 * @param timeout
+	 *            max time in milliseconds to wait for room in the window, applies to
+	 *            {@link BackpressurePolicy#BLOCK} policy
+	 * @return itself
+	 */
+	public KafkaEventSink setInFlightWindow(BackpressurePolicy policy, long maxBytes, long timeout) {
+		backpressurePolicy = policy == null ? BackpressurePolicy.BLOCK : policy;
+		maxInFlightBytes = maxBytes;
+		blockTimeout = Math.max(0, timeout);
+		return this;
+	}
+
+	/**
+	 * Set strategy selecting record keys and partitions.
+	 *
+	 * @param strategy
+	 *            record key strategy, {@code null} for {@link KafkaKeyStrategy.Builtin#DEFAULT}
+	 * @return itself
+	 */
+	public KafkaEventSink setKeyStrategy(KafkaKeyStrategy strategy) {
+		keyStrategy = strategy == null ? KafkaKeyStrategy.Builtin.DEFAULT : strategy;
+		partitioned = !(keyStrategy instanceof KafkaKeyStrategy.Builtin)
+				|| keyStrategy == KafkaKeyStrategy.Builtin.ROUND_ROBIN;
+		return this;
+	}
+
+	/**
+	 * Set how often topic partition count is refreshed from producer metadata, when key strategy chooses partitions.
+	 * Takes effect when sink is (re)opened.
+	 *
+	 * @param refreshMs
+	 *            partition count refresh interval in milliseconds
+	 * @return itself
+	 */
+	public KafkaEventSink setPartitionRefresh(long refreshMs) {
+		partitionRefresh = Math.max(1, refreshMs);
+		return this;
+	}
+
+	/**
+	 * Obtain strategy selecting record keys and partitions.
+	 *
+	 * @return record key strategy
+	 */
+	public KafkaKeyStrategy getKeyStrategy() {
+		return keyStrategy;
+	}
+
 	@Override
 	public Object getSinkHandle() {
 		return producer;
@@ -82,18 +239,76 @@ public class KafkaEventSink extends AbstractEventSink {
 	@Override
 	protected synchronized void _open() throws IOException {
 		_close();
-		producer = new KafkaProducer<>(kprops);
+		Properties props = new Properties();
+		props.putAll(kprops);
+		sendBytes = bytesValue && isStringSerializer(props.get(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG));
+		if (sendBytes) {
+			props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+		}
+		long maxBytes = maxInFlightBytes >= 0 ? maxInFlightBytes
+				: Utils.getLong(ProducerConfig.BUFFER_MEMORY_CONFIG, props, DEFAULT_MAX_IN_FLIGHT_BYTES);
+		windowSize = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxBytes));
+		window = new Semaphore(windowSize);
+		partitionCount = -1;
+		producer = newProducer(props);
+		if (partitioned) {
+			refreshTask = SharedScheduler.scheduleWithFixedDelay(this::refreshPartitionCount, 0, partitionRefresh,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Create Kafka producer instance.
+	 *
+	 * @param props
+	 *            producer configuration properties
+	 * @return producer instance
+	 */
+	protected Producer<String, Object> newProducer(Properties props) {
+		return new KafkaProducer<>(props);
+	}
+
+	private static boolean isStringSerializer(Object serializer) {
+		if (serializer == null) {
+			return true;
+		}
+		String name = serializer instanceof Class ? ((Class<?>) serializer).getName() : String.valueOf(serializer);
+		return StringSerializer.class.getName().equals(name.trim());
 	}
 
 	@Override
 	protected synchronized void _close() throws IOException {
+		if (refreshTask != null) {
+			refreshTask.cancel(false);
+			refreshTask = null;
+		}
 		Utils.close(producer);
 		producer = null;
 	}
 
+	@Override
+	public void flush() throws IOException {
+		if (isOpen()) {
+			producer.flush();
+		}
+	}
+
 	@Override
 	public KeyValueStats getStats(Map<String, Object> stats) {
 		super.getStats(stats);
+		long ackCount = acked.get() + failed.get();
+		Semaphore w = window;
+		stats.put(Utils.qualify(this, KEY_KAFKA_ACKED), acked.get());
+		stats.put(Utils.qualify(this, KEY_KAFKA_FAILED), failed.get());
+		stats.put(Utils.qualify(this, KEY_KAFKA_DROPPED), dropped.get());
+		stats.put(Utils.qualify(this, KEY_KAFKA_BLOCKED), blocked.get());
+		stats.put(Utils.qualify(this, KEY_KAFKA_IN_FLIGHT), inFlight.get());
+		stats.put(Utils.qualify(this, KEY_KAFKA_IN_FLIGHT_BYTES), w == null ? 0 : windowSize - w.availablePermits());
+		stats.put(Utils.qualify(this, KEY_KAFKA_ACK_LATENCY), ackCount == 0 ? 0 : ackLatency.get() / ackCount);
+		stats.put(Utils.qualify(this, KEY_KAFKA_LAST_ACK_LATENCY), lastAckLatency.get());
+		stats.put(Utils.qualify(this, KEY_KAFKA_MAX_ACK_LATENCY), maxAckLatency.get());
+		stats.put(Utils.qualify(this, KEY_KAFKA_KEY_STRATEGY), String.valueOf(keyStrategy));
+		stats.put(Utils.qualify(this, KEY_KAFKA_PARTITIONS), partitionCount);
 		if (isOpen()) {
 			Map<MetricName, ? extends Metric> kMetrics = producer.metrics();
 			for (Map.Entry<MetricName, ? extends Metric> entry : kMetrics.entrySet()) {
@@ -104,34 +319,223 @@ public class KafkaEventSink extends AbstractEventSink {
 		return this;
 	}
 
+	@Override
+	public void resetStats() {
+		super.resetStats();
+		acked.set(0);
+		failed.set(0);
+		dropped.set(0);
+		blocked.set(0);
+		ackLatency.set(0);
+		lastAckLatency.set(0);
+		maxAckLatency.set(0);
+	}
+
 	@Override
 	protected void _log(TrackingEvent event) throws IOException {
-		writeLine(new ProducerRecord<>(getName(), event.getOperation().getName(), getEventFormatter().format(event)));
+		sendEntry(event, event.getOperation().getName(), format(event));
 	}
 
 	@Override
 	protected void _log(TrackingActivity activity) throws IOException {
-		writeLine(new ProducerRecord<>(getName(), activity.getName(), getEventFormatter().format(activity)));
+		sendEntry(activity, activity.getName(), format(activity));
 	}
 
 	@Override
 	protected void _log(Snapshot snapshot) throws IOException {
-		writeLine(new ProducerRecord<>(getName(), snapshot.getCategory(), getEventFormatter().format(snapshot)));
+		sendEntry(snapshot, snapshot.getCategory(), format(snapshot));
 	}
 
 	@Override
 	protected void _log(long ttl, Source src, OpLevel sev, String msg, Object... args) throws IOException {
-		writeLine(
-				new ProducerRecord<>(getName(), src.getFQName(), getEventFormatter().format(ttl, src, sev, msg, args)));
+		sendEntry(src, src.getFQName(), format(ttl, src, sev, msg, args));
 	}
 
 	@Override
 	protected void _write(Object msg, Object... args) throws IOException, InterruptedException {
-		writeLine(new ProducerRecord<>(getName(), getEventFormatter().format(msg, args)));
+		sendEntry(null, null, formatObject(msg, args));
+	}
+
+	@Override
+	protected void _writeFormatted(String msg) throws IOException {
+		sendEntry(null, null, msg);
+	}
+
+	/**
+	 * Send formatted entry to Kafka topic using record key and partition selected by key strategy.
+	 *
+	 * @param entry
+	 *            entry being sent, may be {@code null}
+	 * @param defKey
+	 *            default record key, may be {@code null}
+	 * @param msg
+	 *            formatted entry
+	 * @throws IOException
+	 *             if sink is not open
+	 *
+	 * @see KafkaKeyStrategy
+	 */
+	protected void sendEntry(Object entry, String defKey, String msg) throws IOException {
+		String key = keyStrategy.getKey(entry, defKey);
+		Integer partition = partitioned ? keyStrategy.getPartition(entry, key, getPartitionCount()) : null;
+		send(partition, key, msg);
+	}
+
+	private int getPartitionCount() {
+		return Math.max(partitionCount, 0);
+	}
+
+	/**
+	 * Refresh topic partition count from producer metadata. Runs on a shared scheduler worker thread, since fetching
+	 * metadata may block up to producer {@code max.block.ms}.
+	 */
+	void refreshPartitionCount() {
+		Producer<String, Object> p = producer;
+		if (p == null) {
+			return;
+		}
+		try {
+			List<PartitionInfo> partitions = p.partitionsFor(getName());
+			if (partitions != null && !partitions.isEmpty() && p == producer) {
+				partitionCount = partitions.size();
+			}
+		} catch (Throwable exc) {
+			// keep last known count, metadata is fetched again on next refresh
+		}
+	}
+
+	/**
+	 * Send formatted entry to Kafka topic, waiting for room in the in-flight window or dropping the entry according to
+	 * backpressure policy.
+	 *
+	 * @param key
+	 *            record key, may be {@code null}
+	 * @param msg
+	 *            formatted entry
+	 * @throws IOException
+	 *             if sink is not open
+	 */
+	protected void send(String key, String msg) throws IOException {
+		send((Integer) null, key, msg);
+	}
+
+	/**
+	 * Send formatted entry to a given Kafka topic partition, waiting for room in the in-flight window or dropping the
+	 * entry according to backpressure policy.
+	 *
+	 * @param partition
+	 *            record partition, {@code null} to let producer partitioner choose partition
+	 * @param key
+	 *            record key, may be {@code null}
+	 * @param msg
+	 *            formatted entry
+	 * @throws IOException
+	 *             if sink is not open
+	 */
+	protected void send(Integer partition, String key, String msg) throws IOException {
+		Producer<String, Object> p = producer;
+		Semaphore w = window;
+		if (p == null || w == null) {
+			throw new IOException("Kafka producer is closed: topic=" + getName());
+		}
+		Object value;
+		int size;
+		if (sendBytes) {
+			byte[] bytes = FormatCache.getBytes(msg);
+			value = bytes;
+			size = bytes.length;
+		} else {
+			value = msg;
+			size = utf8Length(msg);
+		}
+		int permits = Math.min(Math.max(size, 1), windowSize);
+		if (!acquire(w, permits)) {
+			dropped.incrementAndGet();
+			return;
+		}
+		SendCallback callback = new SendCallback(w, permits);
+		inFlight.incrementAndGet();
+		try {
+			p.send(new ProducerRecord<>(getName(), partition, key, value), callback);
+		} catch (RuntimeException exc) {
+			callback.complete(exc);
+			throw exc;
+		}
+		incrementBytesSent(size);
 	}
 
-	private void writeLine(ProducerRecord<String, String> rec) {
-		incrementBytesSent(rec.value().length());
-		producer.send(rec);
+	private boolean acquire(Semaphore w, int permits) {
+		if (w.tryAcquire(permits)) {
+			return true;
+		}
+		if (backpressurePolicy == BackpressurePolicy.DROP) {
+			return false;
+		}
+		blocked.incrementAndGet();
+		try {
+			return w.tryAcquire(permits, blockTimeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private static int utf8Length(String str) {
+		int length = 0;
+		for (int i = 0, n = str.length(); i < n; i++) {
+			char ch = str.charAt(i);
+			if (ch < 0x80) {
+				length++;
+			} else if (ch < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(ch) && i + 1 < n && Character.isLowSurrogate(str.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Send completion callback releasing in-flight window and updating acknowledgement statistics. Completed only once,
+	 * either by producer or by failing send call.
+	 */
+	private class SendCallback implements Callback {
+		private final Semaphore window;
+		private final int permits;
+		private final long startNanos = System.nanoTime();
+		private final AtomicBoolean done = new AtomicBoolean(false);
+
+		SendCallback(Semaphore window, int permits) {
+			this.window = window;
+			this.permits = permits;
+		}
+
+		@Override
+		public void onCompletion(RecordMetadata metadata, Exception exc) {
+			if (complete(exc) && exc != null) {
+				notifyListeners(null, exc);
+			}
+		}
+
+		boolean complete(Exception exc) {
+			if (!done.compareAndSet(false, true)) {
+				return false;
+			}
+			window.release(permits);
+			inFlight.decrementAndGet();
+			if (exc == null) {
+				long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+				ackLatency.addAndGet(latency);
+				lastAckLatency.set(latency);
+				maxAckLatency.accumulateAndGet(latency, Math::max);
+				acked.incrementAndGet();
+			} else {
+				failed.incrementAndGet();
+			}
+			return true;
+		}
 	}
-}
\ No newline at end of file
+}
@@ -34,6 +34,14 @@ import com.jkoolcloud.tnt4j.utils.Utils;
  * Concrete implementation of {@link EventSinkFactory} interface over Kafka, which creates instances of
  * {@link EventSink}. This factory uses {@link KafkaEventSink} as the underlying provider.
  *
+ * <p>
+ * Besides Kafka producer properties, factory supports these sink properties: {@code BytesValue} ({@code true} to send
+ * UTF-8 encoded {@code byte[]} values, default {@code true}), {@code BackpressurePolicy} ({@code BLOCK} or
+ * {@code DROP}), {@code MaxInFlightBytes} (negative - producer {@code buffer.memory}) and {@code BlockTimeout}
+ * (milliseconds), {@code KeyStrategy} (one of {@link KafkaKeyStrategy.Builtin} names or {@link KafkaKeyStrategy}
+ * implementation class name), {@code PartitionRefresh} (milliseconds between topic partition count refreshes, used
+ * by strategies choosing partitions).
+ * </p>
  *
  * @see EventSink
  * @see KafkaEventSink
@@ -48,6 +56,12 @@ public class KafkaEventSinkFactory extends AbstractEventSinkFactory {
 	private Properties kafkaProps = new Properties();
 	private String kafkaTopic = DEFAULT_KAFKA_TOPIC;
 	private String kafkaPropFile = null;
+	private boolean bytesValue = true;
+	private KafkaEventSink.BackpressurePolicy backpressurePolicy = KafkaEventSink.BackpressurePolicy.BLOCK;
+	private long maxInFlightBytes = -1;
+	private long blockTimeout = KafkaEventSink.DEFAULT_BLOCK_TIMEOUT_MS;
+	private KafkaKeyStrategy keyStrategy = KafkaKeyStrategy.Builtin.DEFAULT;
+	private long partitionRefresh = KafkaEventSink.DEFAULT_PARTITION_REFRESH_MS;
 
 	@Override
 	public EventSink getEventSink(String name) {
@@ -61,7 +75,10 @@ public class KafkaEventSinkFactory extends AbstractEventSinkFactory {
 
 	@Override
 	public EventSink getEventSink(String name, Properties props, EventFormatter frmt) {
-		return configureSink(new KafkaEventSink(kafkaTopic, kafkaProps, frmt));
+		KafkaEventSink sink = new KafkaEventSink(kafkaTopic, kafkaProps, frmt);
+		sink.setBytesValue(bytesValue).setInFlightWindow(backpressurePolicy, maxInFlightBytes, blockTimeout)
+				.setKeyStrategy(keyStrategy).setPartitionRefresh(partitionRefresh);
+		return configureSink(sink);
 	}
 
 	@Override
@@ -69,17 +86,63 @@ public class KafkaEventSinkFactory extends AbstractEventSinkFactory {
 		super.setConfiguration(settings);
 		kafkaTopic = Utils.getString("topic", settings, DEFAULT_KAFKA_TOPIC);
 		kafkaPropFile = Utils.getString("propFile", settings, kafkaPropFile);
+		bytesValue = Utils.getBoolean("BytesValue", settings, bytesValue);
+		maxInFlightBytes = Utils.getLong("MaxInFlightBytes", settings, maxInFlightBytes);
+		blockTimeout = Utils.getLong("BlockTimeout", settings, blockTimeout);
+		String policy = Utils.getString("BackpressurePolicy", settings, backpressurePolicy.name());
+		try {
+			backpressurePolicy = KafkaEventSink.BackpressurePolicy.valueOf(policy.toUpperCase());
+		} catch (IllegalArgumentException exc) {
+			throw new ConfigException(exc.getLocalizedMessage(), settings);
+		}
+		keyStrategy = createKeyStrategy(Utils.getString("KeyStrategy", settings, null), settings);
+		partitionRefresh = Utils.getLong("PartitionRefresh", settings, partitionRefresh);
 		if (kafkaPropFile != null) {
 			loadKafkaProps(kafkaPropFile, settings);
 		} else {
 			Map<String, Object> pProps = new HashMap<>(settings);
 			pProps.remove("topic");
 			pProps.remove("propFile");
+			pProps.remove("BytesValue");
+			pProps.remove("BackpressurePolicy");
+			pProps.remove("MaxInFlightBytes");
+			pProps.remove("BlockTimeout");
+			pProps.remove("KeyStrategy");
+			pProps.remove("PartitionRefresh");
 
 			kafkaProps.putAll(pProps);
 		}
 	}
 
+	/**
+	 * Create record key strategy from a given built-in strategy name or implementation class name.
+	 *
+	 * @param strategy
+	 *            built-in strategy name or implementation class name, {@code null} for default strategy
+	 * @param settings
+	 *            factory configuration settings
+	 * @return record key strategy
+	 * @throws ConfigException
+	 *             if strategy can't be created
+	 */
+	protected KafkaKeyStrategy createKeyStrategy(String strategy, Map<String, ?> settings) throws ConfigException {
+		if (strategy == null) {
+			return keyStrategy;
+		}
+		for (KafkaKeyStrategy.Builtin builtin : KafkaKeyStrategy.Builtin.values()) {
+			if (builtin.name().equalsIgnoreCase(strategy)) {
+				return builtin;
+			}
+		}
+		try {
+			return (KafkaKeyStrategy) Utils.createInstance(strategy);
+		} catch (Throwable e) {
+			ConfigException error = new ConfigException("Invalid KeyStrategy=" + strategy + ": " + e, settings);
+			error.initCause(e);
+			throw error;
+		}
+	}
+
 	protected void loadKafkaProps(String fname, Map<String, ?> settings) throws ConfigException {
 		try (InputStream fis = Files.newInputStream(new File(fname).toPath())) {
 			kafkaProps.load(fis);
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl.kafka;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.jkoolcloud.tnt4j.core.Trackable;
+import com.jkoolcloud.tnt4j.source.Source;
+import com.jkoolcloud.tnt4j.utils.Utils;
+
+/**
+ * <p>
+ * Strategy selecting Kafka record key (and optionally partition) for entries written by {@link KafkaEventSink}. Records
+ * having same key are written to the same partition, so their order is preserved, while records having {@code null}
+ * key are spread over partitions by the producer partitioner.
+ * </p>
+ *
+ * <p>
+ * Custom strategies must define a public no-argument constructor to be configured by {@link KafkaEventSinkFactory}.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see KafkaEventSink
+ * @see KafkaEventSinkFactory
+ */
+public interface KafkaKeyStrategy {
+	/**
+	 * Obtain record key for a given entry.
+	 *
+	 * @param entry
+	 *            entry being written: tracking event, activity, snapshot, log message source or {@code null} for
+	 *            unstructured writes
+	 * @param defKey
+	 *            default key: operation name, activity name, snapshot category or source FQ name, may be {@code null}
+	 * @return record key, {@code null} to let producer partitioner spread records
+	 */
+	String getKey(Object entry, String defKey);
+
+	/**
+	 * Obtain record partition for a given entry.
+	 *
+	 * @param entry
+	 *            entry being written
+	 * @param key
+	 *            record key returned by {@link #getKey(Object, String)}
+	 * @param partitionCount
+	 *            number of topic partitions
+	 * @return partition number, {@code null} to let producer partitioner choose partition
+	 */
+	default Integer getPartition(Object entry, String key, int partitionCount) {
+		return null;
+	}
+
+	/**
+	 * Built-in key strategies.
+	 */
+	enum Builtin implements KafkaKeyStrategy {
+		/**
+		 * Key is operation name, activity name, snapshot category or source FQ name.
+		 */
+		DEFAULT {
+			@Override
+			public String getKey(Object entry, String defKey) {
+				return defKey;
+			}
+		},
+		/**
+		 * Key is entry correlator (smallest one if entry has several), preserving order per correlator. Entries having
+		 * no correlator are spread by producer partitioner.
+		 */
+		CORRELATOR {
+			@Override
+			public String getKey(Object entry, String defKey) {
+				return Utils.getCorrelatorKey(entry);
+			}
+		},
+		/**
+		 * Key is entry tracking identifier. Entries having no tracking identifier are spread by producer partitioner.
+		 */
+		TRACKING_ID {
+			@Override
+			public String getKey(Object entry, String defKey) {
+				return entry instanceof Trackable ? ((Trackable) entry).getTrackingId() : null;
+			}
+		},
+		/**
+		 * Key is entry source FQ name, preserving order per source.
+		 */
+		SOURCE {
+			@Override
+			public String getKey(Object entry, String defKey) {
+				Source src = entry instanceof Trackable ? ((Trackable) entry).getSource()
+						: entry instanceof Source ? (Source) entry : null;
+				return src != null ? src.getFQName() : null;
+			}
+		},
+		/**
+		 * Records have no key and are written to partitions in turn.
+		 */
+		ROUND_ROBIN {
+			private final AtomicInteger next = new AtomicInteger(0);
+
+			@Override
+			public String getKey(Object entry, String defKey) {
+				return null;
+			}
+
+			@Override
+			public Integer getPartition(Object entry, String key, int partitionCount) {
+				return partitionCount > 0 ? Math.floorMod(next.getAndIncrement(), partitionCount) : null;
+			}
+		}
+	}
+}
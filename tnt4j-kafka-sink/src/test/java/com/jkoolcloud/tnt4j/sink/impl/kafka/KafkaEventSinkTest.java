@@ -0,0 +1,280 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl.kafka;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.jkoolcloud.tnt4j.format.DefaultFormatter;
+import com.jkoolcloud.tnt4j.sink.EventSinkStats;
+import com.jkoolcloud.tnt4j.sink.SinkError;
+import com.jkoolcloud.tnt4j.source.DefaultSource;
+import com.jkoolcloud.tnt4j.source.SourceType;
+import com.jkoolcloud.tnt4j.utils.Utils;
+
+/**
+ * {@link KafkaEventSink} tests run against Kafka {@link MockProducer}.
+ *
+ * @version $Revision: 1 $
+ */
+public class KafkaEventSinkTest {
+	static final String TOPIC = "tnt4j-test";
+	static final String UTF8_MSG = "h\u00e9llo \u20ac \ud834\udd1e";
+	static final int UTF8_MSG_BYTES = 15;
+
+	/**
+	 * Serializes {@code byte[]} values as is and {@code String} values as UTF-8.
+	 */
+	static final Serializer<Object> VALUE_SERIALIZER = (topic, value) -> value instanceof byte[] ? (byte[]) value
+			: value == null ? null : String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+
+	MockProducer<String, Object> mockProducer;
+	KafkaEventSink sink;
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		if (sink != null) {
+			sink.close();
+		}
+	}
+
+	private KafkaEventSink newSink(boolean autoComplete) {
+		mockProducer = new MockProducer<>(autoComplete, new StringSerializer(), VALUE_SERIALIZER);
+		return new KafkaEventSink(TOPIC, new Properties(), new DefaultFormatter()) {
+			@Override
+			protected Producer<String, Object> newProducer(Properties props) {
+				return mockProducer;
+			}
+		};
+	}
+
+	private static void awaitStat(KafkaEventSink sink, String key, long value) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (stat(sink, key) != value && System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+		assertEquals(value, stat(sink, key));
+	}
+
+	private static long stat(KafkaEventSink sink, String key) {
+		Object value = sink.getStats().get(Utils.qualify(sink, key));
+		return ((Number) value).longValue();
+	}
+
+	@Test
+	public void sendsUtf8BytesValue() throws Exception {
+		sink = newSink(true);
+		sink.open();
+		sink.writeFormatted(UTF8_MSG);
+
+		List<ProducerRecord<String, Object>> sent = mockProducer.history();
+		assertEquals(1, sent.size());
+		assertEquals(TOPIC, sent.get(0).topic());
+		Object value = sent.get(0).value();
+		assertTrue(value instanceof byte[], "record value must be byte[]");
+		assertArrayEquals(UTF8_MSG.getBytes(StandardCharsets.UTF_8), (byte[]) value);
+		assertEquals(UTF8_MSG_BYTES, stat(sink, EventSinkStats.KEY_BYTES_COUNT));
+	}
+
+	@Test
+	public void sendsStringValueCountingUtf8Bytes() throws Exception {
+		sink = newSink(true);
+		sink.setBytesValue(false);
+		sink.open();
+		sink.writeFormatted(UTF8_MSG);
+
+		List<ProducerRecord<String, Object>> sent = mockProducer.history();
+		assertEquals(1, sent.size());
+		assertEquals(UTF8_MSG, sent.get(0).value());
+		assertEquals(UTF8_MSG_BYTES, stat(sink, EventSinkStats.KEY_BYTES_COUNT));
+	}
+
+	@Test
+	public void sendsStringValueWithCustomSerializer() throws Exception {
+		sink = newSink(true);
+		sink.kprops.put("value.serializer", "com.acme.CustomSerializer");
+		sink.open();
+		sink.writeFormatted(UTF8_MSG);
+
+		assertEquals(UTF8_MSG, mockProducer.history().get(0).value());
+	}
+
+	@Test
+	public void logBatchDoesNotWaitForAcknowledgements() throws Exception {
+		sink = newSink(false);
+		sink.setSource(new DefaultSource(null, "test", SourceType.APPL, null, null));
+		sink.open();
+		sink.log(Arrays.asList("one", "two", "three"));
+
+		assertEquals(3, mockProducer.history().size());
+		assertEquals(3, stat(sink, KafkaEventSink.KEY_KAFKA_IN_FLIGHT));
+		assertEquals(0, stat(sink, KafkaEventSink.KEY_KAFKA_ACKED));
+
+		sink.flush();
+		assertEquals(0, stat(sink, KafkaEventSink.KEY_KAFKA_IN_FLIGHT));
+		assertEquals(3, stat(sink, KafkaEventSink.KEY_KAFKA_ACKED));
+	}
+
+	@Test
+	public void countsAcknowledgementsAndFailures() throws Exception {
+		List<SinkError> errors = new CopyOnWriteArrayList<>();
+		sink = newSink(false);
+		sink.addSinkErrorListener(errors::add);
+		sink.open();
+		sink.writeFormatted("one");
+		sink.writeFormatted("two");
+		sink.writeFormatted("three");
+		assertEquals(3, stat(sink, KafkaEventSink.KEY_KAFKA_IN_FLIGHT));
+		assertEquals(11, stat(sink, KafkaEventSink.KEY_KAFKA_IN_FLIGHT_BYTES));
+
+		assertTrue(mockProducer.completeNext());
+		assertTrue(mockProducer.completeNext());
+		RuntimeException exc = new RuntimeException("send failed");
+		assertTrue(mockProducer.errorNext(exc));
+
+		assertEquals(2, stat(sink, KafkaEventSink.KEY_KAFKA_ACKED));
+		assertEquals(1, stat(sink, KafkaEventSink.KEY_KAFKA_FAILED));
+		assertEquals(0, stat(sink, KafkaEventSink.KEY_KAFKA_IN_FLIGHT));
+		assertEquals(0, stat(sink, KafkaEventSink.KEY_KAFKA_IN_FLIGHT_BYTES));
+		assertEquals(1, sink.getErrorCount());
+		assertSame(exc, sink.getLastError());
+		assertEquals(1, errors.size());
+		assertSame(exc, errors.get(0).getCause());
+	}
+
+	@Test
+	public void dropsWhenWindowExhausted() throws Exception {
+		sink = newSink(false);
+		sink.setInFlightWindow(KafkaEventSink.BackpressurePolicy.DROP, 10, 0);
+		sink.open();
+		sink.writeFormatted("abcdef");
+		sink.writeFormatted("ghijkl");
+		assertEquals(1, mockProducer.history().size());
+		assertEquals(1, stat(sink, KafkaEventSink.KEY_KAFKA_DROPPED));
+		assertEquals(0, stat(sink, KafkaEventSink.KEY_KAFKA_BLOCKED));
+
+		assertTrue(mockProducer.completeNext());
+		sink.writeFormatted("mnopqr");
+		assertEquals(2, mockProducer.history().size());
+		assertEquals("mnopqr", new String((byte[]) mockProducer.history().get(1).value(), StandardCharsets.UTF_8));
+		assertEquals(1, stat(sink, KafkaEventSink.KEY_KAFKA_DROPPED));
+		assertEquals(6, stat(sink, KafkaEventSink.KEY_KAFKA_IN_FLIGHT_BYTES));
+	}
+
+	@Test
+	public void dropsWhenBlockTimeoutElapses() throws Exception {
+		sink = newSink(false);
+		sink.setInFlightWindow(KafkaEventSink.BackpressurePolicy.BLOCK, 10, 50);
+		sink.open();
+		sink.writeFormatted("abcdef");
+		long start = System.nanoTime();
+		sink.writeFormatted("ghijkl");
+		assertTrue(System.nanoTime() - start >= 40_000_000L, "must wait for block timeout");
+
+		assertEquals(1, mockProducer.history().size());
+		assertEquals(1, stat(sink, KafkaEventSink.KEY_KAFKA_BLOCKED));
+		assertEquals(1, stat(sink, KafkaEventSink.KEY_KAFKA_DROPPED));
+	}
+
+	@Test
+	public void blocksUntilWindowReleased() throws Exception {
+		sink = newSink(false);
+		sink.setInFlightWindow(KafkaEventSink.BackpressurePolicy.BLOCK, 10, 10000);
+		sink.open();
+		sink.writeFormatted("abcdef");
+
+		Thread writer = new Thread(() -> {
+			try {
+				sink.writeFormatted("ghijkl");
+			} catch (Exception exc) {
+				throw new RuntimeException(exc);
+			}
+		});
+		writer.start();
+		long deadline = System.currentTimeMillis() + 5000;
+		while (stat(sink, KafkaEventSink.KEY_KAFKA_BLOCKED) == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+		assertEquals(1, stat(sink, KafkaEventSink.KEY_KAFKA_BLOCKED));
+		assertEquals(1, mockProducer.history().size());
+
+		assertTrue(mockProducer.completeNext());
+		writer.join(5000);
+		assertFalse(writer.isAlive());
+		assertEquals(2, mockProducer.history().size());
+		assertEquals(0, stat(sink, KafkaEventSink.KEY_KAFKA_DROPPED));
+		assertEquals(1, stat(sink, KafkaEventSink.KEY_KAFKA_ACKED));
+	}
+
+	@Test
+	public void refreshesPartitionCountOffLoggingThread() throws Exception {
+		AtomicInteger partitions = new AtomicInteger(0);
+		Set<Thread> metadataThreads = ConcurrentHashMap.newKeySet();
+		mockProducer = new MockProducer<String, Object>(true, new StringSerializer(), VALUE_SERIALIZER) {
+			@Override
+			public synchronized List<PartitionInfo> partitionsFor(String topic) {
+				metadataThreads.add(Thread.currentThread());
+				List<PartitionInfo> infos = new ArrayList<>();
+				for (int i = 0; i < partitions.get(); i++) {
+					infos.add(new PartitionInfo(topic, i, null, null, null));
+				}
+				return infos;
+			}
+		};
+		sink = new KafkaEventSink(TOPIC, new Properties(), new DefaultFormatter()) {
+			@Override
+			protected Producer<String, Object> newProducer(Properties props) {
+				return mockProducer;
+			}
+		};
+		sink.setKeyStrategy(KafkaKeyStrategy.Builtin.ROUND_ROBIN).setPartitionRefresh(10);
+		sink.open();
+		sink.writeFormatted("unknown");
+		assertNull(mockProducer.history().get(0).partition());
+
+		partitions.set(3);
+		awaitStat(sink, KafkaEventSink.KEY_KAFKA_PARTITIONS, 3);
+		Set<Integer> used = new HashSet<>();
+		for (int i = 0; i < 3; i++) {
+			sink.writeFormatted("known");
+			used.add(mockProducer.history().get(i + 1).partition());
+		}
+		assertEquals(Set.of(0, 1, 2), used);
+
+		partitions.set(4);
+		awaitStat(sink, KafkaEventSink.KEY_KAFKA_PARTITIONS, 4);
+		assertFalse(metadataThreads.contains(Thread.currentThread()), "metadata fetched on logging thread");
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl.kafka;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+import org.apache.kafka.common.utils.Utils;
+
+import com.jkoolcloud.tnt4j.core.PropertySnapshot;
+import com.jkoolcloud.tnt4j.source.DefaultSource;
+import com.jkoolcloud.tnt4j.source.Source;
+import com.jkoolcloud.tnt4j.source.SourceType;
+
+/**
+ * <p>
+ * Benchmark reporting how evenly each {@link KafkaKeyStrategy.Builtin} strategy spreads records over topic partitions.
+ * Entries get operation names drawn from a Zipf distribution (a few hot operations), uniformly drawn correlators and
+ * sources, and unique tracking identifiers. Keyed records are assigned to partitions the way Kafka default partitioner
+ * does ({@code murmur2} of key bytes modulo partition count), records without key are spread evenly, as producer
+ * partitioner does over time. For each strategy max/avg and min/avg records per partition are reported, along with
+ * number of idle partitions.
+ * </p>
+ *
+ * <pre>
+ * java -cp ... com.jkoolcloud.tnt4j.sink.impl.kafka.KafkaKeySkewBenchmark [partitions] [events] [operations] [correlators] [sources] [zipfExponent]
+ * </pre>
+ *
+ * Defaults: 12 partitions, 1000000 events, 50 operations, 20000 correlators, 24 sources, Zipf exponent 1.2.
+ *
+ * @version $Revision: 1 $
+ *
+ * @see KafkaKeyStrategy
+ */
+public class KafkaKeySkewBenchmark {
+
+	public static void main(String[] args) {
+		int partitions = args.length > 0 ? Integer.parseInt(args[0]) : 12;
+		int events = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+		int operations = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+		int correlators = args.length > 3 ? Integer.parseInt(args[3]) : 20000;
+		int sources = args.length > 4 ? Integer.parseInt(args[4]) : 24;
+		double exponent = args.length > 5 ? Double.parseDouble(args[5]) : 1.2;
+
+		System.out.println("partitions=" + partitions + ", events=" + events + ", operations=" + operations
+				+ ", correlators=" + correlators + ", sources=" + sources + ", zipf=" + exponent);
+		Source[] srcs = new Source[sources];
+		for (int i = 0; i < sources; i++) {
+			srcs[i] = new DefaultSource(null, "app-" + i, SourceType.APPL, null, null);
+		}
+		double[] zipf = zipfCdf(operations, exponent);
+		long[][] counts = new long[KafkaKeyStrategy.Builtin.values().length][partitions];
+		long[] spread = new long[counts.length];
+		Random rnd = new Random(42);
+		for (int e = 0; e < events; e++) {
+			String opName = "operation-" + sample(zipf, rnd.nextDouble());
+			PropertySnapshot entry = new PropertySnapshot("benchmark", opName);
+			entry.setCorrelator("correlator-" + rnd.nextInt(correlators));
+			entry.setTrackingId(new UUID(rnd.nextLong(), rnd.nextLong()).toString());
+			entry.setSource(srcs[rnd.nextInt(sources)]);
+
+			for (KafkaKeyStrategy.Builtin strategy : KafkaKeyStrategy.Builtin.values()) {
+				int s = strategy.ordinal();
+				String key = strategy.getKey(entry, opName);
+				Integer partition = strategy.getPartition(entry, key, partitions);
+				if (partition == null) {
+					partition = key == null ? (int) (spread[s]++ % partitions) : partitionForKey(key, partitions);
+				}
+				counts[s][partition]++;
+			}
+		}
+		for (KafkaKeyStrategy.Builtin strategy : KafkaKeyStrategy.Builtin.values()) {
+			report(strategy, counts[strategy.ordinal()], events);
+		}
+	}
+
+	/**
+	 * Select partition for a given record key the same way Kafka default partitioner does.
+	 */
+	static int partitionForKey(String key, int partitions) {
+		return Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % partitions;
+	}
+
+	private static double[] zipfCdf(int n, double exponent) {
+		double[] cdf = new double[n];
+		double sum = 0;
+		for (int i = 0; i < n; i++) {
+			sum += 1 / Math.pow(i + 1, exponent);
+			cdf[i] = sum;
+		}
+		for (int i = 0; i < n; i++) {
+			cdf[i] /= sum;
+		}
+		return cdf;
+	}
+
+	private static int sample(double[] cdf, double p) {
+		int idx = Arrays.binarySearch(cdf, p);
+		return Math.min(idx >= 0 ? idx : -idx - 1, cdf.length - 1);
+	}
+
+	private static void report(KafkaKeyStrategy.Builtin strategy, long[] counts, int events) {
+		double avg = (double) events / counts.length;
+		long max = 0;
+		long min = Long.MAX_VALUE;
+		int idle = 0;
+		for (long count : counts) {
+			max = Math.max(max, count);
+			min = Math.min(min, count);
+			if (count == 0) {
+				idle++;
+			}
+		}
+		System.out.println(String.format("%-12s max/avg %.2f  min/avg %.2f  idle partitions %d", strategy, max / avg,
+				min / avg, idle));
+	}
+}
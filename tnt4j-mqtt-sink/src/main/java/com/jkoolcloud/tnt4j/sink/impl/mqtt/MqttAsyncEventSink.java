@@ -0,0 +1,486 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl.mqtt;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttException;
+
+import com.jkoolcloud.tnt4j.core.KeyValueStats;
+import com.jkoolcloud.tnt4j.core.OpLevel;
+import com.jkoolcloud.tnt4j.core.Snapshot;
+import com.jkoolcloud.tnt4j.format.EventFormatter;
+import com.jkoolcloud.tnt4j.sink.AbstractEventSink;
+import com.jkoolcloud.tnt4j.sink.EventSink;
+import com.jkoolcloud.tnt4j.source.Source;
+import com.jkoolcloud.tnt4j.tracker.TrackingActivity;
+import com.jkoolcloud.tnt4j.tracker.TrackingEvent;
+import com.jkoolcloud.tnt4j.utils.SharedScheduler;
+import com.jkoolcloud.tnt4j.utils.Utils;
+
+/**
+ * <p>
+ * This class implements {@link EventSink} with asynchronous MQTT client as the underlying sink implementation.
+ * Messages are published without waiting for broker acknowledgements, up to a window of in-flight publishes. When
+ * window is exhausted, logging thread waits for room up to in-flight timeout, and message is dropped if timeout
+ * elapses. Publish completions update sink statistics and failures are reported to sink error listeners.
+ * {@link #flush()} and {@link #close()} wait for publishes issued so far to complete, while publishes issued meanwhile
+ * by other threads are not waited for.
+ * </p>
+ *
+ * <p>
+ * Optionally several formatted entries are packed into a single MQTT payload, either as new line delimited entries
+ * ({@link BatchFormat#NDJSON}) or as a JSON array ({@link BatchFormat#JSON_ARRAY}, requires JSON formatted entries).
+ * Payload is published when it reaches max number of entries or bytes, when it is older than linger time, on
+ * {@link #flush()} and at the end of {@link #log(Collection)}.
+ * </p>
+ *
+ * @version $Revision: 1 $
+ *
+ * @see MqttEventSink
+ * @see MqttEventSinkFactory
+ */
+public class MqttAsyncEventSink extends AbstractEventSink {
+	public static final String KEY_MQTT_PUBLISHED = "mqtt-published";
+	public static final String KEY_MQTT_PUBLISHED_ENTRIES = "mqtt-published-entries";
+	public static final String KEY_MQTT_ACKED = "mqtt-acked";
+	public static final String KEY_MQTT_FAILED = "mqtt-failed";
+	public static final String KEY_MQTT_DROPPED = "mqtt-dropped";
+	public static final String KEY_MQTT_IN_FLIGHT = "mqtt-in-flight";
+	public static final String KEY_MQTT_ACK_LATENCY = "mqtt-ack-latency-usec";
+	public static final String KEY_MQTT_MAX_ACK_LATENCY = "mqtt-max-ack-latency-usec";
+	public static final String KEY_MQTT_BATCH_FORMAT = "mqtt-batch-format";
+
+	public static final long DEFAULT_IN_FLIGHT_TIMEOUT_MS = 60000;
+	public static final int DEFAULT_BATCH_BYTES = 256 * 1024;
+
+
+	/**
+	 * Format of payloads packing several entries.
+	 */
+	public enum BatchFormat {
+		/**
+		 * Each entry is published as a separate payload.
+		 */
+		NONE,
+		/**
+		 * Entries are delimited by new lines.
+		 */
+		NDJSON,
+		/**
+		 * Entries are packed into a JSON array.
+		 */
+		JSON_ARRAY
+	}
+
+	IMqttAsyncClient mqttClient;
+	MqttEventSinkFactory factory;
+
+	private int maxInFlight;
+	private long inFlightTimeout = DEFAULT_IN_FLIGHT_TIMEOUT_MS;
+	private BatchFormat batchFormat = BatchFormat.NONE;
+	private int batchSize = 1;
+	private int batchBytes = DEFAULT_BATCH_BYTES;
+	private long lingerMs = 0;
+
+	private int windowSize;
+	private volatile Semaphore window;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final StringBuilder batch = new StringBuilder();
+	private int batchCount = 0;
+	private long batchStartTime = 0;
+	private ScheduledFuture<?> lingerTask;
+	private final Object flushLock = new Object();
+	private final AtomicLong issued = new AtomicLong(0);
+	private final AtomicLong completed = new AtomicLong(0);
+
+	private final AtomicLong published = new AtomicLong(0);
+	private final AtomicLong publishedEntries = new AtomicLong(0);
+	private final AtomicLong acked = new AtomicLong(0);
+	private final AtomicLong failed = new AtomicLong(0);
+	private final AtomicLong dropped = new AtomicLong(0);
+	private final AtomicLong ackLatency = new AtomicLong(0);
+	private final AtomicLong maxAckLatency = new AtomicLong(0);
+
+	/**
+	 * Create asynchronous MQTT event sink
+	 *
+	 * @param fc
+	 *            event sink factory
+	 * @param name
+	 *            event sink name
+	 * @param props
+	 *            event sink properties
+	 * @param frmt
+	 *            event sink formatter
+	 */
+	protected MqttAsyncEventSink(MqttEventSinkFactory fc, String name, Properties props, EventFormatter frmt) {
+		super(name, frmt);
+		factory = fc;
+		maxInFlight = fc.getMaxInflight();
+	}
+
+	/**
+	 * Set in-flight window settings. Takes effect when sink is (re)opened.
+	 *
+	 * @param max
+	 *            max number of published, but not yet acknowledged payloads
+	 * @param timeout
+	 *            max time in milliseconds to wait for room in the window
+	 * @return itself
+	 */
+	public MqttAsyncEventSink setInFlightWindow(int max, long timeout) {
+		maxInFlight = Math.max(1, max);
+		inFlightTimeout = Math.max(0, timeout);
+		return this;
+	}
+
+	/**
+	 * Set payload batching settings. Takes effect when sink is (re)opened.
+	 *
+	 * @param format
+	 *            format of payloads packing several entries, {@link BatchFormat#NONE} to publish each entry separately
+	 * @param maxEntries
+	 *            max number of entries packed into a single payload
+	 * @param maxBytes
+	 *            max payload length in characters, payload is published once it reaches this length
+	 * @param linger
+	 *            max time in milliseconds an incomplete payload waits for more entries, {@code 0} - until flushed
+	 * @return itself
+	 */
+	public MqttAsyncEventSink setBatching(BatchFormat format, int maxEntries, int maxBytes, long linger) {
+		batchFormat = format == null ? BatchFormat.NONE : format;
+		batchSize = batchFormat == BatchFormat.NONE ? 1 : Math.max(1, maxEntries);
+		batchBytes = Math.max(1, maxBytes);
+		lingerMs = Math.max(0, linger);
+		return this;
+	}
+
+	@Override
+	public Object getSinkHandle() {
+		return mqttClient;
+	}
+
+	@Override
+	public boolean isOpen() {
+		IMqttAsyncClient client = mqttClient;
+		return client != null && client.isConnected();
+	}
+
+	@Override
+	protected synchronized void _open() throws IOException {
+		_close();
+		try {
+			windowSize = maxInFlight;
+			window = new Semaphore(windowSize);
+			mqttClient = factory.newMqttAsyncClient();
+		} catch (MqttException e) {
+			throw new IOException(e);
+		}
+		if (batchSize > 1 && lingerMs > 0) {
+			lingerTask = SharedScheduler.scheduleWithFixedDelay(this::lingerFlush, lingerMs, lingerMs,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	protected synchronized void _close() throws IOException {
+		if (lingerTask != null) {
+			lingerTask.cancel(false);
+			lingerTask = null;
+		}
+		IMqttAsyncClient client = mqttClient;
+		if (client != null) {
+			try {
+				flush();
+			} finally {
+				mqttClient = null;
+				try {
+					client.disconnect(inFlightTimeout).waitForCompletion(inFlightTimeout);
+				} catch (MqttException e) {
+					throw new IOException(e);
+				} finally {
+					try {
+						client.close();
+					} catch (MqttException e) {
+						// already disconnected or closing
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Publishes pending batch payload and waits up to in-flight timeout for publishes issued so far to complete.
+	 */
+	@Override
+	public void flush() throws IOException {
+		publishPending();
+		awaitCompleted(issued.get());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Batch entries are published without waiting for deliveries to complete, pending batch payload is published at
+	 * the end of the batch.
+	 */
+	@Override
+	public void log(Collection<?> batch) {
+		try {
+			super.log(batch);
+		} finally {
+			try {
+				publishPending();
+			} catch (Throwable e) {
+				setErrorState(e);
+			}
+		}
+	}
+
+	private void publishPending() throws IOException {
+		lock.lock();
+		try {
+			publishBatch();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void awaitCompleted(long target) throws IOException {
+		long deadline = System.currentTimeMillis() + inFlightTimeout;
+		try {
+			synchronized (flushLock) {
+				long wait;
+				while (completed.get() < target) {
+					if ((wait = deadline - System.currentTimeMillis()) <= 0) {
+						throw new IOException("Timed out waiting for MQTT deliveries: sink=" + getName()
+								+ ", pending=" + (target - completed.get()));
+					}
+					flushLock.wait(wait);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted waiting for MQTT deliveries: sink=" + getName(), e);
+		}
+	}
+
+	@Override
+	protected void _log(TrackingEvent event) throws IOException {
+		writeLine(format(event));
+	}
+
+	@Override
+	protected void _log(TrackingActivity activity) throws IOException {
+		writeLine(format(activity));
+	}
+
+	@Override
+	protected void _log(Snapshot snapshot) throws IOException {
+		writeLine(format(snapshot));
+	}
+
+	@Override
+	protected void _log(long ttl, Source src, OpLevel sev, String msg, Object... args) throws IOException {
+		writeLine(format(ttl, src, sev, msg, args));
+	}
+
+	@Override
+	protected void _write(Object msg, Object... args) throws IOException, InterruptedException {
+		writeLine(formatObject(msg, args));
+	}
+
+	@Override
+	protected void _writeFormatted(String msg) throws IOException {
+		writeLine(msg);
+	}
+
+	private void writeLine(String msg) throws IOException {
+		lock.lock();
+		try {
+			if (batchSize <= 1) {
+				publish(msg, 1);
+				return;
+			}
+			if (batchCount > 0 && batch.length() + msg.length() + 2 > batchBytes) {
+				publishBatch();
+			}
+			if (batchCount == 0) {
+				batchStartTime = System.currentTimeMillis();
+				if (batchFormat == BatchFormat.JSON_ARRAY) {
+					batch.append('[');
+				}
+			} else {
+				batch.append(batchFormat == BatchFormat.JSON_ARRAY ? ',' : '\n');
+			}
+			batch.append(msg);
+			batchCount++;
+			if (batchCount >= batchSize || batch.length() >= batchBytes) {
+				publishBatch();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void publishBatch() throws IOException {
+		if (batchCount == 0) {
+			return;
+		}
+		if (batchFormat == BatchFormat.JSON_ARRAY) {
+			batch.append(']');
+		}
+		String payload = batch.toString();
+		int count = batchCount;
+		batch.setLength(0);
+		batchCount = 0;
+		publish(payload, count);
+	}
+
+	private void lingerFlush() {
+		if (lock.tryLock()) {
+			try {
+				if (batchCount > 0 && System.currentTimeMillis() - batchStartTime >= lingerMs) {
+					publishBatch();
+				}
+			} catch (Throwable exc) {
+				setErrorState(exc);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private void publish(String payload, int count) throws IOException {
+		IMqttAsyncClient client = mqttClient;
+		Semaphore w = window;
+		if (client == null || w == null) {
+			throw new IOException("MQTT client is closed: sink=" + getName());
+		}
+		try {
+			if (!w.tryAcquire(inFlightTimeout, TimeUnit.MILLISECONDS)) {
+				dropped.addAndGet(count);
+				return;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			dropped.addAndGet(count);
+			return;
+		}
+		byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+		PublishListener listener = new PublishListener(w);
+		try {
+			factory.publishAsync(this, client, factory.newMqttMessage(bytes), listener);
+		} catch (MqttException | RuntimeException exc) {
+			w.release();
+			throw new IOException(exc);
+		}
+		issued.incrementAndGet();
+		published.incrementAndGet();
+		publishedEntries.addAndGet(count);
+		incrementBytesSent(bytes.length);
+	}
+
+	@Override
+	public KeyValueStats getStats(Map<String, Object> stats) {
+		super.getStats(stats);
+		long ackCount = acked.get();
+		Semaphore w = window;
+		stats.put(Utils.qualify(this, KEY_MQTT_PUBLISHED), published.get());
+		stats.put(Utils.qualify(this, KEY_MQTT_PUBLISHED_ENTRIES), publishedEntries.get());
+		stats.put(Utils.qualify(this, KEY_MQTT_ACKED), ackCount);
+		stats.put(Utils.qualify(this, KEY_MQTT_FAILED), failed.get());
+		stats.put(Utils.qualify(this, KEY_MQTT_DROPPED), dropped.get());
+		stats.put(Utils.qualify(this, KEY_MQTT_IN_FLIGHT), w == null ? 0 : windowSize - w.availablePermits());
+		stats.put(Utils.qualify(this, KEY_MQTT_ACK_LATENCY), ackCount == 0 ? 0 : ackLatency.get() / ackCount);
+		stats.put(Utils.qualify(this, KEY_MQTT_MAX_ACK_LATENCY), maxAckLatency.get());
+		stats.put(Utils.qualify(this, KEY_MQTT_BATCH_FORMAT), batchFormat.name());
+		return this;
+	}
+
+	@Override
+	public void resetStats() {
+		super.resetStats();
+		published.set(0);
+		publishedEntries.set(0);
+		acked.set(0);
+		failed.set(0);
+		dropped.set(0);
+		ackLatency.set(0);
+		maxAckLatency.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() //
+				+ "{max.in.flight: " + maxInFlight //
+				+ ", batch.format: " + batchFormat //
+				+ ", batch.size: " + batchSize //
+				+ "}";
+	}
+
+	private void complete(Semaphore w) {
+		w.release();
+		completed.incrementAndGet();
+		synchronized (flushLock) {
+			flushLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Publish completion listener releasing in-flight window and updating acknowledgement statistics.
+	 */
+	private class PublishListener implements IMqttActionListener {
+		private final Semaphore window;
+		private final long startNanos = System.nanoTime();
+
+		PublishListener(Semaphore window) {
+			this.window = window;
+		}
+
+		@Override
+		public void onSuccess(IMqttToken token) {
+			long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+			acked.incrementAndGet();
+			ackLatency.addAndGet(latency);
+			maxAckLatency.accumulateAndGet(latency, Math::max);
+			complete(window);
+		}
+
+		@Override
+		public void onFailure(IMqttToken token, Throwable exc) {
+			failed.incrementAndGet();
+			try {
+				notifyListeners(null, exc);
+			} finally {
+				complete(window);
+			}
+		}
+	}
+}
@@ -16,9 +16,13 @@
 package com.jkoolcloud.tnt4j.sink.impl.mqtt;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
 
 import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
 
@@ -48,6 +52,7 @@ public class MqttEventSink extends AbstractEventSink {
 
 	MqttClient mqttClient;
 	MqttEventSinkFactory factory;
+	private List<MqttDeliveryToken> pendingTokens;
 
 	/**
 	 * Create MQTT event sink
@@ -127,34 +132,78 @@ public class MqttEventSink extends AbstractEventSink {
 
 	@Override
 	protected void _log(TrackingEvent event) throws IOException {
-		writeLine(getEventFormatter().format(event));
+		writeLine(format(event));
 	}
 
 	@Override
 	protected void _log(TrackingActivity activity) throws IOException {
-		writeLine(getEventFormatter().format(activity));
+		writeLine(format(activity));
 	}
 
 	@Override
 	protected void _log(Snapshot snapshot) throws IOException {
-		writeLine(getEventFormatter().format(snapshot));
+		writeLine(format(snapshot));
 	}
 
 	@Override
 	protected void _log(long ttl, Source src, OpLevel sev, String msg, Object... args) throws IOException {
-		writeLine(getEventFormatter().format(ttl, src, sev, msg, args));
+		writeLine(format(ttl, src, sev, msg, args));
 	}
 
 	@Override
 	protected void _write(Object msg, Object... args) throws IOException, InterruptedException {
-		writeLine(getEventFormatter().format(msg, args));
+		writeLine(formatObject(msg, args));
 	}
 
-	private void writeLine(String msg) throws IOException {
+	@Override
+	protected void _writeFormatted(String msg) throws IOException {
+		writeLine(msg);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Batch entries are published without waiting for each delivery to complete, up to MQTT client max in-flight
+	 * messages at a time. Method returns once all batch deliveries are complete.
+	 */
+	@Override
+	public synchronized void log(Collection<?> batch) {
+		pendingTokens = new ArrayList<>(Math.min(batch.size(), factory.getMaxInflight()));
+		try {
+			super.log(batch);
+		} finally {
+			try {
+				waitForDelivery();
+			} catch (MqttException mqe) {
+				setErrorState(mqe);
+			} finally {
+				pendingTokens = null;
+			}
+		}
+	}
+
+	private void waitForDelivery() throws MqttException {
+		try {
+			for (MqttDeliveryToken token : pendingTokens) {
+				token.waitForCompletion(mqttClient.getTimeToWait());
+			}
+		} finally {
+			pendingTokens.clear();
+		}
+	}
+
+	private synchronized void writeLine(String msg) throws IOException {
 		incrementBytesSent(msg.length());
 		try {
 			MqttMessage message = factory.newMqttMessage(msg);
-			factory.publish(this, mqttClient, message);
+			if (pendingTokens == null) {
+				factory.publish(this, mqttClient, message);
+			} else {
+				if (pendingTokens.size() >= factory.getMaxInflight()) {
+					waitForDelivery();
+				}
+				pendingTokens.add(factory.publishNoWait(this, mqttClient, message));
+			}
 		} catch (MqttException mqe) {
 			throw new IOException(mqe);
 		}
@@ -17,6 +17,7 @@ package com.jkoolcloud.tnt4j.sink.impl.mqtt;
 
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.paho.client.mqttv3.*;
 import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
@@ -32,7 +33,15 @@ import com.jkoolcloud.tnt4j.utils.Utils;
 /**
  * <p>
  * Concrete implementation of {@link EventSinkFactory} interface over MQTT, which creates instances of
- * {@link EventSink}. This factory uses {@link MqttEventSink} as the underlying provider.
+ * {@link EventSink}. This factory uses {@link MqttEventSink} as the underlying provider, or
+ * {@link MqttAsyncEventSink} when {@code mqtt-async} is enabled.
+ * </p>
+ *
+ * <p>
+ * Asynchronous sink is configured using {@code mqtt-max-inflight} (max number of in-flight publishes),
+ * {@code mqtt-inflight-timeout} (milliseconds to wait for room in in-flight window), {@code mqtt-batch-format}
+ * ({@code NONE}, {@code NDJSON} or {@code JSON_ARRAY}), {@code mqtt-batch-size} (max entries per payload),
+ * {@code mqtt-batch-bytes} (max payload length) and {@code mqtt-batch-linger} (milliseconds) properties.
  * </p>
  *
  *
@@ -104,6 +113,36 @@ public class MqttEventSinkFactory extends AbstractEventSinkFactory {
 	 */
 	boolean retainMsg = false;
 
+	/**
+	 * MQTT asynchronous publishing
+	 */
+	boolean async = false;
+
+	/**
+	 * MQTT in-flight window timeout in milliseconds
+	 */
+	long inflightTimeout = MqttAsyncEventSink.DEFAULT_IN_FLIGHT_TIMEOUT_MS;
+
+	/**
+	 * MQTT payload batching format
+	 */
+	MqttAsyncEventSink.BatchFormat batchFormat = MqttAsyncEventSink.BatchFormat.NONE;
+
+	/**
+	 * MQTT max entries per payload
+	 */
+	int batchSize = 100;
+
+	/**
+	 * MQTT max payload length
+	 */
+	int batchBytes = MqttAsyncEventSink.DEFAULT_BATCH_BYTES;
+
+	/**
+	 * MQTT max time in milliseconds incomplete payload waits for more entries
+	 */
+	long batchLinger = 100;
+
 	/**
 	 * MQTT connection options
 	 */
@@ -121,6 +160,11 @@ public class MqttEventSinkFactory extends AbstractEventSinkFactory {
 
 	@Override
 	public EventSink getEventSink(String name, Properties props, EventFormatter frmt) {
+		if (async) {
+			return configureSink(new MqttAsyncEventSink(this, name, props, frmt)
+					.setInFlightWindow(getMaxInflight(), inflightTimeout)
+					.setBatching(batchFormat, batchSize, batchBytes, batchLinger));
+		}
 		return configureSink(new MqttEventSink(this, name, props, frmt));
 	}
 
@@ -142,6 +186,20 @@ public class MqttEventSinkFactory extends AbstractEventSinkFactory {
 		qos = Utils.getInt("mqtt-qos", settings, qos);
 		retainMsg = Utils.getBoolean("mqtt-retain", settings, retainMsg);
 
+		// asynchronous publishing
+		async = Utils.getBoolean("mqtt-async", settings, async);
+		inflightTimeout = Utils.getLong("mqtt-inflight-timeout", settings, inflightTimeout);
+		batchSize = Utils.getInt("mqtt-batch-size", settings, batchSize);
+		batchBytes = Utils.getInt("mqtt-batch-bytes", settings, batchBytes);
+		batchLinger = Utils.getLong("mqtt-batch-linger", settings, batchLinger);
+		String format = Utils.getString("mqtt-batch-format", settings, batchFormat.name());
+		try {
+			batchFormat = MqttAsyncEventSink.BatchFormat.valueOf(format.toUpperCase());
+		} catch (IllegalArgumentException exc) {
+			throw new ConfigException(exc.getLocalizedMessage(), settings);
+		}
+		options.setMaxInflight(Utils.getInt("mqtt-max-inflight", settings, options.getMaxInflight()));
+
 		if (ssl) {
 			Properties connProps = new Properties();
 			connProps.putAll(settings);
@@ -173,6 +231,20 @@ public class MqttEventSinkFactory extends AbstractEventSinkFactory {
 		return client;
 	}
 
+	/**
+	 * Create and connect asynchronous MQTT client, waiting for connection to complete
+	 *
+	 * @return asynchronous MQTT client instance, connected
+	 *
+	 * @throws org.eclipse.paho.client.mqttv3.MqttException
+	 *             when server communication or security error occurs
+	 */
+	public IMqttAsyncClient newMqttAsyncClient() throws MqttException {
+		MqttAsyncClient client = new MqttAsyncClient(serverURI, clientid, new MemoryPersistence());
+		client.connect(options).waitForCompletion(TimeUnit.SECONDS.toMillis(connTimeout));
+		return client;
+	}
+
 	/**
 	 * Create a new MQTT message with specific contents
 	 * 
@@ -218,4 +290,59 @@ public class MqttEventSinkFactory extends AbstractEventSinkFactory {
 		String mqttTopic = (topic == null ? evSink.getName() : topic);
 		client.publish(mqttTopic, msg);
 	}
+
+	/**
+	 * Publish message to a given MQTT client without waiting for delivery to complete
+	 *
+	 * @param evSink
+	 *            event sink
+	 * @param client
+	 *            MQTT client
+	 * @param msg
+	 *            MQTT message instance
+	 * @return delivery token used to track message delivery
+	 *
+	 * @throws org.eclipse.paho.client.mqttv3.MqttPersistenceException
+	 *             when a problem with storing the message
+	 * @throws org.eclipse.paho.client.mqttv3.MqttException
+	 *             for other errors encountered while publishing the message. For instance client not connected
+	 */
+	public MqttDeliveryToken publishNoWait(EventSink evSink, MqttClient client, MqttMessage msg)
+			throws MqttPersistenceException, MqttException {
+		String mqttTopic = (topic == null ? evSink.getName() : topic);
+		return client.getTopic(mqttTopic).publish(msg);
+	}
+
+	/**
+	 * Publish message to a given asynchronous MQTT client, notifying a given listener when delivery completes
+	 *
+	 * @param evSink
+	 *            event sink
+	 * @param client
+	 *            asynchronous MQTT client
+	 * @param msg
+	 *            MQTT message instance
+	 * @param listener
+	 *            listener notified when delivery completes or fails
+	 * @return delivery token used to track message delivery
+	 *
+	 * @throws org.eclipse.paho.client.mqttv3.MqttPersistenceException
+	 *             when a problem with storing the message
+	 * @throws org.eclipse.paho.client.mqttv3.MqttException
+	 *             for other errors encountered while publishing the message. For instance client not connected
+	 */
+	public IMqttDeliveryToken publishAsync(EventSink evSink, IMqttAsyncClient client, MqttMessage msg,
+			IMqttActionListener listener) throws MqttPersistenceException, MqttException {
+		String mqttTopic = (topic == null ? evSink.getName() : topic);
+		return client.publish(mqttTopic, msg, null, listener);
+	}
+
+	/**
+	 * Obtain maximum number of messages published without waiting for their delivery to complete
+	 *
+	 * @return maximum number of in-flight messages
+	 */
+	public int getMaxInflight() {
+		return options.getMaxInflight();
+	}
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2014-2023 JKOOL, LLC.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jkoolcloud.tnt4j.sink.impl.mqtt;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.*;
+
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.jkoolcloud.tnt4j.format.DefaultFormatter;
+import com.jkoolcloud.tnt4j.sink.SinkError;
+import com.jkoolcloud.tnt4j.source.DefaultSource;
+import com.jkoolcloud.tnt4j.source.SourceType;
+import com.jkoolcloud.tnt4j.utils.Utils;
+
+/**
+ * {@link MqttAsyncEventSink} tests run against a stub {@link IMqttAsyncClient} completing publishes on demand.
+ *
+ * @version $Revision: 1 $
+ */
+public class MqttAsyncEventSinkTest {
+	final StubClient client = new StubClient();
+	final ExecutorService executor = Executors.newSingleThreadExecutor();
+	MqttAsyncEventSink sink;
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		client.ackAll();
+		if (sink != null) {
+			sink.close();
+		}
+		executor.shutdownNow();
+	}
+
+	private MqttAsyncEventSink newSink(int maxInFlight, long timeout) throws IOException {
+		MqttEventSinkFactory factory = new MqttEventSinkFactory() {
+			@Override
+			public IMqttAsyncClient newMqttAsyncClient() {
+				return client.proxy;
+			}
+		};
+		MqttAsyncEventSink mSink = new MqttAsyncEventSink(factory, "tnt4j-test", new Properties(),
+				new DefaultFormatter("{2}"));
+		mSink.setSource(new DefaultSource(null, "test", SourceType.APPL, null, null));
+		mSink.setInFlightWindow(maxInFlight, timeout);
+		return mSink;
+	}
+
+	private static long stat(MqttAsyncEventSink sink, String key) {
+		Object value = sink.getStats().get(Utils.qualify(sink, key));
+		return ((Number) value).longValue();
+	}
+
+	@Test
+	public void logBatchDoesNotWaitForDeliveries() throws Exception {
+		sink = newSink(10, 5000);
+		sink.setBatching(MqttAsyncEventSink.BatchFormat.NDJSON, 100, 64 * 1024, 0);
+		sink.open();
+
+		long start = System.currentTimeMillis();
+		sink.log(Arrays.asList("one", "two", "three"));
+		sink.log(Arrays.asList("four", "five"));
+		assertTrue(System.currentTimeMillis() - start < 1000, "log(Collection) waited for deliveries");
+
+		assertFalse(sink.errorState());
+		assertEquals(2, client.payloads.size());
+		assertEquals(3, client.payloads.get(0).split("\n").length);
+		assertEquals(2, stat(sink, MqttAsyncEventSink.KEY_MQTT_PUBLISHED));
+		assertEquals(5, stat(sink, MqttAsyncEventSink.KEY_MQTT_PUBLISHED_ENTRIES));
+		assertEquals(2, stat(sink, MqttAsyncEventSink.KEY_MQTT_IN_FLIGHT));
+		assertEquals(0, stat(sink, MqttAsyncEventSink.KEY_MQTT_ACKED));
+	}
+
+	@Test
+	public void flushWaitsForDeliveries() throws Exception {
+		sink = newSink(10, 5000);
+		sink.open();
+		sink.writeFormatted("one");
+		sink.writeFormatted("two");
+
+		Future<?> flush = executor.submit(() -> {
+			sink.flush();
+			return null;
+		});
+		Thread.sleep(50);
+		assertFalse(flush.isDone(), "flush returned before deliveries completed");
+		client.ackNext();
+		Thread.sleep(50);
+		assertFalse(flush.isDone(), "flush returned before deliveries completed");
+		client.ackNext();
+		flush.get(5, TimeUnit.SECONDS);
+		assertEquals(2, stat(sink, MqttAsyncEventSink.KEY_MQTT_ACKED));
+	}
+
+	@Test
+	public void flushDoesNotWaitForLaterPublishes() throws Exception {
+		sink = newSink(2, 5000);
+		sink.open();
+		sink.writeFormatted("one");
+
+		Future<?> flush = executor.submit(() -> {
+			sink.flush();
+			return null;
+		});
+		Thread.sleep(50);
+		// window never drains: a new publish is issued before earlier one completes
+		sink.writeFormatted("two");
+		client.ackNext();
+		flush.get(5, TimeUnit.SECONDS);
+		assertEquals(1, stat(sink, MqttAsyncEventSink.KEY_MQTT_IN_FLIGHT));
+	}
+
+	@Test
+	public void flushCountsFailedDeliveries() throws Exception {
+		List<SinkError> errors = new CopyOnWriteArrayList<>();
+		sink = newSink(10, 5000);
+		sink.addSinkErrorListener(errors::add);
+		sink.open();
+		sink.writeFormatted("one");
+		IOException exc = new IOException("broker gone");
+		client.failNext(exc);
+		sink.flush();
+
+		assertEquals(1, stat(sink, MqttAsyncEventSink.KEY_MQTT_FAILED));
+		assertEquals(1, sink.getErrorCount());
+		assertEquals(1, errors.size());
+		assertSame(exc, errors.get(0).getCause());
+	}
+
+	@Test
+	public void flushTimesOut() throws Exception {
+		sink = newSink(10, 50);
+		sink.open();
+		sink.writeFormatted("one");
+
+		assertThrows(IOException.class, sink::flush);
+	}
+
+	/**
+	 * Stub MQTT client recording published payloads and holding their completion listeners until completed by test.
+	 */
+	static class StubClient {
+		final List<String> payloads = new CopyOnWriteArrayList<>();
+		final BlockingQueue<IMqttActionListener> pending = new LinkedBlockingQueue<>();
+		final IMqttToken token = (IMqttToken) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { IMqttToken.class }, (instance, method, args) -> null);
+		final IMqttAsyncClient proxy = (IMqttAsyncClient) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { IMqttAsyncClient.class }, (instance, method, args) -> {
+					switch (method.getName()) {
+					case "isConnected":
+						return true;
+					case "publish":
+						payloads.add(new String(((MqttMessage) args[1]).getPayload(), StandardCharsets.UTF_8));
+						pending.add((IMqttActionListener) args[args.length - 1]);
+						return null;
+					case "disconnect":
+						return token;
+					case "close":
+						return null;
+					case "hashCode":
+						return System.identityHashCode(instance);
+					case "equals":
+						return instance == args[0];
+					case "toString":
+						return "StubClient";
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+
+		void ackNext() {
+			IMqttActionListener listener = pending.poll();
+			assertNotNull(listener, "no pending publish");
+			listener.onSuccess(token);
+		}
+
+		void failNext(Throwable exc) {
+			IMqttActionListener listener = pending.poll();
+			assertNotNull(listener, "no pending publish");
+			listener.onFailure(token, exc);
+		}
+
+		void ackAll() {
+			List<IMqttActionListener> listeners = new ArrayList<>();
+			pending.drainTo(listeners);
+			for (IMqttActionListener listener : listeners) {
+				listener.onSuccess(token);
+			}
+		}
+	}
+}